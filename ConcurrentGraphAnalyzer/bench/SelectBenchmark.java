@@ -0,0 +1,152 @@
+
+/*******************
+
+This class is a benchmark of getStatsFromCollection.QuickSelect, the iterative introselect that finds the k-th smallest value, against
+the recursive QuickSelect with a random pivot and a Lomuto partition that it replaced (kept here as the baseline).
+It is kept out of src, so that it is not built with the analyzer: it is compiled with the sources and run with, e.g.,
+    javac -d out src/*.java bench/SelectBenchmark.java
+    java -cp out SelectBenchmark
+
+It first checks that QuickSelect returns the same value as sorting, for every primitive type and for random sizes, distributions and
+ranks. It then times both selections of the median over arrays of several sizes and distributions (including heavy ties, on which
+the baseline recurses once per value and may overflow the stack), printing the best time per array over a few repetitions measured
+with System.nanoTime.
+
+*******************/
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SelectBenchmark {
+
+	static final String[] distributions = { "random", "ties", "sorted", "reversed", "organ pipe", "median-of-3 killer" };
+	static final int[] sizes = { 20, 200, 2000, 50000 };
+	static final int repetitions = 7;
+	// the generator of the pivots of the baseline.
+	private static final Random pivots = new Random(11);
+
+	public static void main(String[] args) {
+		Random random = new Random(7);
+		check(random);
+
+		for ( int n : sizes ) {
+			for ( int distribution = 0; distribution < distributions.length; distribution++ ) {
+				int arrays = Math.max(20, 2000000 / n);
+				double[][] data = new double[arrays][];
+				for ( int i = 0; i < arrays; i++ )
+					data[i] = generate(random, distribution, n);
+				double[] work = new double[n];
+				long bestBaseline = Long.MAX_VALUE;
+				long bestIntroselect = Long.MAX_VALUE;
+				boolean overflow = false;
+				double sink = 0;
+				for ( int repetition = 0; repetition < repetitions; repetition++ ) {
+					long start = System.nanoTime();
+					try {
+						for ( double[] values : data ) {
+							System.arraycopy(values, 0, work, 0, n);
+							sink += randomPivotSelect(work, 0, n - 1, n >>> 1);
+						}
+					} catch (StackOverflowError e) {
+						overflow = true;
+					}
+					long middle = System.nanoTime();
+					for ( double[] values : data ) {
+						System.arraycopy(values, 0, work, 0, n);
+						sink += getStatsFromCollection.QuickSelect(work, n >>> 1);
+					}
+					long end = System.nanoTime();
+					bestBaseline = Math.min(bestBaseline, middle - start);
+					bestIntroselect = Math.min(bestIntroselect, end - middle);
+				}
+				System.out.printf("n = %-6d %-19s random pivot %10.0f ns   introselect %10.0f ns   %5.2fx%s%n", n, distributions[distribution],
+						(double)bestBaseline / arrays, (double)bestIntroselect / arrays, (double)bestBaseline / bestIntroselect,
+						(overflow ? "   (random pivot: StackOverflowError)" : ""));
+				if (sink == Double.MIN_VALUE)
+					System.out.println();
+			}
+		}
+	}
+
+	// checks QuickSelect against sorting, over every primitive type.
+	private static void check(Random random) {
+		for ( int test = 0; test < 30000; test++ ) {
+			int n = 1 + random.nextInt(2000);
+			int distribution = test % distributions.length;
+			int k = random.nextInt(n);
+			double[] d = generate(random, distribution, n);
+			float[] f = new float[n];
+			int[] i = new int[n];
+			long[] l = new long[n];
+			for ( int j = 0; j < n; j++ ) {
+				f[j] = (float)d[j];
+				i[j] = (int)(distribution == 0 ? d[j] * 1000000 : d[j]);
+				l[j] = i[j];
+			}
+			double[] sortedD = d.clone();
+			float[] sortedF = f.clone();
+			int[] sortedI = i.clone();
+			Arrays.sort(sortedD);
+			Arrays.sort(sortedF);
+			Arrays.sort(sortedI);
+			Assert.check(getStatsFromCollection.QuickSelect(d, k) == sortedD[k], "QuickSelect of doubles equal to sorting");
+			Assert.check(getStatsFromCollection.QuickSelect(f, k) == sortedF[k], "QuickSelect of floats equal to sorting");
+			Assert.check(getStatsFromCollection.QuickSelect(i, k) == sortedI[k], "QuickSelect of ints equal to sorting");
+			Assert.check(getStatsFromCollection.QuickSelect(l, k) == sortedI[k], "QuickSelect of longs equal to sorting");
+		}
+		System.out.println("Checked QuickSelect against sorting.");
+	}
+
+	private static double[] generate(Random random, int distribution, int n) {
+		double[] values = new double[n];
+		if (distribution == 5) {
+			// the median-of-3 killer sequence of Musser.
+			int k = n / 2;
+			for ( int i = 1; i <= k; i++ ) {
+				if ((i & 1) == 1) {
+					values[i-1] = i;
+					values[i] = k + i;
+				}
+				values[k + i - 1] = 2 * i;
+			}
+			return values;
+		}
+		for ( int i = 0; i < n; i++ ) {
+			switch (distribution) {
+				case 0: values[i] = random.nextDouble(); break;
+				case 1: values[i] = random.nextInt(4); break;
+				case 2: values[i] = i; break;
+				case 3: values[i] = n - i; break;
+				default: values[i] = ((i & 1) == 0 ? i : n - i); break;
+			}
+		}
+		return values;
+	}
+
+	// the previous QuickSelect: a Lomuto partition around a random pivot, recursing into the part containing k.
+	private static double randomPivotSelect(double[] values, int left, int right, int k) {
+		if (left == right)
+			return values[left];
+		int pivotIndex = left + pivots.nextInt(right - left + 1);
+		double pivot = values[pivotIndex];
+		swap(values, pivotIndex, right);
+		int store = left;
+		for ( int i = left; i < right; i++ )
+			if (values[i] < pivot)
+				swap(values, i, store++);
+		swap(values, right, store);
+		if (k == store)
+			return values[k];
+		else if (k < store)
+			return randomPivotSelect(values, left, store - 1, k);
+		else
+			return randomPivotSelect(values, store + 1, right, k);
+	}
+
+	private static void swap(double[] values, int a, int b) {
+		double tmp = values[a];
+		values[a] = values[b];
+		values[b] = tmp;
+	}
+
+}
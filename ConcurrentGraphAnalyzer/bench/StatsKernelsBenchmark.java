@@ -0,0 +1,140 @@
+
+/*******************
+
+This class is a benchmark of the kernels of StatsKernels.java against plain loops with a single double accumulator, over arrays of
+floats and of doubles of several lengths.
+It is kept out of src, so that it is not built with the analyzer: it is compiled with the sources and run with, e.g.,
+    javac -d out src/*.java bench/StatsKernelsBenchmark.java
+    java -cp out StatsKernelsBenchmark
+
+For each kernel (the sum, the sum of the squared deviations and the sum of the absolute deviations from the mean) and each length, it
+prints the best time per call over a few repetitions measured with System.nanoTime, and the speedup of the kernel over the plain loop.
+For the longest arrays it also prints the relative error of both against the exact sums (calculated with BigDecimal).
+
+*******************/
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+public class StatsKernelsBenchmark {
+
+	static final int[] lengths = { 8, 32, 64, 512, 4096, 1 << 20 };
+	static final int repetitions = 8;
+
+	interface Kernel {
+		double run();
+	}
+
+	public static void main(String[] args) {
+		Random random = new Random(1);
+		System.out.println("length   |  float sum  float SD  float MAD | double sum  double SD  double MAD    (plain loop time / kernel time)");
+		for ( int n : lengths ) {
+			float[] f = new float[n];
+			double[] d = new double[n];
+			for ( int i = 0; i < n; i++ ) {
+				f[i] = 0.5f + random.nextFloat();
+				d[i] = f[i] + random.nextDouble() * 1e-9;
+			}
+			double meanF = StatsKernels.sum(f, 0, n) / n;
+			double meanD = StatsKernels.sum(d, 0, n) / n;
+			int calls = Math.max(3, (1 << 23) / n);
+			double[] speedups = {
+				time(() -> plainSum(f), calls) / time(() -> StatsKernels.sum(f, 0, n), calls),
+				time(() -> plainSumOfSquaredDeviations(f, meanF), calls) / time(() -> StatsKernels.sumOfSquaredDeviations(f, 0, n, meanF), calls),
+				time(() -> plainSumOfAbsoluteDeviations(f, meanF), calls) / time(() -> StatsKernels.sumOfAbsoluteDeviations(f, 0, n, meanF), calls),
+				time(() -> plainSum(d), calls) / time(() -> StatsKernels.sum(d, 0, n), calls),
+				time(() -> plainSumOfSquaredDeviations(d, meanD), calls) / time(() -> StatsKernels.sumOfSquaredDeviations(d, 0, n, meanD), calls),
+				time(() -> plainSumOfAbsoluteDeviations(d, meanD), calls) / time(() -> StatsKernels.sumOfAbsoluteDeviations(d, 0, n, meanD), calls) };
+			System.out.printf("%-8d | %9.2fx %8.2fx %9.2fx | %9.2fx %9.2fx %10.2fx%n", n, speedups[0], speedups[1], speedups[2], speedups[3],
+					speedups[4], speedups[5]);
+
+			if (n == lengths[lengths.length - 1]) {
+				double[] exact = exactSums(f, meanF);
+				System.out.printf("relative errors of %d floats: sum kernel %.2e plain %.2e, squared deviations kernel %.2e plain %.2e, " +
+						"absolute deviations kernel %.2e plain %.2e%n", n,
+						error(StatsKernels.sum(f, 0, n), exact[0]), error(plainSum(f), exact[0]),
+						error(StatsKernels.sumOfSquaredDeviations(f, 0, n, meanF), exact[1]), error(plainSumOfSquaredDeviations(f, meanF), exact[1]),
+						error(StatsKernels.sumOfAbsoluteDeviations(f, 0, n, meanF), exact[2]), error(plainSumOfAbsoluteDeviations(f, meanF), exact[2]));
+			}
+		}
+	}
+
+	// the best time per call of a kernel, in nanoseconds.
+	static double time(Kernel kernel, int calls) {
+		long best = Long.MAX_VALUE;
+		double sink = 0;
+		for ( int repetition = 0; repetition < repetitions; repetition++ ) {
+			long start = System.nanoTime();
+			for ( int c = 0; c < calls; c++ )
+				sink += kernel.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		if (sink == Double.MIN_VALUE)
+			System.out.println();
+		return (double)best / calls;
+	}
+
+	// the exact sum, sum of the squared deviations and sum of the absolute deviations of the floats, from the double mean.
+	static double[] exactSums(float[] arr, double mean) {
+		BigDecimal sum = BigDecimal.ZERO;
+		BigDecimal squares = BigDecimal.ZERO;
+		BigDecimal absolutes = BigDecimal.ZERO;
+		BigDecimal m = new BigDecimal(mean);
+		for ( float value : arr ) {
+			BigDecimal v = new BigDecimal(value);
+			BigDecimal deviation = v.subtract(m);
+			sum = sum.add(v);
+			squares = squares.add(deviation.multiply(deviation));
+			absolutes = absolutes.add(deviation.abs());
+		}
+		double[] sums = { sum.doubleValue(), squares.doubleValue(), absolutes.doubleValue() };
+		return sums;
+	}
+
+	static double error(double value, double exact) {
+		return Math.abs(value / exact - 1);
+	}
+
+	static double plainSum(float[] arr) {
+		double s = 0;
+		for ( float value : arr )
+			s += value;
+		return s;
+	}
+
+	static double plainSumOfSquaredDeviations(float[] arr, double mean) {
+		double s = 0;
+		for ( float value : arr )
+			s += (value - mean) * (value - mean);
+		return s;
+	}
+
+	static double plainSumOfAbsoluteDeviations(float[] arr, double mean) {
+		double s = 0;
+		for ( float value : arr )
+			s += Math.abs(value - mean);
+		return s;
+	}
+
+	static double plainSum(double[] arr) {
+		double s = 0;
+		for ( double value : arr )
+			s += value;
+		return s;
+	}
+
+	static double plainSumOfSquaredDeviations(double[] arr, double mean) {
+		double s = 0;
+		for ( double value : arr )
+			s += (value - mean) * (value - mean);
+		return s;
+	}
+
+	static double plainSumOfAbsoluteDeviations(double[] arr, double mean) {
+		double s = 0;
+		for ( double value : arr )
+			s += Math.abs(value - mean);
+		return s;
+	}
+
+}
@@ -0,0 +1,239 @@
+
+/*******************
+
+This class is an interning dictionary for the Strings read from the CSV file (email addresses and email identifiers).
+It maps each distinct key to a dense id (0 <= id < size(), in order of first appearance), and each id back to its key.
+
+Instead of one String (with its header and UTF-16 characters) and one HashMap entry per key, it stores:
+ - all keys one after the other, encoded in UTF-8, in a single byte arena, where key number id is
+   arena[ keyOffsets[id] <= i < keyOffsets[id+1] ],
+ - an open-addressing hash table of longs with linear probing, where each used slot holds the hash of a key in its 32 upper bits
+   and id + 1 in its 32 lower bits (0 is an empty slot). The hash is compared before the bytes, so most probes never touch the arena.
+
+Keys can be interned directly from the bytes of a line, without creating a String.
+It is not thread-safe: each Thread parsing a file should intern into its own dictionary, or they should be synchronized externally.
+
+*******************/
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class AddressDictionary {
+
+	// the table is grown when it is more than this full.
+	private static final float maximalLoadFactor = 0.5f;
+
+	private byte[] arena;
+	private int arenaSize;
+	// key number id is arena[ keyOffsets[id] <= i < keyOffsets[id+1] ].
+	private int[] keyOffsets;
+	private int size;
+	private long[] table;
+	private int mask;
+
+	AddressDictionary() {
+		this(1 << 10);
+	}
+
+	AddressDictionary(int expectedNumberOfKeys) {
+		this(expectedNumberOfKeys, (long)expectedNumberOfKeys * 16);
+	}
+
+    /**
+     * @param expectedNumberOfKeys the number of keys expected, used to size the table so it does not need to grow.
+     *
+     * @param expectedNumberOfBytes the total number of bytes of the keys expected, used to size the arena so it does not need to grow.
+     *
+     */
+	AddressDictionary(int expectedNumberOfKeys, long expectedNumberOfBytes) {
+		int capacity = Integer.highestOneBit(Math.max(16, (int)(expectedNumberOfKeys / maximalLoadFactor)) - 1) << 1;
+		table = new long[capacity];
+		mask = capacity - 1;
+		keyOffsets = new int[Math.max(16, expectedNumberOfKeys + 1)];
+		arena = new byte[(int)Math.max(256, Math.min(expectedNumberOfBytes, Integer.MAX_VALUE - 8))];
+	}
+
+    /**
+     * Returns the id of key, adding it to the dictionary with the next id if it is not there yet.
+     *
+     */
+	int intern(String key) {
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		return intern(bytes, 0, bytes.length);
+	}
+
+    /**
+     * Returns the id of the key encoded in UTF-8 in bytes[ start <= i < start + length ], adding it to the dictionary with the next id
+     * if it is not there yet. The bytes are copied, so the array can be reused afterwards.
+     *
+     */
+	int intern(byte[] bytes, int start, int length) {
+		int hash = hash(bytes, start, length);
+		int slot = hash & mask;
+		long entry;
+		while ( (entry = table[slot]) != 0 ) {
+			if ((int)(entry >>> 32) == hash && equals((int)entry - 1, bytes, start, length))
+				return (int)entry - 1;
+			slot = (slot + 1) & mask;
+		}
+
+		// adds the key.
+		int id = size++;
+		if (arenaSize + length > arena.length)
+			arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+		System.arraycopy(bytes, start, arena, arenaSize, length);
+		arenaSize += length;
+		if (size + 1 > keyOffsets.length)
+			keyOffsets = Arrays.copyOf(keyOffsets, keyOffsets.length * 2);
+		keyOffsets[size] = arenaSize;
+		table[slot] = ((long)hash << 32) | (id + 1);
+		if (size > table.length * maximalLoadFactor)
+			rehash();
+		return id;
+	}
+
+    /**
+     * Returns the id of the key number otherId of another dictionary, adding it to this dictionary with the next id if it is not there yet.
+     *
+     */
+	int intern(AddressDictionary other, int otherId) {
+		return intern(other.arena, other.keyOffsets[otherId], other.keyOffsets[otherId+1] - other.keyOffsets[otherId]);
+	}
+
+    /**
+     * Returns the id of key, or -1 if it is not in the dictionary.
+     *
+     */
+	int getId(String key) {
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		return getId(bytes, 0, bytes.length);
+	}
+
+    /**
+     * Returns the id of the key encoded in UTF-8 in bytes[ start <= i < start + length ], or -1 if it is not in the dictionary.
+     *
+     */
+	int getId(byte[] bytes, int start, int length) {
+		int hash = hash(bytes, start, length);
+		long entry;
+		for ( int slot = hash & mask; (entry = table[slot]) != 0; slot = (slot + 1) & mask )
+			if ((int)(entry >>> 32) == hash && equals((int)entry - 1, bytes, start, length))
+				return (int)entry - 1;
+		return -1;
+	}
+
+    /**
+     * Returns the key with a specified id.
+     *
+     */
+	String getAddress(int id) {
+		return new String(arena, keyOffsets[id], keyOffsets[id+1] - keyOffsets[id], StandardCharsets.UTF_8);
+	}
+
+    /**
+     * Returns a new dictionary with the same keys, whose ids are in increasing order of the bytes of the keys (compared as unsigned,
+     * which is the order of the code points for UTF-8), so that they do not depend on the order in which the keys were added.
+     *
+     * @param newIds receives the new id of each id of this dictionary (it must have at least size() elements).
+     *
+     */
+	AddressDictionary sorted(int[] newIds) {
+		// each id is sorted as a long holding 3 bytes of its key in its upper bits and the id in its lower bits (see sortByBytes).
+		long[] keys = new long[size];
+		for ( int id = 0; id < size; id++ )
+			keys[id] = (bytesAt(id, 0) << 32) | id;
+		sortByBytes(keys, 0, size, 0);
+		AddressDictionary result = new AddressDictionary(size, arenaSize);
+		for ( long key : keys )
+			newIds[(int)key] = result.intern(this, (int)key);
+		return result;
+	}
+
+	// sorts keys[ from <= i < to ], whose keys have the same depth first bytes, by their bytes from depth on: they are sorted by the 3
+	// bytes from depth, and each run of keys with the same 3 bytes that go on after them is sorted again by the next 3 bytes.
+	private void sortByBytes(long[] keys, int from, int to, int depth) {
+		Arrays.sort(keys, from, to);
+		int i = from;
+		while ( i < to ) {
+			long bytes = keys[i] >>> 32;
+			int j = i + 1;
+			while ( j < to && (keys[j] >>> 32) == bytes )
+				j++;
+			if (j - i > 1 && (bytes & 3) == 3) {
+				for ( int k = i; k < j; k++ )
+					keys[k] = (bytesAt((int)keys[k], depth + 3) << 32) | (int)keys[k];
+				sortByBytes(keys, i, j, depth + 3);
+			}
+			i = j;
+		}
+	}
+
+	// returns the 3 bytes of key number id from depth on (0 past its end), followed by 2 bits counting how many of them are in the key,
+	// so that a key comes before the longer keys it starts.
+	private long bytesAt(int id, int depth) {
+		int start = keyOffsets[id] + depth;
+		int present = Math.max(0, Math.min(3, keyOffsets[id+1] - start));
+		long bytes = 0;
+		for ( int k = 0; k < 3; k++ )
+			bytes = (bytes << 8) | (k < present ? arena[start + k] & 0xFF : 0);
+		return (bytes << 2) | present;
+	}
+
+    /**
+     * Returns the number of keys in the dictionary.
+     *
+     */
+	int size() {
+		return size;
+	}
+
+    /**
+     * Returns the number of bytes used by the arena, the offsets and the table.
+     *
+     */
+	long sizeInBytes() {
+		return arena.length + 4L * keyOffsets.length + 8L * table.length;
+	}
+
+	private boolean equals(int id, byte[] bytes, int start, int length) {
+		int offset = keyOffsets[id];
+		if (keyOffsets[id+1] - offset != length)
+			return false;
+		for ( int i = 0; i < length; i++ )
+			if (arena[offset + i] != bytes[start + i])
+				return false;
+		return true;
+	}
+
+    /**
+     * Doubles the table, reinserting the entries with their stored hashes (the keys are not read).
+     *
+     */
+	private void rehash() {
+		long[] old = table;
+		table = new long[old.length * 2];
+		mask = table.length - 1;
+		for ( long entry : old ) {
+			if (entry == 0)
+				continue;
+			int slot = (int)(entry >>> 32) & mask;
+			while ( table[slot] != 0 )
+				slot = (slot + 1) & mask;
+			table[slot] = entry;
+		}
+	}
+
+	// FNV-1a over the bytes, followed by the finalizer of MurmurHash3 so that the low bits used as slot are well mixed.
+	private static int hash(byte[] bytes, int start, int length) {
+		int h = 0x811C9DC5;
+		for ( int i = start; i < start + length; i++ )
+			h = (h ^ bytes[i]) * 0x01000193;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}
@@ -0,0 +1,138 @@
+
+/*******************
+
+This class indexes the addresses of a graph, so that the Nodes of a department or of a few addresses can be found without scanning all
+of them, e.g. to extract a Subgraph around them:
+ - by prefix of the address (e.g. "john." finds "john.smith@corp.com" and "john.doe@other.org"), in lower case,
+ - by domain, including its subdomains (e.g. "corp.com" finds the addresses of "corp.com", "sales.corp.com" and "eu.sales.corp.com").
+
+Each index is an array of the ids of the Nodes sorted by a key (the address, or the labels of the domain in reverse order followed by the
+address, e.g. "com.corp.sales@john.smith@sales.corp.com"), so that the Nodes matching a query are a range of it, found by binary search.
+The keys are calculated and sorted in parallel: the keys themselves are sorted, the position of each key among them is found by binary
+search, and the ids are radix-sorted by those positions (see sortedIds), with no boxed ids nor comparator calls.
+
+*******************/
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+public class AddressIndex {
+
+	// the ids sorted by address, and the addresses in that order.
+	private int[] byAddress;
+	private String[] sortedAddresses;
+	// the ids sorted by reversed domain, and the keys in that order.
+	private int[] byDomain;
+	private String[] sortedDomainKeys;
+
+    /**
+     * Indexes the addresses of the Nodes 0 <= p < numberOfNodes.
+     *
+     * @param addressOfNode the address of each Node (e.g. p -> graph.nodes[p].address, or rows.addressDictionary::getAddress).
+     *
+     */
+	AddressIndex(int numberOfNodes, IntFunction<String> addressOfNode, int numberOfConcurrentThreads) {
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(numberOfNodes, 1)));
+		String[] addresses = new String[numberOfNodes];
+		String[] domainKeys = new String[numberOfNodes];
+		ParallelRange.run(threads, numberOfNodes, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				addresses[p] = addressOfNode.apply(p).trim().toLowerCase(Locale.ROOT);
+				domainKeys[p] = reversedDomain(DomainGraph.domainOf(addresses[p])) + "@" + addresses[p];
+			}
+		});
+
+		sortedAddresses = addresses.clone();
+		byAddress = sortedIds(addresses, sortedAddresses, threads);
+		sortedDomainKeys = domainKeys.clone();
+		byDomain = sortedIds(domainKeys, sortedDomainKeys, threads);
+	}
+
+	// returns the ids sorted by their keys (equal keys in order of id), sorting sortedKeys, a copy of the keys.
+	private static int[] sortedIds(String[] keys, String[] sortedKeys, int threads) {
+		int n = keys.length;
+		Arrays.parallelSort(sortedKeys);
+		// the position of the first key equal to the key of each id, by which the (stable) radix sort orders the ids.
+		long[] positions = new long[n];
+		int[] ids = new int[n];
+		ParallelRange.run(threads, n, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				positions[p] = lowerBound(sortedKeys, keys[p]);
+				ids[p] = p;
+			}
+		});
+		ParallelRadixSort.sort(positions, ids, n, Math.max(n - 1, 0), threads);
+		return ids;
+	}
+
+	// returns the labels of a domain in reverse order, e.g. "com.corp.sales" for "sales.corp.com".
+	static String reversedDomain(String domain) {
+		String[] labels = domain.split("\\.");
+		StringBuilder builder = new StringBuilder(domain.length());
+		for ( int i = labels.length - 1; i >= 0; i-- ) {
+			builder.append(labels[i]);
+			if (i > 0)
+				builder.append('.');
+		}
+		return builder.toString();
+	}
+
+    /**
+     * Returns the ids of the Nodes whose address (in lower case) starts with prefix, sorted.
+     *
+     */
+	int[] withPrefix(String prefix) {
+		String key = prefix.trim().toLowerCase(Locale.ROOT);
+		return range(byAddress, sortedAddresses, key, key + Character.MAX_VALUE);
+	}
+
+    /**
+     * Returns the id of the Node of an address, or -1 if there is none.
+     *
+     */
+	int getId(String address) {
+		String key = address.trim().toLowerCase(Locale.ROOT);
+		int i = Arrays.binarySearch(sortedAddresses, key);
+		return (i >= 0 ? byAddress[i] : -1);
+	}
+
+    /**
+     * Returns the ids of the Nodes whose domain is domain or one of its subdomains, sorted.
+     *
+     */
+	int[] inDomain(String domain) {
+		String reversed = reversedDomain(domain.trim().toLowerCase(Locale.ROOT));
+		// the keys of the domain itself ("com.corp@...") and of its subdomains ("com.corp.sales@...").
+		int[] exact = range(byDomain, sortedDomainKeys, reversed + "@", reversed + "@" + Character.MAX_VALUE);
+		int[] subdomains = range(byDomain, sortedDomainKeys, reversed + ".", reversed + "." + Character.MAX_VALUE);
+		int[] ids = Arrays.copyOf(exact, exact.length + subdomains.length);
+		System.arraycopy(subdomains, 0, ids, exact.length, subdomains.length);
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	// returns the ids whose keys k satisfy from <= k < to, sorted.
+	private static int[] range(int[] ids, String[] sortedKeys, String from, String to) {
+		int start = lowerBound(sortedKeys, from);
+		int end = lowerBound(sortedKeys, to);
+		int[] result = Arrays.copyOfRange(ids, start, Math.max(start, end));
+		Arrays.sort(result);
+		return result;
+	}
+
+	// returns the first position whose key is not smaller than key.
+	private static int lowerBound(String[] sortedKeys, String key) {
+		int low = 0;
+		int high = sortedKeys.length;
+		while ( low < high ) {
+			int middle = (low + high) >>> 1;
+			if (sortedKeys[middle].compareTo(key) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+}
@@ -0,0 +1,90 @@
+
+/*******************
+
+This class is a Bloom filter over 64-bit hashes, that can be used by several Threads at the same time.
+It answers whether an element may have been added before (with a probability of false positive chosen when it is created) or
+certainly was not.
+
+The bits are kept in an AtomicLongArray, and the positions of the bits of an element are derived from its hash by double hashing.
+When several Threads add the same hash at the same time, exactly one of them is told that it was not added before: the adds of equal
+hashes are serialized by a lock chosen by the hash (among a few locks, so that the adds of different hashes rarely wait).
+
+*******************/
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final long numberOfBits;
+	private final int numberOfHashes;
+	// the locks of the adds, chosen by the highest bits of the hash.
+	private final Object[] locks = new Object[64];
+
+    /**
+     * @param expectedNumberOfElements the number of elements expected to be added.
+     *
+     * @param falsePositiveRate the probability of an element never added being reported as added, once the expected number
+     * of elements was added.
+     *
+     */
+	BloomFilter(long expectedNumberOfElements, double falsePositiveRate) {
+		long n = Math.max(1, expectedNumberOfElements);
+		// the optimal number of bits is -n ln(p) / ln(2)^2, and the optimal number of hashes is (bits / n) ln(2).
+		long m = (long)Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int words = (int)Math.min(Math.max(1, (m + 63) >>> 6), Integer.MAX_VALUE - 8);
+		bits = new AtomicLongArray(words);
+		numberOfBits = (long)words << 6;
+		numberOfHashes = Math.max(1, (int)Math.round((double)numberOfBits / n * Math.log(2)));
+		for ( int l = 0; l < locks.length; l++ )
+			locks[l] = new Object();
+	}
+
+    /**
+     * Adds the element with a specified hash, and returns whether it may have been added before (i.e. all its bits were already set).
+     *
+     */
+	boolean add(long hash) {
+		boolean present = true;
+		long h1 = hash;
+		long h2 = (hash >>> 32) | 1;
+		synchronized (locks[(int)(hash >>> 58)]) {
+			for ( int i = 0; i < numberOfHashes; i++ ) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numberOfBits;
+				int word = (int)(bit >>> 6);
+				long mask = 1L << (bit & 63);
+				long value = bits.get(word);
+				if ((value & mask) == 0) {
+					present = false;
+					// the same word may be changed at the same time by the adds of other hashes, under other locks.
+					bits.getAndAccumulate(word, mask, (a, b) -> a | b);
+				}
+			}
+		}
+		return present;
+	}
+
+    /**
+     * Returns whether the element with a specified hash may have been added.
+     *
+     */
+	boolean mightContain(long hash) {
+		long h1 = hash;
+		long h2 = (hash >>> 32) | 1;
+		for ( int i = 0; i < numberOfHashes; i++ ) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numberOfBits;
+			if ((bits.get((int)(bit >>> 6)) & (1L << (bit & 63))) == 0)
+				return false;
+		}
+		return true;
+	}
+
+    /**
+     * Returns the number of bytes of the filter.
+     *
+     */
+	long sizeInBytes() {
+		return numberOfBits >>> 3;
+	}
+
+}
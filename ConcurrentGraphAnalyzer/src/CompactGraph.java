@@ -0,0 +1,392 @@
+
+/*******************
+
+This class is a compact, read-only representation of the graph in Compressed Sparse Row (CSR) form.
+Each Node (email address) is identified by an id 0 <= id < numberOfNodes, and its edges are stored in flat int arrays
+instead of the 2 HashMap<Node,Integer> of the Node class.
+
+It contains: the edges in both directions (addresses sending emails to each Node, and addresses receiving emails from each Node),
+                                         with the weight of each edge being the number of emails sent,
+             the weighted in-degree and out-degree of each Node,
+             the 6 centrality vectors (one float per Node for each type specified at centralityType.java), allocated on demand,
+             and optionally the Nodes from which it was built, to which calculated centralities are written back.
+
+The neighbors of each Node are sorted by id.
+
+It is built either from the Nodes filled by GraphBuilder.BuildGraphFromCSV (fromNodes), or from lists of edges with dense ids by
+radix-sorting them in parallel (fromEdges and fromWeightedEdges), without creating any Node.
+
+*******************/
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntUnaryOperator;
+
+public class CompactGraph {
+
+	// the number of Nodes in the graph.
+	int numberOfNodes;
+	// the number of oriented edges (distinct pairs sender -> recipient).
+	int totalNumberOfEdges;
+	// the sum of the weights of all edges, i.e. the total weighted degree of the graph.
+	long totalWeight;
+
+	// the addresses that send emails to Node p are inIds[ inOffsets[p] <= i < inOffsets[p+1] ], and inWeights[i] is the number of emails sent.
+	int[] inOffsets;
+	int[] inIds;
+	int[] inWeights;
+	// the addresses that receive emails from Node p are outIds[ outOffsets[p] <= i < outOffsets[p+1] ], and outWeights[i] is the number of emails received.
+	int[] outOffsets;
+	int[] outIds;
+	int[] outWeights;
+
+	// the total number of emails sent to / sent from each Node.
+	int[] inDegree;
+	int[] outDegree;
+
+	// the time-decayed weights of the edges, used instead of inWeights and outWeights by the weighted centralities if not null.
+	DecayedWeights decayedWeights;
+
+	// the Nodes from which the graph was built, indexed by id. It is null if the graph was not built from Nodes.
+	Node[] nodes;
+
+	// the centrality vectors indexed by centralityType.ordinal() and then by id. Each vector is allocated when first used.
+	float[][] centrality = new float[centralityType.values().length][];
+	// the initial value of each centrality when the graph was not built from Nodes.
+	float initialCentrality;
+
+
+	// CONSTRUCTORS //////////////////////////////////////////////////////////////////////////////////////
+
+	CompactGraph(int numberOfNodes, int[] inOffsets, int[] inIds, int[] inWeights, int[] outOffsets, int[] outIds, int[] outWeights,
+			float initialCentrality) {
+		this.numberOfNodes = numberOfNodes;
+		this.inOffsets = inOffsets;
+		this.inIds = inIds;
+		this.inWeights = inWeights;
+		this.outOffsets = outOffsets;
+		this.outIds = outIds;
+		this.outWeights = outWeights;
+		this.initialCentrality = initialCentrality;
+		this.totalNumberOfEdges = outOffsets[numberOfNodes];
+
+		inDegree = new int[numberOfNodes];
+		outDegree = new int[numberOfNodes];
+		for ( int p = 0; p < numberOfNodes; p++ ) {
+			for ( int i = inOffsets[p]; i < inOffsets[p+1]; i++ )
+				inDegree[p] += inWeights[i];
+			for ( int i = outOffsets[p]; i < outOffsets[p+1]; i++ )
+				outDegree[p] += outWeights[i];
+			totalWeight += outDegree[p];
+		}
+	}
+
+	// METHODS ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Builds a CompactGraph from a Collection of Nodes, such as dic.values() after calling GraphBuilder.BuildGraphFromCSV.
+     * Sets the id of each Node to its index in the CompactGraph.
+     *
+     * @param collectionOfNodes all the Nodes of the graph. Every Node referenced in fromNodes or toNodes must be in the Collection.
+     *
+     * @param numberOfConcurrentThreads the number of Threads filling the CSR arrays.
+     *
+     */
+	static CompactGraph fromNodes(Collection<Node> collectionOfNodes, int numberOfConcurrentThreads) {
+		Node[] nodes = collectionOfNodes.toArray(new Node[0]);
+		int n = nodes.length;
+		for ( int p = 0; p < n; p++ )
+			nodes[p].id = p;
+
+		int[] inOffsets = new int[n + 1];
+		int[] outOffsets = new int[n + 1];
+		for ( int p = 0; p < n; p++ ) {
+			inOffsets[p+1] = inOffsets[p] + nodes[p].fromNodes.size();
+			outOffsets[p+1] = outOffsets[p] + nodes[p].toNodes.size();
+		}
+		int[] inIds = new int[inOffsets[n]];
+		int[] inWeights = new int[inOffsets[n]];
+		int[] outIds = new int[outOffsets[n]];
+		int[] outWeights = new int[outOffsets[n]];
+
+		ParallelRange.runBalanced(numberOfConcurrentThreads, inOffsets, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				int i = inOffsets[p];
+				for ( Node q : nodes[p].fromNodes.keySet() ) {
+					inIds[i] = q.id;
+					inWeights[i++] = nodes[p].fromNodes.get(q);
+				}
+				sortRow(inIds, inWeights, inOffsets[p], inOffsets[p+1]);
+			}
+		});
+		ParallelRange.runBalanced(numberOfConcurrentThreads, outOffsets, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				int i = outOffsets[p];
+				for ( Node q : nodes[p].toNodes.keySet() ) {
+					outIds[i] = q.id;
+					outWeights[i++] = nodes[p].toNodes.get(q);
+				}
+				sortRow(outIds, outWeights, outOffsets[p], outOffsets[p+1]);
+			}
+		});
+
+		CompactGraph graph = new CompactGraph(n, inOffsets, inIds, inWeights, outOffsets, outIds, outWeights, 0);
+		graph.nodes = nodes;
+		return graph;
+	}
+
+    /**
+     * Builds a CompactGraph from the emails of an EmailTable, without Nodes: each email adds an edge from its sender to each one of its
+     * recipients, and the weight of an edge is the number of times it was added (as in GraphBuilder.BuildGraphFromCSV).
+     *
+     * @param table the emails, whose ids of addresses are the ids of the Nodes.
+     *
+     * @param numberOfNodes the number of different addresses (e.g. rows.addressDictionary.size()).
+     *
+     * @param initialCentrality the initial value of the centralities.
+     *
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     */
+	static CompactGraph fromEmails(EmailTable table, int numberOfNodes, float initialCentrality, int numberOfConcurrentThreads) {
+		int numberOfPairs = table.members.length - table.numberOfEmails;
+		long[] pairs = new long[numberOfPairs];
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(table.numberOfEmails, 1)));
+		// the pairs of email e are pairs[ offsets[e] - e <= i < offsets[e+1] - e - 1 ].
+		ParallelRange.runBalanced(threads, table.offsets, (part, start, end) -> {
+			for ( int e = start; e < end; e++ ) {
+				long sender = table.sender(e);
+				int i = table.offsets[e] - e;
+				for ( int j = table.offsets[e] + 1; j < table.offsets[e+1]; j++ )
+					pairs[i++] = sender * numberOfNodes + table.members[j];
+			}
+		});
+		return fromEdges(numberOfNodes, pairs, numberOfPairs, initialCentrality, numberOfConcurrentThreads);
+	}
+
+    /**
+     * Builds a CompactGraph from a list of edges, which may be repeated: the weight of each edge is the number of times it appears.
+     * The edges are radix-sorted by source to build the rows of out-neighbors, merging the repeated ones, and the resulting weighted
+     * edges are radix-sorted again by destination to build the rows of in-neighbors.
+     *
+     * @param numberOfNodes the number of Nodes, whose ids are 0 <= id < numberOfNodes.
+     *
+     * @param pairs the edges, as source * numberOfNodes + destination, in pairs[ 0 <= i < numberOfPairs ]. The array is reordered.
+     *
+     * @param initialCentrality the initial value of the centralities.
+     *
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     */
+	static CompactGraph fromEdges(int numberOfNodes, long[] pairs, int numberOfPairs, float initialCentrality, int numberOfConcurrentThreads) {
+		long n = numberOfNodes;
+		long maximalKey = Math.max(n * n - 1, 0);
+		int threads = Math.max(1, numberOfConcurrentThreads);
+
+		// sorts by source (and then destination), and merges the repeated edges.
+		ParallelRadixSort.sort(pairs, null, numberOfPairs, maximalKey, threads);
+		int[] runStarts = runStarts(pairs, numberOfPairs, threads);
+		int numberOfEdges = runStarts.length - 1;
+		long[] edges = new long[numberOfEdges];
+		int[] weights = new int[numberOfEdges];
+		ParallelRange.run(Math.min(threads, Math.max(numberOfEdges, 1)), numberOfEdges, (part, start, end) -> {
+			for ( int i = start; i < end; i++ ) {
+				edges[i] = pairs[runStarts[i]];
+				weights[i] = runStarts[i+1] - runStarts[i];
+			}
+		});
+		return fromSortedEdges(numberOfNodes, edges, weights, numberOfEdges, initialCentrality, threads);
+	}
+
+    /**
+     * Builds a CompactGraph from a list of edges with their weights, in any order (e.g. the edges of a SlidingWindowGraph).
+     * The weights of repeated edges are summed (e.g. the edges between addresses collapsed into an edge between domains by DomainGraph).
+     *
+     * @param numberOfNodes the number of Nodes, whose ids are 0 <= id < numberOfNodes.
+     *
+     * @param edges the edges, as source * numberOfNodes + destination, in edges[ 0 <= i < numberOfEdges ]. The array is overwritten.
+     *
+     * @param weights the weight of each edge. The array is overwritten.
+     *
+     * @param initialCentrality the initial value of the centralities.
+     *
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     */
+	static CompactGraph fromWeightedEdges(int numberOfNodes, long[] edges, int[] weights, int numberOfEdges, float initialCentrality, 
+			int numberOfConcurrentThreads) {
+		long n = numberOfNodes;
+		int threads = Math.max(1, numberOfConcurrentThreads);
+		ParallelRadixSort.sort(edges, weights, numberOfEdges, Math.max(n * n - 1, 0), threads);
+
+		// merges the repeated edges, each run of equal edges into its first position.
+		int[] runStarts = runStarts(edges, numberOfEdges, threads);
+		int numberOfDistinctEdges = runStarts.length - 1;
+		if (numberOfDistinctEdges < numberOfEdges) {
+			long[] distinctEdges = new long[numberOfDistinctEdges];
+			int[] distinctWeights = new int[numberOfDistinctEdges];
+			ParallelRange.run(Math.min(threads, Math.max(numberOfDistinctEdges, 1)), numberOfDistinctEdges, (part, start, end) -> {
+				for ( int i = start; i < end; i++ ) {
+					distinctEdges[i] = edges[runStarts[i]];
+					for ( int j = runStarts[i]; j < runStarts[i+1]; j++ )
+						distinctWeights[i] += weights[j];
+				}
+			});
+			return fromSortedEdges(numberOfNodes, distinctEdges, distinctWeights, numberOfDistinctEdges, initialCentrality, threads);
+		}
+		return fromSortedEdges(numberOfNodes, edges, weights, numberOfEdges, initialCentrality, threads);
+	}
+
+    /**
+     * Builds a CompactGraph from distinct edges sorted by source (and then destination), overwriting edges.
+     *
+     */
+	private static CompactGraph fromSortedEdges(int numberOfNodes, long[] edges, int[] outWeights, int numberOfEdges, float initialCentrality, 
+			int threads) {
+		long n = numberOfNodes;
+		long maximalKey = Math.max(n * n - 1, 0);
+		int[] outIds = new int[numberOfEdges];
+		ParallelRange.run(Math.min(threads, Math.max(numberOfEdges, 1)), numberOfEdges, (part, start, end) -> {
+			for ( int i = start; i < end; i++ ) {
+				long key = edges[i];
+				outIds[i] = (int)(key % n);
+				// the same edge, keyed by destination.
+				edges[i] = (key % n) * n + key / n;
+			}
+		});
+		int[] outOffsets = rowOffsets(i -> (int)(edges[i] % n), numberOfEdges, numberOfNodes, threads);
+
+		// sorts the edges by destination (and then source).
+		int[] inWeights = outWeights.clone();
+		ParallelRadixSort.sort(edges, inWeights, numberOfEdges, maximalKey, threads);
+		int[] inIds = new int[numberOfEdges];
+		ParallelRange.run(Math.min(threads, Math.max(numberOfEdges, 1)), numberOfEdges, (part, start, end) -> {
+			for ( int i = start; i < end; i++ )
+				inIds[i] = (int)(edges[i] % n);
+		});
+		int[] inOffsets = rowOffsets(i -> (int)(edges[i] / n), numberOfEdges, numberOfNodes, threads);
+
+		return new CompactGraph(numberOfNodes, inOffsets, inIds, inWeights, outOffsets, outIds, outWeights, initialCentrality);
+	}
+
+    /**
+     * Returns the positions in which each run of equal keys starts in the sorted keys[ 0 <= i < size ], followed by size.
+     *
+     */
+	private static int[] runStarts(long[] keys, int size, int threads) {
+		int parts = Math.min(threads, Math.max(size, 1));
+		IntList[] starts = new IntList[parts];
+		ParallelRange.run(parts, size, (part, start, end) -> {
+			IntList list = new IntList(Math.max(16, (end - start) / 2));
+			for ( int i = start; i < end; i++ )
+				if (i == 0 || keys[i] != keys[i-1])
+					list.add(i);
+			starts[part] = list;
+		});
+		IntList result = IntList.concatenate(starts);
+		result.add(size);
+		return Arrays.copyOf(result.data, result.size);
+	}
+
+    /**
+     * Returns the offsets of the rows of size edges sorted by row, where the row of edge i is rowOfEdge.applyAsInt(i):
+     * the edges of row p are the ones in offsets[p] <= i < offsets[p+1].
+     *
+     */
+	private static int[] rowOffsets(IntUnaryOperator rowOfEdge, int size, int n, int threads) {
+		int[] offsets = new int[n + 1];
+		ParallelRange.run(Math.min(threads, Math.max(size, 1)), size, (part, start, end) -> {
+			for ( int i = start; i < end; i++ ) {
+				int row = rowOfEdge.applyAsInt(i);
+				int previous = (i == 0 ? -1 : rowOfEdge.applyAsInt(i - 1));
+				// the first edge of row is at i, and the rows between previous and row have no edges.
+				for ( int p = previous + 1; p <= row; p++ )
+					offsets[p] = i;
+			}
+		});
+		for ( int p = (size == 0 ? 0 : rowOfEdge.applyAsInt(size - 1) + 1); p <= n; p++ )
+			offsets[p] = size;
+		return offsets;
+	}
+
+    /**
+     * Sorts ids[start <= i < end] in increasing order, applying the same permutation to weights[start <= i < end].
+     *
+     */
+	static void sortRow(int[] ids, int[] weights, int start, int end) {
+		if (end - start < 2)
+			return;
+		// packs each (id, weight) pair in a long whose most significant bits are the id.
+		long[] packed = new long[end - start];
+		for ( int i = start; i < end; i++ )
+			packed[i - start] = ((long)ids[i] << 32) | (weights[i] & 0xFFFFFFFFL);
+		Arrays.sort(packed);
+		for ( int i = start; i < end; i++ ) {
+			ids[i] = (int)(packed[i - start] >>> 32);
+			weights[i] = (int)packed[i - start];
+		}
+	}
+
+    /**
+     * Returns the number of addresses that sent emails to the Node p.
+     *
+     */
+	int unweightedInDegree(int p) {
+		return inOffsets[p+1] - inOffsets[p];
+	}
+
+    /**
+     * Returns the number of addresses that received emails from the Node p.
+     *
+     */
+	int unweightedOutDegree(int p) {
+		return outOffsets[p+1] - outOffsets[p];
+	}
+
+    /**
+     * Releases the edges of the graph (the ids and weights of the neighbors, and the decayed weights), keeping the offsets, the degrees
+     * and the centralities, e.g. once the out-of-core engine has written them in EdgeShards. The unweighted degrees can still be
+     * read, but no method reading the neighbors can be called afterwards.
+     *
+     */
+	void releaseEdges() {
+		inIds = null;
+		inWeights = null;
+		outIds = null;
+		outWeights = null;
+		decayedWeights = null;
+	}
+
+    /**
+     * Gets the vector of a specified type of centrality, indexed by id.
+     * If it was not used before, it is created with the centralities of the Nodes (or with initialCentrality if there are no Nodes).
+     *
+     * @param type the type of centrality to get.
+     *
+     */
+	synchronized float[] getCentrality(centralityType type) {
+		if (centrality[type.ordinal()] == null) {
+			float[] values = new float[numberOfNodes];
+			for ( int p = 0; p < numberOfNodes; p++ )
+				values[p] = (nodes != null ? nodes[p].getCentrality(type) : initialCentrality);
+			centrality[type.ordinal()] = values;
+		}
+		return centrality[type.ordinal()];
+	}
+
+    /**
+     * Sets the vector of a specified type of centrality, and writes it in the Nodes if the graph was built from Nodes.
+     *
+     * @param type the type of centrality to be set.
+     *
+     * @param values the new centralities, indexed by id.
+     *
+     */
+	synchronized void setCentrality(centralityType type, float[] values) {
+		centrality[type.ordinal()] = values;
+		if (nodes != null)
+			for ( int p = 0; p < numberOfNodes; p++ )
+				nodes[p].setCentrality(type, values[p]);
+	}
+
+}
@@ -0,0 +1,121 @@
+
+/*******************
+
+This class provides a Runnable that calculates one of the 6 types of centrality specified at centralityType.java over a CompactGraph,
+solving each weakly connected component (WCC) of the graph separately, with its own convergence criterion.
+
+No email crosses 2 WCCs, so the recursive formula of a component only reads centralities of the same component:
+1) the components with at least largeComponentSize Nodes (usually only the giant component of the email graph) are solved one at a time
+   by the PushPullPageRank engine, running with all Threads over the TransitionMatrix restricted to the component,
+2) all the other components (usually tens of thousands of tiny isolated clusters) are batched into tasks having nearly the same
+   number of Nodes, and each task is run by one Thread, solving its components one after the other
+   (in closed form for a single Node, otherwise sweeping until convergence).
+
+The number of iterations each component took to converge is kept in iterationsPerComponent and summarized in the Console.
+
+*******************/
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ComponentPageRank implements Runnable {
+
+	// components with at least this number of Nodes are solved by the PushPullPageRank engine.
+	static final int largeComponentSize = 10000;
+
+	CompactGraph graph;
+	int numberOfConcurrentThreads;
+	int numberOfIterations;
+	int consecutiveMinimalImprovementsOnCentralityToStop;
+	float minimalImprovementOnCentralityToStop;
+	float DampingFactor;
+	float neighborCentralityDampingFactor;
+	float neighborCentralityBias;
+	String name; //the name of the instance of ComponentPageRank to be printed in the Console.
+	centralityType type;
+
+	// the number of iterations each component (numbered as in WeaklyConnectedComponents) took to converge.
+	int[] iterationsPerComponent;
+
+	ComponentPageRank (centralityType type, CompactGraph graph, int numberOfConcurrentThreads, int numberOfIterations,
+			int consecutiveMinimalImprovementsOnCentralityToStop, float minimalImprovementOnCentralityToStop, float DampingFactor,
+			float neighborCentralityDampingFactor, float neighborCentralityBias, String name) {
+		this.type = type;
+		this.graph = graph;
+		this.numberOfConcurrentThreads = numberOfConcurrentThreads;
+		this.numberOfIterations = numberOfIterations;
+		this.consecutiveMinimalImprovementsOnCentralityToStop = consecutiveMinimalImprovementsOnCentralityToStop;
+		this.minimalImprovementOnCentralityToStop = minimalImprovementOnCentralityToStop;
+		this.DampingFactor = DampingFactor;
+		this.neighborCentralityDampingFactor = neighborCentralityDampingFactor;
+		this.neighborCentralityBias = neighborCentralityBias;
+		this.name = name;
+	}
+
+	@Override
+	public void run() {
+		long startTime = System.currentTimeMillis();
+		int threads = Math.max(1, numberOfConcurrentThreads);
+		TransitionMatrix matrix = TransitionMatrix.build(graph, type, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias,
+				threads);
+		WeaklyConnectedComponents components = new WeaklyConnectedComponents(graph, threads);
+		System.out.println(name+" Thread) found "+components.numberOfComponents+" weakly connected components"+
+				(components.numberOfComponents > 0 ? " (the largest one has "+components.size(0)+" Nodes)" : "")+
+				" in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+
+		float[] x = graph.getCentrality(type).clone();
+		iterationsPerComponent = new int[components.numberOfComponents];
+
+		// the components are numbered by decreasing size, so the large ones come first.
+		int firstSmall = 0;
+		while ( firstSmall < components.numberOfComponents && components.size(firstSmall) >= largeComponentSize ) {
+			int c = firstSmall++;
+			TransitionMatrix restricted = matrix.restrict(components.members, components.memberOffsets[c], components.memberOffsets[c+1], x);
+			float[] local = new float[components.size(c)];
+			for ( int m = 0; m < local.length; m++ )
+				local[m] = x[components.members[components.memberOffsets[c] + m]];
+			iterationsPerComponent[c] = new PushPullPageRank(type, graph, threads, numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop,
+					minimalImprovementOnCentralityToStop, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias,
+					name+" component "+c).solve(restricted, local);
+			for ( int m = 0; m < local.length; m++ )
+				x[components.members[components.memberOffsets[c] + m]] = local[m];
+		}
+
+		// batches the small components into tasks with nearly the same number of Nodes, one task per Thread.
+		int numberOfSmall = components.numberOfComponents - firstSmall;
+		int[] nodesBefore = new int[numberOfSmall + 1];
+		for ( int s = 0; s < numberOfSmall; s++ )
+			nodesBefore[s+1] = components.memberOffsets[firstSmall + s + 1] - components.memberOffsets[firstSmall];
+		int first = firstSmall;
+		ParallelRange.runBalanced(threads, nodesBefore, (part, start, end) -> {
+			for ( int s = start; s < end; s++ ) {
+				int c = first + s;
+				iterationsPerComponent[c] = matrix.solveRows(components.members, components.memberOffsets[c], components.memberOffsets[c+1],
+						x, numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop);
+			}
+		});
+
+		graph.setCentrality(type, x);
+		reportIterations(components);
+		System.out.println(name+" Thread) finished in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+	}
+
+    /**
+     * Prints in the Console how many components took each number of iterations to converge, and the iterations of the large components.
+     *
+     */
+	private void reportIterations(WeaklyConnectedComponents components) {
+		TreeMap<Integer,Integer> componentsPerIterations = new TreeMap<Integer,Integer>();
+		for ( int c = 0; c < components.numberOfComponents; c++ ) {
+			if (components.size(c) >= largeComponentSize)
+				System.out.println(name+") component "+c+" with "+components.size(c)+" Nodes converged after "+iterationsPerComponent[c]+" iterations.");
+			else
+				componentsPerIterations.merge(iterationsPerComponent[c], 1, Integer::sum);
+		}
+		StringBuilder line = new StringBuilder(name+") iterations to converge of the other components (iterations: number of components):");
+		for ( Map.Entry<Integer,Integer> entry : componentsPerIterations.entrySet() )
+			line.append(" "+entry.getKey()+": "+entry.getValue()+";");
+		System.out.println(line);
+	}
+
+}
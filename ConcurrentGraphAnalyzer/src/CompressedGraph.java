@@ -0,0 +1,319 @@
+
+/*******************
+
+This class is a compressed, read-only representation of the graph (in the style of WebGraph), built from a CompactGraph.
+The edges of each Node in each direction (addresses sending emails to it, and addresses receiving emails from it) are stored as a row
+of bytes, in one byte array per direction:
+
+             row = header, [first overflow], weights, ids
+
+where: header          = varint( number of edges * 2 + (1 if some weight is in the overflow table, 0 otherwise) ),
+       first overflow  = varint( index in the overflow table of the first weight of the row stored there ), only if flagged in the header,
+       weights         = one 4-bit code per edge, 2 per byte: codes 1 to 15 are the weight itself, and code 0 means that the weight
+                         is the next one in the overflow table (the rare edges with more than 15 emails),
+       ids             = the ids of the neighbors in increasing order, as varints of gaps: the first one is zigzag( id - id of the Node ),
+                         and each one of the next ones is id - previous id - 1.
+
+A varint stores 7 bits per byte, starting from the least significant ones, with the most significant bit of each byte set if there
+are more bytes. Since neighbor lists in an email graph are sorted and clustered, most gaps take 1 or 2 bytes.
+
+The rows are read with a RowDecoder, used directly by the centrality kernels in IterateCompressed.java. The number of edges of each row
+is also kept in an array, so that the kernels of the unweighted centralities read the degree of a neighbor without decoding its header.
+
+*******************/
+
+public class CompressedGraph {
+
+	// the number of Nodes in the graph.
+	int numberOfNodes;
+	// the number of oriented edges (distinct pairs sender -> recipient).
+	int totalNumberOfEdges;
+
+	// the rows of the addresses sending emails to each Node (in) and receiving emails from each Node (out).
+	// The row of Node p starts at inData[inPositions[p]] (or outData[outPositions[p]]).
+	byte[] inData;
+	int[] inPositions;
+	int[] inOverflow;
+	byte[] outData;
+	int[] outPositions;
+	int[] outOverflow;
+
+	// the total number of emails sent to / sent from each Node.
+	int[] inDegree;
+	int[] outDegree;
+	// the number of addresses that sent emails to / received emails from each Node (the number of edges of its rows).
+	int[] unweightedInDegrees;
+	int[] unweightedOutDegrees;
+
+	// the Nodes from which the graph was built, indexed by id. It is null if the graph was not built from Nodes.
+	Node[] nodes;
+
+	// the centrality vectors indexed by centralityType.ordinal() and then by id. Each vector is allocated when first used.
+	float[][] centrality = new float[centralityType.values().length][];
+	float initialCentrality;
+
+    /**
+     * Compresses a CompactGraph. The CompactGraph can be discarded afterwards.
+     *
+     * @param graph the graph to be compressed. Its rows must be sorted by id, as they are when built by CompactGraph.
+     *
+     * @param numberOfConcurrentThreads the number of Threads encoding the rows.
+     *
+     */
+	CompressedGraph(CompactGraph graph, int numberOfConcurrentThreads) {
+		numberOfNodes = graph.numberOfNodes;
+		totalNumberOfEdges = graph.totalNumberOfEdges;
+		inDegree = graph.inDegree;
+		outDegree = graph.outDegree;
+		nodes = graph.nodes;
+		initialCentrality = graph.initialCentrality;
+		unweightedInDegrees = new int[numberOfNodes];
+		unweightedOutDegrees = new int[numberOfNodes];
+		for ( int p = 0; p < numberOfNodes; p++ ) {
+			unweightedInDegrees[p] = graph.unweightedInDegree(p);
+			unweightedOutDegrees[p] = graph.unweightedOutDegree(p);
+		}
+
+		Object[] in = encode(graph.inOffsets, graph.inIds, graph.inWeights, numberOfNodes, numberOfConcurrentThreads);
+		inData = (byte[])in[0];
+		inPositions = (int[])in[1];
+		inOverflow = (int[])in[2];
+		Object[] out = encode(graph.outOffsets, graph.outIds, graph.outWeights, numberOfNodes, numberOfConcurrentThreads);
+		outData = (byte[])out[0];
+		outPositions = (int[])out[1];
+		outOverflow = (int[])out[2];
+	}
+
+    /**
+     * Encodes the rows of one direction in 2 passes over the rows in parallel: the first one measures the size of each row and its
+     * number of weights in the overflow table, and the second one writes each row in its final position.
+     * Returns { the bytes of the rows, the position of each row, the overflow table }.
+     *
+     */
+	private static Object[] encode(int[] offsets, int[] ids, int[] weights, int n, int numberOfConcurrentThreads) {
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(n, 1)));
+		int[] positions = new int[n + 1];
+		int[] overflowStarts = new int[n + 1];
+
+		ParallelRange.runBalanced(threads, offsets, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				int overflows = 0;
+				for ( int i = offsets[p]; i < offsets[p+1]; i++ )
+					if (weights[i] > 15)
+						overflows++;
+				overflowStarts[p+1] = overflows;
+				// the size without the first overflow, which depends on the prefix sum.
+				positions[p+1] = rowSize(offsets, ids, p);
+			}
+		});
+		for ( int p = 0; p < n; p++ )
+			overflowStarts[p+1] += overflowStarts[p];
+		for ( int p = 0; p < n; p++ )
+			positions[p+1] += positions[p] + (overflowStarts[p+1] > overflowStarts[p] ? varintSize(overflowStarts[p]) : 0);
+
+		byte[] data = new byte[positions[n]];
+		int[] overflow = new int[overflowStarts[n]];
+		ParallelRange.runBalanced(threads, offsets, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				int degree = offsets[p+1] - offsets[p];
+				boolean hasOverflow = overflowStarts[p+1] > overflowStarts[p];
+				int position = writeVarint(data, positions[p], degree * 2 + (hasOverflow ? 1 : 0));
+				if (hasOverflow)
+					position = writeVarint(data, position, overflowStarts[p]);
+				int overflowIndex = overflowStarts[p];
+				for ( int k = 0; k < degree; k++ ) {
+					int weight = weights[offsets[p] + k];
+					int code = (weight > 15 ? 0 : weight);
+					if (code == 0)
+						overflow[overflowIndex++] = weight;
+					data[position + (k >> 1)] |= code << ((k & 1) * 4);
+				}
+				position += (degree + 1) >> 1;
+				int previous = p;
+				for ( int i = offsets[p]; i < offsets[p+1]; i++ ) {
+					position = writeVarint(data, position, (i == offsets[p] ? zigzag(ids[i] - p) : ids[i] - previous - 1));
+					previous = ids[i];
+				}
+			}
+		});
+
+		Object[] result = { data, positions, overflow };
+		return result;
+	}
+
+    /**
+     * Returns the number of bytes of the row of p, without its first overflow.
+     *
+     */
+	private static int rowSize(int[] offsets, int[] ids, int p) {
+		int degree = offsets[p+1] - offsets[p];
+		int size = varintSize(degree * 2 + 1) + ((degree + 1) >> 1);
+		int previous = p;
+		for ( int i = offsets[p]; i < offsets[p+1]; i++ ) {
+			size += varintSize(i == offsets[p] ? zigzag(ids[i] - p) : ids[i] - previous - 1);
+			previous = ids[i];
+		}
+		return size;
+	}
+
+	static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static int varintSize(int value) {
+		int size = 1;
+		while ( (value >>>= 7) != 0 )
+			size++;
+		return size;
+	}
+
+    /**
+     * Writes value as a varint in data starting at position, and returns the position after it.
+     *
+     */
+	static int writeVarint(byte[] data, int position, int value) {
+		while ( (value & ~0x7F) != 0 ) {
+			data[position++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[position++] = (byte)value;
+		return position;
+	}
+
+    /**
+     * Returns the number of addresses that sent emails to the Node p.
+     *
+     */
+	int unweightedInDegree(int p) {
+		return unweightedInDegrees[p];
+	}
+
+    /**
+     * Returns the number of addresses that received emails from the Node p.
+     *
+     */
+	int unweightedOutDegree(int p) {
+		return unweightedOutDegrees[p];
+	}
+
+    /**
+     * Returns the number of bytes used by the resident graph (rows, positions, overflow tables and degrees).
+     *
+     */
+	long sizeInBytes() {
+		return inData.length + outData.length + 4L * (inPositions.length + outPositions.length + inOverflow.length + outOverflow.length
+				+ inDegree.length + outDegree.length + unweightedInDegrees.length + unweightedOutDegrees.length);
+	}
+
+    /**
+     * Returns the number of bytes the same graph uses as a CompactGraph (offsets, ids, weights and degrees).
+     *
+     */
+	long uncompressedSizeInBytes() {
+		return 4L * (2 * (numberOfNodes + 1) + 4L * totalNumberOfEdges + 2 * numberOfNodes);
+	}
+
+    /**
+     * Gets the vector of a specified type of centrality, indexed by id.
+     * If it was not used before, it is created with the centralities of the Nodes (or with initialCentrality if there are no Nodes).
+     *
+     * @param type the type of centrality to get.
+     *
+     */
+	synchronized float[] getCentrality(centralityType type) {
+		if (centrality[type.ordinal()] == null) {
+			float[] values = new float[numberOfNodes];
+			for ( int p = 0; p < numberOfNodes; p++ )
+				values[p] = (nodes != null ? nodes[p].getCentrality(type) : initialCentrality);
+			centrality[type.ordinal()] = values;
+		}
+		return centrality[type.ordinal()];
+	}
+
+    /**
+     * Writes the vector of a specified type of centrality in the Nodes, if the graph was built from Nodes.
+     *
+     * @param type the type of centrality to be written.
+     *
+     */
+	synchronized void writeCentrality(centralityType type) {
+		if (nodes != null && centrality[type.ordinal()] != null)
+			for ( int p = 0; p < numberOfNodes; p++ )
+				nodes[p].setCentrality(type, centrality[type.ordinal()][p]);
+	}
+
+	// reads the rows of one direction. Each Thread uses its own RowDecoder.
+	static class RowDecoder {
+		private final byte[] data;
+		private final int[] positions;
+		private final int[] overflow;
+		private int position;
+		private int weightPosition;
+		private int overflowIndex;
+		private int k;
+		private int previous;
+
+		RowDecoder(byte[] data, int[] positions, int[] overflow) {
+			this.data = data;
+			this.positions = positions;
+			this.overflow = overflow;
+		}
+
+	    /**
+	     * Starts reading the row of p. Returns the number of edges in it, that must then be read by calling, for each edge,
+	     * nextId() and then nextWeight().
+	     *
+	     */
+		int start(int p) {
+			position = positions[p];
+			int header = readVarint();
+			if ((header & 1) != 0)
+				overflowIndex = readVarint();
+			int degree = header >>> 1;
+			weightPosition = position;
+			position += (degree + 1) >> 1;
+			k = 0;
+			previous = p;
+			return degree;
+		}
+
+		int nextId() {
+			int value = readVarint();
+			previous = (k == 0 ? previous + unzigzag(value) : previous + value + 1);
+			return previous;
+		}
+
+		int nextWeight() {
+			int code = (data[weightPosition + (k >> 1)] >>> ((k & 1) * 4)) & 0xF;
+			k++;
+			return (code != 0 ? code : overflow[overflowIndex++]);
+		}
+
+		private int readVarint() {
+			int b = data[position++];
+			if (b >= 0)
+				return b;
+			int value = b & 0x7F;
+			int shift = 7;
+			do {
+				b = data[position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+
+	RowDecoder inDecoder() {
+		return new RowDecoder(inData, inPositions, inOverflow);
+	}
+
+	RowDecoder outDecoder() {
+		return new RowDecoder(outData, outPositions, outOverflow);
+	}
+
+}
@@ -0,0 +1,107 @@
+
+/*******************
+
+This class holds time-decayed weights for the edges of a CompactGraph: instead of the number of emails sent through an edge, its weight
+is the sum over those emails of 2^( -(reference time - time of the email) / half-life ), so that older emails count less.
+The emails sent after the reference time weigh 1 (their age is taken as 0), and the emails without a time weigh 0.
+
+The weights are aligned with the CSR arrays of the graph (inWeights[i] is the weight of the edge inIds[i] -> p, as graph.inWeights[i]),
+and the weighted in-degree and out-degree of each Node are the sums of the weights of its edges. They are read by TransitionMatrix,
+instead of the weights of the graph, to build the rows of the weighted centralities.
+
+*******************/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class DecayedWeights {
+
+	// the decay rate (ln 2 / half-life) and the reference time, at which the weight of an email is 1.
+	double decayRate;
+	long referenceTime;
+
+	// the weights, aligned with graph.inWeights and graph.outWeights, and the weighted degrees (sums of the weights).
+	float[] inWeights;
+	float[] outWeights;
+	float[] inDegree;
+	float[] outDegree;
+
+	private DecayedWeights(double halfLife, long referenceTime) {
+		this.decayRate = Math.log(2) / halfLife;
+		this.referenceTime = referenceTime;
+	}
+
+    /**
+     * Calculates the decayed weights of the edges of a graph from its emails, in parallel.
+     * Each email adds its weight to the edges from its sender to each of its recipients. The emails without a time weigh 0, and the
+     * emails sent after the reference time weigh 1.
+     *
+     * @param graph the graph, whose ids of Nodes are the ids of the addresses of table (e.g. built by CompactGraph.fromEmails, or by
+     * CompactGraph.fromNodes and EmailTable.fromMap from the same Collection of Nodes).
+     *
+     * @param table the emails from which the graph was built.
+     *
+     * @param timeOfEmail the time of each email, indexed by the id of the email (see EmailRows.readTimestamps).
+     *
+     * @param halfLife the time after which the weight of an email is halved, in the unit of the times.
+     *
+     * @param referenceTime the time at which the weight of an email is 1.
+     *
+     * @param numberOfConcurrentThreads the number of Threads calculating the weights.
+     *
+     */
+	static DecayedWeights fromEmails(CompactGraph graph, EmailTable table, long[] timeOfEmail, double halfLife, long referenceTime,
+			int numberOfConcurrentThreads) {
+		DecayedWeights weights = new DecayedWeights(halfLife, referenceTime);
+		int n = graph.numberOfNodes;
+		int numberOfEdges = graph.totalNumberOfEdges;
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(table.numberOfEmails, 1)));
+
+		// adds the weight of each email to its outgoing edges, as floats stored in the bits of ints.
+		AtomicIntegerArray sums = new AtomicIntegerArray(numberOfEdges);
+		ParallelRange.runBalanced(threads, table.offsets, (part, start, end) -> {
+			for ( int e = start; e < end; e++ ) {
+				long time = (timeOfEmail != null && e < timeOfEmail.length ? timeOfEmail[e] : EmailRows.noTime);
+				// the age is clamped at 0, so that no weight overflows when the reference time is earlier than the emails.
+				float weight = (time == EmailRows.noTime ? 0f : (float)Math.exp(-weights.decayRate * Math.max(0, (double)referenceTime - time)));
+				int sender = table.sender(e);
+				for ( int i = table.offsets[e] + 1; i < table.offsets[e+1]; i++ ) {
+					int edge = edgeIndex(graph.outIds, graph.outOffsets[sender], graph.outOffsets[sender+1], table.members[i]);
+					PushPullPageRank.atomicAdd(sums, edge, weight);
+				}
+			}
+		});
+		weights.outWeights = new float[numberOfEdges];
+		for ( int i = 0; i < numberOfEdges; i++ )
+			weights.outWeights[i] = Float.intBitsToFloat(sums.get(i));
+
+		// the weight of each incoming edge (q -> p) is the weight of the outgoing edge of q, and the degrees are the sums of the rows.
+		weights.inWeights = new float[numberOfEdges];
+		weights.inDegree = new float[n];
+		weights.outDegree = new float[n];
+		ParallelRange.runBalanced(Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(n, 1))), graph.inOffsets, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				double in = 0;
+				for ( int i = graph.inOffsets[p]; i < graph.inOffsets[p+1]; i++ ) {
+					int q = graph.inIds[i];
+					weights.inWeights[i] = weights.outWeights[edgeIndex(graph.outIds, graph.outOffsets[q], graph.outOffsets[q+1], p)];
+					in += weights.inWeights[i];
+				}
+				weights.inDegree[p] = (float)in;
+				double out = 0;
+				for ( int i = graph.outOffsets[p]; i < graph.outOffsets[p+1]; i++ )
+					out += weights.outWeights[i];
+				weights.outDegree[p] = (float)out;
+			}
+		});
+		return weights;
+	}
+
+	// returns the position of id in the sorted ids[ start <= i < end ], where it must be.
+	private static int edgeIndex(int[] ids, int start, int end, int id) {
+		int i = Arrays.binarySearch(ids, start, end, id);
+		Assert.check(i >= 0, "edge of an email in the graph");
+		return i;
+	}
+
+}
@@ -0,0 +1,324 @@
+
+/*******************
+
+This class provides a Runnable that calculates one of the 6 types of centrality specified at centralityType.java over a CompactGraph,
+partitioning the Nodes among several PartitionWorker processes, as a stand-in for a cluster running on a single machine.
+
+The coordinator (this class) splits the rows of the linear system of the centrality type into contiguous partitions having nearly
+the same number of entries, and sends to each worker only its rows and its slice of the centrality vector. The rows of each partition
+are calculated from the edges of the graph just before being sent (see TransitionMatrix.Rows), so the whole TransitionMatrix is never
+built: the coordinator holds the rows of one partition at a time, and each worker only the rows of its own partition. Then it runs
+synchronous supersteps: in each one it sends to every worker the current centralities of the Nodes it reads from other workers (its
+ghost Nodes), and receives back the new centralities of its Nodes that are read by other workers (its boundary Nodes).
+
+The workers are started either as separate JVMs (with the same classpath as the current one) or, if launchProcesses is false,
+as Threads in the current JVM. In both cases all the communication goes through sockets on the local machine.
+
+The supersteps stop either: 1) after a specified number of iterations, or
+                            2) when the mean relative improvement on centrality is lower or equal to a specified value for a specified
+                               number of consecutive supersteps.
+
+The coordinator waits at most workerConnectionTimeout miliseconds for the workers to connect, and stops waiting as soon as one of
+the launched processes has exited.
+
+If runTests is true, the TransitionMatrix is built in memory, and the result is compared with the one of the single-process
+PushPullPageRank engine over it.
+
+If the communication with the workers fails, run throws an UncheckedIOException and the centralities of the graph are left unchanged,
+so that the Thread joining it can stop instead of writing the initial centralities as a result.
+
+*******************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+public class DistributedPageRank implements Runnable {
+
+	// the maximal relative difference to the single-process engine accepted when running tests.
+	static final float toleranceOfTests = (float) 0.001;
+	// the time (in miliseconds) after which the coordinator stops waiting for the workers to connect, and the time between the checks
+	// of whether the launched processes are still alive while waiting.
+	static final int workerConnectionTimeout = 60000;
+	static final int workerCheckInterval = 500;
+
+	CompactGraph graph;
+	int numberOfWorkers;
+	int numberOfThreadsPerWorker;
+	boolean launchProcesses;
+	int numberOfIterations;
+	int consecutiveMinimalImprovementsOnCentralityToStop;
+	float minimalImprovementOnCentralityToStop;
+	float DampingFactor;
+	float neighborCentralityDampingFactor;
+	float neighborCentralityBias;
+	boolean runTests;
+	String name; //the name of the instance of DistributedPageRank to be printed in the Console.
+	centralityType type;
+
+	DistributedPageRank (centralityType type, CompactGraph graph, int numberOfWorkers, int numberOfThreadsPerWorker, boolean launchProcesses,
+			int numberOfIterations, int consecutiveMinimalImprovementsOnCentralityToStop, float minimalImprovementOnCentralityToStop,
+			float DampingFactor, float neighborCentralityDampingFactor, float neighborCentralityBias, boolean runTests, String name) {
+		this.type = type;
+		this.graph = graph;
+		this.numberOfWorkers = numberOfWorkers;
+		this.numberOfThreadsPerWorker = numberOfThreadsPerWorker;
+		this.launchProcesses = launchProcesses;
+		this.numberOfIterations = numberOfIterations;
+		this.consecutiveMinimalImprovementsOnCentralityToStop = consecutiveMinimalImprovementsOnCentralityToStop;
+		this.minimalImprovementOnCentralityToStop = minimalImprovementOnCentralityToStop;
+		this.DampingFactor = DampingFactor;
+		this.neighborCentralityDampingFactor = neighborCentralityDampingFactor;
+		this.neighborCentralityBias = neighborCentralityBias;
+		this.runTests = runTests;
+		this.name = name;
+	}
+
+	@Override
+	public void run() {
+		long startTime = System.currentTimeMillis();
+		float[] x = graph.getCentrality(type).clone();
+		try {
+			solve(new TransitionMatrix.Rows(graph, type, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias), x);
+		} catch (IOException e) {
+			throw new UncheckedIOException(name+" Thread) the distributed calculation failed", e);
+		}
+		System.out.println(name+" Thread) finished in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+
+		if (runTests) {
+			TransitionMatrix matrix = TransitionMatrix.build(graph, type, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias,
+					numberOfThreadsPerWorker);
+			float[] expected = graph.getCentrality(type).clone();
+			new PushPullPageRank(type, graph, numberOfThreadsPerWorker, numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop,
+					minimalImprovementOnCentralityToStop, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias, name+" test")
+					.solve(matrix, expected);
+			float maximalDifference = 0;
+			for ( int p = 0; p < x.length; p++ )
+				maximalDifference = Math.max(maximalDifference, Math.abs(x[p] / expected[p] - 1));
+			System.out.println(name+" Thread) maximal relative difference to the single-process engine: "+maximalDifference);
+			Assert.check(maximalDifference <= toleranceOfTests, "distributed centrality equal to single-process centrality");
+		}
+		graph.setCentrality(type, x);
+	}
+
+    /**
+     * Starts the workers, runs the supersteps and collects the results in x.
+     *
+     * @param rows the rows of the linear system whose solution is calculated.
+     *
+     * @param x the initial centralities, indexed by id. It is overwritten with the calculated centralities.
+     *
+     */
+	void solve(TransitionMatrix.Rows rows, float[] x) throws IOException {
+		int n = rows.graph.numberOfNodes;
+		int workers = Math.max(1, Math.min(numberOfWorkers, n));
+		// the offsets of the rows, as in the TransitionMatrix, for splitting them into partitions with nearly the same number of entries.
+		int[] offsets = new int[n + 1];
+		for ( int p = 0; p < n; p++ )
+			offsets[p+1] = offsets[p] + rows.length(p);
+		int[] bounds = ParallelRange.balancedBounds(workers, offsets);
+		int[] partitionOf = new int[n];
+		for ( int w = 0; w < workers; w++ )
+			Arrays.fill(partitionOf, bounds[w], bounds[w+1], w);
+		// the entries of the rows of one partition at a time.
+		int largestPartition = 0;
+		for ( int w = 0; w < workers; w++ )
+			largestPartition = Math.max(largestPartition, offsets[bounds[w+1]] - offsets[bounds[w]]);
+		int[] ids = new int[largestPartition];
+		float[] coefficients = new float[largestPartition];
+
+		// the ghost Nodes of each worker, and the boundary Nodes of each worker (its Nodes read by other workers).
+		int[][] ghosts = new int[workers][];
+		IntList[] boundaries = new IntList[workers];
+		boolean[] isBoundary = new boolean[n];
+		boolean[] isGhost = new boolean[n];
+		for ( int w = 0; w < workers; w++ ) {
+			int entries = 0;
+			for ( int p = bounds[w]; p < bounds[w+1]; p++ )
+				entries = rows.fill(p, ids, coefficients, entries);
+			IntList ghostList = new IntList();
+			for ( int i = 0; i < entries; i++ ) {
+				int q = ids[i];
+				if (partitionOf[q] != w && !isGhost[q]) {
+					isGhost[q] = true;
+					isBoundary[q] = true;
+					ghostList.add(q);
+				}
+			}
+			ghosts[w] = Arrays.copyOf(ghostList.data, ghostList.size);
+			Arrays.sort(ghosts[w]);
+			for ( int q : ghosts[w] )
+				isGhost[q] = false;
+		}
+		for ( int w = 0; w < workers; w++ ) {
+			boundaries[w] = new IntList();
+			for ( int p = bounds[w]; p < bounds[w+1]; p++ )
+				if (isBoundary[p])
+					boundaries[w].add(p);
+		}
+
+		Process[] processes = null;
+		try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+			processes = startWorkers(server.getLocalPort(), workers);
+			Socket[] sockets = new Socket[workers];
+			DataInputStream[] in = new DataInputStream[workers];
+			DataOutputStream[] out = new DataOutputStream[workers];
+			server.setSoTimeout(workerCheckInterval);
+			long deadline = System.currentTimeMillis() + workerConnectionTimeout;
+			for ( int w = 0; w < workers; w++ ) {
+				sockets[w] = accept(server, processes, deadline);
+				sockets[w].setTcpNoDelay(true);
+				in[w] = new DataInputStream(new BufferedInputStream(sockets[w].getInputStream(), 1 << 16));
+				out[w] = new DataOutputStream(new BufferedOutputStream(sockets[w].getOutputStream(), 1 << 16));
+			}
+
+			// SETUP
+			for ( int w = 0; w < workers; w++ )
+				sendPartition(out[w], rows, x, bounds[w], bounds[w+1], ghosts[w], boundaries[w], ids, coefficients);
+			System.out.println(name+" Thread) partitioned "+n+" Nodes among "+workers+" workers"+(launchProcesses ? " processes." : " Threads."));
+
+			// SUPERSTEPS
+			int numberOfConsecutiveMinimalImprovements = 0;
+			int superstep = 0;
+			float[][] ghostValues = new float[workers][];
+			float[][] boundaryValues = new float[workers][];
+			for ( int w = 0; w < workers; w++ ) {
+				ghostValues[w] = new float[ghosts[w].length];
+				boundaryValues[w] = new float[boundaries[w].size];
+			}
+			while ( superstep != numberOfIterations && numberOfConsecutiveMinimalImprovements < consecutiveMinimalImprovementsOnCentralityToStop ) {
+				superstep++;
+				for ( int w = 0; w < workers; w++ ) {
+					for ( int g = 0; g < ghosts[w].length; g++ )
+						ghostValues[w][g] = x[ghosts[w][g]];
+					out[w].writeInt(PartitionWorker.STEP);
+					PartitionWorker.writeFloats(out[w], ghostValues[w], 0, ghostValues[w].length);
+					out[w].flush();
+				}
+				double lastImprovement = 0;
+				for ( int w = 0; w < workers; w++ ) {
+					lastImprovement += in[w].readDouble();
+					PartitionWorker.readFloats(in[w], boundaryValues[w]);
+					for ( int b = 0; b < boundaries[w].size; b++ )
+						x[boundaries[w].data[b]] = boundaryValues[w][b];
+				}
+				lastImprovement /= n;
+				System.out.println(name+")"+superstep+") Mean relative improvement on centrality since last superstep: "+(float)lastImprovement);
+				if (lastImprovement <= minimalImprovementOnCentralityToStop)
+					numberOfConsecutiveMinimalImprovements++;
+				else
+					numberOfConsecutiveMinimalImprovements = 0;
+			}
+
+			// FINISH
+			for ( int w = 0; w < workers; w++ ) {
+				out[w].writeInt(PartitionWorker.FINISH);
+				out[w].flush();
+			}
+			for ( int w = 0; w < workers; w++ ) {
+				PartitionWorker.readFloats(in[w], x, bounds[w], bounds[w+1] - bounds[w]);
+				sockets[w].close();
+			}
+			if (processes != null)
+				for ( Process process : processes )
+					try {
+						process.waitFor();
+					} catch (InterruptedException e) { e.printStackTrace(); }
+		} catch (IOException e) {
+			// the workers still running would otherwise wait forever for the coordinator.
+			if (processes != null)
+				for ( Process process : processes )
+					process.destroy();
+			throw e;
+		}
+	}
+
+    /**
+     * Waits for the next worker to connect to server, whose timeout must be set, and returns its socket. Throws an IOException if one 
+     * of the launched processes (if any) has exited, or if no worker connected before the deadline.
+     *
+     */
+	private Socket accept(ServerSocket server, Process[] processes, long deadline) throws IOException {
+		while (true) {
+			try {
+				return server.accept();
+			} catch (SocketTimeoutException e) {
+				if (processes != null)
+					for ( Process process : processes )
+						if (!process.isAlive())
+							throw new IOException(name+": a worker process exited with code "+process.exitValue()+" before connecting.");
+				if (System.currentTimeMillis() > deadline)
+					throw new IOException(name+": the workers did not connect in "+workerConnectionTimeout+" miliseconds.");
+			}
+		}
+	}
+
+    /**
+     * Starts the workers, connecting to the given port. Returns their processes, or null if they are started as Threads.
+     *
+     */
+	private Process[] startWorkers(int port, int workers) throws IOException {
+		String host = InetAddress.getLoopbackAddress().getHostAddress();
+		if (!launchProcesses) {
+			for ( int w = 0; w < workers; w++ )
+				new Thread(new PartitionWorker(host, port, numberOfThreadsPerWorker)).start();
+			return null;
+		}
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process[] processes = new Process[workers];
+		for ( int w = 0; w < workers; w++ ) {
+			processes[w] = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "PartitionWorker", host,
+					Integer.toString(port), Integer.toString(numberOfThreadsPerWorker)).inheritIO().start();
+		}
+		return processes;
+	}
+
+    /**
+     * Sends to a worker the rows start <= p < end, calculated into ids and coefficients (large enough for all their entries), with ids
+     * translated to its local numbering (owned Nodes then ghost Nodes), the initial centralities of its owned and ghost Nodes, and its
+     * boundary Nodes.
+     *
+     */
+	private static void sendPartition(DataOutputStream out, TransitionMatrix.Rows rows, float[] x, int start, int end, int[] ghosts,
+			IntList boundary, int[] ids, float[] coefficients) throws IOException {
+		int owned = end - start;
+		int[] offsets = new int[owned + 1];
+		for ( int p = start; p < end; p++ )
+			offsets[p - start + 1] = rows.fill(p, ids, coefficients, offsets[p - start]);
+		int entries = offsets[owned];
+		for ( int i = 0; i < entries; i++ ) {
+			int q = ids[i];
+			ids[i] = (q >= start && q < end ? q - start : owned + Arrays.binarySearch(ghosts, q));
+		}
+		float[] base = new float[owned];
+		Arrays.fill(base, rows.base);
+		float[] initial = new float[owned + ghosts.length];
+		System.arraycopy(x, start, initial, 0, owned);
+		for ( int g = 0; g < ghosts.length; g++ )
+			initial[owned + g] = x[ghosts[g]];
+		int[] localBoundary = new int[boundary.size];
+		for ( int b = 0; b < boundary.size; b++ )
+			localBoundary[b] = boundary.data[b] - start;
+
+		out.writeInt(owned);
+		out.writeInt(ghosts.length);
+		PartitionWorker.writeFloats(out, base, 0, owned);
+		PartitionWorker.writeInts(out, offsets, 0, owned + 1);
+		PartitionWorker.writeInts(out, ids, 0, entries);
+		PartitionWorker.writeFloats(out, coefficients, 0, entries);
+		PartitionWorker.writeFloats(out, initial, 0, initial.length);
+		out.writeInt(localBoundary.length);
+		PartitionWorker.writeInts(out, localBoundary, 0, localBoundary.length);
+		out.flush();
+	}
+
+}
@@ -0,0 +1,122 @@
+
+/*******************
+
+This class summarizes the distribution over all the Nodes of a graph of each type of centrality calculated and of their degrees (weighted
+and unweighted, in and out), each one in a LogHistogram, so that the shape of the distributions (their quantiles, and how many Nodes
+have values of each magnitude) is known without reading back the file written by address.
+
+The histograms are built in parallel: each Thread records the values of a subrange of the Nodes in its own histograms, which are merged
+at the end. The degrees of each Node are calculated once, for all the histograms.
+The summary is written by GraphWriter.writeSummary.
+
+*******************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DistributionSummary {
+
+	// the names of the values summarized, and the histogram of each one.
+	final String[] names;
+	final LogHistogram[] histograms;
+
+	private DistributionSummary(String[] names, LogHistogram[] histograms) {
+		this.names = names;
+		this.histograms = histograms;
+	}
+
+	// records the values of the Node i in the histograms (of its centralities first, and then of its 4 degrees).
+	private interface Recorder {
+		void record(int i, LogHistogram[] histograms);
+	}
+
+    /**
+     * Summarizes the centralities and the degrees of a list of Nodes, in parallel.
+     *
+     * @param nodes the Nodes of the graph.
+     *
+     * @param summarizeCentrality whether to summarize each type of centrality (indexed by the ordinal of its centralityType).
+     *
+     * @param significantBits the number of bits of the mantissa of the values kept by the histograms (see LogHistogram.java).
+     *
+     * @param numberOfConcurrentThreads the number of Threads recording the values.
+     *
+     */
+	static DistributionSummary of(List<Node> nodes, boolean[] summarizeCentrality, int significantBits, int numberOfConcurrentThreads) {
+		List<centralityType> types = typesOf(summarizeCentrality);
+		int t = types.size();
+		return summarize(nodes.size(), types, significantBits, numberOfConcurrentThreads, (i, histograms) -> {
+			Node node = nodes.get(i);
+			for ( int k = 0; k < t; k++ )
+				histograms[k].record(node.getCentrality(types.get(k)));
+			histograms[t].record(node.inDegree());
+			histograms[t + 1].record(node.outDegree());
+			histograms[t + 2].record(node.unweighedInDegree());
+			histograms[t + 3].record(node.unweighedOutDegree());
+		});
+	}
+
+    /**
+     * Summarizes the centralities and the degrees of the Nodes of a CompactGraph, in parallel, as over a list of Nodes.
+     * The edges of the graph are not read, so they may have been released (see CompactGraph.releaseEdges).
+     *
+     * @param graph the graph.
+     *
+     */
+	static DistributionSummary of(CompactGraph graph, boolean[] summarizeCentrality, int significantBits, int numberOfConcurrentThreads) {
+		List<centralityType> types = typesOf(summarizeCentrality);
+		int t = types.size();
+		float[][] centralities = new float[t][];
+		for ( int k = 0; k < t; k++ )
+			centralities[k] = graph.getCentrality(types.get(k));
+		return summarize(graph.numberOfNodes, types, significantBits, numberOfConcurrentThreads, (p, histograms) -> {
+			for ( int k = 0; k < t; k++ )
+				histograms[k].record(centralities[k][p]);
+			histograms[t].record(graph.inDegree[p]);
+			histograms[t + 1].record(graph.outDegree[p]);
+			histograms[t + 2].record(graph.unweightedInDegree(p));
+			histograms[t + 3].record(graph.unweightedOutDegree(p));
+		});
+	}
+
+	// returns the types of centrality to summarize, in the order of their ordinals.
+	private static List<centralityType> typesOf(boolean[] summarizeCentrality) {
+		List<centralityType> types = new ArrayList<centralityType>();
+		for ( centralityType type : centralityType.values() )
+			if (summarizeCentrality[type.ordinal()])
+				types.add(type);
+		return types;
+	}
+
+	// records the values of the Nodes 0 <= i < numberOfNodes, each Thread a subrange into its own histograms, and merges them.
+	private static DistributionSummary summarize(int numberOfNodes, List<centralityType> types, int significantBits, 
+			int numberOfConcurrentThreads, Recorder recorder) {
+		String[] names = new String[types.size() + 4];
+		for ( int t = 0; t < types.size(); t++ )
+			names[t] = types.get(t).name();
+		names[types.size()] = "inDegree";
+		names[types.size() + 1] = "outDegree";
+		names[types.size() + 2] = "unweightedInDegree";
+		names[types.size() + 3] = "unweightedOutDegree";
+
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(numberOfNodes, 1)));
+		LogHistogram[][] parts = new LogHistogram[threads][];
+		ParallelRange.run(threads, numberOfNodes, (part, start, end) -> {
+			LogHistogram[] histograms = new LogHistogram[names.length];
+			for ( int h = 0; h < names.length; h++ )
+				histograms[h] = new LogHistogram(significantBits);
+			for ( int i = start; i < end; i++ )
+				recorder.record(i, histograms);
+			parts[part] = histograms;
+		});
+
+		LogHistogram[] histograms = new LogHistogram[names.length];
+		for ( int h = 0; h < names.length; h++ ) {
+			histograms[h] = new LogHistogram(significantBits);
+			for ( LogHistogram[] part : parts )
+				histograms[h].merge(part[h]);
+		}
+		return new DistributionSummary(names, histograms);
+	}
+
+}
@@ -0,0 +1,126 @@
+
+/*******************
+
+This class is the quotient of a graph of addresses by their email domains (the part of the address after its last '@', in lower case):
+each domain is a Node of a new CompactGraph, and the weight of the edge from domain A to domain B is the sum of the weights of the edges
+from the addresses of A to the addresses of B (i.e. the number of pairs of an email sent from A and one of its recipients in B: an
+email sent to 3 addresses of B counts 3 times). Any type of centrality can be calculated over it with the engines over a CompactGraph,
+and the centralities of the domains can be mapped back onto their addresses.
+
+The emails sent inside a domain are edges from the domain to itself, which can be kept or left out.
+
+*******************/
+
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+public class DomainGraph {
+
+	// the graph of the domains, whose Node d is the domain domainDictionary.getAddress(d).
+	CompactGraph graph;
+	AddressDictionary domainDictionary;
+	// the domain of each address (Node of the graph of addresses), and the number of addresses of each domain.
+	int[] domainOfAddress;
+	int[] numberOfAddresses;
+
+	private DomainGraph(CompactGraph graph, AddressDictionary domainDictionary, int[] domainOfAddress, int[] numberOfAddresses) {
+		this.graph = graph;
+		this.domainDictionary = domainDictionary;
+		this.domainOfAddress = domainOfAddress;
+		this.numberOfAddresses = numberOfAddresses;
+	}
+
+    /**
+     * Collapses the addresses of a graph into their domains, in parallel.
+     *
+     * @param addresses the graph of addresses.
+     *
+     * @param addressOfNode the address of each Node of the graph (e.g. p -> addresses.nodes[p].address, or rows.addressDictionary::getAddress).
+     *
+     * @param keepInternalEdges whether or not to keep the edges from a domain to itself.
+     *
+     * @param initialCentrality the initial value of the centralities of the domains.
+     *
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     */
+	static DomainGraph fromGraph(CompactGraph addresses, IntFunction<String> addressOfNode, boolean keepInternalEdges, float initialCentrality,
+			int numberOfConcurrentThreads) {
+		int n = addresses.numberOfNodes;
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(n, 1)));
+
+		// extracts the domains in parallel, and interns them in order of address.
+		String[] domains = new String[n];
+		ParallelRange.run(threads, n, (part, start, end) -> {
+			for ( int p = start; p < end; p++ )
+				domains[p] = domainOf(addressOfNode.apply(p));
+		});
+		AddressDictionary domainDictionary = new AddressDictionary();
+		int[] domainOfAddress = new int[n];
+		for ( int p = 0; p < n; p++ )
+			domainOfAddress[p] = domainDictionary.intern(domains[p]);
+		int m = domainDictionary.size();
+		int[] numberOfAddresses = new int[m];
+		for ( int p = 0; p < n; p++ )
+			numberOfAddresses[domainOfAddress[p]]++;
+
+		// maps each edge between addresses to an edge between their domains, keeping its position in the out-rows.
+		long domainsLong = m;
+		int numberOfEdges = addresses.totalNumberOfEdges;
+		long[] edges = new long[numberOfEdges];
+		int[] weights = new int[numberOfEdges];
+		ParallelRange.runBalanced(threads, addresses.outOffsets, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				long source = domainOfAddress[p];
+				for ( int i = addresses.outOffsets[p]; i < addresses.outOffsets[p+1]; i++ ) {
+					edges[i] = source * domainsLong + domainOfAddress[addresses.outIds[i]];
+					weights[i] = addresses.outWeights[i];
+				}
+			}
+		});
+		int size = numberOfEdges;
+		if (!keepInternalEdges) {
+			size = 0;
+			for ( int i = 0; i < numberOfEdges; i++ ) {
+				if (edges[i] / domainsLong != edges[i] % domainsLong) {
+					edges[size] = edges[i];
+					weights[size++] = weights[i];
+				}
+			}
+		}
+
+		// sums the weights of the edges between the same domains.
+		CompactGraph graph = CompactGraph.fromWeightedEdges(m, edges, weights, size, initialCentrality, numberOfConcurrentThreads);
+		return new DomainGraph(graph, domainDictionary, domainOfAddress, numberOfAddresses);
+	}
+
+    /**
+     * Returns the domain of an address: the part after its last '@', in lower case (or the whole address if it has no '@').
+     *
+     */
+	static String domainOf(String address) {
+		return address.substring(address.lastIndexOf('@') + 1).trim().toLowerCase(Locale.ROOT);
+	}
+
+    /**
+     * Returns the centrality of a specified type of the domain of each address, indexed by the ids of the graph of addresses.
+     * The centrality must have been calculated over the graph of the domains.
+     *
+     */
+	float[] toAddresses(centralityType type) {
+		float[] values = graph.getCentrality(type);
+		float[] result = new float[domainOfAddress.length];
+		for ( int p = 0; p < result.length; p++ )
+			result[p] = values[domainOfAddress[p]];
+		return result;
+	}
+
+    /**
+     * Returns the domain of Node d of the graph of the domains.
+     *
+     */
+	String getDomain(int d) {
+		return domainDictionary.getAddress(d);
+	}
+
+}
@@ -0,0 +1,129 @@
+
+/*******************
+
+This class stores the entries of the linear system of a TransitionMatrix on disk, partitioned into shards, so that they can be streamed sequentially
+at each iteration without keeping them in memory (as in GraphChi and X-Stream).
+
+Each shard covers a contiguous range of rows (destination Nodes) and contains their entries sorted by destination, as records of
+12 bytes: the id of the source Node, the id of the destination Node, and the coefficient of the entry.
+The base of each row is kept in memory, since it has only one float per Node.
+The entries are written row by row from the edges of the CompactGraph (see TransitionMatrix.Rows), without building the matrix, so
+the edges of the graph can be released once all the types of centrality have been written.
+
+The files are written in the native byte order of the machine: they are temporary files meant to be read by the same machine.
+
+*******************/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class EdgeShards {
+
+	// the number of bytes of each record: source (int), destination (int), coefficient (float).
+	static final int recordSize = 12;
+
+	// the number of rows (Nodes) of the TransitionMatrix.
+	int numberOfNodes;
+	// the base of each row.
+	float[] base;
+	// the files of the shards, and the number of records of each shard.
+	File[] files;
+	long[] numberOfRecords;
+
+    /**
+     * Writes the entries of the rows in shards of at most maximalRecordsPerShard records (a row is never split between 2 shards,
+     * so a row with more entries than that forms a shard by itself). The rows are calculated one at a time from the edges of the
+     * graph, so the TransitionMatrix is never built in memory.
+     *
+     * @param rows the rows of the linear system whose entries are written.
+     *
+     * @param directory the directory in which the shard files are created.
+     *
+     * @param maximalRecordsPerShard the maximal number of records per shard.
+     *
+     * @param bufferSize the size in bytes of the buffer used for writing.
+     *
+     */
+	EdgeShards(TransitionMatrix.Rows rows, File directory, int maximalRecordsPerShard, int bufferSize) throws IOException {
+		numberOfNodes = rows.graph.numberOfNodes;
+		base = new float[numberOfNodes];
+		Arrays.fill(base, rows.base);
+
+		// splits the rows into shards.
+		IntList firstRows = new IntList();
+		firstRows.add(0);
+		long recordsOfShard = 0;
+		int longestRow = 0;
+		for ( int p = 0; p < numberOfNodes; p++ ) {
+			int length = rows.length(p);
+			longestRow = Math.max(longestRow, length);
+			if (recordsOfShard + length > maximalRecordsPerShard && p > firstRows.data[firstRows.size - 1]) {
+				firstRows.add(p);
+				recordsOfShard = 0;
+			}
+			recordsOfShard += length;
+		}
+		firstRows.add(numberOfNodes);
+
+		int numberOfShards = firstRows.size - 1;
+		files = new File[numberOfShards];
+		numberOfRecords = new long[numberOfShards];
+		// the entries of one row at a time.
+		int[] ids = new int[longestRow];
+		float[] coefficients = new float[longestRow];
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize - bufferSize % recordSize).order(ByteOrder.nativeOrder());
+		for ( int s = 0; s < numberOfShards; s++ ) {
+			files[s] = File.createTempFile("shard_" + s + "_", ".bin", directory);
+			files[s].deleteOnExit();
+			try (FileChannel channel = new RandomAccessFile(files[s], "rw").getChannel()) {
+				for ( int p = firstRows.data[s]; p < firstRows.data[s+1]; p++ ) {
+					int length = rows.fill(p, ids, coefficients, 0);
+					numberOfRecords[s] += length;
+					for ( int i = 0; i < length; i++ ) {
+						if (!buffer.hasRemaining())
+							flush(channel, buffer);
+						buffer.putInt(ids[i]).putInt(p).putFloat(coefficients[i]);
+					}
+				}
+				flush(channel, buffer);
+			}
+		}
+	}
+
+    /**
+     * Returns the total size in bytes of the shards.
+     *
+     */
+	long sizeInBytes() {
+		long total = 0;
+		for ( long records : numberOfRecords )
+			total += records * recordSize;
+		return total;
+	}
+
+    /**
+     * Deletes the shard files.
+     *
+     */
+	void delete() {
+		for ( File file : files )
+			file.delete();
+	}
+
+    /**
+     * Writes the content of buffer in channel and clears it.
+     *
+     */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+}
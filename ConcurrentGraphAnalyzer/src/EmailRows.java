@@ -0,0 +1,112 @@
+
+/*******************
+
+This class holds the rows read from the CSV file with dense ids instead of Strings: the email addresses and the email identifiers are
+interned in 2 AddressDictionary, and row number r says that the email emailOfRow.data[r] is sent from (if sender.get(r)) or to
+(otherwise) the address addressOfRow.data[r].
+
+It is filled by GraphBuilder.ReadRowsFromCSV. Optionally (see readTimestamps), the time of each email is parsed from a column of the file.
+
+*******************/
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+public class EmailRows {
+
+	// the dictionary of the email addresses, whose ids are the ids of the Nodes in the graph.
+	AddressDictionary addressDictionary;
+	// the dictionary of the email identifiers, whose ids are the ids of the emails.
+	AddressDictionary emailDictionary;
+
+	// the email and the address of each row, and whether the address of the row is the sender of the email.
+	IntList emailOfRow = new IntList(1 << 10);
+	IntList addressOfRow = new IntList(1 << 10);
+	BitSet sender = new BitSet();
+
+	// the column of the file holding the time at which the emails were sent, or -1 if the times are not read.
+	int timestampColumn = -1;
+	// the time of each email (the earliest time of its rows), indexed by the id of the email, or noTime if none of its rows had a time.
+	// It is null if the times are not read.
+	long[] timeOfEmail;
+	static final long noTime = Long.MAX_VALUE;
+
+	EmailRows() {
+		this(new AddressDictionary(), new AddressDictionary());
+	}
+
+	EmailRows(AddressDictionary addressDictionary, AddressDictionary emailDictionary) {
+		this.addressDictionary = addressDictionary;
+		this.emailDictionary = emailDictionary;
+	}
+
+    /**
+     * Creates the rows and their dictionaries with the capacities estimated for a file, so that they do not need to grow while reading it.
+     *
+     */
+	EmailRows(InputEstimate estimate) {
+		int lines = (int)Math.min(estimate.estimatedLines + estimate.estimatedLines / 16, Integer.MAX_VALUE - 8);
+		int addresses = (int)Math.min(estimate.estimatedAddresses, lines);
+		int emails = (int)Math.min(estimate.estimatedEmails, lines);
+		addressDictionary = new AddressDictionary(addresses, (long)(addresses * (estimate.averageAddressLength + 1.0)));
+		emailDictionary = new AddressDictionary(emails, (long)(emails * (estimate.averageEmailLength + 1.0)));
+		emailOfRow = new IntList(lines);
+		addressOfRow = new IntList(lines);
+		sender = new BitSet(lines);
+	}
+
+    /**
+     * Makes the readers parse the time of each email from a column of the file (e.g. 2 for "email identifier, address, time, from/to/cc").
+     * Must be called before the rows are read.
+     *
+     */
+	EmailRows readTimestamps(int column) {
+		timestampColumn = column;
+		timeOfEmail = new long[Math.max(16, emailDictionary.size())];
+		Arrays.fill(timeOfEmail, noTime);
+		return this;
+	}
+
+    /**
+     * Sets the time of an email to time if it is earlier than its current time.
+     *
+     */
+	void addTime(int email, long time) {
+		if (email >= timeOfEmail.length) {
+			int length = timeOfEmail.length;
+			timeOfEmail = Arrays.copyOf(timeOfEmail, Math.max(length * 2, email + 1));
+			Arrays.fill(timeOfEmail, length, timeOfEmail.length, noTime);
+		}
+		if (time < timeOfEmail[email])
+			timeOfEmail[email] = time;
+	}
+
+    /**
+     * Adds a row.
+     *
+     */
+	void add(int email, int address, boolean isSender) {
+		if (isSender)
+			sender.set(emailOfRow.size);
+		emailOfRow.add(email);
+		addressOfRow.add(address);
+	}
+
+    /**
+     * Returns the number of rows.
+     *
+     */
+	int size() {
+		return emailOfRow.size;
+	}
+
+    /**
+     * Returns the number of bytes used by the rows and the dictionaries.
+     *
+     */
+	long sizeInBytes() {
+		return addressDictionary.sizeInBytes() + emailDictionary.sizeInBytes() + 4L * (emailOfRow.data.length + addressOfRow.data.length)
+				+ sender.size() / 8;
+	}
+
+}
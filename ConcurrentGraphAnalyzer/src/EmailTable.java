@@ -0,0 +1,178 @@
+
+/*******************
+
+This class is an immutable, flat representation of the emails: for each email identified by an id 0 <= e < numberOfEmails,
+the ids of the addresses taking part in it are members[ offsets[e] <= i < offsets[e+1] ], with the sender first and the
+recipients after it (sorted by id).
+
+It replaces the map from email identifiers to LinkedList<Node> for writing and analyzing the emails: it is read by index, without
+iterators, and is never modified after being built, so any number of Threads can read it at the same time.
+
+It can be built in parallel either from the rows read by GraphBuilder.ReadRowsFromCSV, or from the map filled by
+GraphBuilder.BuildGraphFromCSV (in which case the ids are the ids of the Nodes, as in CompactGraph.fromNodes).
+
+*******************/
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class EmailTable {
+
+	int numberOfEmails;
+	// the addresses of email e are members[ offsets[e] <= i < offsets[e+1] ], the first one being the sender.
+	int[] offsets;
+	int[] members;
+
+	// the identifiers of the emails, where the id of each identifier is the id of the email.
+	AddressDictionary emailDictionary;
+	// the Nodes indexed by id. It is null if the table was not built from Nodes.
+	Node[] nodes;
+
+	private EmailTable(int[] offsets, int[] members, AddressDictionary emailDictionary, Node[] nodes) {
+		this.numberOfEmails = offsets.length - 1;
+		this.offsets = offsets;
+		this.members = members;
+		this.emailDictionary = emailDictionary;
+		this.nodes = nodes;
+	}
+
+    /**
+     * Builds the table from the rows read from a CSV file, in parallel.
+     * The sender of each email is the address of its last row marked "from" or, if there is none, of its first row.
+     *
+     * @param rows the rows read by GraphBuilder.ReadRowsFromCSV.
+     *
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     */
+	static EmailTable fromRows(EmailRows rows, int numberOfConcurrentThreads) {
+		int numberOfRows = rows.size();
+		int numberOfEmails = rows.emailDictionary.size();
+		int[] emailOfRow = rows.emailOfRow.data;
+		int[] addressOfRow = rows.addressOfRow.data;
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(numberOfRows, 1)));
+
+		// counts the rows of each email and chooses the row of its sender.
+		AtomicIntegerArray counts = new AtomicIntegerArray(numberOfEmails);
+		AtomicIntegerArray lastSenderRow = new AtomicIntegerArray(numberOfEmails);
+		AtomicIntegerArray firstRow = new AtomicIntegerArray(numberOfEmails);
+		for ( int e = 0; e < numberOfEmails; e++ ) {
+			lastSenderRow.set(e, -1);
+			firstRow.set(e, Integer.MAX_VALUE);
+		}
+		ParallelRange.run(threads, numberOfRows, (part, start, end) -> {
+			for ( int r = start; r < end; r++ ) {
+				int e = emailOfRow[r];
+				counts.incrementAndGet(e);
+				firstRow.accumulateAndGet(e, r, Math::min);
+				if (rows.sender.get(r))
+					lastSenderRow.accumulateAndGet(e, r, Math::max);
+			}
+		});
+
+		int[] offsets = new int[numberOfEmails + 1];
+		for ( int e = 0; e < numberOfEmails; e++ )
+			offsets[e+1] = offsets[e] + counts.get(e);
+
+		// places the sender of each email at its first position and the recipients after it.
+		int[] members = new int[numberOfRows];
+		AtomicIntegerArray cursors = counts;
+		for ( int e = 0; e < numberOfEmails; e++ )
+			cursors.set(e, offsets[e] + 1);
+		ParallelRange.run(threads, numberOfRows, (part, start, end) -> {
+			for ( int r = start; r < end; r++ ) {
+				int e = emailOfRow[r];
+				int senderRow = (lastSenderRow.get(e) >= 0 ? lastSenderRow.get(e) : firstRow.get(e));
+				members[r == senderRow ? offsets[e] : cursors.getAndIncrement(e)] = addressOfRow[r];
+			}
+		});
+		sortRecipients(offsets, members, threads);
+
+		return new EmailTable(offsets, members, rows.emailDictionary, null);
+	}
+
+    /**
+     * Builds the table from the map filled by GraphBuilder.BuildGraphFromCSV, in parallel.
+     * The ids of the Nodes are assigned in the order of collectionOfNodes, as in CompactGraph.fromNodes.
+     *
+     * @param emails a map in which each pair <String,List<Node> represents as key a String of an email identifier
+     * and as value a list of Nodes present in that email, the sender first. It is not modified.
+     *
+     * @param collectionOfNodes all the Nodes in the graph, such as dic.values().
+     *
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     */
+	static EmailTable fromMap(Map<String,List<Node>> emails, Collection<Node> collectionOfNodes, int numberOfConcurrentThreads) {
+		Node[] nodes = collectionOfNodes.toArray(new Node[0]);
+		for ( int p = 0; p < nodes.length; p++ )
+			nodes[p].id = p;
+
+		int numberOfEmails = emails.size();
+		AddressDictionary emailDictionary = new AddressDictionary(numberOfEmails);
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		List<Node>[] lists = new List[numberOfEmails];
+		int[] offsets = new int[numberOfEmails + 1];
+		for ( Map.Entry<String,List<Node>> email : emails.entrySet() ) {
+			int e = emailDictionary.intern(email.getKey());
+			lists[e] = email.getValue();
+			offsets[e+1] = lists[e].size();
+		}
+		for ( int e = 0; e < numberOfEmails; e++ )
+			offsets[e+1] += offsets[e];
+
+		int[] members = new int[offsets[numberOfEmails]];
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(numberOfEmails, 1)));
+		ParallelRange.runBalanced(threads, offsets, (part, start, end) -> {
+			for ( int e = start; e < end; e++ ) {
+				int i = offsets[e];
+				for ( Iterator<Node> it = lists[e].iterator(); it.hasNext(); )
+					members[i++] = it.next().id;
+			}
+		});
+		sortRecipients(offsets, members, threads);
+
+		return new EmailTable(offsets, members, emailDictionary, nodes);
+	}
+
+    /**
+     * Sorts the recipients of each email by id, so that the table does not depend on the order in which the Threads placed them.
+     *
+     */
+	private static void sortRecipients(int[] offsets, int[] members, int threads) {
+		ParallelRange.runBalanced(threads, offsets, (part, start, end) -> {
+			for ( int e = start; e < end; e++ )
+				if (offsets[e+1] - offsets[e] > 2)
+					Arrays.sort(members, offsets[e] + 1, offsets[e+1]);
+		});
+	}
+
+    /**
+     * Returns the id of the address sending email e.
+     *
+     */
+	int sender(int e) {
+		return members[offsets[e]];
+	}
+
+    /**
+     * Returns the number of recipients of email e, which are members[ offsets[e] + 1 <= i < offsets[e+1] ].
+     *
+     */
+	int numberOfRecipients(int e) {
+		return offsets[e+1] - offsets[e] - 1;
+	}
+
+    /**
+     * Returns the identifier of email e, as read from the CSV file.
+     *
+     */
+	String getEmailIdentifier(int e) {
+		return emailDictionary.getAddress(e);
+	}
+
+}
@@ -14,17 +14,43 @@ Fills the dictionary mapping the Strings of the email addresses to their respect
 Optionally, fills a map (variable named "emails") in which each pair <String,List<Node> represents as key a String of an email identifier 
 and as value a list of Nodes present in that email (either as sender or as receiver of the email).
 
+Alternatively, reads the file into an EmailRows, in which the addresses and the email identifiers are interned into dense ids.
+The rows can also be read from several files (shards, possibly compressed with gzip) concurrently, and the graph built from them.
+
+Optionally, rows repeating a previous row (same email identifier, email address and role) are dropped while reading (see RowDeduplicator.java).
+
 *******************/
 
 
 import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 
 public class GraphBuilder {
 
@@ -55,6 +81,33 @@ public class GraphBuilder {
      *
      */
 	static int[] BuildGraphFromCSV(String csvFileName, Map<String,Node> dic, Map<String,List<Node>> emails, float InitialCentrality, boolean runTests) { 
+		return BuildGraphFromCSV (csvFileName, dic, emails, InitialCentrality, null, runTests);
+	}
+	
+    /**
+     * Reads a CSV file and builds a graph from it, as BuildGraphFromCSV above, dropping the lines that repeat a previous line
+     * (see RowDeduplicator.java) if deduplicator is not null. The dropped lines are not counted in the returned number of lines.
+     *
+     * @param deduplicator the detector of repeated lines, or null to keep all lines.
+     *
+     */
+	static int[] BuildGraphFromCSV(String csvFileName, Map<String,Node> dic, Map<String,List<Node>> emails, float InitialCentrality, 
+			RowDeduplicator deduplicator, boolean runTests) { 
+		return BuildGraphFromCSV (csvFileName, dic, emails, InitialCentrality, deduplicator, -1, null, runTests);
+	}
+	
+    /**
+     * Reads a CSV file and builds a graph from it, as BuildGraphFromCSV above, also reading the time of each email from a column of the
+     * file (as EmailRows.readTimestamps), e.g. to decay the weights of the edges without reading the file again (see BuildDecayedWeights).
+     *
+     * @param timestampColumn the column of the file holding the time at which each email was sent.
+     *
+     * @param timeOfEmail the map into which the earliest time of each email identifier is put (the emails without a time are not put), 
+     * or null for not reading the times.
+     *
+     */
+	static int[] BuildGraphFromCSV(String csvFileName, Map<String,Node> dic, Map<String,List<Node>> emails, float InitialCentrality, 
+			RowDeduplicator deduplicator, int timestampColumn, Map<String,Long> timeOfEmail, boolean runTests) { 
 		
         // variables to read file
         String line = "";
@@ -65,6 +118,10 @@ public class GraphBuilder {
         int EmailCounter = 0;
         int totalNumberOfEdges = 0; // non-oriented edges
         
+        // variables to drop repeated lines
+        RowDeduplicator.Reader reader = (deduplicator != null ? deduplicator.newReader() : null);
+        long droppedBefore = (deduplicator != null ? deduplicator.droppedRows() : 0);
+        
         // READING FILE AND BUILDING GRAPH /////////////////////////////////////////////////////////////////////
           
         try (BufferedReader br = new BufferedReader(new FileReader(csvFileName))) {
@@ -74,6 +131,20 @@ public class GraphBuilder {
                 // use comma as separator
                 String[] currentLine = line.split(cvsSplitBy);
                 
+                // skips the line if it repeats a previous one.
+                if (reader != null) {
+                	long emailHash = RowDeduplicator.hash(currentLine[0]);
+                	if (reader.isDuplicate(emailHash, RowDeduplicator.hashOfRow(emailHash, currentLine[1], currentLine[3])))
+                		continue;
+                }
+                
+                // keeps the earliest time of the email.
+                if (timeOfEmail != null && timestampColumn < currentLine.length) {
+                	long time = parseTimestamp(currentLine[timestampColumn]);
+                	if (time != EmailRows.noTime)
+                		timeOfEmail.merge(currentLine[0], time, Math::min);
+                }
+                
                 // maps the email address to a node representing it in the dictionary if it does not already exist.
                 dic.putIfAbsent(currentLine[1], new Node(currentLine[1], InitialCentrality));
                 
@@ -118,6 +189,8 @@ public class GraphBuilder {
         }
 
         System.out.println("Read "+LineCounter+" lines.");
+        if (deduplicator != null)
+        	System.out.println("Dropped "+(deduplicator.droppedRows() - droppedBefore)+" repeated lines.");
         System.out.println("Represented "+EmailCounter+" different emails.");
         System.out.println("Represented "+dic.size()+" different email addresses");
         System.out.println("Created graph with "+dic.size()+" nodes and "+totalNumberOfEdges+" edges. Total weighted degree of graph: "+(LineCounter - EmailCounter));
@@ -169,5 +242,556 @@ public class GraphBuilder {
 		return BuildGraphFromCSV (csvFileName, dic, new HashMap<String,List<Node>>(), InitialCentrality, runTests);
 	}
 	
+    /**
+     * Builds a CompactGraph from the rows read by ReadRowsFromCSV, without creating any Node: the rows are grouped by email into an
+     * EmailTable, and the edges (sender, recipient) of the emails are radix-sorted in parallel in both directions (see CompactGraph.fromEdges).
+     * The ids of the Nodes are the ids of rows.addressDictionary. Prints the same information as BuildGraphFromCSV.
+     *
+     * @param rows the rows read from the CSV file.
+     *
+     * @param InitialCentrality the initial value for centrality assigned to all Nodes in the graph. 
+     * 
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     * @param runTests whether or not to run tests confirming if the graph was properly built, and printing an error message in the 
+     * console otherwise.
+     *
+     */
+	static CompactGraph BuildCompactGraph (EmailRows rows, float InitialCentrality, int numberOfConcurrentThreads, boolean runTests) {
+		return BuildCompactGraph (EmailTable.fromRows(rows, numberOfConcurrentThreads), rows.addressDictionary.size(), InitialCentrality, 
+				numberOfConcurrentThreads, runTests);
+	}
+	
+    /**
+     * Builds a CompactGraph from the emails of an EmailTable built from rows (see EmailTable.fromRows), without creating any Node, as 
+     * BuildCompactGraph over the rows. Prints the same information as BuildGraphFromCSV.
+     *
+     * @param table the emails, whose ids of addresses are the ids of the Nodes.
+     *
+     * @param numberOfNodes the number of different addresses (e.g. rows.addressDictionary.size()).
+     *
+     */
+	static CompactGraph BuildCompactGraph (EmailTable table, int numberOfNodes, float InitialCentrality, int numberOfConcurrentThreads, 
+			boolean runTests) {
+		CompactGraph graph = CompactGraph.fromEmails(table, numberOfNodes, InitialCentrality, numberOfConcurrentThreads);
+		
+		System.out.println("Created graph with "+graph.numberOfNodes+" nodes and "+graph.totalNumberOfEdges+" edges. Total weighted degree of graph: "+
+				graph.totalWeight);
+		
+		// checks if the graph was properly built.
+		if (runTests) {
+			long contSumOfInDegrees = 0;
+			for ( int p = 0; p < graph.numberOfNodes; p++ )
+				contSumOfInDegrees += graph.inDegree[p];
+			Assert.check (graph.inOffsets[graph.numberOfNodes] == graph.totalNumberOfEdges, "number of edges");
+			Assert.check (contSumOfInDegrees == graph.totalWeight, "sum of in degrees == sum of out degrees");
+			Assert.check (graph.totalWeight == table.members.length - table.numberOfEmails, "number of emails");
+		}
+		return graph;
+	}
+	
+    /**
+     * Builds the compressed representation of a graph already built (see CompressedGraph.java), and prints in the Console its size
+     * compared to the size of the same graph as a CompactGraph.
+     *
+     * @param compactGraph the graph to be compressed. Its edges can be released afterwards (see CompactGraph.releaseEdges).
+     * 
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     */
+	static CompressedGraph BuildCompressedGraph (CompactGraph compactGraph, int numberOfConcurrentThreads) {
+		CompressedGraph graph = new CompressedGraph(compactGraph, numberOfConcurrentThreads);
+		System.out.println("Built compressed graph: "+graph.sizeInBytes()+" bytes, against "+graph.uncompressedSizeInBytes()+
+				" bytes uncompressed ("+(float)graph.uncompressedSizeInBytes() / Math.max(graph.sizeInBytes(), 1)+" times smaller). "+
+				(graph.inOverflow.length + graph.outOverflow.length)+" weights in the overflow tables.");
+		return graph;
+	}
+	
+    /**
+     * Assigns time-decayed weights to the edges of graph (see DecayedWeights.java) from the times of the emails of a table, read with
+     * the emails (see BuildGraphFromCSV and EmailRows.readTimestamps), which are then used by the weighted centralities calculated over
+     * it. Prints the number of emails without a time (which weigh 0) and after the reference time (which weigh 1). Returns the weights,
+     * or null if no email has a time.
+     *
+     * @param graph the graph, whose ids of Nodes are the ids of the addresses of table.
+     *
+     * @param table the emails from which the graph was built.
+     *
+     * @param timeOfEmail the time of each email of table (EmailRows.noTime if it has none), indexed by the id of the email.
+     *
+     * @param halfLife the time after which the weight of an email is halved, in the unit of the times (seconds for dates).
+     *
+     * @param referenceTime the time at which the weight of an email is 1, or Long.MIN_VALUE for the time of the latest email.
+     *
+     * @param numberOfConcurrentThreads the number of Threads calculating the weights.
+     *
+     */
+	static DecayedWeights BuildDecayedWeights (CompactGraph graph, EmailTable table, long[] timeOfEmail, double halfLife,
+			long referenceTime, int numberOfConcurrentThreads) {
+		long latest = Long.MIN_VALUE;
+		int emailsWithTime = 0;
+		for ( int e = 0; e < table.numberOfEmails; e++ ) {
+			if (timeOfEmail != null && e < timeOfEmail.length && timeOfEmail[e] != EmailRows.noTime) {
+				latest = Math.max(latest, timeOfEmail[e]);
+				emailsWithTime++;
+			}
+		}
+		if (emailsWithTime == 0) {
+			System.out.println("No time could be read for the emails: the edges are not decayed.");
+			return null;
+		}
+		long reference = (referenceTime == Long.MIN_VALUE ? latest : referenceTime);
+		int emailsAfterReference = 0;
+		for ( int e = 0; e < Math.min(table.numberOfEmails, timeOfEmail.length); e++ )
+			if (timeOfEmail[e] != EmailRows.noTime && timeOfEmail[e] > reference)
+				emailsAfterReference++;
+		graph.decayedWeights = DecayedWeights.fromEmails(graph, table, timeOfEmail, halfLife, reference, numberOfConcurrentThreads);
+		System.out.println("Decayed the weights of the edges with a half-life of "+halfLife+" from the reference time "+reference+" ("+
+				emailsWithTime+" of "+table.numberOfEmails+" emails with a time).");
+		if (emailsWithTime < table.numberOfEmails)
+			System.out.println("Warning: "+(table.numberOfEmails - emailsWithTime)+" emails have no time, so they weigh 0 in the weighted centralities.");
+		if (emailsAfterReference > 0)
+			System.out.println("Warning: "+emailsAfterReference+" emails were sent after the reference time, so they weigh 1 (as if sent at it).");
+		return graph.decayedWeights;
+	}
+	
+    /**
+     * Assigns time-decayed weights to the edges of graph as BuildDecayedWeights above, from the times of the emails put in a map by
+     * BuildGraphFromCSV, whose keys are the email identifiers of table (e.g. built by EmailTable.fromMap over the map of the same call).
+     *
+     * @param timeOfEmail the time of each email identifier (the emails without a time are not in the map).
+     *
+     */
+	static DecayedWeights BuildDecayedWeights (CompactGraph graph, EmailTable table, Map<String,Long> timeOfEmail, double halfLife,
+			long referenceTime, int numberOfConcurrentThreads) {
+		long[] times = new long[table.numberOfEmails];
+		Arrays.fill(times, EmailRows.noTime);
+		for ( Map.Entry<String,Long> entry : timeOfEmail.entrySet() ) {
+			int e = table.emailDictionary.getId(entry.getKey());
+			if (e >= 0)
+				times[e] = entry.getValue();
+		}
+		return BuildDecayedWeights(graph, table, times, halfLife, referenceTime, numberOfConcurrentThreads);
+	}
+	
+    /**
+     * Samples a CSV file (of the same form as in BuildGraphFromCSV) to estimate the size of the graph built from it, and prints
+     * the estimates and the memory needed in the Console (see InputEstimate.java). Returns null if the file could not be read.
+     *
+     * @param csvFileName the name of the CSV file from which the graph will be built.
+     *
+     */
+	static InputEstimate EstimateInput (String csvFileName) {
+		try {
+			InputEstimate estimate = new InputEstimate(csvFileName, 64, 1 << 16);
+			estimate.print();
+			return estimate;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+    /**
+     * Reads a CSV file (of the same form as in BuildGraphFromCSV) into an EmailRows, interning the email addresses and the email identifiers
+     * directly from the bytes of each line, without creating any String or Node.
+     * The ids of the addresses are dense (0 <= id < rows.addressDictionary.size()), in order of first appearance in the file, and so are the
+     * ids of the emails.
+     *
+     * @param csvFileName the name of the CSV file from which the rows will be read.
+     *
+     * @param rows the rows to which the lines of the file are added.
+     *
+     */
+	static EmailRows ReadRowsFromCSV (String csvFileName, EmailRows rows) {
+		return ReadRowsFromCSV (csvFileName, rows, null);
+	}
+
+    /**
+     * Reads a CSV file into an EmailRows as ReadRowsFromCSV above, dropping the lines that repeat a previous line
+     * (see RowDeduplicator.java) if deduplicator is not null.
+     *
+     * @param deduplicator the detector of repeated lines, or null to keep all lines.
+     *
+     */
+	static EmailRows ReadRowsFromCSV (String csvFileName, EmailRows rows, RowDeduplicator deduplicator) {
+		long droppedBefore = (deduplicator != null ? deduplicator.droppedRows() : 0);
+		try (InputStream in = new FileInputStream(csvFileName)) {
+			ReadRows(in, rows, (deduplicator != null ? deduplicator.newReader() : null));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		System.out.println("Read "+rows.size()+" lines with "+rows.emailDictionary.size()+" different emails and "+
+				rows.addressDictionary.size()+" different email addresses, in "+rows.sizeInBytes()+" bytes.");
+		if (deduplicator != null)
+			System.out.println("Dropped "+(deduplicator.droppedRows() - droppedBefore)+" repeated lines.");
+		return rows;
+	}
+
+    /**
+     * Returns the names of the files matching a glob pattern (e.g. "exports/emails_*.csv.gz"), sorted, or a list with only the
+     * pattern if it has no wildcard.
+     * Throws an IllegalArgumentException if no file matches the pattern, and an UncheckedIOException if its directory cannot be listed.
+     *
+     * @param pattern the name of a file, whose last part (after the last separator) may contain the wildcards * ? [ ] { }.
+     *
+     */
+	static List<String> ExpandShards (String pattern) {
+		List<String> names = new ArrayList<String>();
+		Path path = Paths.get(pattern);
+		String last = path.getFileName().toString();
+		if (!last.matches(".*[*?\\[{].*")) {
+			names.add(pattern);
+			return names;
+		}
+		Path directory = (path.getParent() != null ? path.getParent() : Paths.get("."));
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, last)) {
+			for ( Path file : stream )
+				names.add(file.toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not list the files matching "+pattern, e);
+		}
+		if (names.isEmpty())
+			throw new IllegalArgumentException("No file matches "+pattern);
+		Collections.sort(names);
+		return names;
+	}
+
+    /**
+     * Reads several CSV files (shards of the same form as in BuildGraphFromCSV, plain or compressed with gzip if their name ends
+     * with ".gz") concurrently, each one into its own EmailRows by its own Thread, and merges them into a single EmailRows.
+     *
+     * The result does not depend on the order in which the shards are given nor on the order in which they finish:
+     * the shards are merged in order of name, and the ids of the addresses and of the emails are in the order of their bytes.
+     *
+     * If a shard cannot be read, the reading of the others is cancelled and an UncheckedIOException naming that shard is thrown:
+     * the rows of the other shards are never returned alone.
+     *
+     * @param shardNames the names of the files.
+     *
+     * @param numberOfConcurrentThreads the maximal number of shards read at the same time (it is also limited by the number of cores).
+     *
+     */
+	static EmailRows ReadRowsFromShards (List<String> shardNames, int numberOfConcurrentThreads) {
+		return ReadRowsFromShards (shardNames, numberOfConcurrentThreads, null);
+	}
+
+    /**
+     * Reads several CSV files concurrently as ReadRowsFromShards above, dropping the lines that repeat a previous line of any shard
+     * (see RowDeduplicator.java) if deduplicator is not null. When a line is repeated in several shards read at the same time, which
+     * copy is dropped depends on the timing of the Threads, but the rows kept are the same (every line is checked against the filter
+     * of all the lines read, so any line may be wrongly dropped with the probability of false positive of the deduplicator).
+     *
+     * @param deduplicator the detector of repeated lines, shared by the Threads, or null to keep all lines.
+     *
+     */
+	static EmailRows ReadRowsFromShards (List<String> shardNames, int numberOfConcurrentThreads, RowDeduplicator deduplicator) {
+		long droppedBefore = (deduplicator != null ? deduplicator.droppedRows() : 0);
+		List<String> names = new ArrayList<String>(shardNames);
+		Collections.sort(names);
+		int numberOfShards = names.size();
+		EmailRows[] shards = new EmailRows[numberOfShards];
+
+		// one pipeline (decompression and parsing) per shard.
+		int threads = Math.max(1, Math.min(Math.min(numberOfConcurrentThreads, Runtime.getRuntime().availableProcessors()), numberOfShards));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for ( int s = 0; s < numberOfShards; s++ ) {
+			int shard = s;
+			futures.add(pool.submit( () -> {
+				EmailRows rows = new EmailRows();
+				try (InputStream in = openShard(names.get(shard))) {
+					ReadRows(in, rows, (deduplicator != null ? deduplicator.newReader() : null));
+				} catch (IOException e) {
+					throw new UncheckedIOException("Could not read the shard "+names.get(shard), e);
+				}
+				shards[shard] = rows;
+			}));
+		}
+		try {
+			for ( Future<?> future : futures )
+				future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			// cancels the shards not read yet if one of them failed.
+			pool.shutdownNow();
+		}
+
+		EmailRows rows = mergeRows(shards, numberOfConcurrentThreads);
+		System.out.println("Read "+numberOfShards+" shards with "+rows.size()+" lines, "+rows.emailDictionary.size()+" different emails and "+
+				rows.addressDictionary.size()+" different email addresses.");
+		if (deduplicator != null)
+			System.out.println("Dropped "+(deduplicator.droppedRows() - droppedBefore)+" repeated lines.");
+		return rows;
+	}
+
+    /**
+     * Opens a file for reading, decompressing it if its name ends with ".gz".
+     *
+     */
+	private static InputStream openShard (String name) throws IOException {
+		InputStream in = new FileInputStream(name);
+		return (name.endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in);
+	}
+
+    /**
+     * Merges the rows of several shards (in the given order) into a single EmailRows whose dictionaries have the ids in the order of
+     * the bytes of the keys. The rows of each shard are translated to the new ids in parallel.
+     *
+     */
+	private static EmailRows mergeRows (EmailRows[] shards, int numberOfConcurrentThreads) {
+		// the union of the dictionaries of the shards, and the id in it of each id of each shard.
+		AddressDictionary addresses = new AddressDictionary();
+		AddressDictionary emails = new AddressDictionary();
+		int[][] addressIds = new int[shards.length][];
+		int[][] emailIds = new int[shards.length][];
+		int totalRows = 0;
+		for ( int s = 0; s < shards.length; s++ ) {
+			addressIds[s] = new int[shards[s].addressDictionary.size()];
+			for ( int id = 0; id < addressIds[s].length; id++ )
+				addressIds[s][id] = addresses.intern(shards[s].addressDictionary, id);
+			emailIds[s] = new int[shards[s].emailDictionary.size()];
+			for ( int id = 0; id < emailIds[s].length; id++ )
+				emailIds[s][id] = emails.intern(shards[s].emailDictionary, id);
+			totalRows += shards[s].size();
+		}
+
+		// the ids in order of the bytes of the keys.
+		int[] sortedAddressIds = new int[addresses.size()];
+		int[] sortedEmailIds = new int[emails.size()];
+		EmailRows merged = new EmailRows(addresses.sorted(sortedAddressIds), emails.sorted(sortedEmailIds));
+		merged.emailOfRow = new IntList(totalRows);
+		merged.addressOfRow = new IntList(totalRows);
+		merged.emailOfRow.size = totalRows;
+		merged.addressOfRow.size = totalRows;
+
+		int[] firstRows = new int[shards.length + 1];
+		for ( int s = 0; s < shards.length; s++ ) {
+			firstRows[s+1] = firstRows[s] + shards[s].size();
+			for ( int r = shards[s].sender.nextSetBit(0); r >= 0; r = shards[s].sender.nextSetBit(r + 1) )
+				merged.sender.set(firstRows[s] + r);
+		}
+		ParallelRange.run(Math.max(1, Math.min(numberOfConcurrentThreads, shards.length)), shards.length, (part, start, end) -> {
+			for ( int s = start; s < end; s++ ) {
+				for ( int r = 0; r < shards[s].size(); r++ ) {
+					merged.emailOfRow.data[firstRows[s] + r] = sortedEmailIds[emailIds[s][shards[s].emailOfRow.data[r]]];
+					merged.addressOfRow.data[firstRows[s] + r] = sortedAddressIds[addressIds[s][shards[s].addressOfRow.data[r]]];
+				}
+			}
+		});
+		return merged;
+	}
+
+    /**
+     * Builds a graph of Nodes from rows (e.g. read from several shards by ReadRowsFromShards), filling dic and emails as 
+     * BuildGraphFromCSV does. The sender of each email is chosen as in EmailTable.fromRows.
+     * Returns the same information as BuildGraphFromCSV.
+     *
+     * @param rows the rows read from the CSV files.
+     *
+     * @param dic the dictionary mapping the Strings of the email addresses to their respective Nodes representing them in the graph. 
+     * It is received empty and will be filled by this function.
+     * 
+     * @param emails a map in which each pair <String,List<Node> represents as key a String of an email identifier 
+     * and as value a list of Nodes present in that email (either as sender or as receiver of the email).
+     * It is received empty and will be filled by this function.
+     * 
+     * @param InitialCentrality the initial value for centrality assigned to all Nodes in the graph. 
+     * 
+     * @param numberOfConcurrentThreads the number of Threads grouping the rows by email.
+     *
+     * @param runTests whether or not to run tests confirming if the graph was properly built, and printing an error message in the 
+     * console otherwise.
+     *
+     */
+	static int[] BuildGraphFromRows (EmailRows rows, Map<String,Node> dic, Map<String,List<Node>> emails, float InitialCentrality, 
+			int numberOfConcurrentThreads, boolean runTests) {
+		int LineCounter = rows.size();
+		int EmailCounter = rows.sender.cardinality();
+		int totalNumberOfEdges = 0;
+
+		Node[] nodes = new Node[rows.addressDictionary.size()];
+		for ( int p = 0; p < nodes.length; p++ ) {
+			nodes[p] = new Node(rows.addressDictionary.getAddress(p), InitialCentrality);
+			dic.put(nodes[p].address, nodes[p]);
+		}
+		EmailTable table = EmailTable.fromRows(rows, numberOfConcurrentThreads);
+		for ( int e = 0; e < table.numberOfEmails; e++ ) {
+			List<Node> list = new LinkedList<Node>();
+			Node sender = nodes[table.sender(e)];
+			list.add(sender);
+			for ( int i = table.offsets[e] + 1; i < table.offsets[e+1]; i++ ) {
+				Node address = nodes[table.members[i]];
+				list.add(address);
+				if(sender.addToNodes(address) == null)
+					totalNumberOfEdges++;
+				address.addFromNodes(sender);
+			}
+			emails.put(table.getEmailIdentifier(e), list);
+		}
+
+		System.out.println("Represented "+EmailCounter+" different emails.");
+		System.out.println("Represented "+dic.size()+" different email addresses");
+		System.out.println("Created graph with "+dic.size()+" nodes and "+totalNumberOfEdges+" edges. Total weighted degree of graph: "+
+				(table.members.length - table.numberOfEmails));
+
+		// checks if the graph was properly built.
+		if (runTests) {
+			int contNumberOfEdges = 0;
+			int contSumOfInDegrees = 0;
+			int contSumOfOutDegrees = 0;
+			for ( Node address : dic.values() ) {
+				contNumberOfEdges += address.toNodes.size();
+				contSumOfInDegrees += address.inDegree();
+				contSumOfOutDegrees += address.outDegree();
+			}
+			Assert.check (totalNumberOfEdges == contNumberOfEdges, "number of edges");
+			Assert.check (contSumOfInDegrees == contSumOfOutDegrees, "sum of in degrees == sum of out degrees");
+			Assert.check (contSumOfInDegrees == table.members.length - table.numberOfEmails, "number of emails");
+		}
+
+		int[] tmp = {LineCounter, EmailCounter, totalNumberOfEdges};
+		return tmp;
+	}
+
+    /**
+     * Reads lines of the form "email identifier, ?, email address, from/to/cc" from in and adds them to rows.
+     * Lines with less than 4 fields are ignored, and so are the lines reported as repeated by reader if it is not null.
+     *
+     */
+	static void ReadRows (InputStream in, EmailRows rows, RowDeduplicator.Reader reader) throws IOException {
+		byte[] buffer = new byte[1 << 16];
+		int length = 0;
+		int read;
+		boolean endOfFile = false;
+		while (!endOfFile) {
+			read = in.read(buffer, length, buffer.length - length);
+			if (read < 0)
+				endOfFile = true;
+			else
+				length += read;
+
+			// parses the complete lines in the buffer (and the last one at the end of the file).
+			int lineStart = 0;
+			for ( int i = 0; i < length; i++ ) {
+				if (buffer[i] == '\n') {
+					parseLine(buffer, lineStart, i, rows, reader);
+					lineStart = i + 1;
+				}
+			}
+			if (endOfFile && lineStart < length) {
+				parseLine(buffer, lineStart, length, rows, reader);
+				lineStart = length;
+			}
+
+			// keeps the incomplete line at the start of the buffer, growing it if the line does not fit.
+			length -= lineStart;
+			System.arraycopy(buffer, lineStart, buffer, 0, length);
+			if (length == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+	}
+
+    /**
+     * Adds to rows the line in bytes[ start <= i < end ], unless reader (if not null) reports it as repeated.
+     *
+     */
+	private static void parseLine (byte[] bytes, int start, int end, EmailRows rows, RowDeduplicator.Reader reader) {
+		if (end > start && bytes[end - 1] == '\r')
+			end--;
+		// the positions of the first 4 commas (the last one is the end of the line if there are only 3).
+		int comma0 = nextComma(bytes, start, end);
+		int comma1 = nextComma(bytes, comma0 + 1, end);
+		int comma2 = nextComma(bytes, comma1 + 1, end);
+		if (comma2 >= end)
+			return;
+		int comma3 = nextComma(bytes, comma2 + 1, end);
+
+		if (reader != null) {
+			long emailHash = HyperLogLog.hash(bytes, start, comma0 - start);
+			if (reader.isDuplicate(emailHash, RowDeduplicator.hashOfRow(emailHash, bytes, comma0 + 1, comma1, comma2 + 1, comma3)))
+				return;
+		}
+		int email = rows.emailDictionary.intern(bytes, start, comma0 - start);
+		int address = rows.addressDictionary.intern(bytes, comma0 + 1, comma1 - comma0 - 1);
+		int role = comma2 + 1;
+		boolean isSender = comma3 - role == 4 && bytes[role] == 'f' && bytes[role+1] == 'r' && bytes[role+2] == 'o' && bytes[role+3] == 'm';
+		rows.add(email, address, isSender);
+
+		if (rows.timestampColumn >= 0) {
+			// the bounds of the field of the time.
+			int fieldStart = start;
+			for ( int c = 0; c < rows.timestampColumn && fieldStart <= end; c++ )
+				fieldStart = nextComma(bytes, fieldStart, end) + 1;
+			long time = (fieldStart <= end ? parseTimestamp(bytes, fieldStart, nextComma(bytes, fieldStart, end)) : EmailRows.noTime);
+			if (time != EmailRows.noTime)
+				rows.addTime(email, time);
+		}
+	}
+
+    /**
+     * Returns the time in bytes[ start <= i < end ], or EmailRows.noTime if it is not a time.
+     * The time is either an integer (e.g. seconds since the epoch, returned as is) or a date in ISO-8601 form, such as
+     * "2017-04-21T10:15:30Z", "2017-04-21T10:15:30" (in UTC) or "2017-04-21", returned in seconds since the epoch.
+     *
+     */
+	static long parseTimestamp (byte[] bytes, int start, int end) {
+		while ( start < end && bytes[start] == ' ' )
+			start++;
+		while ( end > start && bytes[end - 1] == ' ' )
+			end--;
+		if (start == end)
+			return EmailRows.noTime;
+		boolean negative = bytes[start] == '-';
+		long time = 0;
+		int i = (negative ? start + 1 : start);
+		for ( ; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++ )
+			time = time * 10 + (bytes[i] - '0');
+		if (i == end && i > (negative ? start + 1 : start))
+			return (negative ? -time : time);
+
+		// not an integer: the rare dates are parsed from a String.
+		String text = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+		try {
+			return OffsetDateTime.parse(text).toEpochSecond();
+		} catch (DateTimeParseException e1) {
+			try {
+				return LocalDateTime.parse(text).toEpochSecond(ZoneOffset.UTC);
+			} catch (DateTimeParseException e2) {
+				try {
+					return LocalDate.parse(text).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+				} catch (DateTimeParseException e3) {
+					return EmailRows.noTime;
+				}
+			}
+		}
+	}
+
+    /**
+     * Parses the time of an email from a field of a line read as a String, as parseTimestamp above.
+     *
+     */
+	static long parseTimestamp (String field) {
+		byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+		return parseTimestamp(bytes, 0, bytes.length);
+	}
+
+    /**
+     * Returns the position of the first comma in bytes[ start <= i < end ], or end if there is none.
+     *
+     */
+	static int nextComma (byte[] bytes, int start, int end) {
+		int i = start;
+		while ( i < end && bytes[i] != ',' )
+			i++;
+		return i;
+	}
+
+	
 	
 }
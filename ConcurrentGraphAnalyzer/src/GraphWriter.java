@@ -16,6 +16,7 @@ It provides two types of methods:
 	                           (namely Standard, Reversed, Neighbor, and their versions with unweighted edges),
 	                           the in-degree and out-degree of each Node,
 	                           and the lists of every Node it has edges with (the Nodes sending emails to and receiving emails from it).  
+	The Nodes can also be given as a CompactGraph (e.g. a Subgraph) with the address of each id.
 
 2) METHODS FOR WRITING BY EMAILS
 	Creates and writes a CSV file containing information of each email in a given collection.
@@ -23,28 +24,85 @@ It provides two types of methods:
 	                           the values(*) of the Node sending the email, and statistical results of the Collection of the 
 	                           values(*) of the Nodes receiving the email, those statistical results are: 
 	                           { the mean, the median, the standard deviation, the harmonic mean, and the mean absolute deviation }
+	                           followed by the quantiles set in the StatsResult given to writeByEmails (e.g. the 90th and 99th percentiles).
 	         
 	         (*): the values of each Node are: the 6 types of centrality specified at centralityType.java
 	                                           (namely Standard, Reversed, Neighbor, and their versions with unweighted edges),
 	                                           and the in-degree and out-degree of each Node.
+	The emails can be given either as a map from email identifiers to Lists of Nodes, or as an EmailTable.
+	The statistical results of all emails are calculated into a single reused StatsResult, without boxing the values.
+	The rows of an EmailTable can also be calculated by several Threads (each one with its own StatsResult) over chunks of the emails,
+	and written in order, calculating the statistical values of each distinct recipient list once (see RecipientStatsCache.java).
+
+3) METHODS FOR WRITING BY DOMAINS
+	Creates and writes a CSV file containing information of each domain of a DomainGraph: the domain, its number of addresses,
+	the 6 types of centrality calculated over the graph of the domains, and its in-degree and out-degree.
+	The centralities of the domains can also be written by address: each address followed by its domain and the centralities of its domain.
+
+4) METHODS FOR WRITING SUMMARIES
+	Creates and writes a CSV file summarizing the distribution over all the Nodes of each type of centrality and of the degrees
+	(see DistributionSummary.java): a row for each value summarized, with its number of Nodes, its smallest value, mean, largest value
+	and chosen quantiles, followed by the counts of the non-empty buckets of its histogram, each with the range of values it holds.
 
 
 *******************/
 
 import java.io.*;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
-import java.util.function.Function;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 
 public class GraphWriter {
 	
+	// the number of emails whose rows each Thread calculates in each round of the parallel writeByEmails.
+	private static final int emailsPerChunk = 4096;
+	// the end of the rows written by the parallel writeByEmails (the same as BufferedWriter.newLine).
+	private static final String lineSeparator = System.lineSeparator();
+	
 	/////////////////////////////////   METHODS FOR WRITING BY NODES (EMAIL ADDRESSES)   ////////////////////////////////////////////////////
 	
 	
+    /**
+     * Creates and writes a CSV file containing the information of each Node of a CompactGraph whose centralities were calculated 
+     * (e.g. the graph of a Subgraph), with the same columns as write (without the lists of Nodes).
+     * Each boolean parameter represents whether or not its respective value should be written in the file.
+     * The name of the file created is the additionalFileName parameter followed by the date and time it was created.
+     *
+     * @param graph the graph whose Nodes will be written in the CSV file.
+     *
+     * @param addressOfNode the address of each Node of the graph.
+     *
+     */
+    public static void writeByNodes( CompactGraph graph, IntFunction<String> addressOfNode, boolean writeStandard, boolean writeReversed, 
+			boolean writeNeighborCentrality, boolean writeStandardUnweightedEdges, boolean writeReversedUnweightedEdges, 
+			boolean writeNeighborCentralityUnweightedEdges, boolean writeInDegree, boolean writeOutDegree, String additionalFileName ) {
+    	
+    	boolean[] writeCentrality = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, 
+    			writeReversedUnweightedEdges, writeNeighborCentralityUnweightedEdges };
+    	
+    	try (BufferedWriter writer = new BufferedWriter(new FileWriter(newFile(additionalFileName)))) {
+    		for ( int p = 0; p < graph.numberOfNodes; p++ ) {
+    			writer.write( addressOfNode.apply(p) );
+    			for ( centralityType type : centralityType.values() )
+    				if (writeCentrality[type.ordinal()])	writer.write( "," + graph.getCentrality(type)[p] );
+    			if (writeInDegree)				writer.write( "," + graph.inDegree[p] );
+    			if (writeOutDegree)				writer.write( "," + graph.outDegree[p] );
+    			writer.newLine();
+    		}
+    	} catch (Exception e) {
+    		e.printStackTrace();
+    	}
+    }
+    
     /**
      * Creates and writes a CSV file containing the information of each Node in a given collection. 
      * Each boolean parameter represents whether or not its respective value should be written in the file.
@@ -292,6 +350,25 @@ public class GraphWriter {
     		boolean writeStatsRecipientUnweightedOutDegree, boolean writeMedian, boolean writeMean, boolean writeStandardDeviation, 
     		boolean writeHarmonicMean, boolean writeMeanAbsoluteDeviation, String additionalFileName ) {
     	
+    	centralityType[] types = centralityType.values();
+    	boolean[] writeStatsRecipientCentrality = { writeStatsRecipientStandard, writeStatsRecipientReversed, writeStatsRecipientNeighborCentrality, 
+    			writeStatsRecipientStandardUnweightedEdges, writeStatsRecipientReversedUnweightedEdges, writeStatsRecipientNeighborCentralityUnweightedEdges };
+    	boolean[] writeStatsRecipientDegree = { writeStatsRecipientInDegree, writeStatsRecipientOutDegree, writeStatsRecipientUnweightedInDegree, 
+    			writeStatsRecipientUnweightedOutDegree };
+    	// the functions giving the values of a Node, created once for all emails.
+    	@SuppressWarnings({"unchecked", "rawtypes"})
+    	ToDoubleFunction<Node>[] centralityOf = new ToDoubleFunction[types.length];
+    	for ( centralityType type : types )
+    		centralityOf[type.ordinal()] = n -> n.getCentrality(type);
+    	@SuppressWarnings({"unchecked", "rawtypes"})
+    	ToIntFunction<Node>[] degreeOf = new ToIntFunction[4];
+    	degreeOf[0] = Node::inDegree;
+    	degreeOf[1] = Node::outDegree;
+    	degreeOf[2] = Node::unweighedInDegree;
+    	degreeOf[3] = Node::unweighedOutDegree;
+    	// the statistical results of the recipients of each email, reused for all emails.
+    	StatsResult stats = new StatsResult();
+    	
     	BufferedWriter writer = null;
         try {
             //create a temporary file
@@ -319,48 +396,24 @@ public class GraphWriter {
             	if (writeSenderUnweightedInDegree)			writer.write( "," + sender.unweighedInDegree() );
             	if (writeSenderUnweightedOutDegree)			writer.write( "," + sender.unweighedOutDegree() );
             	
-            	// removes the sender so that the remaining Collection has only (and all) the Nodes RECEIVING the email. 
-            	emails.get(email).remove(0);
-            	List<Node> recipients = emails.get(email);
+            	// a view of the list without the sender, so that it has only (and all) the Nodes RECEIVING the email.
+            	// The list itself is not modified.
+            	List<Node> recipients = emails.get(email).subList(1, emails.get(email).size());
             	
-            	// LAMBDA-function used the print the next 6 statistical results.
-            	BiConsumer<centralityType, BufferedWriter> write1 = (type, Bwriter) -> {
-            			float[] tmp = getStatsFromCollection.getConditionalFloat(recipients, n -> n.getCentrality(type), 
-            						  writeMedian, writeMean, writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation);
-            			for ( float f : tmp )
-            				if (f != -1)
-								try {
-									Bwriter.write( "," + f );
-								} catch (IOException e) { e.printStackTrace(); }
-            	};
-            	
-            	if(writeStatsRecipientStandard)					write1.accept(centralityType.standard, writer);
-            	if(writeStatsRecipientReversed)					write1.accept(centralityType.reversed, writer);
-            	if(writeStatsRecipientNeighborCentrality)			write1.accept(centralityType.neighborCentrality, writer);
-            	if(writeStatsRecipientStandardUnweightedEdges)			write1.accept(centralityType.standardUnweightedEdges, writer);
-            	if(writeStatsRecipientReversedUnweightedEdges)			write1.accept(centralityType.reversedUnweightedEdges, writer);
-            	if(writeStatsRecipientNeighborCentralityUnweightedEdges)	write1.accept(centralityType.neighborCentralityUnweightedEdges, writer);
-            
-            	// LAMBDA-function used the print the next 4 statistical results.
-            	BiConsumer<Function<Node,Integer>, BufferedWriter> write2 = (function, Bwriter) -> {
-            		Int4Floats tmp = getStatsFromCollection.getConditionalInt(recipients, function, writeMedian, 
-            						 writeMean, writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation);
-            		try {
-            			if (tmp.median != -1)					Bwriter.write( "," + tmp.median );
-            			if (tmp.mean != -1)					Bwriter.write( "," + tmp.mean );
-            			if (tmp.standardDeviation != -1)			Bwriter.write( "," + tmp.standardDeviation );
-            			if (tmp.harmonicMean != -1)				Bwriter.write( "," + tmp.harmonicMean );
-            			if (tmp.meanAbsoluteDeviation != -1)			Bwriter.write( "," + tmp.meanAbsoluteDeviation );
-            		} catch (IOException e) {}
-            	};
-            	
-            	if(writeStatsRecipientInDegree)					write2.accept(n -> n.inDegree(), writer);
-            	if(writeStatsRecipientOutDegree)				write2.accept(n -> n.outDegree(), writer);
-            	if(writeStatsRecipientUnweightedInDegree)			write2.accept(n -> n.unweighedInDegree(), writer);
-            	if(writeStatsRecipientUnweightedOutDegree)			write2.accept(n -> n.unweighedOutDegree(), writer);
-            	
-            	// adds the sender back to the List of Nodes in the email, in the start of the List.
-            	emails.get(email).add(0, sender);
+            	for ( int t = 0; t < types.length; t++ ) {
+            		if (writeStatsRecipientCentrality[t]) {
+            			getStatsFromCollection.getConditionalAsDouble(recipients, centralityOf[t], writeMedian, writeMean, 
+            					writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation, stats);
+            			writeStats(writer, stats, false);
+            		}
+            	}
+            	for ( int d = 0; d < 4; d++ ) {
+            		if (writeStatsRecipientDegree[d]) {
+            			getStatsFromCollection.getConditionalAsInt(recipients, degreeOf[d], writeMedian, writeMean, 
+            					writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation, stats);
+            			writeStats(writer, stats, true);
+            		}
+            	}
             	
             	writer.newLine();
             }
@@ -377,4 +430,472 @@ public class GraphWriter {
         
     }
 
+    /**
+     * Creates and writes a CSV file containing values of the sender and statistical values of the recipients of each email in an
+     * EmailTable, with the same columns as writeByEmails over a map, for each value this function takes a respective boolean as parameter
+     * indicating whether it should be written or omitted.
+     * The name of the file created is the additionalFileName parameter followed by the date and time it was created.
+     *
+     * @param table the emails, built from Nodes (by EmailTable.fromMap). It is not modified.
+     *
+     * @param additonalFileName the name of the file will be the additionalFileName parameter followed by the date and time it was created.
+     *
+     * @implNote the values of all Nodes are copied once per column to arrays indexed by id, from which the values of the recipients
+     * of each email are read.
+     *
+     */
+    public static void writeByEmails( EmailTable table, boolean writeSenderStandard, boolean writeSenderReversed, 
+    		boolean writeSenderNeighborCentrality, boolean writeSenderStandardUnweightedEdges, boolean writeSenderReversedUnweightedEdges, 
+    		boolean writeSenderNeighborCentralityUnweightedEdges, boolean writeSenderInDegree, boolean writeSenderOutDegree, 
+    		boolean writeSenderUnweightedInDegree, boolean writeSenderUnweightedOutDegree, boolean writeStatsRecipientStandard, 
+    		boolean writeStatsRecipientReversed, boolean writeStatsRecipientNeighborCentrality, boolean writeStatsRecipientStandardUnweightedEdges, 
+    		boolean writeStatsRecipientReversedUnweightedEdges, boolean writeStatsRecipientNeighborCentralityUnweightedEdges, 
+    		boolean writeStatsRecipientInDegree, boolean writeStatsRecipientOutDegree, boolean writeStatsRecipientUnweightedInDegree, 
+    		boolean writeStatsRecipientUnweightedOutDegree, boolean writeMedian, boolean writeMean, boolean writeStandardDeviation, 
+    		boolean writeHarmonicMean, boolean writeMeanAbsoluteDeviation, String additionalFileName ) {
+    	
+    	writeByEmails( table, writeSenderStandard, writeSenderReversed, writeSenderNeighborCentrality, writeSenderStandardUnweightedEdges, 
+    			writeSenderReversedUnweightedEdges, writeSenderNeighborCentralityUnweightedEdges, writeSenderInDegree, writeSenderOutDegree, 
+    			writeSenderUnweightedInDegree, writeSenderUnweightedOutDegree, writeStatsRecipientStandard, writeStatsRecipientReversed, 
+    			writeStatsRecipientNeighborCentrality, writeStatsRecipientStandardUnweightedEdges, writeStatsRecipientReversedUnweightedEdges, 
+    			writeStatsRecipientNeighborCentralityUnweightedEdges, writeStatsRecipientInDegree, writeStatsRecipientOutDegree, 
+    			writeStatsRecipientUnweightedInDegree, writeStatsRecipientUnweightedOutDegree, writeMedian, writeMean, writeStandardDeviation, 
+    			writeHarmonicMean, writeMeanAbsoluteDeviation, new StatsResult(), additionalFileName );
+    }
+
+    /**
+     * Creates and writes a CSV file as writeByEmails over an EmailTable, calculating the statistical values of the recipients of each
+     * email with a given StatsResult.
+     * The quantiles set in the StatsResult (see StatsResult.withQuantiles) are written after the other statistical values.
+     *
+     * @param stats the StatsResult into which the statistical values of the recipients of each email are calculated.
+     *
+     */
+    public static void writeByEmails( EmailTable table, boolean writeSenderStandard, boolean writeSenderReversed, 
+    		boolean writeSenderNeighborCentrality, boolean writeSenderStandardUnweightedEdges, boolean writeSenderReversedUnweightedEdges, 
+    		boolean writeSenderNeighborCentralityUnweightedEdges, boolean writeSenderInDegree, boolean writeSenderOutDegree, 
+    		boolean writeSenderUnweightedInDegree, boolean writeSenderUnweightedOutDegree, boolean writeStatsRecipientStandard, 
+    		boolean writeStatsRecipientReversed, boolean writeStatsRecipientNeighborCentrality, boolean writeStatsRecipientStandardUnweightedEdges, 
+    		boolean writeStatsRecipientReversedUnweightedEdges, boolean writeStatsRecipientNeighborCentralityUnweightedEdges, 
+    		boolean writeStatsRecipientInDegree, boolean writeStatsRecipientOutDegree, boolean writeStatsRecipientUnweightedInDegree, 
+    		boolean writeStatsRecipientUnweightedOutDegree, boolean writeMedian, boolean writeMean, boolean writeStandardDeviation, 
+    		boolean writeHarmonicMean, boolean writeMeanAbsoluteDeviation, StatsResult stats, String additionalFileName ) {
+    	
+    	writeByEmails( table, writeSenderStandard, writeSenderReversed, writeSenderNeighborCentrality, writeSenderStandardUnweightedEdges, 
+    			writeSenderReversedUnweightedEdges, writeSenderNeighborCentralityUnweightedEdges, writeSenderInDegree, writeSenderOutDegree, 
+    			writeSenderUnweightedInDegree, writeSenderUnweightedOutDegree, writeStatsRecipientStandard, writeStatsRecipientReversed, 
+    			writeStatsRecipientNeighborCentrality, writeStatsRecipientStandardUnweightedEdges, writeStatsRecipientReversedUnweightedEdges, 
+    			writeStatsRecipientNeighborCentralityUnweightedEdges, writeStatsRecipientInDegree, writeStatsRecipientOutDegree, 
+    			writeStatsRecipientUnweightedInDegree, writeStatsRecipientUnweightedOutDegree, writeMedian, writeMean, writeStandardDeviation, 
+    			writeHarmonicMean, writeMeanAbsoluteDeviation, stats, 1, additionalFileName );
+    }
+
+    /**
+     * Creates and writes a CSV file as writeByEmails over an EmailTable, calculating the rows of the emails in parallel.
+     * The file is the same as the one written by a single Thread: the statistical values of an email do not depend on the emails
+     * calculated before it into the same StatsResult (only its auxiliary arrays are reused).
+     *
+     * @param stats the StatsResult into which the statistical values of the recipients are calculated by one of the Threads (the
+     * others use StatsResults with the same settings, see StatsResult.withSameSettings).
+     *
+     * @param numberOfConcurrentThreads the number of Threads calculating the rows.
+     *
+     */
+    public static void writeByEmails( EmailTable table, boolean writeSenderStandard, boolean writeSenderReversed, 
+    		boolean writeSenderNeighborCentrality, boolean writeSenderStandardUnweightedEdges, boolean writeSenderReversedUnweightedEdges, 
+    		boolean writeSenderNeighborCentralityUnweightedEdges, boolean writeSenderInDegree, boolean writeSenderOutDegree, 
+    		boolean writeSenderUnweightedInDegree, boolean writeSenderUnweightedOutDegree, boolean writeStatsRecipientStandard, 
+    		boolean writeStatsRecipientReversed, boolean writeStatsRecipientNeighborCentrality, boolean writeStatsRecipientStandardUnweightedEdges, 
+    		boolean writeStatsRecipientReversedUnweightedEdges, boolean writeStatsRecipientNeighborCentralityUnweightedEdges, 
+    		boolean writeStatsRecipientInDegree, boolean writeStatsRecipientOutDegree, boolean writeStatsRecipientUnweightedInDegree, 
+    		boolean writeStatsRecipientUnweightedOutDegree, boolean writeMedian, boolean writeMean, boolean writeStandardDeviation, 
+    		boolean writeHarmonicMean, boolean writeMeanAbsoluteDeviation, StatsResult stats, int numberOfConcurrentThreads, 
+    		String additionalFileName ) {
+    	
+    	writeByEmails( table, writeSenderStandard, writeSenderReversed, writeSenderNeighborCentrality, writeSenderStandardUnweightedEdges, 
+    			writeSenderReversedUnweightedEdges, writeSenderNeighborCentralityUnweightedEdges, writeSenderInDegree, writeSenderOutDegree, 
+    			writeSenderUnweightedInDegree, writeSenderUnweightedOutDegree, writeStatsRecipientStandard, writeStatsRecipientReversed, 
+    			writeStatsRecipientNeighborCentrality, writeStatsRecipientStandardUnweightedEdges, writeStatsRecipientReversedUnweightedEdges, 
+    			writeStatsRecipientNeighborCentralityUnweightedEdges, writeStatsRecipientInDegree, writeStatsRecipientOutDegree, 
+    			writeStatsRecipientUnweightedInDegree, writeStatsRecipientUnweightedOutDegree, writeMedian, writeMean, writeStandardDeviation, 
+    			writeHarmonicMean, writeMeanAbsoluteDeviation, stats, null, numberOfConcurrentThreads, additionalFileName );
+    }
+
+    /**
+     * Creates and writes a CSV file as writeByEmails over an EmailTable, calculating the rows of the emails in parallel, and the 
+     * statistical values of the recipient lists stored in a RecipientStatsCache only once (a list is stored the second time it is
+     * calculated, or the first time if it is large, see RecipientStatsCache).
+     * The file is the same as the one written by a single Thread without a cache.
+     *
+     * @param stats the StatsResult into which the statistical values of the recipients are calculated by one of the Threads (the
+     * others use StatsResults with the same settings, see StatsResult.withSameSettings).
+     *
+     * @param cache the cache of the statistical values of the recipient lists, shared by the Threads (or null for no cache). Its 
+     * hits and misses count the emails whose statistical values were reused and calculated.
+     *
+     * @param numberOfConcurrentThreads the number of Threads calculating the rows.
+     *
+     * @implNote the emails are processed in rounds of emailsPerChunk emails per Thread: each round is split into one chunk per Thread 
+     * with nearly the same number of recipients, and each Thread writes the rows of its chunk into its own StringBuilder (calculating
+     * them into its own StatsResult, so that it reuses its own auxiliary arrays) and encodes it into a buffer of bytes. The buffers are 
+     * then written to the file in order. Both the StringBuilders and the StatsResults are kept from one round to the next, and the
+     * memory used by the buffers is bounded by the size of the rows of a round.
+     *
+     */
+    public static void writeByEmails( EmailTable table, boolean writeSenderStandard, boolean writeSenderReversed, 
+    		boolean writeSenderNeighborCentrality, boolean writeSenderStandardUnweightedEdges, boolean writeSenderReversedUnweightedEdges, 
+    		boolean writeSenderNeighborCentralityUnweightedEdges, boolean writeSenderInDegree, boolean writeSenderOutDegree, 
+    		boolean writeSenderUnweightedInDegree, boolean writeSenderUnweightedOutDegree, boolean writeStatsRecipientStandard, 
+    		boolean writeStatsRecipientReversed, boolean writeStatsRecipientNeighborCentrality, boolean writeStatsRecipientStandardUnweightedEdges, 
+    		boolean writeStatsRecipientReversedUnweightedEdges, boolean writeStatsRecipientNeighborCentralityUnweightedEdges, 
+    		boolean writeStatsRecipientInDegree, boolean writeStatsRecipientOutDegree, boolean writeStatsRecipientUnweightedInDegree, 
+    		boolean writeStatsRecipientUnweightedOutDegree, boolean writeMedian, boolean writeMean, boolean writeStandardDeviation, 
+    		boolean writeHarmonicMean, boolean writeMeanAbsoluteDeviation, StatsResult stats, RecipientStatsCache cache, 
+    		int numberOfConcurrentThreads, String additionalFileName ) {
+    	
+    	writeByEmails( table, null, writeSenderStandard, writeSenderReversed, writeSenderNeighborCentrality, writeSenderStandardUnweightedEdges, 
+    			writeSenderReversedUnweightedEdges, writeSenderNeighborCentralityUnweightedEdges, writeSenderInDegree, writeSenderOutDegree, 
+    			writeSenderUnweightedInDegree, writeSenderUnweightedOutDegree, writeStatsRecipientStandard, writeStatsRecipientReversed, 
+    			writeStatsRecipientNeighborCentrality, writeStatsRecipientStandardUnweightedEdges, writeStatsRecipientReversedUnweightedEdges, 
+    			writeStatsRecipientNeighborCentralityUnweightedEdges, writeStatsRecipientInDegree, writeStatsRecipientOutDegree, 
+    			writeStatsRecipientUnweightedInDegree, writeStatsRecipientUnweightedOutDegree, writeMedian, writeMean, writeStandardDeviation, 
+    			writeHarmonicMean, writeMeanAbsoluteDeviation, stats, cache, numberOfConcurrentThreads, additionalFileName );
+    }
+
+    /**
+     * Creates and writes a CSV file as the parallel writeByEmails over an EmailTable with a RecipientStatsCache, reading the values of
+     * the addresses from a CompactGraph when the table was not built from Nodes (e.g. a table built from rows, whose ids are the ids of
+     * the graph built from it, see GraphBuilder.BuildCompactGraph). The edges of the graph are not read, so they may have been released.
+     *
+     * @param graph the graph whose centralities and degrees are written, or null to read them from the Nodes of the table.
+     *
+     */
+    public static void writeByEmails( EmailTable table, CompactGraph graph, boolean writeSenderStandard, boolean writeSenderReversed, 
+    		boolean writeSenderNeighborCentrality, boolean writeSenderStandardUnweightedEdges, boolean writeSenderReversedUnweightedEdges, 
+    		boolean writeSenderNeighborCentralityUnweightedEdges, boolean writeSenderInDegree, boolean writeSenderOutDegree, 
+    		boolean writeSenderUnweightedInDegree, boolean writeSenderUnweightedOutDegree, boolean writeStatsRecipientStandard, 
+    		boolean writeStatsRecipientReversed, boolean writeStatsRecipientNeighborCentrality, boolean writeStatsRecipientStandardUnweightedEdges, 
+    		boolean writeStatsRecipientReversedUnweightedEdges, boolean writeStatsRecipientNeighborCentralityUnweightedEdges, 
+    		boolean writeStatsRecipientInDegree, boolean writeStatsRecipientOutDegree, boolean writeStatsRecipientUnweightedInDegree, 
+    		boolean writeStatsRecipientUnweightedOutDegree, boolean writeMedian, boolean writeMean, boolean writeStandardDeviation, 
+    		boolean writeHarmonicMean, boolean writeMeanAbsoluteDeviation, StatsResult stats, RecipientStatsCache cache, 
+    		int numberOfConcurrentThreads, String additionalFileName ) {
+    	
+    	boolean[] writeSenderCentrality = { writeSenderStandard, writeSenderReversed, writeSenderNeighborCentrality, 
+    			writeSenderStandardUnweightedEdges, writeSenderReversedUnweightedEdges, writeSenderNeighborCentralityUnweightedEdges };
+    	boolean[] writeStatsRecipientCentrality = { writeStatsRecipientStandard, writeStatsRecipientReversed, writeStatsRecipientNeighborCentrality, 
+    			writeStatsRecipientStandardUnweightedEdges, writeStatsRecipientReversedUnweightedEdges, writeStatsRecipientNeighborCentralityUnweightedEdges };
+    	boolean[] writeSenderDegree = { writeSenderInDegree, writeSenderOutDegree, writeSenderUnweightedInDegree, writeSenderUnweightedOutDegree };
+    	boolean[] writeStatsRecipientDegree = { writeStatsRecipientInDegree, writeStatsRecipientOutDegree, writeStatsRecipientUnweightedInDegree, 
+    			writeStatsRecipientUnweightedOutDegree };
+    	
+    	try (OutputStream out = new BufferedOutputStream(new FileOutputStream(newFile(additionalFileName)))) {
+    		writeRows(table, graph, writeSenderCentrality, writeSenderDegree, writeStatsRecipientCentrality, writeStatsRecipientDegree, writeMedian, 
+    				writeMean, writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation, stats, cache, numberOfConcurrentThreads, out);
+    	} catch (Exception e) {
+    		e.printStackTrace();
+    	}
+    }
+
+    // writes the rows of the emails of an EmailTable as the parallel writeByEmails, into out, reading the values from the Nodes of the 
+    // table or, if it has none, from graph.
+    private static void writeRows( EmailTable table, CompactGraph graph, boolean[] writeSenderCentrality, boolean[] writeSenderDegree, 
+    		boolean[] writeStatsRecipientCentrality, boolean[] writeStatsRecipientDegree, boolean writeMedian, boolean writeMean, 
+    		boolean writeStandardDeviation, boolean writeHarmonicMean, boolean writeMeanAbsoluteDeviation, StatsResult stats, 
+    		RecipientStatsCache cache, int numberOfConcurrentThreads, OutputStream out ) throws IOException {
+    	
+    	Node[] nodes = table.nodes;
+    	int n = (nodes != null ? nodes.length : graph.numberOfNodes);
+    	centralityType[] types = centralityType.values();
+    	
+    	// the values of the Nodes indexed by id: the 6 centralities, and the in-degree, out-degree, unweighted in-degree and unweighted out-degree.
+    	float[][] centralities = new float[types.length][];
+    	for ( centralityType type : types ) {
+    		if (writeSenderCentrality[type.ordinal()] || writeStatsRecipientCentrality[type.ordinal()]) {
+    			if (nodes == null) {
+    				centralities[type.ordinal()] = graph.getCentrality(type);
+    				continue;
+    			}
+    			centralities[type.ordinal()] = new float[n];
+    			for ( int p = 0; p < n; p++ )
+    				centralities[type.ordinal()][p] = nodes[p].getCentrality(type);
+    		}
+    	}
+    	int[][] degrees = new int[4][n];
+    	for ( int p = 0; p < n; p++ ) {
+    		degrees[0][p] = (nodes != null ? nodes[p].inDegree() : graph.inDegree[p]);
+    		degrees[1][p] = (nodes != null ? nodes[p].outDegree() : graph.outDegree[p]);
+    		degrees[2][p] = (nodes != null ? nodes[p].unweighedInDegree() : graph.unweightedInDegree(p));
+    		degrees[3][p] = (nodes != null ? nodes[p].unweighedOutDegree() : graph.unweightedOutDegree(p));
+    	}
+    	
+    	// the rows, the statistical results, the keys looked up in the cache and the encoded rows of the chunk of each Thread.
+    	int threads = Math.max(1, numberOfConcurrentThreads);
+    	StringBuilder[] rows = new StringBuilder[threads];
+    	StatsResult[] statsOfThread = new StatsResult[threads];
+    	RecipientStatsCache.Key[] keys = new RecipientStatsCache.Key[threads];
+    	byte[][] buffers = new byte[threads][];
+    	for ( int part = 0; part < threads; part++ ) {
+    		rows[part] = new StringBuilder();
+    		statsOfThread[part] = (part == 0 ? stats : stats.withSameSettings());
+    		keys[part] = new RecipientStatsCache.Key();
+    	}
+    	
+    	for ( int first = 0; first < table.numberOfEmails; first += threads * emailsPerChunk ) {
+    		int last = (int)Math.min(table.numberOfEmails, (long)first + threads * emailsPerChunk);
+    		int[] bounds = ParallelRange.balancedBounds(threads, table.offsets, first, last);
+    		ParallelRange.run(bounds, (part, start, end) -> {
+    			StringBuilder row = rows[part];
+    			StatsResult result = statsOfThread[part];
+    			row.setLength(0);
+    			for ( int e = start; e < end; e++ ) {
+    				row.append( table.getEmailIdentifier(e) );
+    				
+    				// the values of the Node sending the email.
+    				int sender = table.sender(e);
+    				for ( int t = 0; t < types.length; t++ )
+    					if (writeSenderCentrality[t])		row.append( ',' ).append( centralities[t][sender] );
+    				for ( int d = 0; d < 4; d++ )
+    					if (writeSenderDegree[d])		row.append( ',' ).append( degrees[d][sender] );
+    				
+    				// the statistical values of the Nodes receiving the email, which are members[ from <= i < to ].
+    				int from = table.offsets[e] + 1;
+    				int to = table.offsets[e+1];
+    				String cached = (cache != null ? cache.get(keys[part].set(table.members, from, to)) : null);
+    				if (cached != null) {
+    					row.append( cached );
+    				}
+    				else {
+    					int columnsStart = row.length();
+    					for ( int t = 0; t < types.length; t++ ) {
+    						if (writeStatsRecipientCentrality[t]) {
+    							getStatsFromCollection.getConditional(table.members, from, to, centralities[t], 
+    									writeMedian, writeMean, writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation, result);
+    							appendStats(row, result, false);
+    						}
+    					}
+    					for ( int d = 0; d < 4; d++ ) {
+    						if (writeStatsRecipientDegree[d]) {
+    							getStatsFromCollection.getConditional(table.members, from, to, degrees[d], 
+    									writeMedian, writeMean, writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation, result);
+    							appendStats(row, result, true);
+    						}
+    					}
+    					if (cache != null && cache.admits(keys[part]))
+    						cache.put(keys[part], row.substring(columnsStart));
+    				}
+    				row.append( lineSeparator );
+    			}
+    			buffers[part] = row.toString().getBytes();
+    		});
+    		for ( byte[] buffer : buffers )
+    			out.write(buffer);
+    	}
+    }
+
+    /**
+     * Checks that the parallel writeByEmails writes the same rows with 1 and with numberOfConcurrentThreads Threads, calculating the 
+     * statistical values with StatsResults with the same settings as stats, over emails of many sizes (2 of them with 1000 recipients).
+     * Returns whether the rows are the same.
+     *
+     */
+    static boolean testParallelRows( StatsResult stats, int numberOfConcurrentThreads ) {
+    	int largest = 1000;
+    	Random random = new Random(1);
+    	List<Node> nodes = new ArrayList<Node>();
+    	for ( int p = 0; p <= largest; p++ ) {
+    		Node node = new Node("address" + p + "@test", 1);
+    		for ( centralityType type : centralityType.values() )
+    			node.setCentrality(type, random.nextDouble());
+    		nodes.add(node);
+    	}
+    	// emails of 1 to 64 recipients, and 2 emails with the largest number of recipients, all sent by the first Node.
+    	Map<String,List<Node>> emails = new HashMap<String,List<Node>>();
+    	for ( int e = 0; e < 200; e++ ) {
+    		int size = (e == 50 || e == 150 ? largest : 1 + random.nextInt(64));
+    		List<Node> members = new ArrayList<Node>();
+    		members.add(nodes.get(0));
+    		for ( int i = 0; i < size; i++ )
+    			members.add(nodes.get(1 + random.nextInt(largest)));
+    		emails.put("email" + e, members);
+    	}
+    	EmailTable table = EmailTable.fromMap(emails, nodes, numberOfConcurrentThreads);
+    	
+    	boolean[] all = { true, true, true, true, true, true };
+    	ByteArrayOutputStream single = new ByteArrayOutputStream();
+    	ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+    	try {
+    		writeRows(table, null, all, all, all, all, true, true, true, true, true, stats.withSameSettings(), null, 1, single);
+    		writeRows(table, null, all, all, all, all, true, true, true, true, true, stats.withSameSettings(), null, numberOfConcurrentThreads, 
+    				parallel);
+    	} catch (IOException e) {
+    		e.printStackTrace();
+    		return false;
+    	}
+    	return Arrays.equals(single.toByteArray(), parallel.toByteArray());
+    }
+
+    // writes the statistical results calculated (those different from -1) and the quantiles, with the median and the quantiles as 
+    // integers for integer values.
+    private static void writeStats(BufferedWriter writer, StatsResult stats, boolean integerValues) throws IOException {
+    	if (stats.median != -1)					writer.write( "," + (integerValues ? Integer.toString((int)stats.median) : Float.toString((float)stats.median)) );
+    	if (stats.mean != -1)					writer.write( "," + stats.mean );
+    	if (stats.standardDeviation != -1)			writer.write( "," + stats.standardDeviation );
+    	if (stats.harmonicMean != -1)				writer.write( "," + stats.harmonicMean );
+    	if (stats.meanAbsoluteDeviation != -1)			writer.write( "," + stats.meanAbsoluteDeviation );
+    	for ( double quantile : stats.quantileValues )
+    		writer.write( "," + (integerValues ? Integer.toString((int)quantile) : Float.toString((float)quantile)) );
+    }
+
+    // appends the statistical results as writeStats writes them.
+    private static void appendStats(StringBuilder row, StatsResult stats, boolean integerValues) {
+    	if (stats.median != -1) {
+    		row.append( ',' );
+    		if (integerValues)	row.append( (int)stats.median );
+    		else			row.append( (float)stats.median );
+    	}
+    	if (stats.mean != -1)					row.append( ',' ).append( stats.mean );
+    	if (stats.standardDeviation != -1)			row.append( ',' ).append( stats.standardDeviation );
+    	if (stats.harmonicMean != -1)				row.append( ',' ).append( stats.harmonicMean );
+    	if (stats.meanAbsoluteDeviation != -1)			row.append( ',' ).append( stats.meanAbsoluteDeviation );
+    	for ( double quantile : stats.quantileValues ) {
+    		row.append( ',' );
+    		if (integerValues)	row.append( (int)quantile );
+    		else			row.append( (float)quantile );
+    	}
+    }
+
+	
+	////////////////////////////////////////////////   METHODS FOR WRITING BY DOMAINS   ////////////////////////////////////////////////////
+	
+    /**
+     * Creates and writes a CSV file containing the information of each domain of a DomainGraph, whose centralities must have been calculated.
+     * Each boolean parameter represents whether or not its respective value should be written in the file.
+     * The name of the file created is the additionalFileName parameter followed by the date and time it was created.
+     *
+     * @param domains the graph of the domains.
+     *
+     * @param additonalFileName the name of the file will be the additionalFileName parameter followed by the date and time it was created.
+     *
+     */
+    public static void writeByDomains( DomainGraph domains, boolean writeStandard, boolean writeReversed, boolean writeNeighborCentrality, 
+    		boolean writeStandardUnweightedEdges, boolean writeReversedUnweightedEdges, boolean writeNeighborCentralityUnweightedEdges, 
+    		boolean writeInDegree, boolean writeOutDegree, String additionalFileName ) {
+    	
+    	boolean[] writeCentrality = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, 
+    			writeReversedUnweightedEdges, writeNeighborCentralityUnweightedEdges };
+    	CompactGraph graph = domains.graph;
+    	
+    	try (BufferedWriter writer = new BufferedWriter(new FileWriter(newFile(additionalFileName)))) {
+    		for ( int d = 0; d < graph.numberOfNodes; d++ ) {
+    			writer.write( domains.getDomain(d) + "," + domains.numberOfAddresses[d] );
+    			for ( centralityType type : centralityType.values() )
+    				if (writeCentrality[type.ordinal()])	writer.write( "," + graph.getCentrality(type)[d] );
+    			if (writeInDegree)				writer.write( "," + graph.inDegree[d] );
+    			if (writeOutDegree)				writer.write( "," + graph.outDegree[d] );
+    			writer.newLine();
+    		}
+    	} catch (Exception e) {
+    		e.printStackTrace();
+    	}
+    }
+    
+    /**
+     * Creates and writes a CSV file containing, for each address of the graph from which a DomainGraph was built, the address, its domain
+     * and the centralities of its domain (mapped back onto the address).
+     * The name of the file created is the additionalFileName parameter followed by the date and time it was created.
+     *
+     * @param domains the graph of the domains, whose centralities must have been calculated.
+     *
+     * @param addressOfNode the address of each Node of the graph of addresses.
+     *
+     * @param additonalFileName the name of the file will be the additionalFileName parameter followed by the date and time it was created.
+     *
+     */
+    public static void writeDomainsByAddresses( DomainGraph domains, IntFunction<String> addressOfNode, boolean writeStandard, 
+    		boolean writeReversed, boolean writeNeighborCentrality, boolean writeStandardUnweightedEdges, boolean writeReversedUnweightedEdges, 
+    		boolean writeNeighborCentralityUnweightedEdges, String additionalFileName ) {
+    	
+    	boolean[] writeCentrality = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, 
+    			writeReversedUnweightedEdges, writeNeighborCentralityUnweightedEdges };
+    	float[][] values = new float[writeCentrality.length][];
+    	for ( centralityType type : centralityType.values() )
+    		if (writeCentrality[type.ordinal()])
+    			values[type.ordinal()] = domains.toAddresses(type);
+    	
+    	try (BufferedWriter writer = new BufferedWriter(new FileWriter(newFile(additionalFileName)))) {
+    		for ( int p = 0; p < domains.domainOfAddress.length; p++ ) {
+    			writer.write( addressOfNode.apply(p) + "," + domains.getDomain(domains.domainOfAddress[p]) );
+    			for ( int t = 0; t < values.length; t++ )
+    				if (values[t] != null)		writer.write( "," + values[t][p] );
+    			writer.newLine();
+    		}
+    	} catch (Exception e) {
+    		e.printStackTrace();
+    	}
+    }
+    
+	////////////////////////////////////////////////   METHODS FOR WRITING SUMMARIES   ////////////////////////////////////////////////////
+	
+    /**
+     * Creates and writes a CSV file summarizing the distributions of the centralities and the degrees of the Nodes of a graph, in 2 parts
+     * each starting with a header row:
+     *  - for each value summarized: its name, the number of Nodes having it (and not having it, e.g. a negative value), the smallest value,
+     *    the mean, the largest value, and the approximate quantiles,
+     *  - for each non-empty bucket of the histogram of each value: the name of the value, the range of values of the bucket 
+     *    (lower <= value < upper) and its number of Nodes.
+     * The name of the file created is the additionalFileName parameter followed by the date and time it was created.
+     *
+     * @param summary the histograms of the values.
+     *
+     * @param quantiles the quantiles written for each value (e.g. {0.5, 0.9, 0.99} for the median, 90th and 99th percentiles).
+     *
+     */
+    public static void writeSummary( DistributionSummary summary, double[] quantiles, String additionalFileName ) {
+    	
+    	try (BufferedWriter writer = new BufferedWriter(new FileWriter(newFile(additionalFileName)))) {
+    		writer.write( "value,count,invalid,min,mean,max" );
+    		for ( double q : quantiles )
+    			writer.write( ",q" + q );
+    		writer.newLine();
+    		for ( int h = 0; h < summary.histograms.length; h++ ) {
+    			LogHistogram histogram = summary.histograms[h];
+    			writer.write( summary.names[h] + "," + histogram.count + "," + histogram.invalid );
+    			if (histogram.count > 0) {
+    				writer.write( "," + histogram.min + "," + (float)histogram.getMean() + "," + histogram.max );
+    				for ( double q : quantiles )
+    					writer.write( "," + (float)histogram.getQuantile(q) );
+    			}
+    			writer.newLine();
+    		}
+    		
+    		writer.newLine();
+    		writer.write( "value,lower,upper,count" );
+    		writer.newLine();
+    		for ( int h = 0; h < summary.histograms.length; h++ ) {
+    			LogHistogram histogram = summary.histograms[h];
+    			for ( int i = 0; i < histogram.numberOfBuckets(); i++ ) {
+    				if (histogram.getCount(i) == 0)
+    					continue;
+    				writer.write( summary.names[h] + "," + (float)histogram.getLowerBound(i) + "," + (float)histogram.getUpperBound(i) + 
+    						"," + histogram.getCount(i) );
+    				writer.newLine();
+    			}
+    		}
+    	} catch (Exception e) {
+    		e.printStackTrace();
+    	}
+    }
+    
+    /**
+     * Returns a new File whose name is additionalFileName followed by the date and time, printing its path in the Console.
+     *
+     */
+    private static File newFile( String additionalFileName ) throws IOException {
+    	String timeLog = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(Calendar.getInstance().getTime());
+    	File logFile = new File(additionalFileName + timeLog);
+    	System.out.println("File created on path: "+logFile.getCanonicalPath());
+    	return logFile;
+    }
+
 }
@@ -0,0 +1,89 @@
+
+/*******************
+
+This class is a HyperLogLog sketch: it estimates the number of distinct elements added to it using a fixed amount of memory
+(2^precision bytes), with a relative standard error of about 1.04 / sqrt(2^precision) (1.6% for the default precision of 12).
+
+Each element is given by a 64-bit hash: its first bits choose a register, and the register keeps the largest position of the first
+bit set among the remaining bits of all hashes it received.
+
+*******************/
+
+public class HyperLogLog {
+
+	private final int precision;
+	private final byte[] registers;
+
+	HyperLogLog() {
+		this(12);
+	}
+
+	HyperLogLog(int precision) {
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+    /**
+     * Adds the element whose 64-bit hash is hash.
+     *
+     */
+	void add(long hash) {
+		int register = (int)(hash >>> (64 - precision));
+		int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+		if (rank > registers[register])
+			registers[register] = (byte)rank;
+	}
+
+    /**
+     * Adds the element encoded in bytes[ start <= i < start + length ].
+     *
+     */
+	void add(byte[] bytes, int start, int length) {
+		add(hash(bytes, start, length));
+	}
+
+    /**
+     * Returns the estimated number of distinct elements added.
+     *
+     */
+	long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for ( byte register : registers ) {
+			sum += 1.0 / (1L << register);
+			if (register == 0)
+				zeros++;
+		}
+		double alpha = 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		// for small cardinalities, linear counting over the empty registers is more accurate.
+		if (estimate <= 2.5 * m && zeros > 0)
+			estimate = m * Math.log((double)m / zeros);
+		return Math.round(estimate);
+	}
+
+    /**
+     * Adds to this sketch all the elements added to other, which must have the same precision.
+     *
+     */
+	void merge(HyperLogLog other) {
+		for ( int i = 0; i < registers.length; i++ )
+			if (other.registers[i] > registers[i])
+				registers[i] = other.registers[i];
+	}
+
+	// FNV-1a over the bytes in 64 bits, followed by the finalizer of MurmurHash3 so that all bits are well mixed.
+	static long hash(byte[] bytes, int start, int length) {
+		long h = 0xCBF29CE484222325L;
+		for ( int i = start; i < start + length; i++ )
+			h = (h ^ bytes[i]) * 0x100000001B3L;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
@@ -0,0 +1,169 @@
+
+/*******************
+
+This class estimates the size of the graph that will be built from a CSV file before reading it, so that the builders can be
+pre-sized (instead of growing and rehashing repeatedly) and the memory needed can be checked before the ingestion starts.
+
+It reads a number of blocks evenly spaced over the file (or the whole file if it is small) and measures the average length of the
+lines, from which it estimates the number of lines of the file. The distinct email identifiers and addresses of the sampled lines are
+counted, and extrapolated to the whole file:
+ - the lines of an email are consecutive in the file, so the number of emails (counted with a HyperLogLog sketch) is proportional to
+   the number of lines,
+ - addresses repeat all over the file, so their number grows slower than the number of lines: it is estimated with the GEE estimator
+   of distinct values (Charikar, Chaudhuri, Motwani and Narasayya, 2000), from the number of times each address of the sample occurs in it:
+                                   addresses = sqrt(lines / sampled lines) * f1 + (number of addresses occurring at least twice),
+   where f1 is the number of addresses occurring exactly once in the sample. Its expected ratio error is of the order of
+   sqrt(lines / sampled lines) for any distribution, but it is an estimate, not a bound: the file may have more addresses.
+The number of edges is bounded by the number of recipients (lines - emails).
+
+The memory estimates are rough averages for a 64-bit JVM with compressed references.
+
+*******************/
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+public class InputEstimate {
+
+	// estimated bytes per element of the graph of Nodes built by GraphBuilder.BuildGraphFromCSV:
+	// Node with its 2 HashMaps, 2 float arrays, address String and entry in dic,
+	static final int bytesPerNode = 320;
+	// entries of an edge in fromNodes and toNodes,
+	static final int bytesPerEdge = 100;
+	// email identifier String, LinkedList and entry in emails,
+	static final int bytesPerEmail = 130;
+	// element of a LinkedList of an email.
+	static final int bytesPerRow = 24;
+
+	long fileSize;
+	long sampledBytes;
+	long sampledLines;
+	// whether the whole file was read, in which case the estimates are exact up to the error of the HyperLogLog sketches.
+	boolean wholeFileSampled;
+
+	float averageLineLength;
+	long estimatedLines;
+	long estimatedEmails;
+	long estimatedAddresses;
+	long estimatedEdges;
+	// the average number of bytes of the addresses and of the email identifiers.
+	float averageAddressLength;
+	float averageEmailLength;
+
+    /**
+     * Samples a CSV file of the form "email identifier, ?, email address, from/to/cc".
+     *
+     * @param csvFileName the name of the CSV file.
+     *
+     * @param numberOfSamples the number of blocks read, evenly spaced over the file.
+     *
+     * @param sampleSize the number of bytes of each block.
+     *
+     */
+	InputEstimate(String csvFileName, int numberOfSamples, int sampleSize) throws IOException {
+		HyperLogLog emails = new HyperLogLog();
+		// the number of occurrences of each address in the sample.
+		HashMap<String,int[]> addresses = new HashMap<String,int[]>();
+		long addressBytes = 0;
+		long emailBytes = 0;
+
+		try (RandomAccessFile file = new RandomAccessFile(csvFileName, "r")) {
+			fileSize = file.length();
+			wholeFileSampled = fileSize <= (long)numberOfSamples * sampleSize;
+			if (wholeFileSampled) {
+				numberOfSamples = 1;
+				sampleSize = (int)fileSize;
+			}
+			byte[] block = new byte[sampleSize];
+			for ( int s = 0; s < numberOfSamples; s++ ) {
+				long position = (fileSize - sampleSize) * s / Math.max(numberOfSamples - 1, 1);
+				file.seek(position);
+				int length = 0;
+				int read;
+				while ( length < sampleSize && (read = file.read(block, length, sampleSize - length)) > 0 )
+					length += read;
+
+				// skips the first line of the block, that may have started before it, unless the block is at the start of the file.
+				int lineStart = 0;
+				if (position > 0) {
+					while ( lineStart < length && block[lineStart] != '\n' )
+						lineStart++;
+					lineStart++;
+				}
+				for ( int i = lineStart; i < length; i++ ) {
+					boolean endOfLine = block[i] == '\n' || (wholeFileSampled && i == length - 1);
+					if (!endOfLine)
+						continue;
+					int end = (block[i] == '\n' ? i : i + 1);
+					sampledBytes += i + 1 - lineStart;
+					sampledLines++;
+					if (end > lineStart && block[end - 1] == '\r')
+						end--;
+					int comma0 = GraphBuilder.nextComma(block, lineStart, end);
+					int comma1 = GraphBuilder.nextComma(block, comma0 + 1, end);
+					if (comma1 < end) {
+						emails.add(block, lineStart, comma0 - lineStart);
+						addresses.computeIfAbsent(new String(block, comma0 + 1, comma1 - comma0 - 1, StandardCharsets.ISO_8859_1),
+								k -> new int[1])[0]++;
+						emailBytes += comma0 - lineStart;
+						addressBytes += comma1 - comma0 - 1;
+					}
+					lineStart = i + 1;
+				}
+			}
+		}
+
+		averageLineLength = (float)sampledBytes / Math.max(sampledLines, 1);
+		estimatedLines = (wholeFileSampled ? sampledLines : (long)(fileSize / Math.max(averageLineLength, 1)));
+		float scale = (float)estimatedLines / Math.max(sampledLines, 1);
+		estimatedEmails = Math.min(estimatedLines, (long)(emails.estimate() * scale));
+		long singletons = 0;
+		for ( int[] occurrences : addresses.values() )
+			if (occurrences[0] == 1)
+				singletons++;
+		estimatedAddresses = Math.min(estimatedLines, (long)(Math.sqrt(scale) * singletons) + addresses.size() - singletons);
+		estimatedEdges = Math.max(estimatedLines - estimatedEmails, 0);
+		averageAddressLength = (float)addressBytes / Math.max(sampledLines, 1);
+		averageEmailLength = (float)emailBytes / Math.max(sampledLines, 1);
+	}
+
+    /**
+     * Returns the estimated number of bytes of the graph of Nodes and of the map of emails built by GraphBuilder.BuildGraphFromCSV.
+     *
+     */
+	long bytesOfNodes() {
+		return estimatedAddresses * (bytesPerNode + 2 * (long)averageAddressLength) + estimatedEdges * bytesPerEdge
+				+ estimatedEmails * (bytesPerEmail + 2 * (long)averageEmailLength) + estimatedLines * bytesPerRow;
+	}
+
+    /**
+     * Returns the estimated number of bytes used at the peak of GraphBuilder.BuildCompactGraph: the rows with their dictionaries,
+     * the EmailTable, and the edges being sorted (2 arrays of longs) next to the arrays of the CompactGraph.
+     *
+     */
+	long bytesOfCompactGraph() {
+		long dictionaries = estimatedAddresses * (20 + (long)averageAddressLength) + estimatedEmails * (20 + (long)averageEmailLength);
+		long rows = estimatedLines * 8 + estimatedLines / 8;
+		long table = estimatedLines * 4 + estimatedEmails * 4;
+		long sorting = estimatedEdges * 16;
+		long graph = estimatedEdges * 16 + estimatedAddresses * 16;
+		return dictionaries + rows + table + sorting + graph;
+	}
+
+    /**
+     * Prints the estimates in the Console, with the maximal size of the heap.
+     *
+     */
+	void print() {
+		long megabyte = 1 << 20;
+		System.out.println("Input estimate: "+fileSize+" bytes, sampled "+sampledLines+" lines ("+(wholeFileSampled ? "whole file" : sampledBytes+" bytes")+
+				") with "+averageLineLength+" bytes per line.");
+		System.out.println("Input estimate: "+estimatedLines+" lines, "+estimatedEmails+" emails, "+estimatedAddresses+" addresses, at most "+
+				estimatedEdges+" edges.");
+		System.out.println("Input estimate: peak memory of "+bytesOfNodes() / megabyte+" MB for the graph of Nodes, "+bytesOfCompactGraph() / megabyte+
+				" MB for the compact graph, "+Runtime.getRuntime().maxMemory() / megabyte+" MB of maximal heap.");
+	}
+
+}
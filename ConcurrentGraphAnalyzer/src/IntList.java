@@ -0,0 +1,51 @@
+
+/*******************
+
+A growable array of ints, used by the Threads of the parallel algorithms to collect the ids they find 
+(e.g. the Nodes of the next level of a graph traversal), which are then concatenated in a single array.
+
+*******************/
+
+import java.util.Arrays;
+
+public class IntList {
+
+	// the elements are data[0 <= i < size].
+	int[] data;
+	int size;
+
+	IntList() {
+		data = new int[16];
+	}
+
+	IntList(int initialCapacity) {
+		data = new int[Math.max(1, initialCapacity)];
+	}
+
+    /**
+     * Adds value at the end of the list, growing the array if needed.
+     *
+     */
+	void add(int value) {
+		if (size == data.length)
+			data = Arrays.copyOf(data, size * 2);
+		data[size++] = value;
+	}
+
+    /**
+     * Returns a new IntList with the elements of all lists, in order.
+     *
+     */
+	static IntList concatenate(IntList[] lists) {
+		int total = 0;
+		for ( IntList list : lists )
+			total += list.size;
+		IntList result = new IntList(total);
+		for ( IntList list : lists ) {
+			System.arraycopy(list.data, 0, result.data, result.size, list.size);
+			result.size += list.size;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,165 @@
+
+/*******************
+
+This class provides a Runnable for the PageRank class when it runs over a CompressedGraph.
+It does the same as Iterate.java, but over a range of ids of the CompressedGraph and its centrality vector: it repeats a loop of, for each
+Node in the range, doing an iteration on the recursive formula of the respective centrality type it received, decoding the rows of the
+Node as it reads them.
+The loops stops either: 1) when the Thread repeats a specified number of loops, or
+                        2) when the boolean STOP[0] is set to true by PageRank.
+
+*******************/
+
+class IterateCompressed implements Runnable {
+
+	CompressedGraph graph;
+	// the centrality vector being calculated, indexed by id.
+	float[] centrality;
+	int startIndex;
+	int endIndex;
+	int numberOfIterations;
+	float DampingFactor;
+	float neighborCentralityDampingFactor;
+	float neighborCentralityBias;
+	// if STOP[0] is true, the thread should stop running.
+	boolean[] STOP;
+	centralityType type;
+	// the number of loops over the range done, read by PageRank once the Thread finished.
+	long sweeps = 0;
+
+	IterateCompressed ( CompressedGraph graph, float[] centrality, int startIndex, int endIndex, int numberOfIterations, float DampingFactor,
+			float neighborCentralityDampingFactor, float neighborCentralityBias, boolean[] STOP, centralityType type ) {
+		this.graph = graph;
+		this.centrality = centrality;
+		this.startIndex = startIndex;
+		this.endIndex = endIndex;
+		this.numberOfIterations = numberOfIterations;
+		this.DampingFactor = DampingFactor;
+		this.neighborCentralityDampingFactor = neighborCentralityDampingFactor;
+		this.neighborCentralityBias = neighborCentralityBias;
+		this.STOP = STOP;
+		this.type = type;
+	}
+
+	@Override
+	public void run() {
+		CompressedGraph.RowDecoder in = graph.inDecoder();
+		CompressedGraph.RowDecoder out = graph.outDecoder();
+		float[] x = centrality;
+		int[] inDegree = graph.inDegree;
+		int[] outDegree = graph.outDegree;
+		int[] unweightedInDegree = graph.unweightedInDegrees;
+		int[] unweightedOutDegree = graph.unweightedOutDegrees;
+		int totalNumberOfEdges = Math.max(graph.totalNumberOfEdges, 1);
+		int numberOfNodes = graph.numberOfNodes;
+
+		switch (type) {
+
+			case standard:
+				while ( numberOfIterations -- != 0 && !STOP[0] ) {
+					sweeps++;
+					for ( int p = startIndex; p < endIndex; p++ ) {
+						// centrality(node p) = (1-d)/number of edges + d*sum[for each q pointing to p](centrality of q * weight of edge(q->p) / weighted out-degree of q).
+						float sum = 0;
+						for ( int k = in.start(p); k > 0; k-- ) {
+							int q = in.nextId();
+							sum += x[q] * in.nextWeight() / outDegree[q];
+						}
+						x[p] = (1 - DampingFactor)/totalNumberOfEdges + DampingFactor*sum;
+					}
+				}
+				break;
+
+			case reversed:
+				while ( numberOfIterations -- != 0 && !STOP[0] ) {
+					sweeps++;
+					for ( int p = startIndex; p < endIndex; p++ ) {
+						// centrality(node p) = (1-d)/number of edges + d*sum[for each q pointed by p](centrality of q * weight of edge(p->q) / weighted in-degree of q).
+						float sum = 0;
+						for ( int k = out.start(p); k > 0; k-- ) {
+							int q = out.nextId();
+							sum += x[q] * out.nextWeight() / inDegree[q];
+						}
+						x[p] = (1 - DampingFactor)/totalNumberOfEdges + DampingFactor*sum;
+					}
+				}
+				break;
+
+			case standardUnweightedEdges:
+				while ( numberOfIterations -- != 0 && !STOP[0] ) {
+					sweeps++;
+					for ( int p = startIndex; p < endIndex; p++ ) {
+						// centrality(node p) = (1-d)/number of nodes + d*sum[for each q pointing to p](centrality of q / out-degree of q).
+						float sum = 0;
+						for ( int k = in.start(p); k > 0; k-- ) {
+							int q = in.nextId();
+							in.nextWeight();
+							sum += x[q] / unweightedOutDegree[q];
+						}
+						x[p] = (1 - DampingFactor)/numberOfNodes + DampingFactor*sum;
+					}
+				}
+				break;
+
+			case reversedUnweightedEdges:
+				while ( numberOfIterations -- != 0 && !STOP[0] ) {
+					sweeps++;
+					for ( int p = startIndex; p < endIndex; p++ ) {
+						// centrality(node p) = (1-d)/number of nodes + d*sum[for each q pointed by p](centrality of q / in-degree of q).
+						float sum = 0;
+						for ( int k = out.start(p); k > 0; k-- ) {
+							int q = out.nextId();
+							out.nextWeight();
+							sum += x[q] / unweightedInDegree[q];
+						}
+						x[p] = (1 - DampingFactor)/numberOfNodes + DampingFactor*sum;
+					}
+				}
+				break;
+
+			case neighborCentrality:
+				while ( numberOfIterations -- != 0 && !STOP[0] ) {
+					sweeps++;
+					for ( int p = startIndex; p < endIndex; p++ ) {
+						// centrality(node p) = (1-d)/number of edges + d*B*sum[for each q pointing to p](centrality of q * weight of edge(q->p) / weighted out-degree of q)
+						//                                            + d*(1-B)*sum[for each q pointed by p](centrality of q * weight of edge(p->q) / weighted in-degree of q).
+						float sum = 0;
+						for ( int k = in.start(p); k > 0; k-- ) {
+							int q = in.nextId();
+							sum += neighborCentralityBias * x[q] * in.nextWeight() / outDegree[q];
+						}
+						for ( int k = out.start(p); k > 0; k-- ) {
+							int q = out.nextId();
+							sum += ( 1 - neighborCentralityBias ) * x[q] * out.nextWeight() / inDegree[q];
+						}
+						x[p] = (1 - neighborCentralityDampingFactor)/totalNumberOfEdges + neighborCentralityDampingFactor*sum;
+					}
+				}
+				break;
+
+			case neighborCentralityUnweightedEdges:
+				while ( numberOfIterations -- != 0 && !STOP[0] ) {
+					sweeps++;
+					for ( int p = startIndex; p < endIndex; p++ ) {
+						// centrality(node p) = (1-d)/number of nodes + d*B*sum[for each q pointing to p](centrality of q / out-degree of q)
+						//                                            + d*(1-B)*sum[for each q pointed by p](centrality of q / in-degree of q).
+						float sum = 0;
+						for ( int k = in.start(p); k > 0; k-- ) {
+							int q = in.nextId();
+							in.nextWeight();
+							sum += neighborCentralityBias * x[q] / unweightedOutDegree[q];
+						}
+						for ( int k = out.start(p); k > 0; k-- ) {
+							int q = out.nextId();
+							out.nextWeight();
+							sum += ( 1 - neighborCentralityBias ) * x[q] / unweightedInDegree[q];
+						}
+						x[p] = (1 - neighborCentralityDampingFactor)/numberOfNodes + neighborCentralityDampingFactor*sum;
+					}
+				}
+				break;
+
+		}
+	}
+
+}
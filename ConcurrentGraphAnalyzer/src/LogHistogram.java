@@ -0,0 +1,187 @@
+
+/*******************
+
+This class is a log-bucketed histogram (as an HDR histogram) of non-negative values, e.g. the centralities or the degrees of all the
+Nodes of a graph: it counts the values falling in buckets whose width is proportional to their magnitude, so that the distribution of
+values spanning many orders of magnitude is summarized in a few thousand counts, with the same relative precision everywhere.
+
+The bucket of a value is given by the bits of its float representation: its exponent and the significantBits first bits of its mantissa.
+Each power of 2 is thus split into 2^significantBits buckets of equal width, and the values of a bucket differ by less than
+1/2^significantBits of their magnitude (e.g. 1/16 for 4 bits). Integers smaller than 2^significantBits fall in buckets of their own.
+At most maximumSignificantBits are kept, so that the counts of the whole range of floats (255 powers of 2) take at most 8MB.
+The buckets are ordered as the values, so a quantile is found by adding up the counts in order. The counts are kept for the range of
+buckets reached so far, grown as values outside of it are recorded (up to the bucket of the largest float).
+Zero (and -0) is counted in a bucket of its own, before the others: its bucket by the bits would be 0, and a range starting there
+would hold every bucket of the tiny values up to the usual ones.
+
+Negative and infinite values and NaN are not recorded, only counted. The number, sum, smallest and largest of the recorded values are
+kept exactly.
+Histograms of parts of the values (e.g. one per Thread) can be merged into the histogram of all of them.
+
+*******************/
+
+import java.util.Arrays;
+
+public class LogHistogram {
+
+	// the largest number of bits of the mantissa kept.
+	static final int maximumSignificantBits = 12;
+	// the number of bits of the mantissa kept in the bucket of a value, and the number of bits dropped.
+	final int significantBits;
+	private final int shift;
+	// the counts of the buckets firstBucket <= b < firstBucket + counts.length.
+	private long[] counts = new long[0];
+	private int firstBucket;
+	// the number of values equal to zero, and the bucket following the bucket of the largest float.
+	private long zeros;
+	private final int endBucket;
+	// the number of values recorded, their sum, the smallest and largest of them, and the number of values not recorded.
+	long count;
+	double sum;
+	float min = Float.POSITIVE_INFINITY;
+	float max = Float.NEGATIVE_INFINITY;
+	long invalid;
+
+	LogHistogram(int significantBits) {
+		this.significantBits = Math.max(0, Math.min(significantBits, maximumSignificantBits));
+		this.shift = 23 - this.significantBits;
+		this.endBucket = Float.floatToIntBits(Float.POSITIVE_INFINITY) >>> shift;
+	}
+
+    /**
+     * Records a value (or counts it as invalid, if it is negative, infinite or NaN).
+     *
+     */
+	void record(float value) {
+		if (!(value >= 0) || value == Float.POSITIVE_INFINITY) {
+			invalid++;
+			return;
+		}
+		// turns -0 into 0, whose bits (unlike those of -0) are below the ones of the positive values.
+		value += 0.0f;
+		count++;
+		sum += value;
+		if (value < min)	min = value;
+		if (value > max)	max = value;
+		if (value == 0)
+			zeros++;
+		else
+			add(Float.floatToIntBits(value) >>> shift, 1);
+	}
+
+	// adds n to the count of bucket b, growing the range of the counts if needed.
+	private void add(int b, long n) {
+		if (counts.length == 0) {
+			counts = new long[16];
+			firstBucket = b;
+		}
+		else if (b < firstBucket || b >= firstBucket + counts.length) {
+			// grows to twice the range needed, on the side of b, within the buckets of the floats (in longs, as twice the range may
+			// not fit in an int).
+			int first = Math.min(firstBucket, b);
+			int last = Math.max(firstBucket + counts.length, b + 1);
+			long length = 2L * (last - first);
+			int newFirst = (b < firstBucket ? (int)Math.max(0, last - length) : first);
+			int newLast = (int)Math.max(last, Math.min(endBucket, newFirst + length));
+			long[] grown = new long[newLast - newFirst];
+			System.arraycopy(counts, 0, grown, firstBucket - newFirst, counts.length);
+			counts = grown;
+			firstBucket = newFirst;
+		}
+		counts[b - firstBucket] += n;
+	}
+
+    /**
+     * Adds all the values recorded by another histogram (with the same significantBits), as if they had been recorded by this one.
+     *
+     */
+	void merge(LogHistogram other) {
+		if (other.significantBits != significantBits)
+			throw new IllegalArgumentException("Cannot merge histograms of " + significantBits + " and " + other.significantBits + " significant bits.");
+		for ( int i = 0; i < other.counts.length; i++ )
+			if (other.counts[i] != 0)
+				add(other.firstBucket + i, other.counts[i]);
+		zeros += other.zeros;
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		invalid += other.invalid;
+	}
+
+    /**
+     * Returns the mean of the values recorded (NaN if there is none).
+     *
+     */
+	double getMean() {
+		return sum / count;
+	}
+
+    /**
+     * Returns the approximate q-quantile of the values recorded (0 <= q <= 1): the middle of the bucket of the value of rank q times the
+     * number of values (rounded down, counting from 0, as getStatsFromCollection.getQuantiles), within the smallest and largest values.
+     * Returns NaN if there is no value.
+     *
+     */
+	double getQuantile(double q) {
+		if (count == 0)
+			return Double.NaN;
+		long rank = Math.max(0, Math.min(count - 1, (long)(q * count)));
+		long seen = 0;
+		for ( int i = 0; i < numberOfBuckets(); i++ ) {
+			seen += getCount(i);
+			if (seen > rank) {
+				double middle = (i == 0 ? 0 : (getLowerBound(i) + getUpperBound(i)) / 2);
+				return Math.max(min, Math.min(max, middle));
+			}
+		}
+		return max;
+	}
+
+    /**
+     * Returns the number of buckets: the bucket of zero and the ones in the range of the counts (some of which may be empty).
+     *
+     */
+	int numberOfBuckets() {
+		return counts.length + 1;
+	}
+
+    /**
+     * Returns the number of values in bucket i (0 <= i < numberOfBuckets()), in increasing order of values. Bucket 0 is the one of zero.
+     *
+     */
+	long getCount(int i) {
+		return (i == 0 ? zeros : counts[i - 1]);
+	}
+
+    /**
+     * Returns the smallest value of bucket i.
+     *
+     */
+	double getLowerBound(int i) {
+		return (i == 0 ? 0 : Float.intBitsToFloat((firstBucket + i - 1) << shift));
+	}
+
+    /**
+     * Returns the value following the largest value of bucket i (the smallest positive float, for the bucket of zero).
+     *
+     */
+	double getUpperBound(int i) {
+		return (i == 0 ? Float.MIN_VALUE : Float.intBitsToFloat((firstBucket + i) << shift));
+	}
+
+    /**
+     * Removes all the values, keeping the counts to be reused.
+     *
+     */
+	void clear() {
+		Arrays.fill(counts, 0);
+		zeros = 0;
+		count = 0;
+		sum = 0;
+		min = Float.POSITIVE_INFINITY;
+		max = Float.NEGATIVE_INFINITY;
+		invalid = 0;
+	}
+
+}
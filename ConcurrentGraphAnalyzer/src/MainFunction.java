@@ -29,16 +29,20 @@ The statistical values it calculates about the graph is, for each email sent:
 
 *******************/
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.function.BiFunction;
+import java.util.function.IntFunction;
 
 public class MainFunction {
 
 	//////////////////////////////////////////////////////////   PARAMETERS   /////////////////////////////////////////////////////////////
 	
 	// the name of the CSV file from which the graph will be build by calling the GraphBuilder class.
+	// It can also be a glob pattern (e.g. "exports/EmlRecipients_*.csv.gz") matching several shards, plain or compressed with gzip.
 	private static final String csvFileName = "EmlRecipients.csv";
 	
 	// if true: centrality(node p) = (1-d)/number of edges + d*sum[for each q pointing to p](centrality of q * weight of edge(q->p) / weighted out-degree of q).
@@ -67,10 +71,75 @@ public class MainFunction {
 	// The number of iterations to be executed by each thread. Set to negative for a loop without limits on iterations, 
 	//                                                         that shall be stopped only after reaching a minimal improvement on centrality.
 	private static final int numberOfIterations = -1;
+	
+	// The engine used to calculate the centralities (see rankingEngine.java).
+	// The engines other than asynchronous and compressed run over a CompactGraph, and count iterations instead of waiting timeBetweenAssessments.
+	// The compressed and out-of-core engines build their graph from the rows of the CSV file without any Node (see rankCompressed and
+	// rankOutOfCore), unless a subgraph is ranked.
+	private static final rankingEngine engine = rankingEngine.asynchronous;
+	
+	// The number of worker processes among which the graph is partitioned by the distributed engine, and the number of Threads of each one.
+	// If launchWorkerProcesses is false, the workers run as Threads of this JVM (still communicating through local sockets).
+	private static final int numberOfWorkers = 4;
+	private static final int numberOfThreadsPerWorker = 2;
+	private static final boolean launchWorkerProcesses = true;
+	
+	// The directory in which the out-of-core engine writes its shards of edges, the maximal number of edges per shard, 
+	// the size in bytes of each block read from disk, and whether to time the same iterations in memory for comparison (which builds
+	// each TransitionMatrix in memory and keeps the edges of the graph, defeating the purpose of the engine: only for benchmarks).
+	private static final String outOfCoreDirectory = ".";
+	private static final int outOfCoreEdgesPerShard = 1 << 22;
+	private static final int outOfCoreBufferSize = 1 << 23;
+	private static final boolean outOfCoreCompareWithInMemory = false;
 
+	// Whether or not to stop before building the graph when the estimated memory needed to build it (see InputEstimate.java)
+	// is larger than the maximal heap. Otherwise a warning is printed and the graph is built anyway, since the estimate is not a bound.
+	private static final boolean stopWhenHeapIsTooSmall = false;
+	
+	// Whether or not to drop the lines of the CSV file that repeat a previous line (same email identifier, email address and role),
+	// as re-emitted by some exporters (see RowDeduplicator.java), and the probability of a line being wrongly dropped when its email
+	// appears in several runs of lines.
+	private static final boolean dropRepeatedLines = false;
+	private static final double repeatedLinesFalsePositiveRate = 0.001;
+	
+	// Whether or not to calculate the centralities over windows of time sliding over the emails (see SlidingWindowPageRank.java),
+	// writing them in a file, instead of over the whole graph. The windows are read from a single CSV file.
+	private static final boolean rankSlidingWindows = false;
+	// The column of the CSV file holding the time at which each email was sent (seconds since the epoch, or a date in ISO-8601 form).
+	private static final int timestampColumn = 2;
+	// The length of the windows and the time by which each window slides from the previous one, in seconds.
+	private static final long windowLength = 30L * 24 * 60 * 60;
+	private static final long windowSlide = 24L * 60 * 60;
+	
+	// The half-life (in seconds) of the weight of an email: if positive, each email weighs 2^(-age / half-life) in the weighted centralities
+	// instead of 1, its age being taken at decayReferenceTime (Long.MIN_VALUE for the time of the latest email), and its time read from
+	// timestampColumn with the emails (see DecayedWeights.java). The emails without a time weigh 0, and the ones after the reference time 
+	// weigh 1. Only used by the engines over a CompactGraph, with a single CSV file.
+	private static final double decayHalfLife = 0;
+	private static final long decayReferenceTime = Long.MIN_VALUE;
+	
+	// Whether or not to also calculate the centralities of the email domains, over the graph in which the addresses of each domain are 
+	// collapsed into a single Node (see DomainGraph.java), and write them by domain and by address. The centralities calculated are the 
+	// ones written for the addresses, with the engine pushPull. The emails sent inside a domain are kept as edges from the domain to itself 
+	// if keepInternalDomainEdges is true.
+	private static final boolean rankByDomains = false;
+	private static final boolean keepInternalDomainEdges = true;
+	
+	// If subgraphDomain is not null or subgraphAddresses is not empty, only the centralities of a part of the graph are calculated and
+	// written (with the engine pushPull, see Subgraph.java): the Nodes of the addresses of subgraphDomain (and of its subdomains) and of 
+	// subgraphAddresses, and the Nodes at most subgraphHops edges away from them (in either direction).
+	private static final String subgraphDomain = null;
+	private static final String[] subgraphAddresses = {};
+	private static final int subgraphHops = 0;
+	
 	// Whether or not to run tests to check if the graph was properly built. 
 	private static final boolean runTests = true;
 	
+	// Whether or not to check that the rows written by emails by several Threads are the same as the ones written by a single Thread
+	// (see GraphWriter.testParallelRows), by building a synthetic table of emails and writing it twice in memory: only for testing 
+	// changes to the writer, so it is not run with the other tests.
+	private static final boolean testParallelRowsByEmails = false;
+	
 	// By what measure of centrality the Nodes shall be sorted.
 	private static final centralityType sortCollectionOfNodesByCentrality = centralityType.standard;
 	
@@ -119,6 +188,22 @@ public class MainFunction {
 	private static final boolean writeStandardDeviation = true;
 	private static final boolean writeHarmonicMean = true;
 	private static final boolean writeMeanAbsoluteDeviation = true;
+	// the quantiles of the values of the recipients written after the other statistical results (e.g. {0.9, 0.99} for the 90th and 
+	// 99th percentiles), selected together with the median.
+	private static final double[] writeQuantiles = {};
+	// the estimated memory (in bytes) of the recipient lists whose statistical results are kept to be reused by the emails with the 
+	// same recipients (the least recently used ones are evicted), 0 for not keeping any, and the number of recipients from which a 
+	// list is kept the first time it is seen (the smaller ones are only kept the second time, see RecipientStatsCache.java).
+	// It only pays off when many emails are sent to the same lists (e.g. teams or mailing lists), so it is not used by default.
+	private static final long recipientStatsCacheBytes = 0;
+	private static final int recipientStatsCacheInsertAbove = 1000;
+	
+	// Whether or not to write a summary of the distributions of the centralities calculated and of the degrees of all the Nodes 
+	// (see DistributionSummary.java), the number of bits of the mantissa of the values kept by its histograms (each power of 2 is split
+	// into 2^summarySignificantBits buckets), and the quantiles written for each distribution.
+	private static final boolean writeSummary = true;
+	private static final int summarySignificantBits = 4;
+	private static final double[] summaryQuantiles = {0.5, 0.9, 0.99, 0.999};
 		
 	///////////////////////////////////////////////////////////   MAIN FUNCTION   ///////////////////////////////////////////////////////////
 	
@@ -132,32 +217,131 @@ public class MainFunction {
     			           ", damping factor = "+DampingFactor+
     			           ", number of concurrent threads = "+numberOfConcurrentThreads+
     			           ", number of iterations = "+(numberOfIterations >= 0 ? numberOfIterations : "infinite")+
+    			           ", engine = "+engine+
     			           (considerWeightedEdgesForComplexity ? ", considering edge weights for complexity evaluation":", using unweighted edges for complexity evaluation")+
     			           (runTests ? ", running safety tests on graph-building." : ".") );
     	
     	////////////////////////////////////////////////////   BUILDS GRAPH FROM FILE   ///////////////////////////////////////////////////
     	
+    	// the files from which the graph is built: csvFileName may be a glob pattern matching several shards, which may be compressed.
+    	List<String> shards = GraphBuilder.ExpandShards(csvFileName);
+    	boolean readShards = shards.size() != 1 || shards.get(0).endsWith(".gz");
+    	// the single CSV file read otherwise (the file matched by the pattern, not the pattern itself).
+    	String input = (readShards ? null : shards.get(0));
+    	
+    	// samples the file to pre-size the maps, and checks that the graph fits in the heap.
+    	InputEstimate estimate = (readShards ? null : GraphBuilder.EstimateInput(input));
+    	// the out-of-core engine builds a CompactGraph from the rows instead of the graph of Nodes.
+    	long estimatedBytes = (estimate == null ? 0 : 
+    			(engine == rankingEngine.outOfCore ? estimate.bytesOfCompactGraph() : estimate.bytesOfNodes()));
+    	if (estimatedBytes > Runtime.getRuntime().maxMemory()) {
+    		if (stopWhenHeapIsTooSmall) {
+    			System.out.println("The estimated memory needed to build the graph is larger than the maximal heap: stopping. "+
+    					"Increase the maximal heap (with -Xmx) or set stopWhenHeapIsTooSmall to false.");
+    			return;
+    		}
+    		System.out.println("Warning: the estimated memory needed to build the graph is larger than the maximal heap. "+
+    				"The building may run out of memory: increase the maximal heap (with -Xmx) if it does.");
+    	}
+    	
     	// the dictionary mapping the Strings of the email addresses to their respective Nodes representing them in the graph. 
-    	HashMap<String,Node> dic = new HashMap<String,Node>();
+    	HashMap<String,Node> dic = new HashMap<String,Node>( estimate != null ? capacityFor(estimate.estimatedAddresses) : 16 );
     	
     	// each pair <String,List<Node> represents as key a String of an email identifier 
     	// and as value a list of Nodes present in that email (either as sender or as receiver of the email).
-    	HashMap<String,List<Node>> emails = new HashMap<String,List<Node>>();
+    	HashMap<String,List<Node>> emails = new HashMap<String,List<Node>>( estimate != null ? capacityFor(estimate.estimatedEmails) : 16 );
+    	
+    	// the detector of repeated lines, sized by the estimated number of lines (or, for shards, by their total size).
+    	RowDeduplicator deduplicator = (dropRepeatedLines ? new RowDeduplicator(estimate != null ? estimate.estimatedLines : 
+    			expectedLinesOf(shards), repeatedLinesFalsePositiveRate) : null);
     	
-    	int[] tmp = GraphBuilder.BuildGraphFromCSV(csvFileName, dic, emails,  InitialCentrality, runTests);
+    	if (rankSlidingWindows && readShards)
+    		System.out.println("The sliding windows are only calculated over a single CSV file: calculating the centralities of the whole graph.");
+    	if (rankSlidingWindows && !readShards) {
+    		rankWindows(input, deduplicator);
+    		System.out.println("Total time taken (in seconds): "+ (float)(System.currentTimeMillis() - startTime) / 1000 );
+    		return;
+    	}
+    	
+    	if (engine == rankingEngine.outOfCore && subgraphDomain == null && subgraphAddresses.length == 0) {
+    		rankOutOfCore(shards, input, deduplicator);
+    		System.out.println("Total time taken (in seconds): "+ (float)(System.currentTimeMillis() - startTime) / 1000 );
+    		return;
+    	}
+    	if (engine == rankingEngine.compressed && subgraphDomain == null && subgraphAddresses.length == 0) {
+    		rankCompressed(shards, input, deduplicator);
+    		System.out.println("Total time taken (in seconds): "+ (float)(System.currentTimeMillis() - startTime) / 1000 );
+    		return;
+    	}
+    	
+    	// the time of each email, read with the emails if the weights of the edges are decayed.
+    	HashMap<String,Long> timeOfEmail = (decayHalfLife > 0 && !readShards && engine != rankingEngine.asynchronous ? 
+    			new HashMap<String,Long>() : null);
+    	
+    	int[] tmp = (readShards ? 
+    			GraphBuilder.BuildGraphFromRows(GraphBuilder.ReadRowsFromShards(shards, numberOfConcurrentThreads, deduplicator), dic, emails, 
+    					InitialCentrality, numberOfConcurrentThreads, runTests) :
+    			GraphBuilder.BuildGraphFromCSV(input, dic, emails,  InitialCentrality, deduplicator, timestampColumn, timeOfEmail, runTests) );
     	// gets information about the graph's structure.
     	@SuppressWarnings("unused") //  those results are not used in this implementation, but are left here since they are the byproduct of 
     	//the last function (yielding no further operations) and can be used later without the need to re-run all the function.
 		int LineCounter = tmp[0], EmailCounter = tmp[1], totalNumberOfEdges = tmp[2];        
+    	// an empty graph has no centrality to converge (the asynchronous engine would never stop).
+    	if (totalNumberOfEdges == 0) {
+    		System.out.println("No edge could be read from "+csvFileName+": stopping.");
+    		return;
+    	}
+    	
+    	if (subgraphDomain != null || subgraphAddresses.length > 0) {
+    		rankSubgraph(CompactGraph.fromNodes(dic.values(), numberOfConcurrentThreads));
+    		System.out.println("Total time taken (in seconds): "+ (float)(System.currentTimeMillis() - startTime) / 1000 );
+    		return;
+    	}
     	
     	////////////////////////////////////////////////////   ANALYZES THE GRAPH   ////////////////////////////////////////////////////////
         
     	System.out.println("Started calculating the centralities of the Nodes in the graph.");
     	
-    	BiFunction< centralityType, String, Thread > rankerThread = (type, text) -> new Thread( new PageRank (type, dic, timeBetweenAssessments, 
-    			totalNumberOfEdges, numberOfConcurrentThreads, numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop, 
-    			minimalImprovementOnCentralityToStop, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias, 
-    			considerWeightedEdgesForComplexity, text) );
+    	// the compact representation of the graph, used by all engines but the asynchronous one.
+    	CompactGraph graph = (engine == rankingEngine.asynchronous ? null : CompactGraph.fromNodes(dic.values(), numberOfConcurrentThreads));
+    	
+    	// the emails as a flat table, with the same ids as the compact graph. It is also used to decay the weights of its edges.
+    	EmailTable emailTable = null;
+    	if (decayHalfLife > 0) {
+    		if (timeOfEmail != null) {
+    			emailTable = EmailTable.fromMap(emails, dic.values(), numberOfConcurrentThreads);
+    			GraphBuilder.BuildDecayedWeights(graph, emailTable, timeOfEmail, decayHalfLife, decayReferenceTime, numberOfConcurrentThreads);
+    			timeOfEmail = null;
+    		}
+    		else
+    			System.out.println("The weights of the edges are only decayed by the engines over a CompactGraph, reading a single CSV file.");
+    	}
+    	
+    	BiFunction< centralityType, String, Thread > rankerThread = (type, text) -> {
+    		switch (engine) {
+    			case pushPull:
+    				return new Thread( new PushPullPageRank (type, graph, numberOfConcurrentThreads, numberOfIterations, 
+    						consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, DampingFactor, 
+    						neighborCentralityDampingFactor, neighborCentralityBias, text) );
+    			case sccOrdered:
+    				return new Thread( new SCCOrderedPageRank (type, graph, numberOfConcurrentThreads, numberOfIterations, 
+    						consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, DampingFactor, 
+    						neighborCentralityDampingFactor, neighborCentralityBias, text) );
+    			case perComponent:
+    				return new Thread( new ComponentPageRank (type, graph, numberOfConcurrentThreads, numberOfIterations, 
+    						consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, DampingFactor, 
+    						neighborCentralityDampingFactor, neighborCentralityBias, text) );
+    			case distributed:
+    				return new Thread( new DistributedPageRank (type, graph, numberOfWorkers, numberOfThreadsPerWorker, launchWorkerProcesses, 
+    						numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, 
+    						DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias, runTests, text) );
+    			default:
+    				return new Thread( new PageRank (type, dic, timeBetweenAssessments, 
+    						totalNumberOfEdges, numberOfConcurrentThreads, numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop, 
+    						minimalImprovementOnCentralityToStop, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias, 
+    						considerWeightedEdgesForComplexity, text) );
+    		}
+    	};
     	
     	Thread[] rankers = new Thread[6];
     	
@@ -168,10 +352,20 @@ public class MainFunction {
     	if(writeReversedUnweightedEdges)		rankers[4] = rankerThread.apply(centralityType.reversedUnweightedEdges, "Reversed UE");
     	if(writeNeighborCentralityUnweightedEdges)	rankers[5] = rankerThread.apply(centralityType.neighborCentralityUnweightedEdges, "Neighbor UE");
     	
+    	// the first exception thrown by a ranker thread (e.g. the distributed engine losing a worker), after which nothing is written.
+    	Throwable[] failure = new Throwable[1];
+    	
     	// starts all ranker threads at the same time.
     	for ( Thread ranker : rankers ) {
-    		if (ranker != null)
+    		if (ranker != null) {
+    			ranker.setUncaughtExceptionHandler((thread, e) -> {
+    				synchronized (failure) {
+    					if (failure[0] == null)
+    						failure[0] = e;
+    				}
+    			});
     			ranker.start();
+    		}
     	}
 
     	// waits for all of them to be finished.
@@ -179,14 +373,30 @@ public class MainFunction {
     		if (ranker != null)
     			ranker.join();
     	}
+    	synchronized (failure) {
+    		if (failure[0] != null)
+    			throw new IllegalStateException("Calculating the centralities failed: nothing is written.", failure[0]);
+    	}
     	
     	System.out.println("Finished analyzing the graph.");
     	
+    	if (rankByDomains) {
+    		CompactGraph addresses = (graph != null ? graph : CompactGraph.fromNodes(dic.values(), numberOfConcurrentThreads));
+    		rankDomains(addresses, p -> addresses.nodes[p].address);
+    	}
+    	
     	///////////////////////////////////////////////   WRITES THE RESULTING GRAPH IN A FILE   ///////////////////////////////////////////
         
     	ArrayList<Node> arrayOfNodes = new ArrayList<Node>(dic.values());
     	
     	Node.sortByParameter(arrayOfNodes, sortCollectionOfNodesByCentrality);
+    	
+    	if (writeSummary) {
+    		boolean[] summarizeCentrality = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, 
+    				writeReversedUnweightedEdges, writeNeighborCentralityUnweightedEdges };
+    		GraphWriter.writeSummary(DistributionSummary.of(arrayOfNodes, summarizeCentrality, summarySignificantBits, numberOfConcurrentThreads), 
+    				summaryQuantiles, "summary_");
+    	}
 
     	if ( writeStandard || writeReversed || writeNeighborCentrality || writeStandardUnweightedEdges || writeReversedUnweightedEdges ||
     			writeNeighborCentralityUnweightedEdges || writeInDegree || writeOutDegree || writeFromNodes || writeToNodes) {
@@ -196,16 +406,313 @@ public class MainFunction {
     				writeToNodes, "byAddresses_");
     	}
     	
-    	GraphWriter.writeByEmails(emails, writeSenderStandard, writeSenderReversed, writeSenderNeighborCentrality, writeSenderStandardUnweightedEdges,
+    	// the emails as a flat table, read by the writer without modifying the lists of the map.
+    	if (emailTable == null)
+    		emailTable = EmailTable.fromMap(emails, dic.values(), numberOfConcurrentThreads);
+    	
+    	StatsResult recipientStats = new StatsResult().withQuantiles(writeQuantiles);
+    	if (testParallelRowsByEmails)
+    		Assert.check(GraphWriter.testParallelRows(recipientStats, numberOfConcurrentThreads), 
+    				"the rows written by emails by several Threads are different from the ones written by a single Thread.");
+    	RecipientStatsCache recipientStatsCache = (recipientStatsCacheBytes > 0 ? 
+    			new RecipientStatsCache(recipientStatsCacheBytes, recipientStatsCacheInsertAbove) : null);
+    	GraphWriter.writeByEmails(emailTable, writeSenderStandard, writeSenderReversed, writeSenderNeighborCentrality, writeSenderStandardUnweightedEdges,
     			writeSenderReversedUnweightedEdges, writeSenderNeighborCentralityUnweightedEdges, writeSenderInDegree, writeSenderOutDegree, 
     			writeSenderUnweightedInDegree, writeSenderUnweightedOutDegree, writeStatsRecipientStandard, writeStatsRecipientReversed,
     			writeStatsRecipientNeighborCentrality, writeStatsRecipientStandardUnweightedEdges, writeStatsRecipientReversedUnweightedEdges,
     			writeStatsRecipientNeighborCentralityUnweightedEdges, writeStatsRecipientInDegree, writeStatsRecipientOutDegree, 
     			writeStatsRecipientUnweightedInDegree, writeStatsRecipientUnweightedOutDegree, writeMedian, writeMean, 
-    			writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation, "byEmails_");
+    			writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation, recipientStats, 
+    			recipientStatsCache, numberOfConcurrentThreads, "byEmails_");
+    	if (recipientStatsCache != null)
+    		System.out.println("Recipient lists whose statistical results were reused: " + recipientStatsCache.getHits() + " of " + 
+    				(recipientStatsCache.getHits() + recipientStatsCache.getMisses()) + " emails (" + 100 * recipientStatsCache.getHitRate() + "%)");
     	
     	System.out.println("Total time taken (in seconds): "+ (float)(System.currentTimeMillis() - startTime) / 1000 );
     	
     }
+    
+    /**
+     * Reads the emails with their times from the CSV file input and calculates the centralities of the chosen types over the sliding windows
+     * covering them, writing them in a file.
+     *
+     */
+    private static void rankWindows(String input, RowDeduplicator deduplicator) {
+    	EmailRows rows = GraphBuilder.ReadRowsFromCSV(input, new EmailRows().readTimestamps(timestampColumn), deduplicator);
+    	EmailTable table = EmailTable.fromRows(rows, numberOfConcurrentThreads);
+    	SlidingWindowGraph graph = new SlidingWindowGraph(table, rows.timeOfEmail, rows.addressDictionary.size());
+    	long[] range = graph.timeRange();
+    	if (range == null) {
+    		System.out.println("No time could be read from column "+timestampColumn+" of the CSV file.");
+    		return;
+    	}
+    	
+    	List<centralityType> types = new ArrayList<centralityType>();
+    	if(writeStandard)				types.add(centralityType.standard);
+    	if(writeReversed)				types.add(centralityType.reversed);
+    	if(writeNeighborCentrality)			types.add(centralityType.neighborCentrality);
+    	if(writeStandardUnweightedEdges)		types.add(centralityType.standardUnweightedEdges);
+    	if(writeReversedUnweightedEdges)		types.add(centralityType.reversedUnweightedEdges);
+    	if(writeNeighborCentralityUnweightedEdges)	types.add(centralityType.neighborCentralityUnweightedEdges);
+    	
+    	// the first window ends just after the first email, and the last one starts at the last email.
+    	SlidingWindowPageRank ranker = new SlidingWindowPageRank(graph, rows.addressDictionary, types.toArray(new centralityType[0]), 
+    			numberOfConcurrentThreads, numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, 
+    			DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias, InitialCentrality, runTests);
+    	ranker.run(range[0] - windowLength + 1, range[1], windowLength, windowSlide, "byWindows_");
+    }
+    
+    /**
+     * Collapses the addresses of a graph into their domains (the address of each Node being given by addressOfNode), calculates the centralities of the domains and writes them
+     * by domain and by address.
+     *
+     */
+    private static void rankDomains(CompactGraph addresses, IntFunction<String> addressOfNode) throws InterruptedException {
+    	DomainGraph domains = DomainGraph.fromGraph(addresses, addressOfNode, keepInternalDomainEdges, InitialCentrality, 
+    			numberOfConcurrentThreads);
+    	System.out.println("Collapsed "+addresses.numberOfNodes+" addresses into "+domains.graph.numberOfNodes+" domains with "+
+    			domains.graph.totalNumberOfEdges+" edges.");
+    	
+    	boolean[] write = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, writeReversedUnweightedEdges, 
+    			writeNeighborCentralityUnweightedEdges };
+    	Thread[] rankers = new Thread[write.length];
+    	for ( centralityType type : centralityType.values() ) {
+    		if (write[type.ordinal()])
+    			rankers[type.ordinal()] = new Thread( new PushPullPageRank (type, domains.graph, numberOfConcurrentThreads, numberOfIterations, 
+    					consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, DampingFactor, 
+    					neighborCentralityDampingFactor, neighborCentralityBias, "Domains "+type) );
+    	}
+    	for ( Thread ranker : rankers )
+    		if (ranker != null)
+    			ranker.start();
+    	for ( Thread ranker : rankers )
+    		if (ranker != null)
+    			ranker.join();
+    	
+    	GraphWriter.writeByDomains(domains, writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, 
+    			writeReversedUnweightedEdges, writeNeighborCentralityUnweightedEdges, writeInDegree, writeOutDegree, "byDomains_");
+    	GraphWriter.writeDomainsByAddresses(domains, addressOfNode, writeStandard, writeReversed, writeNeighborCentrality, 
+    			writeStandardUnweightedEdges, writeReversedUnweightedEdges, writeNeighborCentralityUnweightedEdges, "domainsByAddresses_");
+    }
+    
+    /**
+     * Calculates the centralities with the out-of-core engine and writes them, without creating any Node: the graph is built from the
+     * rows of the CSV file (or of its shards) as a CompactGraph, the linear system of each type of centrality is written in EdgeShards 
+     * directly from its edges, and the edges are then released, so that only the centrality vectors, the degrees and the EmailTable 
+     * (read by the writer by emails) stay in memory while iterating. The Nodes are written in the order of their ids.
+     *
+     * @param input the single CSV file read, or null to read the shards.
+     *
+     */
+    private static void rankOutOfCore(List<String> shards, String input, RowDeduplicator deduplicator) throws InterruptedException {
+    	EmailRows rows = (input == null ? GraphBuilder.ReadRowsFromShards(shards, numberOfConcurrentThreads, deduplicator) : 
+    			GraphBuilder.ReadRowsFromCSV(input, (decayHalfLife > 0 ? new EmailRows().readTimestamps(timestampColumn) : new EmailRows()), 
+    					deduplicator));
+    	AddressDictionary addresses = rows.addressDictionary;
+    	long[] timeOfEmail = rows.timeOfEmail;
+    	EmailTable table = EmailTable.fromRows(rows, numberOfConcurrentThreads);
+    	rows = null; // only the table and the dictionary of addresses are used from now on.
+    	CompactGraph graph = GraphBuilder.BuildCompactGraph(table, addresses.size(), InitialCentrality, numberOfConcurrentThreads, runTests);
+    	if (graph.totalNumberOfEdges == 0) {
+    		System.out.println("No edge could be read from "+csvFileName+": stopping.");
+    		return;
+    	}
+    	if (decayHalfLife > 0) {
+    		if (input != null)
+    			GraphBuilder.BuildDecayedWeights(graph, table, timeOfEmail, decayHalfLife, decayReferenceTime, numberOfConcurrentThreads);
+    		else
+    			System.out.println("The weights of the edges are only decayed by the engines over a CompactGraph, reading a single CSV file.");
+    	}
+    	// the domains are collapsed from the edges, so before they are released.
+    	if (rankByDomains)
+    		rankDomains(graph, addresses::getAddress);
+    	
+    	System.out.println("Started calculating the centralities of the Nodes in the graph.");
+    	boolean[] write = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, writeReversedUnweightedEdges, 
+    			writeNeighborCentralityUnweightedEdges };
+    	String[] names = { "Standard---", "Reversed---", "Neighbor---", "Standard UE", "Reversed UE", "Neighbor UE" };
+    	EdgeShards[] edgeShards = new EdgeShards[write.length];
+    	for ( centralityType type : centralityType.values() ) {
+    		if (write[type.ordinal()]) {
+    			edgeShards[type.ordinal()] = StreamingPageRank.writeShards(type, graph, new File(outOfCoreDirectory), outOfCoreEdgesPerShard, 
+    					outOfCoreBufferSize, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias, names[type.ordinal()]);
+    			if (edgeShards[type.ordinal()] == null)
+    				return;
+    		}
+    	}
+    	if (!outOfCoreCompareWithInMemory)
+    		graph.releaseEdges();
+    	
+    	Thread[] rankers = new Thread[write.length];
+    	for ( centralityType type : centralityType.values() ) {
+    		if (write[type.ordinal()])
+    			rankers[type.ordinal()] = new Thread( new StreamingPageRank (type, graph, edgeShards[type.ordinal()], outOfCoreBufferSize, 
+    					outOfCoreCompareWithInMemory, numberOfConcurrentThreads, numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop, 
+    					minimalImprovementOnCentralityToStop, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias, 
+    					names[type.ordinal()]) );
+    	}
+    	for ( Thread ranker : rankers )
+    		if (ranker != null)
+    			ranker.start();
+    	for ( Thread ranker : rankers )
+    		if (ranker != null)
+    			ranker.join();
+    	System.out.println("Finished analyzing the graph.");
+    	writeByIds(graph, table, addresses);
+    }
+    
+    /**
+     * Calculates the centralities with the compressed engine and writes them, without creating any Node: the graph is built from the
+     * rows of the CSV file (or of its shards) as a CompactGraph, compressed, and its edges are then released, so that only the compressed
+     * rows, the centrality vectors, the degrees and the EmailTable (read by the writer by emails) stay in memory while iterating.
+     * The Nodes are written in the order of their ids.
+     *
+     * @param input the single CSV file read, or null to read the shards.
+     *
+     */
+    private static void rankCompressed(List<String> shards, String input, RowDeduplicator deduplicator) throws InterruptedException {
+    	EmailRows rows = (input == null ? GraphBuilder.ReadRowsFromShards(shards, numberOfConcurrentThreads, deduplicator) : 
+    			GraphBuilder.ReadRowsFromCSV(input, new EmailRows(), deduplicator));
+    	AddressDictionary addresses = rows.addressDictionary;
+    	EmailTable table = EmailTable.fromRows(rows, numberOfConcurrentThreads);
+    	rows = null; // only the table and the dictionary of addresses are used from now on.
+    	CompactGraph graph = GraphBuilder.BuildCompactGraph(table, addresses.size(), InitialCentrality, numberOfConcurrentThreads, runTests);
+    	if (graph.totalNumberOfEdges == 0) {
+    		System.out.println("No edge could be read from "+csvFileName+": stopping.");
+    		return;
+    	}
+    	if (decayHalfLife > 0)
+    		System.out.println("The weights of the edges are only decayed by the engines over a CompactGraph, reading a single CSV file.");
+    	if (rankByDomains)
+    		rankDomains(graph, addresses::getAddress);
+    	CompressedGraph compressedGraph = GraphBuilder.BuildCompressedGraph(graph, numberOfConcurrentThreads);
+    	graph.releaseEdges();
+    	
+    	System.out.println("Started calculating the centralities of the Nodes in the graph.");
+    	boolean[] write = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, writeReversedUnweightedEdges, 
+    			writeNeighborCentralityUnweightedEdges };
+    	String[] names = { "Standard---", "Reversed---", "Neighbor---", "Standard UE", "Reversed UE", "Neighbor UE" };
+    	Thread[] rankers = new Thread[write.length];
+    	for ( centralityType type : centralityType.values() ) {
+    		if (write[type.ordinal()])
+    			rankers[type.ordinal()] = new Thread( new PageRank (type, compressedGraph, timeBetweenAssessments, numberOfConcurrentThreads, 
+    					numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, DampingFactor, 
+    					neighborCentralityDampingFactor, neighborCentralityBias, names[type.ordinal()]) );
+    	}
+    	for ( Thread ranker : rankers )
+    		if (ranker != null)
+    			ranker.start();
+    	for ( Thread ranker : rankers )
+    		if (ranker != null)
+    			ranker.join();
+    	System.out.println("Finished analyzing the graph.");
+    	
+    	for ( centralityType type : centralityType.values() )
+    		if (write[type.ordinal()])
+    			graph.setCentrality(type, compressedGraph.getCentrality(type));
+    	compressedGraph = null;
+    	writeByIds(graph, table, addresses);
+    }
+    
+    /**
+     * Writes the summary, the file by addresses and the file by emails of a graph built without Nodes (whose edges may have been
+     * released), the Nodes being written in the order of their ids.
+     *
+     */
+    private static void writeByIds(CompactGraph graph, EmailTable table, AddressDictionary addresses) {
+    	boolean[] write = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, writeReversedUnweightedEdges, 
+    			writeNeighborCentralityUnweightedEdges };
+    	if (writeSummary)
+    		GraphWriter.writeSummary(DistributionSummary.of(graph, write, summarySignificantBits, numberOfConcurrentThreads), 
+    				summaryQuantiles, "summary_");
+    	if ( writeStandard || writeReversed || writeNeighborCentrality || writeStandardUnweightedEdges || writeReversedUnweightedEdges ||
+    			writeNeighborCentralityUnweightedEdges || writeInDegree || writeOutDegree)
+    		GraphWriter.writeByNodes(graph, addresses::getAddress, writeStandard, writeReversed, writeNeighborCentrality, 
+    				writeStandardUnweightedEdges, writeReversedUnweightedEdges, writeNeighborCentralityUnweightedEdges, writeInDegree, 
+    				writeOutDegree, "byAddresses_");
+    	
+    	StatsResult recipientStats = new StatsResult().withQuantiles(writeQuantiles);
+    	RecipientStatsCache recipientStatsCache = (recipientStatsCacheBytes > 0 ? 
+    			new RecipientStatsCache(recipientStatsCacheBytes, recipientStatsCacheInsertAbove) : null);
+    	GraphWriter.writeByEmails(table, graph, writeSenderStandard, writeSenderReversed, writeSenderNeighborCentrality, 
+    			writeSenderStandardUnweightedEdges, writeSenderReversedUnweightedEdges, writeSenderNeighborCentralityUnweightedEdges, 
+    			writeSenderInDegree, writeSenderOutDegree, writeSenderUnweightedInDegree, writeSenderUnweightedOutDegree, 
+    			writeStatsRecipientStandard, writeStatsRecipientReversed, writeStatsRecipientNeighborCentrality, 
+    			writeStatsRecipientStandardUnweightedEdges, writeStatsRecipientReversedUnweightedEdges, 
+    			writeStatsRecipientNeighborCentralityUnweightedEdges, writeStatsRecipientInDegree, writeStatsRecipientOutDegree, 
+    			writeStatsRecipientUnweightedInDegree, writeStatsRecipientUnweightedOutDegree, writeMedian, writeMean, 
+    			writeStandardDeviation, writeHarmonicMean, writeMeanAbsoluteDeviation, recipientStats, 
+    			recipientStatsCache, numberOfConcurrentThreads, "byEmails_");
+    }
+    
+    /**
+     * Extracts the subgraph around subgraphDomain and subgraphAddresses from the graph of addresses, calculates the centralities of its
+     * Nodes and writes them.
+     *
+     */
+    private static void rankSubgraph(CompactGraph addresses) throws InterruptedException {
+    	long startTime = System.currentTimeMillis();
+    	AddressIndex index = new AddressIndex(addresses.numberOfNodes, p -> addresses.nodes[p].address, numberOfConcurrentThreads);
+    	IntList seeds = new IntList();
+    	if (subgraphDomain != null)
+    		for ( int p : index.inDomain(subgraphDomain) )
+    			seeds.add(p);
+    	for ( String address : subgraphAddresses ) {
+    		int p = index.getId(address);
+    		if (p >= 0)
+    			seeds.add(p);
+    		else
+    			System.out.println("Address not found in the graph: "+address);
+    	}
+    	Subgraph subgraph = Subgraph.kHop(addresses, Arrays.copyOf(seeds.data, seeds.size), subgraphHops, true, true, 
+    			numberOfConcurrentThreads);
+    	System.out.println("Extracted a subgraph of "+subgraph.graph.numberOfNodes+" nodes and "+subgraph.graph.totalNumberOfEdges+
+    			" edges around "+seeds.size+" addresses in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+    	// the centralities with weighted edges are relative to the number of edges, so they are not defined without any.
+    	if (subgraph.graph.totalNumberOfEdges == 0) {
+    		System.out.println("The subgraph has no edges: no centralities to calculate.");
+    		return;
+    	}
+    	
+    	boolean[] write = { writeStandard, writeReversed, writeNeighborCentrality, writeStandardUnweightedEdges, writeReversedUnweightedEdges, 
+    			writeNeighborCentralityUnweightedEdges };
+    	Thread[] rankers = new Thread[write.length];
+    	for ( centralityType type : centralityType.values() ) {
+    		if (write[type.ordinal()])
+    			rankers[type.ordinal()] = new Thread( new PushPullPageRank (type, subgraph.graph, numberOfConcurrentThreads, numberOfIterations, 
+    					consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, DampingFactor, 
+    					neighborCentralityDampingFactor, neighborCentralityBias, "Subgraph "+type) );
+    	}
+    	for ( Thread ranker : rankers )
+    		if (ranker != null)
+    			ranker.start();
+    	for ( Thread ranker : rankers )
+    		if (ranker != null)
+    			ranker.join();
+    	
+    	GraphWriter.writeByNodes(subgraph.graph, p -> addresses.nodes[subgraph.globalId[p]].address, writeStandard, writeReversed, 
+    			writeNeighborCentrality, writeStandardUnweightedEdges, writeReversedUnweightedEdges, writeNeighborCentralityUnweightedEdges, 
+    			writeInDegree, writeOutDegree, "subgraph_");
+    }
+    
+    /**
+     * Returns the initial capacity of a HashMap that holds a number of mappings without rehashing (with the default load factor of 0.75).
+     *
+     */
+    private static int capacityFor(long numberOfMappings) {
+    	return (int)Math.min( numberOfMappings * 4 / 3 + 1, 1 << 30 );
+    }
+    
+    /**
+     * Returns a generous bound of the number of lines of files that are not sampled: one line per 16 bytes of each file
+     * (which also covers files compressed with gzip at usual ratios).
+     *
+     */
+    private static long expectedLinesOf(List<String> fileNames) {
+    	long bytes = 0;
+    	for ( String name : fileNames )
+    		bytes += new File(name).length();
+    	return bytes / 16 + 1;
+    }
 
 }
@@ -25,6 +25,9 @@ public class Node {
 		// the email address being represented in the Node.
 		String address;
 		
+		// the index of this Node in the CompactGraph built from it (-1 if none was built).
+		int id = -1;
+		
 		// this contains the 6 types of centrality specified at centralityType.java 
 		// (namely Standard, Reversed, Neighbor, and their versions with unweighted edges)
 		float[] centrality;
@@ -15,6 +15,10 @@ measures the mean relative improvement on the centrality (since the last time it
 below a specified value for a specified number of consecutive assessments, it causesthe running Iterate threads to stop. This is due
 to the convergence of the centrality calculated at each iteration of the Page Rank algorithm.
 
+Alternatively, it can receive a CompressedGraph instead of the collection of Nodes. In that case it distributes ranges of ids to the
+Runnable in IterateCompressed.java, which iterate over the centrality vector of the CompressedGraph decoding its rows, and it writes the
+centralities back in the Nodes once they stop.
+
 *******************/
 
 import java.util.ArrayList;
@@ -35,6 +39,8 @@ public class PageRank implements Runnable{
 	boolean considerWeightedEdgesForComplexity;
 	String name; //the name of the instance of PageRank to be printed in the Console during iterations.
 	centralityType type;
+	// if not null, the centralities are calculated over this graph instead of over the Nodes of dic.
+	CompressedGraph compressedGraph;
 	
 	PageRank (centralityType type, HashMap<String,Node> dic, long timeBetweenAssessments, int totalNumberOfEdges, int numberOfConcurrentThreads, 
 			int numberOfIterations, int consecutiveMinimalImprovementsOnCentralityToStop, float minimalImprovementOnCentralityToStop, 
@@ -70,10 +76,33 @@ public class PageRank implements Runnable{
 		this.name = "";
 	}
 	
+	// over a CompressedGraph.
+	PageRank (centralityType type, CompressedGraph compressedGraph, long timeBetweenAssessments, int numberOfConcurrentThreads, 
+			int numberOfIterations, int consecutiveMinimalImprovementsOnCentralityToStop, float minimalImprovementOnCentralityToStop, 
+			float DampingFactor, float neighborCentralityDampingFactor, float neighborCentralityBias, String name) {
+		this.type = type;
+		this.compressedGraph = compressedGraph;
+		this.timeBetweenAssessments = timeBetweenAssessments;
+		this.totalNumberOfEdges = compressedGraph.totalNumberOfEdges;
+		this.numberOfConcurrentThreads = numberOfConcurrentThreads;
+		this.numberOfIterations = numberOfIterations;
+		this.consecutiveMinimalImprovementsOnCentralityToStop = consecutiveMinimalImprovementsOnCentralityToStop;
+		this.minimalImprovementOnCentralityToStop = minimalImprovementOnCentralityToStop;
+		this.DampingFactor = DampingFactor;
+		this.neighborCentralityDampingFactor = neighborCentralityDampingFactor;
+		this.neighborCentralityBias = neighborCentralityBias;
+		this.name = name;
+	}
+	
 	@Override
 	public void run() {
 		// if STOP[] == true, the threads created should stop running.
     	boolean[] STOP = {false};
+    	
+    	if (compressedGraph != null) {
+    		runCompressed(STOP);
+    		return;
+    	}
         
     	// transforms the collection of addresses into an array to distribute them to threads.
 		ArrayList<Node> arrayOfNodes = new ArrayList<Node>(dic.values());
@@ -133,6 +162,80 @@ public class PageRank implements Runnable{
         // stops all running threads.
         STOP[0] = true;
 	}
-	
+
+    /**
+     * Does the same as run() over compressedGraph: the ranges of ids given to each Thread have nearly the same number of bytes
+     * in their rows, and the mean relative improvement is measured over the centrality vector.
+     *
+     */
+	private void runCompressed(boolean[] STOP) {
+		float[] x = compressedGraph.getCentrality(type);
+		int n = compressedGraph.numberOfNodes;
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(n, 1)));
+		int[] positions = (type == centralityType.reversed || type == centralityType.reversedUnweightedEdges ? 
+				compressedGraph.outPositions : compressedGraph.inPositions);
+		int[] bounds = ParallelRange.balancedBounds(threads, positions);
+		
+		long startTime = System.currentTimeMillis();
+		IterateCompressed[] ranges = new IterateCompressed[threads];
+		Thread[] iterators = new Thread[threads];
+		for ( int t = 0; t < threads; t++ ) {
+			ranges[t] = new IterateCompressed(compressedGraph, x, bounds[t], bounds[t+1], numberOfIterations, DampingFactor, 
+					neighborCentralityDampingFactor, neighborCentralityBias, STOP, type);
+			iterators[t] = new Thread(ranges[t]);
+			iterators[t].start();
+		}
+		
+		System.out.println(name+" Thread) running over a compressed graph of "+compressedGraph.sizeInBytes()+" bytes and reporting. Waiting "+
+				timeBetweenAssessments+" miliseconds between each assessment.");
+		
+		// the centralities at the last assessment.
+		float[] old = x.clone();
+		int numberOfConsecutiveMinimalImprovements = 0;
+		int cont = 0;
+		while(numberOfConsecutiveMinimalImprovements < consecutiveMinimalImprovementsOnCentralityToStop) {
+			try {
+				Thread.sleep(timeBetweenAssessments);
+			} catch (InterruptedException e) { e.printStackTrace(); }
+			cont++;
+			
+			float lastImprovement = 0;
+			for ( int p = 0; p < n; p++ ) {
+				float current = x[p];
+				lastImprovement += Math.abs( current/old[p] - 1 );
+				old[p] = current;
+			}
+			lastImprovement /= n;
+			
+			System.out.println(name+")"+cont+") Mean relative improvement on centrality since last assessment: "+lastImprovement);
+			
+			if (lastImprovement <= minimalImprovementOnCentralityToStop)
+				numberOfConsecutiveMinimalImprovements++;
+			else
+				numberOfConsecutiveMinimalImprovements = 0;
+		}
+		// stops all running threads and waits for them before writing the centralities in the Nodes.
+		STOP[0] = true;
+		for ( Thread iterator : iterators ) {
+			try {
+				iterator.join();
+			} catch (InterruptedException e) { e.printStackTrace(); }
+		}
+		long time = System.currentTimeMillis() - startTime;
+		
+		// the throughput: the edges decoded by each Thread are the edges of the rows of its range, at each loop over it.
+		boolean readIn = (type != centralityType.reversed && type != centralityType.reversedUnweightedEdges);
+		boolean readOut = (type != centralityType.standard && type != centralityType.standardUnweightedEdges);
+		long edges = 0;
+		for ( int t = 0; t < threads; t++ ) {
+			long edgesOfRange = 0;
+			for ( int p = bounds[t]; p < bounds[t+1]; p++ )
+				edgesOfRange += (readIn ? compressedGraph.unweightedInDegrees[p] : 0) + (readOut ? compressedGraph.unweightedOutDegrees[p] : 0);
+			edges += edgesOfRange * ranges[t].sweeps;
+		}
+		System.out.println(name+" Thread) decoded "+edges+" edges in "+time+" miliseconds ("+(long)(edges * 1000.0 / Math.max(time, 1))+
+				" edges per second).");
+		compressedGraph.writeCentrality(type);
+	}
 	
 }
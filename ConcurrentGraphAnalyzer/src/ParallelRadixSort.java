@@ -0,0 +1,90 @@
+
+/*******************
+
+This class sorts arrays of non-negative long keys (optionally carrying an int value with each key) with a parallel, stable,
+least-significant-digit radix sort.
+
+Each pass sorts by a digit of 11 bits: every Thread counts the digits in its own part of the array, the counts are turned into the
+position where each Thread writes each digit, and every Thread then moves its part to those positions. Only the digits up to the
+highest bit of the largest key are sorted: 3 passes sort keys below 2^33 and 4 passes keys below 2^44, so keys built as (a * n + b)
+with a, b < n (at most n^2 - 1) take 3 passes for graphs of up to 92681 Nodes, and 4 for up to 4194304 (2^22).
+
+*******************/
+
+import java.util.Arrays;
+
+public class ParallelRadixSort {
+
+	static final int bitsPerDigit = 11;
+	private static final int numberOfDigits = 1 << bitsPerDigit;
+
+    /**
+     * Sorts keys[ 0 <= i < size ] in increasing order, moving values[i] (if values is not null) together with keys[i].
+     *
+     * @param maximalKey a number greater than or equal to every key, that determines the number of passes.
+     *
+     * @param numberOfConcurrentThreads the number of Threads sorting.
+     *
+     */
+	static void sort(long[] keys, int[] values, int size, long maximalKey, int numberOfConcurrentThreads) {
+		int bits = 64 - Long.numberOfLeadingZeros(maximalKey);
+		int passes = (bits + bitsPerDigit - 1) / bitsPerDigit;
+		if (passes == 0 || size < 2)
+			return;
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, size / numberOfDigits + 1));
+
+		long[] otherKeys = new long[size];
+		int[] otherValues = (values != null ? new int[size] : null);
+		long[] from = keys;
+		long[] to = otherKeys;
+		int[] fromValues = values;
+		int[] toValues = otherValues;
+		int[][] counts = new int[threads][numberOfDigits];
+
+		for ( int pass = 0; pass < passes; pass++ ) {
+			int shift = pass * bitsPerDigit;
+			long[] source = from;
+			long[] destination = to;
+			int[] sourceValues = fromValues;
+			int[] destinationValues = toValues;
+
+			ParallelRange.run(threads, size, (part, start, end) -> {
+				int[] count = counts[part];
+				Arrays.fill(count, 0);
+				for ( int i = start; i < end; i++ )
+					count[(int)(source[i] >>> shift) & (numberOfDigits - 1)]++;
+			});
+			// the position where each Thread writes its first key of each digit, in order of digit and then of Thread.
+			int position = 0;
+			for ( int digit = 0; digit < numberOfDigits; digit++ ) {
+				for ( int t = 0; t < threads; t++ ) {
+					int count = counts[t][digit];
+					counts[t][digit] = position;
+					position += count;
+				}
+			}
+			ParallelRange.run(threads, size, (part, start, end) -> {
+				int[] next = counts[part];
+				for ( int i = start; i < end; i++ ) {
+					int j = next[(int)(source[i] >>> shift) & (numberOfDigits - 1)]++;
+					destination[j] = source[i];
+					if (sourceValues != null)
+						destinationValues[j] = sourceValues[i];
+				}
+			});
+
+			from = destination;
+			to = source;
+			fromValues = destinationValues;
+			toValues = sourceValues;
+		}
+
+		// after an odd number of passes the result is in the auxiliary arrays.
+		if (from != keys) {
+			System.arraycopy(from, 0, keys, 0, size);
+			if (values != null)
+				System.arraycopy(fromValues, 0, values, 0, size);
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+
+/*******************
+
+This class provides methods for splitting a range of indices [0, n) into disjoint subranges and processing each one of them
+in its own Thread, waiting for all of them to be finished before returning.
+
+It is used by the classes that iterate over arrays of ids (e.g. CompactGraph and TransitionMatrix) instead of the HashMaps in Node.
+
+*******************/
+
+public class ParallelRange {
+
+	// the body executed by each Thread over its subrange [start, end). part is the index of the subrange (0 <= part < number of Threads).
+	interface RangeBody {
+		void run(int part, int start, int end);
+	}
+
+    /**
+     * Splits [0, n) into numberOfThreads subranges of nearly the same length and runs body over each one of them in its own Thread.
+     * Returns only after all Threads are finished.
+     *
+     * @param numberOfThreads the number of Threads running simultaneously.
+     *
+     * @param n the end (exclusive) of the range of indices.
+     *
+     * @param body the function to run over each subrange.
+     *
+     */
+	static void run(int numberOfThreads, int n, RangeBody body) {
+		int[] bounds = new int[numberOfThreads + 1];
+		for ( int i = 0; i <= numberOfThreads; i++ )
+			bounds[i] = (int)( (long)n * i / numberOfThreads );
+		run(bounds, body);
+	}
+
+    /**
+     * Splits [0, offsets.length - 1) into numberOfThreads subranges having nearly the same number of entries,
+     * where the entries of index i are offsets[i] ... offsets[i+1]-1 (as in the offsets of a CSR array), and runs body over each
+     * one of them in its own Thread. Returns only after all Threads are finished.
+     *
+     * @param numberOfThreads the number of Threads running simultaneously.
+     *
+     * @param offsets the offsets of the entries of each index. offsets[offsets.length - 1] is the total number of entries.
+     *
+     * @param body the function to run over each subrange.
+     *
+     */
+	static void runBalanced(int numberOfThreads, int[] offsets, RangeBody body) {
+		run(balancedBounds(numberOfThreads, offsets), body);
+	}
+
+    /**
+     * Returns the bounds of numberOfThreads subranges of [0, offsets.length - 1) having nearly the same number of entries
+     * (plus one per index, so that long sequences of indices without entries are also distributed).
+     * The subrange of part i is [bounds[i], bounds[i+1]).
+     *
+     */
+	static int[] balancedBounds(int numberOfThreads, int[] offsets) {
+		return balancedBounds(numberOfThreads, offsets, 0, offsets.length - 1);
+	}
+
+    /**
+     * Returns the bounds of numberOfThreads subranges of [start, end) having nearly the same number of entries, as balancedBounds
+     * over [0, offsets.length - 1) (e.g. to process a long range in several rounds).
+     *
+     */
+	static int[] balancedBounds(int numberOfThreads, int[] offsets, int start, int end) {
+		long total = (long)offsets[end] - offsets[start] + (end - start);
+		int[] bounds = new int[numberOfThreads + 1];
+		bounds[0] = start;
+		int index = start;
+		for ( int i = 1; i < numberOfThreads; i++ ) {
+			long target = total * i / numberOfThreads;
+			while ( index < end && (long)offsets[index] - offsets[start] + (index - start) < target )
+				index++;
+			bounds[i] = index;
+		}
+		bounds[numberOfThreads] = end;
+		return bounds;
+	}
+
+    /**
+     * Runs body over each subrange [bounds[i], bounds[i+1]) in its own Thread. Returns only after all Threads are finished.
+     * If any of the Threads throws an exception, it is thrown again (wrapped in a RuntimeException) after all Threads are finished.
+     *
+     */
+	static void run(int[] bounds, RangeBody body) {
+		Thread[] threads = new Thread[bounds.length - 1];
+		Throwable[] error = {null};
+		for ( int i = 0; i < threads.length; i++ ) {
+			final int part = i;
+			threads[i] = new Thread( () -> {
+				try {
+					body.run(part, bounds[part], bounds[part + 1]);
+				} catch (Throwable e) {
+					synchronized (error) {
+						if (error[0] == null) error[0] = e;
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for ( Thread thread : threads ) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) { e.printStackTrace(); }
+		}
+		if (error[0] != null)
+			throw new RuntimeException(error[0]);
+	}
+
+}
@@ -0,0 +1,181 @@
+
+/*******************
+
+This class is a worker of the DistributedPageRank engine. It can run either in its own JVM (through its main function) or as a Thread
+in the same JVM as the coordinator, and in both cases it communicates with the coordinator only through a socket.
+
+The worker owns a contiguous range of rows of a TransitionMatrix (a partition of the Nodes) and their slice of the centrality vector.
+The rows read the centralities of the owned Nodes, and of other Nodes owned by other workers (the ghost Nodes).
+
+PROTOCOL (all numbers in big-endian order):
+1) SETUP: the coordinator sends the number of owned Nodes, the number of ghost Nodes, the owned rows (base, offsets, ids, coefficients,
+   where an id < number of owned Nodes is an owned Node and any other id is ghost number id - number of owned Nodes),
+   the initial centralities of the owned Nodes, and the indices of the owned Nodes read by other workers (the boundary Nodes).
+2) SUPERSTEP: the coordinator sends STEP and the current centralities of the ghost Nodes. The worker recalculates all its owned Nodes
+   and replies with the sum of their relative improvements and the new centralities of its boundary Nodes.
+3) FINISH: the coordinator sends FINISH and the worker replies with the centralities of all its owned Nodes and exits.
+
+*******************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+public class PartitionWorker implements Runnable {
+
+	// commands sent by the coordinator.
+	static final int FINISH = 0;
+	static final int STEP = 1;
+
+	String host;
+	int port;
+	int numberOfConcurrentThreads;
+
+	PartitionWorker (String host, int port, int numberOfConcurrentThreads) {
+		this.host = host;
+		this.port = port;
+		this.numberOfConcurrentThreads = numberOfConcurrentThreads;
+	}
+
+    /**
+     * Runs a worker in its own JVM.
+     *
+     * @param args the host and port of the coordinator, and the number of Threads of the worker.
+     *
+     */
+	public static void main(String[] args) {
+		new PartitionWorker(args[0], Integer.parseInt(args[1]), Integer.parseInt(args[2])).run();
+	}
+
+	@Override
+	public void run() {
+		try (Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+
+			// SETUP
+			int owned = in.readInt();
+			int ghosts = in.readInt();
+			float[] base = readFloats(in, new float[owned]);
+			int[] offsets = readInts(in, new int[owned + 1]);
+			int[] ids = readInts(in, new int[offsets[owned]]);
+			float[] coefficients = readFloats(in, new float[offsets[owned]]);
+			// the owned Nodes followed by the ghost Nodes.
+			float[] x = readFloats(in, new float[owned + ghosts]);
+			int[] boundary = readInts(in, new int[in.readInt()]);
+			TransitionMatrix rows = new TransitionMatrix(owned, base, offsets, ids, coefficients);
+
+			float[] next = new float[owned];
+			float[] boundaryValues = new float[boundary.length];
+			int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(owned, 1)));
+			double[] partialImprovement = new double[threads];
+			int[] bounds = ParallelRange.balancedBounds(threads, offsets);
+
+			// SUPERSTEPS
+			while (in.readInt() == STEP) {
+				readFloats(in, x, owned, ghosts);
+				ParallelRange.run(bounds, (part, start, end) -> {
+					double improvement = 0;
+					for ( int p = start; p < end; p++ ) {
+						next[p] = rows.pull(p, x);
+						improvement += (x[p] != 0 ? Math.abs(next[p] / x[p] - 1) : 0);
+					}
+					partialImprovement[part] = improvement;
+				});
+				System.arraycopy(next, 0, x, 0, owned);
+				double improvement = 0;
+				for ( double partial : partialImprovement )
+					improvement += partial;
+				for ( int b = 0; b < boundary.length; b++ )
+					boundaryValues[b] = x[boundary[b]];
+				out.writeDouble(improvement);
+				writeFloats(out, boundaryValues, 0, boundaryValues.length);
+				out.flush();
+			}
+
+			// FINISH
+			writeFloats(out, x, 0, owned);
+			out.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// BULK TRANSFER OF ARRAYS //////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Writes arr[start <= i < start + length] in out.
+     *
+     */
+	static void writeFloats(DataOutputStream out, float[] arr, int start, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, 1 << 14) * 4);
+		for ( int i = start; i < start + length; ) {
+			buffer.clear();
+			int chunk = Math.min(start + length - i, buffer.capacity() / 4);
+			buffer.asFloatBuffer().put(arr, i, chunk);
+			out.write(buffer.array(), 0, chunk * 4);
+			i += chunk;
+		}
+	}
+
+    /**
+     * Writes arr[start <= i < start + length] in out.
+     *
+     */
+	static void writeInts(DataOutputStream out, int[] arr, int start, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, 1 << 14) * 4);
+		for ( int i = start; i < start + length; ) {
+			buffer.clear();
+			int chunk = Math.min(start + length - i, buffer.capacity() / 4);
+			buffer.asIntBuffer().put(arr, i, chunk);
+			out.write(buffer.array(), 0, chunk * 4);
+			i += chunk;
+		}
+	}
+
+    /**
+     * Reads arr[start <= i < start + length] from in.
+     *
+     */
+	static float[] readFloats(DataInputStream in, float[] arr, int start, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, 1 << 14) * 4);
+		for ( int i = start; i < start + length; ) {
+			int chunk = Math.min(start + length - i, buffer.capacity() / 4);
+			in.readFully(buffer.array(), 0, chunk * 4);
+			buffer.clear();
+			buffer.asFloatBuffer().get(arr, i, chunk);
+			i += chunk;
+		}
+		return arr;
+	}
+
+    /**
+     * Reads arr[start <= i < start + length] from in.
+     *
+     */
+	static int[] readInts(DataInputStream in, int[] arr, int start, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, 1 << 14) * 4);
+		for ( int i = start; i < start + length; ) {
+			int chunk = Math.min(start + length - i, buffer.capacity() / 4);
+			in.readFully(buffer.array(), 0, chunk * 4);
+			buffer.clear();
+			buffer.asIntBuffer().get(arr, i, chunk);
+			i += chunk;
+		}
+		return arr;
+	}
+
+	static float[] readFloats(DataInputStream in, float[] arr) throws IOException {
+		return readFloats(in, arr, 0, arr.length);
+	}
+
+	static int[] readInts(DataInputStream in, int[] arr) throws IOException {
+		return readInts(in, arr, 0, arr.length);
+	}
+
+}
@@ -0,0 +1,210 @@
+
+/*******************
+
+This class provides a Runnable that calculates one of the 6 types of centrality specified at centralityType.java over a CompactGraph,
+switching at each iteration between 2 ways of applying the recursive formula (represented by a TransitionMatrix):
+
+1) PULL: every Node reads the centralities of the Nodes it depends on (as in Iterate.java), recalculating the whole vector.
+         Costs one read per entry of the TransitionMatrix, with no synchronization between Threads.
+
+2) PUSH: only the Nodes whose centrality still changed by more than the minimal improvement in the last iteration (the active set)
+         push the change of their centrality to the Nodes depending on them, with atomic updates.
+         Since the formula is linear, the change of the centrality of p is the sum of the changes pushed to p.
+         Costs one atomic update per entry in the rows of the active Nodes.
+
+Before each iteration the size of the active set is measured, and the cheapest way is chosen by comparing the number of entries
+each one would process, considering an atomic update pushCostFactor times more expensive than a read.
+
+The iterations stop either: 1) after a specified number of iterations, or
+                            2) when the mean relative improvement on centrality is lower or equal to a specified value for a specified
+                               number of consecutive iterations, and the last one of them was a PULL (so the changes ignored by
+                               PUSH iterations for being too small are accounted for).
+
+*******************/
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class PushPullPageRank implements Runnable {
+
+	// how many times an atomic update (PUSH) is estimated to be more expensive than a read (PULL).
+	static final float pushCostFactor = 4;
+
+	CompactGraph graph;
+	int numberOfConcurrentThreads;
+	int numberOfIterations;
+	int consecutiveMinimalImprovementsOnCentralityToStop;
+	float minimalImprovementOnCentralityToStop;
+	float DampingFactor;
+	float neighborCentralityDampingFactor;
+	float neighborCentralityBias;
+	String name; //the name of the instance of PushPullPageRank to be printed in the Console during iterations.
+	centralityType type;
+
+	PushPullPageRank (centralityType type, CompactGraph graph, int numberOfConcurrentThreads, int numberOfIterations,
+			int consecutiveMinimalImprovementsOnCentralityToStop, float minimalImprovementOnCentralityToStop, float DampingFactor,
+			float neighborCentralityDampingFactor, float neighborCentralityBias, String name) {
+		this.type = type;
+		this.graph = graph;
+		this.numberOfConcurrentThreads = numberOfConcurrentThreads;
+		this.numberOfIterations = numberOfIterations;
+		this.consecutiveMinimalImprovementsOnCentralityToStop = consecutiveMinimalImprovementsOnCentralityToStop;
+		this.minimalImprovementOnCentralityToStop = minimalImprovementOnCentralityToStop;
+		this.DampingFactor = DampingFactor;
+		this.neighborCentralityDampingFactor = neighborCentralityDampingFactor;
+		this.neighborCentralityBias = neighborCentralityBias;
+		this.name = name;
+	}
+
+	@Override
+	public void run() {
+		long startTime = System.currentTimeMillis();
+		TransitionMatrix matrix = TransitionMatrix.build(graph, type, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias,
+				numberOfConcurrentThreads);
+		float[] x = graph.getCentrality(type).clone();
+		int iterations = solve(matrix, x);
+		graph.setCentrality(type, x);
+		System.out.println(name+" Thread) finished after "+iterations+" iterations in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+	}
+
+    /**
+     * Iterates the recursive formula represented by matrix, starting from and writing the results in x.
+     * Returns the number of iterations done.
+     *
+     * @param matrix the linear system whose solution is calculated.
+     *
+     * @param x the initial centralities, indexed by id. It is overwritten with the calculated centralities.
+     *
+     */
+	int solve(TransitionMatrix matrix, float[] x) {
+		int n = matrix.size;
+		if (n == 0)
+			return 0;
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, n));
+		matrix.buildPushRows();
+
+		float[] next = new float[n];
+		// the change of the centrality of each Node in the last iteration.
+		float[] delta = new float[n];
+		// the sum of the changes pushed to each Node in the current iteration, stored as the bits of a float.
+		AtomicIntegerArray pushed = new AtomicIntegerArray(n);
+		// the active set, and its number of entries in the push direction.
+		int[] active = new int[n];
+		int numberOfActive = 0;
+		long activeEntries = 0;
+
+		double[] partialImprovement = new double[threads];
+		int[] partialActive = new int[threads];
+		long[] partialEntries = new long[threads];
+		int[] bounds = new int[threads + 1];
+		for ( int i = 0; i <= threads; i++ )
+			bounds[i] = (int)( (long)n * i / threads );
+		int[] pullBounds = ParallelRange.balancedBounds(threads, matrix.pullOffsets);
+
+		int numberOfConsecutiveMinimalImprovements = 0;
+		int iteration = 0;
+		boolean lastWasPull = false;
+		while ( iteration != numberOfIterations ) {
+			iteration++;
+
+			// COST MODEL: the first iteration is always a PULL, since every Node is active.
+			boolean pull = ( iteration == 1 || pushCostFactor * activeEntries >= matrix.numberOfEntries() );
+
+			if (pull) {
+				float[] current = x;
+				ParallelRange.run(pullBounds, (part, start, end) -> {
+					for ( int p = start; p < end; p++ )
+						next[p] = matrix.pull(p, current);
+				});
+			}
+			else {
+				int[] currentActive = active;
+				int activeCount = numberOfActive;
+				int[] activeBounds = new int[threads + 1];
+				for ( int i = 0; i <= threads; i++ )
+					activeBounds[i] = (int)( (long)activeCount * i / threads );
+				ParallelRange.run(activeBounds, (part, start, end) -> {
+					for ( int a = start; a < end; a++ ) {
+						int q = currentActive[a];
+						float change = delta[q];
+						for ( int i = matrix.pushOffsets[q]; i < matrix.pushOffsets[q+1]; i++ )
+							atomicAdd(pushed, matrix.pushIds[i], matrix.pushCoefficients[i] * change);
+					}
+				});
+			}
+
+			// applies the changes, measures the mean relative improvement and collects the active set of each subrange.
+			float[] current = x;
+			ParallelRange.run(bounds, (part, start, end) -> {
+				double improvement = 0;
+				int count = 0;
+				long entries = 0;
+				for ( int p = start; p < end; p++ ) {
+					float change;
+					if (pull) {
+						change = next[p] - current[p];
+						current[p] = next[p];
+					}
+					else {
+						change = Float.intBitsToFloat(pushed.get(p));
+						if (change != 0) {
+							pushed.set(p, 0);
+							current[p] += change;
+						}
+					}
+					delta[p] = change;
+					float relative = (current[p] != 0 ? Math.abs(change / current[p]) : Math.abs(change));
+					improvement += relative;
+					if (relative > minimalImprovementOnCentralityToStop) {
+						// stores the active Nodes of this subrange at the start of its subrange of the array active.
+						active[start + count++] = p;
+						entries += matrix.pushOffsets[p+1] - matrix.pushOffsets[p];
+					}
+				}
+				partialImprovement[part] = improvement;
+				partialActive[part] = count;
+				partialEntries[part] = entries;
+			});
+
+			// compacts the active Nodes of each subrange to the start of the array active.
+			numberOfActive = 0;
+			activeEntries = 0;
+			double lastImprovement = 0;
+			for ( int part = 0; part < threads; part++ ) {
+				System.arraycopy(active, bounds[part], active, numberOfActive, partialActive[part]);
+				numberOfActive += partialActive[part];
+				activeEntries += partialEntries[part];
+				lastImprovement += partialImprovement[part];
+			}
+			lastImprovement /= n;
+			lastWasPull = pull;
+
+			System.out.println(name+")"+iteration+") "+(pull ? "PULL" : "PUSH")+" iteration. Active Nodes: "+numberOfActive+
+					". Mean relative improvement on centrality since last iteration: "+(float)lastImprovement);
+
+			if (lastImprovement <= minimalImprovementOnCentralityToStop)
+				numberOfConsecutiveMinimalImprovements++;
+			else
+				numberOfConsecutiveMinimalImprovements = 0;
+			if (numberOfConsecutiveMinimalImprovements >= consecutiveMinimalImprovementsOnCentralityToStop) {
+				if (lastWasPull)
+					break;
+				// forces a PULL to account for the changes not pushed.
+				activeEntries = Long.MAX_VALUE / 2;
+			}
+		}
+		return iteration;
+	}
+
+    /**
+     * Atomically adds value to the float stored as bits in arr[i].
+     *
+     */
+	static void atomicAdd(AtomicIntegerArray arr, int i, float value) {
+		int previous, updated;
+		do {
+			previous = arr.get(i);
+			updated = Float.floatToRawIntBits(Float.intBitsToFloat(previous) + value);
+		} while ( !arr.compareAndSet(i, previous, updated) );
+	}
+
+}
@@ -0,0 +1,222 @@
+
+/*******************
+
+This class memoizes the statistical values of the recipients of the emails written by GraphWriter.writeByEmails: the same recipient
+lists (e.g. teams, departments or all the employees) are often the recipients of thousands of emails, and their statistical values
+are the same for all of them, so they are calculated and formatted only for the first ones.
+
+The key of a recipient list is the sequence of the ids of its recipients, sorted (as the recipients of an EmailTable), together
+with a hash of the sequence. The value is the text of the columns of the statistical values of the recipients, as written in a row.
+The keys are looked up without copying the ids (a reusable Key refers to the range of the recipients in the EmailTable); the ids
+are copied only for the keys that are inserted.
+
+Most recipient lists are only seen once, so a list is only inserted the second time it is missed (its hash is remembered the first
+time in a table of recently seen hashes, where it may be overwritten by another one), or the first time if it has at least
+insertAbove recipients (whose statistical values are the most expensive to calculate again).
+
+The cache is split into stripes by the hash of the keys, each one locked on its own and holding its entries in access order, so that
+the Threads of the parallel writer rarely wait for each other. The estimated memory of the entries (their ids and columns) is bounded:
+when a stripe holds more than its share of maximumBytes, its least recently used entries are evicted. The hits and misses are counted
+so that the savings can be reported.
+A cache must only be used by calls of writeByEmails writing the same columns, over the same values of the Nodes.
+
+*******************/
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RecipientStatsCache {
+
+	// a sorted sequence of ids: array[ start <= i < end ].
+	static class Key {
+		int[] array;
+		int start;
+		int end;
+		int hash;
+
+		// refers to the ids array[ start <= i < end ], without copying them.
+		Key set(int[] array, int start, int end) {
+			this.array = array;
+			this.start = start;
+			this.end = end;
+			int h = end - start;
+			for ( int i = start; i < end; i++ )
+				h = 31 * h + array[i];
+			// spreads the bits, so that lists differing only in their last ids fall in different buckets.
+			hash = h ^ (h >>> 16);
+			return this;
+		}
+
+		// returns a Key holding a copy of the ids.
+		Key copy() {
+			Key key = new Key();
+			key.array = Arrays.copyOfRange(array, start, end);
+			key.start = 0;
+			key.end = end - start;
+			key.hash = hash;
+			return key;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			Key key = (Key)other;
+			return hash == key.hash && Arrays.equals(array, start, end, key.array, key.start, key.end);
+		}
+	}
+
+	// the entries of the keys of a stripe, in access order (the eldest entry is the least recently used one), and their estimated memory.
+	private static class Stripe {
+		final LinkedHashMap<Key,String> entries = new LinkedHashMap<Key,String>(16, 0.75f, true);
+		long bytes;
+	}
+
+	// the number of bits of the hash choosing the stripe of a key (the cache has 2^stripeBits stripes).
+	private static final int stripeBits = 4;
+	// the estimated memory of an entry besides its ids and the characters of its columns (the Key, the String and the entry of the map).
+	private static final int entryOverhead = 128;
+
+	private final long maximumBytesPerStripe;
+	private final int insertAbove;
+	private final Stripe[] stripes = new Stripe[1 << stripeBits];
+	// the hashes of the recipient lists missed once and not inserted, each one in the slot given by its lowest bits, with its lowest
+	// bit set (the same for all the hashes of a slot), so that no hash matches an empty slot (0).
+	private final AtomicIntegerArray seen;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an empty cache holding the statistical values of recipient lists using an estimated maximumBytes of memory at most.
+     *
+     * @param insertAbove the number of recipients from which a list is inserted the first time it is missed, instead of the second.
+     *
+     */
+	RecipientStatsCache(long maximumBytes, int insertAbove) {
+		this.maximumBytesPerStripe = Math.max(1, maximumBytes >> stripeBits);
+		this.insertAbove = insertAbove;
+		for ( int s = 0; s < stripes.length; s++ )
+			stripes[s] = new Stripe();
+		// about one slot per 64 bytes of entries (an entry uses more), between 2^10 and 2^22 slots.
+		int slots = Integer.highestOneBit((int)Math.max(1 << 10, Math.min(1 << 22, maximumBytes / 64)));
+		this.seen = new AtomicIntegerArray(slots);
+	}
+
+	// returns the stripe of a key, chosen by the highest bits of its hash (the slot of seen is chosen by the lowest ones).
+	private Stripe stripeOf(Key key) {
+		return stripes[key.hash >>> (32 - stripeBits)];
+	}
+
+	// returns the estimated memory of an entry of size ids.
+	private static long entryBytes(int size, String columns) {
+		return 4L * size + 2L * columns.length() + entryOverhead;
+	}
+
+    /**
+     * Returns the columns of the statistical values of the recipient list key, or null if they are not in the cache.
+     * Counts a hit or a miss.
+     *
+     */
+	String get(Key key) {
+		Stripe stripe = stripeOf(key);
+		String columns;
+		synchronized (stripe) {
+			columns = stripe.entries.get(key);
+		}
+		if (columns != null)
+			hits.increment();
+		else
+			misses.increment();
+		return columns;
+	}
+
+    /**
+     * Returns whether the columns of a missed recipient list should be inserted: if it has at least insertAbove recipients, or if it
+     * was missed before (and its hash is still remembered). Otherwise remembers its hash.
+     *
+     */
+	boolean admits(Key key) {
+		if (key.end - key.start >= insertAbove)
+			return true;
+		int remembered = key.hash | 1;
+		return seen.getAndSet(key.hash & (seen.length() - 1), remembered) == remembered;
+	}
+
+    /**
+     * Stores the columns of the statistical values of the recipient list key (copying its ids), evicting the least recently used
+     * lists of its stripe while the stripe uses more than its share of the memory. A list larger than that share is not stored.
+     *
+     */
+	void put(Key key, String columns) {
+		long bytes = entryBytes(key.end - key.start, columns);
+		if (bytes > maximumBytesPerStripe)
+			return;
+		Key copy = key.copy();
+		Stripe stripe = stripeOf(key);
+		synchronized (stripe) {
+			String previous = stripe.entries.put(copy, columns);
+			if (previous != null)
+				stripe.bytes -= entryBytes(copy.end, previous);
+			stripe.bytes += bytes;
+			for ( Iterator<Map.Entry<Key,String>> it = stripe.entries.entrySet().iterator(); stripe.bytes > maximumBytesPerStripe; ) {
+				Map.Entry<Key,String> eldest = it.next();
+				stripe.bytes -= entryBytes(eldest.getKey().end, eldest.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	long getHits() {
+		return hits.sum();
+	}
+
+	long getMisses() {
+		return misses.sum();
+	}
+
+    /**
+     * Returns the number of recipient lists in the cache.
+     *
+     */
+	int size() {
+		int size = 0;
+		for ( Stripe stripe : stripes )
+			synchronized (stripe) {
+				size += stripe.entries.size();
+			}
+		return size;
+	}
+
+    /**
+     * Returns the estimated memory used by the entries of the cache, in bytes.
+     *
+     */
+	long getBytes() {
+		long bytes = 0;
+		for ( Stripe stripe : stripes )
+			synchronized (stripe) {
+				bytes += stripe.bytes;
+			}
+		return bytes;
+	}
+
+    /**
+     * Returns the fraction of the lookups that were hits (0 if there was none).
+     *
+     */
+	float getHitRate() {
+		long hits = getHits();
+		long misses = getMisses();
+		return (hits + misses == 0 ? 0 : (float)hits / (hits + misses));
+	}
+
+}
@@ -0,0 +1,191 @@
+
+/*******************
+
+This class detects the rows (email identifier, email address, role) of a CSV file that repeat a previous row, so that exporters
+re-emitting the same rows do not inflate the weights of the edges (and do not add the sender of an email twice), while the file
+is read as a stream, in a single pass.
+
+The rows of an email are usually consecutive in a file: each run of consecutive rows of the same email is checked exactly against
+a small set of the rows already seen in the run, which is emptied when the email changes. Rows repeated across runs (an email
+appearing again later in the file, or in another shard) are detected by a Bloom filter of all the rows read, shared by all readers.
+
+A second Bloom filter of the emails is a fast path for a single reader: the email of a run that was never seen before cannot have
+its rows in the filter of rows, so they are not checked against it, and a row can only be wrongly dropped (with the chosen probability
+of false positive) if its email was split in several runs or the email itself is a false positive.
+When several readers were created (e.g. for shards read at the same time), 2 runs of the same email may be read at the same time, each
+one starting before the other has added its rows, so every row is checked against the filter of rows, and any row may be wrongly
+dropped with the chosen probability.
+
+Rows are identified by 64-bit hashes of their fields. The field "?" (e.g. a timestamp) is not part of the row.
+
+*******************/
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RowDeduplicator {
+
+	private final BloomFilter rows;
+	private final BloomFilter emails;
+	private final AtomicLong droppedRows = new AtomicLong();
+	// the number of readers created: with more than one, the filter of emails is not used.
+	private final AtomicInteger numberOfReaders = new AtomicInteger();
+
+    /**
+     * @param expectedNumberOfRows the number of rows expected to be read (e.g. estimated by InputEstimate).
+     *
+     * @param falsePositiveRate the probability of a row being wrongly reported as repeated when its email was seen in a previous run
+     * (or, with several readers, of any row).
+     *
+     */
+	RowDeduplicator(long expectedNumberOfRows, double falsePositiveRate) {
+		rows = new BloomFilter(expectedNumberOfRows, falsePositiveRate);
+		// the emails are far fewer than the rows, so their filter gets a lower rate for the same memory.
+		emails = new BloomFilter(Math.max(1, expectedNumberOfRows / 4), falsePositiveRate);
+	}
+
+    /**
+     * Returns a new reader of rows, that must be used by a single Thread reading one file (or one shard) in order.
+     *
+     */
+	Reader newReader() {
+		numberOfReaders.incrementAndGet();
+		return new Reader();
+	}
+
+    /**
+     * Returns the number of rows reported as repeated by all readers.
+     *
+     */
+	long droppedRows() {
+		return droppedRows.get();
+	}
+
+    /**
+     * Returns the number of bytes of the Bloom filters.
+     *
+     */
+	long sizeInBytes() {
+		return rows.sizeInBytes() + emails.sizeInBytes();
+	}
+
+    /**
+     * Returns the 64-bit hash of the Strings of a row read by GraphBuilder.BuildGraphFromCSV.
+     *
+     */
+	static long hashOfRow(long emailHash, String address, String role) {
+		return mix(mix(emailHash ^ hash(address)) + hash(role));
+	}
+
+    /**
+     * Returns the 64-bit hash of the fields of a row in bytes, each field given by its start and end (exclusive).
+     *
+     */
+	static long hashOfRow(long emailHash, byte[] bytes, int addressStart, int addressEnd, int roleStart, int roleEnd) {
+		return mix(mix(emailHash ^ HyperLogLog.hash(bytes, addressStart, addressEnd - addressStart))
+				+ HyperLogLog.hash(bytes, roleStart, roleEnd - roleStart));
+	}
+
+	// FNV-1a over the chars of a String, mixed as in HyperLogLog.hash.
+	static long hash(String s) {
+		long h = 0xCBF29CE484222325L;
+		for ( int i = 0; i < s.length(); i++ )
+			h = (h ^ s.charAt(i)) * 0x100000001B3L;
+		return mix(h);
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	// the state of a single stream of rows: the email of the current run and the hashes of its rows, in an open-addressing table
+	// whose used slots are remembered so that it is emptied in time proportional to the size of the run.
+	class Reader {
+
+		private long currentEmail;
+		private boolean started = false;
+		// whether the email of the current run may have been seen in a previous run (of this reader, or of another one that had already
+		// started it).
+		private boolean seenBefore;
+		private long[] table = new long[16];
+		private boolean[] used = new boolean[16];
+		private int[] usedSlots = new int[16];
+		private int size = 0;
+
+	    /**
+	     * Returns whether a row is a repetition of a previous one, and records it otherwise.
+	     *
+	     * @param emailHash the hash of the email identifier of the row.
+	     *
+	     * @param rowHash the hash of the row (see hashOfRow).
+	     *
+	     */
+		boolean isDuplicate(long emailHash, long rowHash) {
+			if (!started || emailHash != currentEmail) {
+				clear();
+				started = true;
+				currentEmail = emailHash;
+				seenBefore = emails.add(emailHash);
+			}
+			if (!addToRun(rowHash)) {
+				droppedRows.incrementAndGet();
+				return true;
+			}
+			// the row is new in this run: it can only repeat a row of another run of the same email, which may be read at the same time
+			// by another reader even if the email was not seen when this run started.
+			if (rows.add(rowHash) && (seenBefore || numberOfReaders.get() > 1)) {
+				droppedRows.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+
+		// adds the hash to the set of the current run, returning false if it was already there.
+		private boolean addToRun(long rowHash) {
+			if (2 * (size + 1) > table.length)
+				grow();
+			int mask = table.length - 1;
+			for ( int slot = (int)rowHash & mask; ; slot = (slot + 1) & mask ) {
+				if (!used[slot]) {
+					used[slot] = true;
+					table[slot] = rowHash;
+					usedSlots[size++] = slot;
+					return true;
+				}
+				if (table[slot] == rowHash)
+					return false;
+			}
+		}
+
+		private void grow() {
+			long[] hashes = new long[size];
+			for ( int i = 0; i < size; i++ )
+				hashes[i] = table[usedSlots[i]];
+			table = new long[table.length * 2];
+			used = new boolean[table.length];
+			usedSlots = new int[table.length];
+			size = 0;
+			for ( long h : hashes )
+				addToRun(h);
+		}
+
+		private void clear() {
+			for ( int i = 0; i < size; i++ )
+				used[usedSlots[i]] = false;
+			size = 0;
+			// a very large run does not keep its table for the following small ones.
+			if (table.length > 1024) {
+				table = new long[16];
+				used = new boolean[16];
+				usedSlots = new int[16];
+			}
+		}
+
+	}
+
+}
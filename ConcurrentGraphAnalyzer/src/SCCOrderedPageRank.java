@@ -0,0 +1,202 @@
+
+/*******************
+
+This class provides a Runnable that calculates one of the 6 types of centrality specified at centralityType.java over a CompactGraph,
+processing the strongly connected components (SCCs) of its dependency graph in topological order.
+
+Once all the components a component depends on are solved, the centralities it reads from them are final, so:
+1) a component of 1 Node is solved in a single evaluation of the recursive formula (or in closed form if the Node depends on itself),
+2) a small component is solved by sweeping over its Nodes until convergence,
+3) a large component (at least largeComponentSize Nodes) is solved by all Threads sweeping over disjoint subsets of its Nodes.
+
+The components are processed in levels: a component is in level k if the longest chain of components it depends on has length k.
+All the components in the same level are independent of each other and are solved in parallel.
+
+The sweeps over a component stop either: 1) after a specified number of iterations, or
+                                          2) when the mean relative improvement on centrality over the component is lower or equal
+                                             to a specified value for a specified number of consecutive sweeps.
+
+*******************/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SCCOrderedPageRank implements Runnable {
+
+	// components with at least this number of Nodes are solved by all Threads together.
+	static final int largeComponentSize = 10000;
+
+	CompactGraph graph;
+	int numberOfConcurrentThreads;
+	int numberOfIterations;
+	int consecutiveMinimalImprovementsOnCentralityToStop;
+	float minimalImprovementOnCentralityToStop;
+	float DampingFactor;
+	float neighborCentralityDampingFactor;
+	float neighborCentralityBias;
+	String name; //the name of the instance of SCCOrderedPageRank to be printed in the Console.
+	centralityType type;
+
+	SCCOrderedPageRank (centralityType type, CompactGraph graph, int numberOfConcurrentThreads, int numberOfIterations,
+			int consecutiveMinimalImprovementsOnCentralityToStop, float minimalImprovementOnCentralityToStop, float DampingFactor,
+			float neighborCentralityDampingFactor, float neighborCentralityBias, String name) {
+		this.type = type;
+		this.graph = graph;
+		this.numberOfConcurrentThreads = numberOfConcurrentThreads;
+		this.numberOfIterations = numberOfIterations;
+		this.consecutiveMinimalImprovementsOnCentralityToStop = consecutiveMinimalImprovementsOnCentralityToStop;
+		this.minimalImprovementOnCentralityToStop = minimalImprovementOnCentralityToStop;
+		this.DampingFactor = DampingFactor;
+		this.neighborCentralityDampingFactor = neighborCentralityDampingFactor;
+		this.neighborCentralityBias = neighborCentralityBias;
+		this.name = name;
+	}
+
+	@Override
+	public void run() {
+		long startTime = System.currentTimeMillis();
+		TransitionMatrix matrix = TransitionMatrix.build(graph, type, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias,
+				numberOfConcurrentThreads);
+		StronglyConnectedComponents components = new StronglyConnectedComponents(matrix, numberOfConcurrentThreads);
+		System.out.println(name+" Thread) found "+components.numberOfComponents+" strongly connected components ("+
+				components.numberOfTrimmedNodes+" Nodes trimmed) in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+
+		float[] x = graph.getCentrality(type).clone();
+		solve(matrix, components, x);
+		graph.setCentrality(type, x);
+		System.out.println(name+" Thread) finished in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+	}
+
+    /**
+     * Solves the components level by level, starting from and writing the results in x.
+     *
+     * @param matrix the linear system whose solution is calculated.
+     *
+     * @param components the SCCs of the dependency graph of matrix.
+     *
+     * @param x the initial centralities, indexed by id. It is overwritten with the calculated centralities.
+     *
+     */
+	void solve(TransitionMatrix matrix, StronglyConnectedComponents components, float[] x) {
+		int threads = Math.max(1, numberOfConcurrentThreads);
+		int numberOfComponents = components.numberOfComponents;
+		int[] component = components.component;
+
+		// the number of entries each component reads from other components that were not solved yet.
+		AtomicIntegerArray pending = new AtomicIntegerArray(numberOfComponents);
+		for ( int p = 0; p < matrix.size; p++ )
+			for ( int i = matrix.pullOffsets[p]; i < matrix.pullOffsets[p+1]; i++ )
+				if (component[matrix.pullIds[i]] != component[p])
+					pending.incrementAndGet(component[p]);
+
+		IntList level = new IntList();
+		for ( int c = 0; c < numberOfComponents; c++ )
+			if (pending.get(c) == 0)
+				level.add(c);
+
+		AtomicLong totalSweeps = new AtomicLong();
+		int maximumSweeps = 0;
+		int numberOfLevels = 0;
+		int solvedInOneEvaluation = 0;
+		while (level.size > 0) {
+			numberOfLevels++;
+
+			// the large components of this level are solved one at a time by all Threads, and the others by one Thread each.
+			IntList small = new IntList();
+			for ( int a = 0; a < level.size; a++ ) {
+				int c = level.data[a];
+				if (components.size(c) >= largeComponentSize) {
+					int sweeps = solveLarge(matrix, components, c, x, threads);
+					totalSweeps.addAndGet(sweeps);
+					maximumSweeps = Math.max(maximumSweeps, sweeps);
+				}
+				else {
+					small.add(c);
+					if (components.size(c) == 1)
+						solvedInOneEvaluation++;
+				}
+			}
+			int[] partialMaximum = new int[threads];
+			ParallelRange.run(threads, small.size, (part, start, end) -> {
+				for ( int a = start; a < end; a++ ) {
+					int sweeps = solveSmall(matrix, components, small.data[a], x);
+					totalSweeps.addAndGet(sweeps);
+					partialMaximum[part] = Math.max(partialMaximum[part], sweeps);
+				}
+			});
+			for ( int m : partialMaximum )
+				maximumSweeps = Math.max(maximumSweeps, m);
+
+			// the components depending only on solved components form the next level.
+			IntList current = level;
+			IntList[] nextLevels = new IntList[threads];
+			ParallelRange.run(threads, current.size, (part, start, end) -> {
+				IntList next = new IntList();
+				for ( int a = start; a < end; a++ ) {
+					int c = current.data[a];
+					for ( int m = components.memberOffsets[c]; m < components.memberOffsets[c+1]; m++ ) {
+						int q = components.members[m];
+						for ( int i = matrix.pushOffsets[q]; i < matrix.pushOffsets[q+1]; i++ ) {
+							int target = component[matrix.pushIds[i]];
+							if (target != c && pending.decrementAndGet(target) == 0)
+								next.add(target);
+						}
+					}
+				}
+				nextLevels[part] = next;
+			});
+			level = IntList.concatenate(nextLevels);
+		}
+
+		System.out.println(name+" Thread) solved "+numberOfComponents+" components in "+numberOfLevels+" levels ("+solvedInOneEvaluation+
+				" in a single evaluation). Total sweeps: "+totalSweeps.get()+", maximum sweeps over a component: "+maximumSweeps+".");
+	}
+
+    /**
+     * Solves a component with one Thread. Returns the number of sweeps done over it.
+     *
+     */
+	private int solveSmall(TransitionMatrix matrix, StronglyConnectedComponents components, int c, float[] x) {
+		return matrix.solveRows(components.members, components.memberOffsets[c], components.memberOffsets[c+1], x, numberOfIterations,
+				consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop);
+	}
+
+    /**
+     * Solves a component with all Threads, each one sweeping over a disjoint subset of its Nodes.
+     * Returns the number of sweeps done over it.
+     *
+     */
+	private int solveLarge(TransitionMatrix matrix, StronglyConnectedComponents components, int c, float[] x, int threads) {
+		int start = components.memberOffsets[c];
+		int size = components.size(c);
+		float[] next = new float[size];
+		double[] partialImprovement = new double[threads];
+
+		int sweeps = 0;
+		int numberOfConsecutiveMinimalImprovements = 0;
+		while ( sweeps != numberOfIterations && numberOfConsecutiveMinimalImprovements < consecutiveMinimalImprovementsOnCentralityToStop ) {
+			sweeps++;
+			ParallelRange.run(threads, size, (part, from, to) -> {
+				double improvement = 0;
+				for ( int m = from; m < to; m++ ) {
+					int p = components.members[start + m];
+					next[m] = matrix.pull(p, x);
+					improvement += (x[p] != 0 ? Math.abs(next[m] / x[p] - 1) : 0);
+				}
+				partialImprovement[part] = improvement;
+			});
+			for ( int m = 0; m < size; m++ )
+				x[components.members[start + m]] = next[m];
+
+			double improvement = Arrays.stream(partialImprovement).sum() / size;
+			System.out.println(name+") component of "+size+" Nodes, sweep "+sweeps+") Mean relative improvement on centrality: "+(float)improvement);
+			if (improvement <= minimalImprovementOnCentralityToStop)
+				numberOfConsecutiveMinimalImprovements++;
+			else
+				numberOfConsecutiveMinimalImprovements = 0;
+		}
+		return sweeps;
+	}
+
+}
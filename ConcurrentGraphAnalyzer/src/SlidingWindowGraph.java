@@ -0,0 +1,265 @@
+
+/*******************
+
+This class maintains the graph of the emails sent during a window of time [windowStart, windowEnd), updated incrementally as the window
+slides forward: the edges of the emails whose time enters the window are added, and the ones of the emails whose time leaves it are removed,
+so that sliding the window by a day costs time proportional to the emails of that day instead of the emails of the whole window.
+
+The edges are kept in an open-addressing hash table from (source * number of addresses + destination) to their weight (the number of emails
+of the window sent through them), and the addresses taking part in the window in a list, from which a CompactGraph of the window is built
+when needed. The Nodes of that graph are the addresses taking part in at least one email of the window (as a graph built only from the lines
+of the window would have), in order of their id.
+Building it costs time proportional to the size of the window (its addresses, sorted, and the slots of the table, which shrinks when the
+window gets much smaller), not to the number of addresses of all windows; but it is rebuilt for every window, so ranking a window costs at
+least the size of the whole window, even when the slide changed only a few emails.
+
+The emails are given by an EmailTable with the time of each email (see EmailRows.readTimestamps); the emails without time are ignored.
+
+*******************/
+
+import java.util.Arrays;
+
+public class SlidingWindowGraph {
+
+	// the number of addresses (ids of the EmailTable) in all windows.
+	int numberOfAddresses;
+	EmailTable table;
+	long[] timeOfEmail;
+	// the emails with a time, sorted by time.
+	private int[] emailsByTime;
+
+	// the window, and the emails inside it: emailsByTime[ firstEmail <= i < nextEmail ].
+	long windowStart = Long.MIN_VALUE;
+	long windowEnd = Long.MIN_VALUE;
+	private int firstEmail = 0;
+	private int nextEmail = 0;
+
+	// the edges of the window, in slots whose weight is 0 when they are empty.
+	private static final int minimalTableLength = 1 << 10;
+	private long[] keys = new long[minimalTableLength];
+	private int[] weights = new int[minimalTableLength];
+	// the number of distinct edges of the window.
+	int numberOfEdges;
+	// the number of emails of the window in which each address takes part, and the number of addresses with at least one.
+	private int[] emailsOfAddress;
+	int numberOfAddressesInWindow;
+	// the addresses with at least one email in the window, in no particular order: addressesInWindow[ i < numberOfAddressesInWindow ],
+	// and the position of each one in that list.
+	private int[] addressesInWindow;
+	private int[] positionOfAddress;
+	// the Node of each address of the window in the last graph returned by toCompactGraph (the other entries are stale).
+	private int[] nodeOfAddress;
+
+	// the address of each Node of the last graph returned by toCompactGraph.
+	int[] addressOfNode;
+
+    /**
+     * @param table the emails, whose ids of addresses are 0 <= id < numberOfAddresses.
+     *
+     * @param timeOfEmail the time of each email (EmailRows.noTime if it has none), indexed by the id of the email.
+     *
+     * @param numberOfAddresses the number of different addresses (e.g. rows.addressDictionary.size()).
+     *
+     */
+	SlidingWindowGraph(EmailTable table, long[] timeOfEmail, int numberOfAddresses) {
+		this.table = table;
+		this.timeOfEmail = timeOfEmail;
+		this.numberOfAddresses = numberOfAddresses;
+		this.emailsOfAddress = new int[numberOfAddresses];
+		this.addressesInWindow = new int[numberOfAddresses];
+		this.positionOfAddress = new int[numberOfAddresses];
+		this.nodeOfAddress = new int[numberOfAddresses];
+
+		// sorts the emails with a time by time (and then id, since the sort is stable).
+		int withTime = 0;
+		long minimalTime = Long.MAX_VALUE;
+		long maximalTime = Long.MIN_VALUE;
+		for ( int e = 0; e < table.numberOfEmails; e++ ) {
+			if (timeOfEmail[e] != EmailRows.noTime) {
+				withTime++;
+				minimalTime = Math.min(minimalTime, timeOfEmail[e]);
+				maximalTime = Math.max(maximalTime, timeOfEmail[e]);
+			}
+		}
+		emailsByTime = new int[withTime];
+		long[] times = new long[withTime];
+		int i = 0;
+		for ( int e = 0; e < table.numberOfEmails; e++ ) {
+			if (timeOfEmail[e] != EmailRows.noTime) {
+				times[i] = timeOfEmail[e] - minimalTime;
+				emailsByTime[i++] = e;
+			}
+		}
+		ParallelRadixSort.sort(times, emailsByTime, withTime, Math.max(maximalTime - minimalTime, 0), 1);
+	}
+
+    /**
+     * Returns the earliest and the latest time of the emails, or null if no email has a time.
+     *
+     */
+	long[] timeRange() {
+		if (emailsByTime.length == 0)
+			return null;
+		long[] range = {timeOfEmail[emailsByTime[0]], timeOfEmail[emailsByTime[emailsByTime.length - 1]]};
+		return range;
+	}
+
+    /**
+     * Returns the number of emails in the window.
+     *
+     */
+	int numberOfEmailsInWindow() {
+		return nextEmail - firstEmail;
+	}
+
+    /**
+     * Moves the window to [start, end), adding the edges of the emails entering it and removing the ones of the emails leaving it.
+     * The window can only move forward: start and end must not be smaller than in the previous call.
+     * Returns the number of emails added and removed.
+     *
+     */
+	int slide(long start, long end) {
+		Assert.check(start >= windowStart && end >= windowEnd, "the window only slides forward");
+		windowStart = start;
+		windowEnd = end;
+		int changes = 0;
+		while ( firstEmail < nextEmail && timeOfEmail[emailsByTime[firstEmail]] < start ) {
+			updateEmail(emailsByTime[firstEmail++], -1);
+			changes++;
+		}
+		// if the window jumped past all its emails, the emails before its start are skipped instead of being added and removed.
+		if (firstEmail == nextEmail) {
+			while ( nextEmail < emailsByTime.length && timeOfEmail[emailsByTime[nextEmail]] < start )
+				nextEmail++;
+			firstEmail = nextEmail;
+		}
+		while ( nextEmail < emailsByTime.length && timeOfEmail[emailsByTime[nextEmail]] < end ) {
+			updateEmail(emailsByTime[nextEmail++], 1);
+			changes++;
+		}
+		return changes;
+	}
+
+	// adds (change = 1) or removes (change = -1) the edges of email e and its addresses.
+	private void updateEmail(int e, int change) {
+		long sender = table.sender(e);
+		for ( int i = table.offsets[e]; i < table.offsets[e+1]; i++ ) {
+			int address = table.members[i];
+			if (emailsOfAddress[address] == 0) {
+				positionOfAddress[address] = numberOfAddressesInWindow;
+				addressesInWindow[numberOfAddressesInWindow++] = address;
+			}
+			emailsOfAddress[address] += change;
+			if (emailsOfAddress[address] == 0) {
+				// moves the last address of the list to the position of the one leaving it.
+				int last = addressesInWindow[--numberOfAddressesInWindow];
+				addressesInWindow[positionOfAddress[address]] = last;
+				positionOfAddress[last] = positionOfAddress[address];
+			}
+			if (i > table.offsets[e])
+				updateEdge(sender * numberOfAddresses + address, change);
+		}
+	}
+
+	// adds change to the weight of an edge, inserting it or deleting it (with backward shifting of the following slots) as needed.
+	private void updateEdge(long key, int change) {
+		if (change > 0 && 2 * (numberOfEdges + 1) > keys.length)
+			resize(keys.length * 2);
+		int mask = keys.length - 1;
+		int slot = slotOf(key, mask);
+		while ( weights[slot] != 0 && keys[slot] != key )
+			slot = (slot + 1) & mask;
+		if (weights[slot] == 0) {
+			Assert.check(change > 0, "removing an edge of the window");
+			keys[slot] = key;
+			numberOfEdges++;
+		}
+		weights[slot] += change;
+		if (weights[slot] > 0)
+			return;
+
+		// the edge left the window: shifts back the following slots whose position would not be reachable anymore.
+		numberOfEdges--;
+		int empty = slot;
+		for ( int next = (empty + 1) & mask; weights[next] != 0; next = (next + 1) & mask ) {
+			int home = slotOf(keys[next], mask);
+			// whether home is cyclically outside (empty, next].
+			if (((next - home) & mask) >= ((next - empty) & mask)) {
+				keys[empty] = keys[next];
+				weights[empty] = weights[next];
+				weights[next] = 0;
+				empty = next;
+			}
+		}
+		// the table shrinks when less than 1/8 of it is used, so that its slots stay proportional to the edges of the window.
+		if (keys.length > minimalTableLength && 8 * numberOfEdges < keys.length)
+			resize(keys.length / 2);
+	}
+
+	private void resize(int length) {
+		long[] oldKeys = keys;
+		int[] oldWeights = weights;
+		keys = new long[length];
+		weights = new int[length];
+		int mask = keys.length - 1;
+		for ( int i = 0; i < oldKeys.length; i++ ) {
+			if (oldWeights[i] == 0)
+				continue;
+			int slot = slotOf(oldKeys[i], mask);
+			while ( weights[slot] != 0 )
+				slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			weights[slot] = oldWeights[i];
+		}
+	}
+
+	private static int slotOf(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h >>> 32) & mask;
+	}
+
+    /**
+     * Builds a CompactGraph of the window, whose Nodes are the addresses taking part in its emails (the address of Node p being
+     * addressOfNode[p]), and whose edges have as weight the number of emails of the window sent through them.
+     *
+     * @param initialCentrality the initial value of the centralities.
+     *
+     * @param numberOfConcurrentThreads the number of Threads building it.
+     *
+     */
+	CompactGraph toCompactGraph(float initialCentrality, int numberOfConcurrentThreads) {
+		// the Nodes are the addresses of the window in order of their id.
+		int n = numberOfAddressesInWindow;
+		addressOfNode = Arrays.copyOf(addressesInWindow, n);
+		Arrays.sort(addressOfNode);
+		for ( int p = 0; p < n; p++ )
+			nodeOfAddress[addressOfNode[p]] = p;
+
+		// the edges of the window, renumbered. Each Thread copies the edges of its slots to the positions counted before it.
+		long nodes = n;
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, keys.length >> 10));
+		int[] firstEdgeOfPart = new int[threads + 1];
+		ParallelRange.run(threads, keys.length, (part, start, end) -> {
+			int count = 0;
+			for ( int i = start; i < end; i++ )
+				if (weights[i] != 0)
+					count++;
+			firstEdgeOfPart[part+1] = count;
+		});
+		for ( int part = 0; part < threads; part++ )
+			firstEdgeOfPart[part+1] += firstEdgeOfPart[part];
+		long[] edges = new long[numberOfEdges];
+		int[] edgeWeights = new int[numberOfEdges];
+		ParallelRange.run(threads, keys.length, (part, start, end) -> {
+			int j = firstEdgeOfPart[part];
+			for ( int i = start; i < end; i++ ) {
+				if (weights[i] != 0) {
+					edges[j] = nodeOfAddress[(int)(keys[i] / numberOfAddresses)] * nodes + nodeOfAddress[(int)(keys[i] % numberOfAddresses)];
+					edgeWeights[j++] = weights[i];
+				}
+			}
+		});
+		return CompactGraph.fromWeightedEdges(n, edges, edgeWeights, numberOfEdges, initialCentrality, numberOfConcurrentThreads);
+	}
+
+}
@@ -0,0 +1,173 @@
+
+/*******************
+
+This class calculates the centralities of the Nodes over windows of time sliding over the emails (e.g. windows of 30 days
+sliding by 1 day), instead of over the whole graph.
+
+The graph of each window is maintained incrementally by a SlidingWindowGraph, and the centralities of each window are calculated by
+PushPullPageRank (one Thread per type of centrality, as in the main function) warm-started from the centralities of the previous window:
+each address starts from its centrality in the last window in which it took part (or from the initial centrality if it never did).
+Consecutive windows share most of their emails, so the first iteration is already close to the solution, and the following ones are
+mostly PUSH iterations over the few Nodes whose centrality still changes.
+
+The centralities of each window are written to a CSV file of the form "window start, email address, centralities (in the order of
+centralityType.java)", one line per address taking part in the window.
+
+If runTests is true, the centralities of the first warm-started window are also calculated from the initial centrality, and the largest
+relative difference between both is printed in the Console and checked to be small.
+
+*******************/
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+
+public class SlidingWindowPageRank {
+
+	SlidingWindowGraph graph;
+	AddressDictionary addressDictionary;
+	// the types of centrality calculated, in the order of centralityType.java.
+	centralityType[] types;
+	int numberOfConcurrentThreads;
+	int numberOfIterations;
+	int consecutiveMinimalImprovementsOnCentralityToStop;
+	float minimalImprovementOnCentralityToStop;
+	float DampingFactor;
+	float neighborCentralityDampingFactor;
+	float neighborCentralityBias;
+	float initialCentrality;
+	boolean runTests;
+
+	// whether a window with Nodes was already ranked (so the next ones are warm-started), and whether the test was already run.
+	private boolean warmStarted = false;
+	private boolean tested = false;
+
+	// the centrality of each address (indexed by the type of centrality and then by the id of the address) in the last window
+	// in which it took part, from which the next windows are warm-started.
+	float[][] centrality;
+
+	SlidingWindowPageRank (SlidingWindowGraph graph, AddressDictionary addressDictionary, centralityType[] types, int numberOfConcurrentThreads,
+			int numberOfIterations, int consecutiveMinimalImprovementsOnCentralityToStop, float minimalImprovementOnCentralityToStop,
+			float DampingFactor, float neighborCentralityDampingFactor, float neighborCentralityBias, float initialCentrality, boolean runTests) {
+		this.graph = graph;
+		this.addressDictionary = addressDictionary;
+		this.types = types;
+		this.numberOfConcurrentThreads = numberOfConcurrentThreads;
+		this.numberOfIterations = numberOfIterations;
+		this.consecutiveMinimalImprovementsOnCentralityToStop = consecutiveMinimalImprovementsOnCentralityToStop;
+		this.minimalImprovementOnCentralityToStop = minimalImprovementOnCentralityToStop;
+		this.DampingFactor = DampingFactor;
+		this.neighborCentralityDampingFactor = neighborCentralityDampingFactor;
+		this.neighborCentralityBias = neighborCentralityBias;
+		this.initialCentrality = initialCentrality;
+		this.runTests = runTests;
+
+		centrality = new float[centralityType.values().length][];
+		for ( centralityType type : types ) {
+			centrality[type.ordinal()] = new float[graph.numberOfAddresses];
+			Arrays.fill(centrality[type.ordinal()], initialCentrality);
+		}
+	}
+
+    /**
+     * Slides the window to [windowStart, windowStart + windowLength) and calculates the centralities of its Nodes, warm-started from
+     * the previous windows. Returns the CompactGraph of the window, whose Node p is the address graph.addressOfNode[p].
+     *
+     */
+	CompactGraph rank(long windowStart, long windowLength) throws InterruptedException {
+		long startTime = System.currentTimeMillis();
+		int changes = graph.slide(windowStart, windowStart + windowLength);
+		CompactGraph window = graph.toCompactGraph(initialCentrality, numberOfConcurrentThreads);
+		int[] addressOfNode = graph.addressOfNode;
+
+		Thread[] rankers = new Thread[types.length];
+		for ( int t = 0; t < types.length; t++ ) {
+			centralityType type = types[t];
+			float[] previous = centrality[type.ordinal()];
+			float[] x = new float[window.numberOfNodes];
+			for ( int p = 0; p < window.numberOfNodes; p++ )
+				x[p] = previous[addressOfNode[p]];
+			window.setCentrality(type, x);
+			rankers[t] = new Thread( new PushPullPageRank (type, window, numberOfConcurrentThreads, numberOfIterations,
+					consecutiveMinimalImprovementsOnCentralityToStop, minimalImprovementOnCentralityToStop, DampingFactor,
+					neighborCentralityDampingFactor, neighborCentralityBias, "Window "+windowStart+" "+type) );
+		}
+		// starts all ranker threads at the same time, and waits for all of them to be finished.
+		for ( Thread ranker : rankers )
+			ranker.start();
+		for ( Thread ranker : rankers )
+			ranker.join();
+		if (runTests && warmStarted && !tested && window.numberOfNodes > 0) {
+			tested = true;
+			testWarmStart(window, windowStart);
+		}
+		warmStarted |= (window.numberOfNodes > 0);
+
+		for ( centralityType type : types ) {
+			float[] values = window.getCentrality(type);
+			float[] last = centrality[type.ordinal()];
+			for ( int p = 0; p < window.numberOfNodes; p++ )
+				last[addressOfNode[p]] = values[p];
+		}
+		System.out.println("Window starting at "+windowStart+": "+graph.numberOfEmailsInWindow()+" emails ("+changes+" entered or left), "+
+				window.numberOfNodes+" nodes and "+window.totalNumberOfEdges+" edges, ranked in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+		return window;
+	}
+
+    /**
+     * Calculates the centralities of a window again, starting from the initial centrality, and checks that they are close to the
+     * warm-started ones.
+     *
+     */
+	private void testWarmStart(CompactGraph window, long windowStart) {
+		for ( centralityType type : types ) {
+			TransitionMatrix matrix = TransitionMatrix.build(window, type, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias,
+					numberOfConcurrentThreads);
+			float[] expected = new float[window.numberOfNodes];
+			Arrays.fill(expected, initialCentrality);
+			new PushPullPageRank(type, window, numberOfConcurrentThreads, numberOfIterations, consecutiveMinimalImprovementsOnCentralityToStop,
+					minimalImprovementOnCentralityToStop, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias,
+					"Window "+windowStart+" "+type+" test").solve(matrix, expected);
+			float[] x = window.getCentrality(type);
+			float maximalDifference = 0;
+			for ( int p = 0; p < x.length; p++ )
+				maximalDifference = Math.max(maximalDifference, Math.abs(x[p] / expected[p] - 1));
+			System.out.println("Window starting at "+windowStart+", "+type+": maximal relative difference between the warm-started "+
+					"centralities and the ones calculated from the initial centrality: "+maximalDifference);
+			Assert.check(maximalDifference <= DistributedPageRank.toleranceOfTests, "warm-started centrality equal to centrality from the start");
+		}
+	}
+
+    /**
+     * Calculates the centralities of the windows [start, start + windowLength) for start = firstWindowStart, firstWindowStart + slide, ...
+     * up to lastWindowStart, and writes them to a CSV file whose name is additionalFileName followed by the date and time it was created.
+     *
+     */
+	void run(long firstWindowStart, long lastWindowStart, long windowLength, long slide, String additionalFileName) {
+		long startTime = System.currentTimeMillis();
+		int numberOfWindows = 0;
+		String timeLog = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(Calendar.getInstance().getTime());
+		File logFile = new File(additionalFileName + timeLog);
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(logFile))) {
+			System.out.println("File created on path: "+logFile.getCanonicalPath());
+			for ( long windowStart = firstWindowStart; windowStart <= lastWindowStart; windowStart += slide ) {
+				CompactGraph window = rank(windowStart, windowLength);
+				for ( int p = 0; p < window.numberOfNodes; p++ ) {
+					writer.write(windowStart+","+addressDictionary.getAddress(graph.addressOfNode[p]));
+					for ( centralityType type : types )
+						writer.write(","+window.getCentrality(type)[p]);
+					writer.newLine();
+				}
+				numberOfWindows++;
+			}
+		} catch (IOException | InterruptedException e) {
+			e.printStackTrace();
+		}
+		System.out.println("Ranked "+numberOfWindows+" windows in "+(System.currentTimeMillis() - startTime)+" miliseconds.");
+	}
+
+}
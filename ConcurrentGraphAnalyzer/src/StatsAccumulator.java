@@ -0,0 +1,187 @@
+
+/*******************
+
+This class accumulates values one at a time, and gives their mean, standard deviation and harmonic mean without storing them:
+ - the mean and the sum of the squared deviations from it are updated by Welford's method, which does not lose precision as the naive
+   sum of squares does when the deviations are small compared to the values,
+ - the sum of the reciprocals of the values is kept for the harmonic mean (which is 0 if any value is 0, as in getStatsFromCollection).
+
+Accumulators of parts of the values (e.g. one per Thread) can be merged into the accumulator of all of them, with the same results
+(up to rounding) as if all the values had been added to a single accumulator.
+The accumulator of a range of an array is calculated from its sums (see StatsKernels.java), in 2 faster passes instead of one division
+per value.
+
+The median and the mean absolute deviation cannot be accumulated this way: the median needs the values (see getStatsFromCollection),
+and the mean absolute deviation needs the mean of all of them before the first deviation can be summed.
+
+*******************/
+
+public class StatsAccumulator {
+
+	long count;
+	double mean;
+	// the sum of the squared deviations from the mean.
+	double sumOfSquaredDeviations;
+	double sumOfReciprocals;
+	boolean hasZero;
+
+    /**
+     * Adds a value.
+     *
+     */
+	void add(double value) {
+		count++;
+		double deviation = value - mean;
+		mean += deviation / count;
+		sumOfSquaredDeviations += deviation * (value - mean);
+		if (value == 0)
+			hasZero = true;
+		else
+			sumOfReciprocals += 1 / value;
+	}
+
+    /**
+     * Adds all the values added to another accumulator, as if they had been added to this one.
+     *
+     */
+	void merge(StatsAccumulator other) {
+		if (other.count == 0)
+			return;
+		long total = count + other.count;
+		double deviation = other.mean - mean;
+		mean += deviation * other.count / total;
+		sumOfSquaredDeviations += other.sumOfSquaredDeviations + deviation * deviation * ((double)count * other.count / total);
+		count = total;
+		sumOfReciprocals += other.sumOfReciprocals;
+		hasZero |= other.hasZero;
+	}
+
+    /**
+     * Removes all the values, so that the accumulator can be reused.
+     *
+     */
+	void clear() {
+		count = 0;
+		mean = 0;
+		sumOfSquaredDeviations = 0;
+		sumOfReciprocals = 0;
+		hasZero = false;
+	}
+
+    /**
+     * Returns the mean of the values (NaN if there is none).
+     *
+     */
+	double getMean() {
+		return (count == 0 ? Double.NaN : mean);
+	}
+
+    /**
+     * Returns the standard deviation of the values: sqrt( mean( (x[i] - mean(x[i]))² ) ) (NaN if there is none).
+     *
+     */
+	double getStandardDeviation() {
+		return Math.sqrt(sumOfSquaredDeviations / count);
+	}
+
+    /**
+     * Returns the harmonic mean of the values (0 if any of them is 0, NaN if there is none).
+     *
+     */
+	double getHarmonicMean() {
+		if (hasZero)
+			return 0;
+		return count / sumOfReciprocals;
+	}
+
+    /**
+     * Returns an accumulator of the values arr[ start <= i < end ].
+     *
+     */
+	static StatsAccumulator of(float[] arr, int start, int end) {
+		if (end <= start)
+			return new StatsAccumulator();
+		double mean = StatsKernels.sum(arr, start, end) / (end - start);
+		double sumOfReciprocals = StatsKernels.sumOfReciprocals(arr, start, end);
+		boolean hasZero = false;
+		if (!Double.isFinite(sumOfReciprocals))
+			for ( int i = start; i < end && !hasZero; i++ )
+				hasZero = (arr[i] == 0);
+		return fromSums(end - start, mean, StatsKernels.sumOfSquaredDeviations(arr, start, end, mean), sumOfReciprocals, hasZero);
+	}
+
+    /**
+     * Returns an accumulator of the values arr[ start <= i < end ].
+     *
+     */
+	static StatsAccumulator of(int[] arr, int start, int end) {
+		if (end <= start)
+			return new StatsAccumulator();
+		double mean = (double)StatsKernels.sum(arr, start, end) / (end - start);
+		double sumOfReciprocals = StatsKernels.sumOfReciprocals(arr, start, end);
+		boolean hasZero = false;
+		if (!Double.isFinite(sumOfReciprocals))
+			for ( int i = start; i < end && !hasZero; i++ )
+				hasZero = (arr[i] == 0);
+		return fromSums(end - start, mean, StatsKernels.sumOfSquaredDeviations(arr, start, end, mean), sumOfReciprocals, hasZero);
+	}
+
+    /**
+     * Returns an accumulator of the values arr[ start <= i < end ].
+     *
+     */
+	static StatsAccumulator of(long[] arr, int start, int end) {
+		if (end <= start)
+			return new StatsAccumulator();
+		double mean = StatsKernels.sum(arr, start, end) / (end - start);
+		double sumOfReciprocals = StatsKernels.sumOfReciprocals(arr, start, end);
+		boolean hasZero = false;
+		if (!Double.isFinite(sumOfReciprocals))
+			for ( int i = start; i < end && !hasZero; i++ )
+				hasZero = (arr[i] == 0);
+		return fromSums(end - start, mean, StatsKernels.sumOfSquaredDeviations(arr, start, end, mean), sumOfReciprocals, hasZero);
+	}
+
+    /**
+     * Returns an accumulator of the values arr[ start <= i < end ].
+     *
+     */
+	static StatsAccumulator of(double[] arr, int start, int end) {
+		if (end <= start)
+			return new StatsAccumulator();
+		double mean = StatsKernels.sum(arr, start, end) / (end - start);
+		double sumOfReciprocals = StatsKernels.sumOfReciprocals(arr, start, end);
+		boolean hasZero = false;
+		if (!Double.isFinite(sumOfReciprocals))
+			for ( int i = start; i < end && !hasZero; i++ )
+				hasZero = (arr[i] == 0);
+		return fromSums(end - start, mean, StatsKernels.sumOfSquaredDeviations(arr, start, end, mean), sumOfReciprocals, hasZero);
+	}
+
+	// returns an accumulator of count values from their sums (see StatsKernels).
+	private static StatsAccumulator fromSums(long count, double mean, double sumOfSquaredDeviations, double sumOfReciprocals, boolean hasZero) {
+		StatsAccumulator accumulator = new StatsAccumulator();
+		accumulator.count = count;
+		accumulator.mean = mean;
+		accumulator.sumOfSquaredDeviations = sumOfSquaredDeviations;
+		accumulator.sumOfReciprocals = sumOfReciprocals;
+		accumulator.hasZero = hasZero;
+		return accumulator;
+	}
+
+    /**
+     * Returns an accumulator of all the values of arr, accumulated in parallel: each Thread accumulates a subrange, and their
+     * accumulators are merged in order.
+     *
+     */
+	static StatsAccumulator of(float[] arr, int numberOfConcurrentThreads) {
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(arr.length, 1)));
+		StatsAccumulator[] parts = new StatsAccumulator[threads];
+		ParallelRange.run(threads, arr.length, (part, start, end) -> parts[part] = of(arr, start, end));
+		StatsAccumulator accumulator = new StatsAccumulator();
+		for ( StatsAccumulator part : parts )
+			accumulator.merge(part);
+		return accumulator;
+	}
+
+}
@@ -0,0 +1,653 @@
+
+/*******************
+
+This class has the kernels of the reductions over arrays used by getStatsFromCollection and StatsAccumulator: the sum, the sum of
+the squared deviations and of the absolute deviations from a mean, and the sum of the reciprocals, of arrays of floats, doubles,
+ints and longs.
+
+Each kernel is written as a vector reduction: 8 independent accumulators (lanes) take every 8th value, and are added together at
+the end, so that the additions do not wait for each other (a single accumulator makes each addition wait for the previous one).
+The values of an array are summed in blocks of blockLength values, and the sums of the blocks are added pairwise (recursively
+halving the range), so that the rounding error grows with the logarithm of the length of the array instead of with its length.
+ - the values of float arrays are widened to doubles, and their deviations from the mean calculated and accumulated in doubles, so that
+   they are as precise as the ones of double arrays (float lanes rounded every addition, and every deviation, to 24 bits),
+ - the values of int arrays are summed exactly in a long (no lanes nor blocks are needed), the others in doubles,
+ - the reciprocals of floats, ints and longs are calculated as floats, as before, and summed in doubles.
+Ranges shorter than scalarLength values (e.g. the recipients of most emails) are summed by a single accumulator instead: the lanes
+only pay off once there are enough values to hide their final additions. The lanes are in separate methods (e.g. sumInLanes), so
+that the kernels themselves stay small enough for the JIT to inline them into their callers.
+See bench/StatsKernelsBenchmark.java for the times and the errors of the kernels against plain loops.
+
+*******************/
+
+public class StatsKernels {
+
+	// the number of values summed by the lanes before the sums are added pairwise.
+	private static final int blockLength = 256;
+	// the ranges shorter than this are summed by a single accumulator, faster than the lanes and their final additions for so few values.
+	private static final int scalarLength = 32;
+
+    /**
+     * Returns the sum of arr[ start <= i < end ].
+     *
+     */
+	static double sum(float[] arr, int start, int end) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += arr[i];
+			return s;
+		}
+		return sumInLanes(arr, start, end);
+	}
+
+	// sum over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumInLanes(float[] arr, int start, int end) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumInLanes(arr, start, middle) + sumInLanes(arr, middle, end);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += arr[i];
+			s1 += arr[i+1];
+			s2 += arr[i+2];
+			s3 += arr[i+3];
+			s4 += arr[i+4];
+			s5 += arr[i+5];
+			s6 += arr[i+6];
+			s7 += arr[i+7];
+		}
+		for ( ; i < end; i++ )
+			s0 += arr[i];
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of arr[ start <= i < end ].
+     *
+     */
+	static double sum(double[] arr, int start, int end) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += arr[i];
+			return s;
+		}
+		return sumInLanes(arr, start, end);
+	}
+
+	// sum over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumInLanes(double[] arr, int start, int end) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumInLanes(arr, start, middle) + sumInLanes(arr, middle, end);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += arr[i];
+			s1 += arr[i+1];
+			s2 += arr[i+2];
+			s3 += arr[i+3];
+			s4 += arr[i+4];
+			s5 += arr[i+5];
+			s6 += arr[i+6];
+			s7 += arr[i+7];
+		}
+		for ( ; i < end; i++ )
+			s0 += arr[i];
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of arr[ start <= i < end ], exactly.
+     *
+     */
+	static long sum(int[] arr, int start, int end) {
+		// a single exact accumulator: the JIT vectorizes this loop itself, faster than the lanes.
+		long s = 0;
+		for ( int i = start; i < end; i++ )
+			s += arr[i];
+		return s;
+	}
+
+    /**
+     * Returns the sum of arr[ start <= i < end ].
+     *
+     */
+	static double sum(long[] arr, int start, int end) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += arr[i];
+			return s;
+		}
+		return sumInLanes(arr, start, end);
+	}
+
+	// sum over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumInLanes(long[] arr, int start, int end) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumInLanes(arr, start, middle) + sumInLanes(arr, middle, end);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += arr[i];
+			s1 += arr[i+1];
+			s2 += arr[i+2];
+			s3 += arr[i+3];
+			s4 += arr[i+4];
+			s5 += arr[i+5];
+			s6 += arr[i+6];
+			s7 += arr[i+7];
+		}
+		for ( ; i < end; i++ )
+			s0 += arr[i];
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of (arr[i] - mean)^2 over start <= i < end.
+     *
+     */
+	static double sumOfSquaredDeviations(float[] arr, int start, int end, double mean) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += (arr[i] - mean) * (arr[i] - mean);
+			return s;
+		}
+		return sumOfSquaredDeviationsInLanes(arr, start, end, mean);
+	}
+
+	// sumOfSquaredDeviations over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfSquaredDeviationsInLanes(float[] arr, int start, int end, double mean) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfSquaredDeviationsInLanes(arr, start, middle, mean) + sumOfSquaredDeviationsInLanes(arr, middle, end, mean);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += (arr[i] - mean) * (arr[i] - mean);
+			s1 += (arr[i+1] - mean) * (arr[i+1] - mean);
+			s2 += (arr[i+2] - mean) * (arr[i+2] - mean);
+			s3 += (arr[i+3] - mean) * (arr[i+3] - mean);
+			s4 += (arr[i+4] - mean) * (arr[i+4] - mean);
+			s5 += (arr[i+5] - mean) * (arr[i+5] - mean);
+			s6 += (arr[i+6] - mean) * (arr[i+6] - mean);
+			s7 += (arr[i+7] - mean) * (arr[i+7] - mean);
+		}
+		for ( ; i < end; i++ )
+			s0 += (arr[i] - mean) * (arr[i] - mean);
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of (arr[i] - mean)^2 over start <= i < end.
+     *
+     */
+	static double sumOfSquaredDeviations(double[] arr, int start, int end, double mean) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += (arr[i] - mean) * (arr[i] - mean);
+			return s;
+		}
+		return sumOfSquaredDeviationsInLanes(arr, start, end, mean);
+	}
+
+	// sumOfSquaredDeviations over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfSquaredDeviationsInLanes(double[] arr, int start, int end, double mean) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfSquaredDeviationsInLanes(arr, start, middle, mean) + sumOfSquaredDeviationsInLanes(arr, middle, end, mean);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += (arr[i] - mean) * (arr[i] - mean);
+			s1 += (arr[i+1] - mean) * (arr[i+1] - mean);
+			s2 += (arr[i+2] - mean) * (arr[i+2] - mean);
+			s3 += (arr[i+3] - mean) * (arr[i+3] - mean);
+			s4 += (arr[i+4] - mean) * (arr[i+4] - mean);
+			s5 += (arr[i+5] - mean) * (arr[i+5] - mean);
+			s6 += (arr[i+6] - mean) * (arr[i+6] - mean);
+			s7 += (arr[i+7] - mean) * (arr[i+7] - mean);
+		}
+		for ( ; i < end; i++ )
+			s0 += (arr[i] - mean) * (arr[i] - mean);
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of (arr[i] - mean)^2 over start <= i < end.
+     *
+     */
+	static double sumOfSquaredDeviations(int[] arr, int start, int end, double mean) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += (arr[i] - mean) * (arr[i] - mean);
+			return s;
+		}
+		return sumOfSquaredDeviationsInLanes(arr, start, end, mean);
+	}
+
+	// sumOfSquaredDeviations over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfSquaredDeviationsInLanes(int[] arr, int start, int end, double mean) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfSquaredDeviationsInLanes(arr, start, middle, mean) + sumOfSquaredDeviationsInLanes(arr, middle, end, mean);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += (arr[i] - mean) * (arr[i] - mean);
+			s1 += (arr[i+1] - mean) * (arr[i+1] - mean);
+			s2 += (arr[i+2] - mean) * (arr[i+2] - mean);
+			s3 += (arr[i+3] - mean) * (arr[i+3] - mean);
+			s4 += (arr[i+4] - mean) * (arr[i+4] - mean);
+			s5 += (arr[i+5] - mean) * (arr[i+5] - mean);
+			s6 += (arr[i+6] - mean) * (arr[i+6] - mean);
+			s7 += (arr[i+7] - mean) * (arr[i+7] - mean);
+		}
+		for ( ; i < end; i++ )
+			s0 += (arr[i] - mean) * (arr[i] - mean);
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of (arr[i] - mean)^2 over start <= i < end.
+     *
+     */
+	static double sumOfSquaredDeviations(long[] arr, int start, int end, double mean) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += (arr[i] - mean) * (arr[i] - mean);
+			return s;
+		}
+		return sumOfSquaredDeviationsInLanes(arr, start, end, mean);
+	}
+
+	// sumOfSquaredDeviations over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfSquaredDeviationsInLanes(long[] arr, int start, int end, double mean) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfSquaredDeviationsInLanes(arr, start, middle, mean) + sumOfSquaredDeviationsInLanes(arr, middle, end, mean);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += (arr[i] - mean) * (arr[i] - mean);
+			s1 += (arr[i+1] - mean) * (arr[i+1] - mean);
+			s2 += (arr[i+2] - mean) * (arr[i+2] - mean);
+			s3 += (arr[i+3] - mean) * (arr[i+3] - mean);
+			s4 += (arr[i+4] - mean) * (arr[i+4] - mean);
+			s5 += (arr[i+5] - mean) * (arr[i+5] - mean);
+			s6 += (arr[i+6] - mean) * (arr[i+6] - mean);
+			s7 += (arr[i+7] - mean) * (arr[i+7] - mean);
+		}
+		for ( ; i < end; i++ )
+			s0 += (arr[i] - mean) * (arr[i] - mean);
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of | arr[i] - mean | over start <= i < end.
+     *
+     */
+	static double sumOfAbsoluteDeviations(float[] arr, int start, int end, double mean) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += Math.abs(arr[i] - mean);
+			return s;
+		}
+		return sumOfAbsoluteDeviationsInLanes(arr, start, end, mean);
+	}
+
+	// sumOfAbsoluteDeviations over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfAbsoluteDeviationsInLanes(float[] arr, int start, int end, double mean) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfAbsoluteDeviationsInLanes(arr, start, middle, mean) + sumOfAbsoluteDeviationsInLanes(arr, middle, end, mean);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += Math.abs(arr[i] - mean);
+			s1 += Math.abs(arr[i+1] - mean);
+			s2 += Math.abs(arr[i+2] - mean);
+			s3 += Math.abs(arr[i+3] - mean);
+			s4 += Math.abs(arr[i+4] - mean);
+			s5 += Math.abs(arr[i+5] - mean);
+			s6 += Math.abs(arr[i+6] - mean);
+			s7 += Math.abs(arr[i+7] - mean);
+		}
+		for ( ; i < end; i++ )
+			s0 += Math.abs(arr[i] - mean);
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of | arr[i] - mean | over start <= i < end.
+     *
+     */
+	static double sumOfAbsoluteDeviations(double[] arr, int start, int end, double mean) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += Math.abs(arr[i] - mean);
+			return s;
+		}
+		return sumOfAbsoluteDeviationsInLanes(arr, start, end, mean);
+	}
+
+	// sumOfAbsoluteDeviations over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfAbsoluteDeviationsInLanes(double[] arr, int start, int end, double mean) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfAbsoluteDeviationsInLanes(arr, start, middle, mean) + sumOfAbsoluteDeviationsInLanes(arr, middle, end, mean);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += Math.abs(arr[i] - mean);
+			s1 += Math.abs(arr[i+1] - mean);
+			s2 += Math.abs(arr[i+2] - mean);
+			s3 += Math.abs(arr[i+3] - mean);
+			s4 += Math.abs(arr[i+4] - mean);
+			s5 += Math.abs(arr[i+5] - mean);
+			s6 += Math.abs(arr[i+6] - mean);
+			s7 += Math.abs(arr[i+7] - mean);
+		}
+		for ( ; i < end; i++ )
+			s0 += Math.abs(arr[i] - mean);
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of | arr[i] - mean | over start <= i < end.
+     *
+     */
+	static double sumOfAbsoluteDeviations(int[] arr, int start, int end, double mean) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += Math.abs(arr[i] - mean);
+			return s;
+		}
+		return sumOfAbsoluteDeviationsInLanes(arr, start, end, mean);
+	}
+
+	// sumOfAbsoluteDeviations over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfAbsoluteDeviationsInLanes(int[] arr, int start, int end, double mean) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfAbsoluteDeviationsInLanes(arr, start, middle, mean) + sumOfAbsoluteDeviationsInLanes(arr, middle, end, mean);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += Math.abs(arr[i] - mean);
+			s1 += Math.abs(arr[i+1] - mean);
+			s2 += Math.abs(arr[i+2] - mean);
+			s3 += Math.abs(arr[i+3] - mean);
+			s4 += Math.abs(arr[i+4] - mean);
+			s5 += Math.abs(arr[i+5] - mean);
+			s6 += Math.abs(arr[i+6] - mean);
+			s7 += Math.abs(arr[i+7] - mean);
+		}
+		for ( ; i < end; i++ )
+			s0 += Math.abs(arr[i] - mean);
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of | arr[i] - mean | over start <= i < end.
+     *
+     */
+	static double sumOfAbsoluteDeviations(long[] arr, int start, int end, double mean) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += Math.abs(arr[i] - mean);
+			return s;
+		}
+		return sumOfAbsoluteDeviationsInLanes(arr, start, end, mean);
+	}
+
+	// sumOfAbsoluteDeviations over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfAbsoluteDeviationsInLanes(long[] arr, int start, int end, double mean) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfAbsoluteDeviationsInLanes(arr, start, middle, mean) + sumOfAbsoluteDeviationsInLanes(arr, middle, end, mean);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += Math.abs(arr[i] - mean);
+			s1 += Math.abs(arr[i+1] - mean);
+			s2 += Math.abs(arr[i+2] - mean);
+			s3 += Math.abs(arr[i+3] - mean);
+			s4 += Math.abs(arr[i+4] - mean);
+			s5 += Math.abs(arr[i+5] - mean);
+			s6 += Math.abs(arr[i+6] - mean);
+			s7 += Math.abs(arr[i+7] - mean);
+		}
+		for ( ; i < end; i++ )
+			s0 += Math.abs(arr[i] - mean);
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of 1 / arr[i] over start <= i < end (infinite or NaN if some arr[i] is 0).
+     *
+     */
+	static double sumOfReciprocals(float[] arr, int start, int end) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += 1f / arr[i];
+			return s;
+		}
+		return sumOfReciprocalsInLanes(arr, start, end);
+	}
+
+	// sumOfReciprocals over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfReciprocalsInLanes(float[] arr, int start, int end) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfReciprocalsInLanes(arr, start, middle) + sumOfReciprocalsInLanes(arr, middle, end);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += 1f / arr[i];
+			s1 += 1f / arr[i+1];
+			s2 += 1f / arr[i+2];
+			s3 += 1f / arr[i+3];
+			s4 += 1f / arr[i+4];
+			s5 += 1f / arr[i+5];
+			s6 += 1f / arr[i+6];
+			s7 += 1f / arr[i+7];
+		}
+		for ( ; i < end; i++ )
+			s0 += 1f / arr[i];
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of 1 / arr[i] over start <= i < end (infinite or NaN if some arr[i] is 0).
+     *
+     */
+	static double sumOfReciprocals(double[] arr, int start, int end) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += 1.0 / arr[i];
+			return s;
+		}
+		return sumOfReciprocalsInLanes(arr, start, end);
+	}
+
+	// sumOfReciprocals over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfReciprocalsInLanes(double[] arr, int start, int end) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfReciprocalsInLanes(arr, start, middle) + sumOfReciprocalsInLanes(arr, middle, end);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += 1.0 / arr[i];
+			s1 += 1.0 / arr[i+1];
+			s2 += 1.0 / arr[i+2];
+			s3 += 1.0 / arr[i+3];
+			s4 += 1.0 / arr[i+4];
+			s5 += 1.0 / arr[i+5];
+			s6 += 1.0 / arr[i+6];
+			s7 += 1.0 / arr[i+7];
+		}
+		for ( ; i < end; i++ )
+			s0 += 1.0 / arr[i];
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of 1 / arr[i] over start <= i < end (infinite or NaN if some arr[i] is 0).
+     *
+     */
+	static double sumOfReciprocals(int[] arr, int start, int end) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += 1f / arr[i];
+			return s;
+		}
+		return sumOfReciprocalsInLanes(arr, start, end);
+	}
+
+	// sumOfReciprocals over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfReciprocalsInLanes(int[] arr, int start, int end) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfReciprocalsInLanes(arr, start, middle) + sumOfReciprocalsInLanes(arr, middle, end);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += 1f / arr[i];
+			s1 += 1f / arr[i+1];
+			s2 += 1f / arr[i+2];
+			s3 += 1f / arr[i+3];
+			s4 += 1f / arr[i+4];
+			s5 += 1f / arr[i+5];
+			s6 += 1f / arr[i+6];
+			s7 += 1f / arr[i+7];
+		}
+		for ( ; i < end; i++ )
+			s0 += 1f / arr[i];
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the sum of 1 / arr[i] over start <= i < end (infinite or NaN if some arr[i] is 0).
+     *
+     */
+	static double sumOfReciprocals(long[] arr, int start, int end) {
+		if (end - start < scalarLength) {
+			double s = 0;
+			for ( int i = start; i < end; i++ )
+				s += 1f / arr[i];
+			return s;
+		}
+		return sumOfReciprocalsInLanes(arr, start, end);
+	}
+
+	// sumOfReciprocals over a range of at least scalarLength values, in blocks summed by the lanes.
+	private static double sumOfReciprocalsInLanes(long[] arr, int start, int end) {
+		if (end - start > blockLength) {
+			int middle = (start + end) >>> 1;
+			return sumOfReciprocalsInLanes(arr, start, middle) + sumOfReciprocalsInLanes(arr, middle, end);
+		}
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+		int i = start;
+		for ( ; i + 7 < end; i += 8 ) {
+			s0 += 1f / arr[i];
+			s1 += 1f / arr[i+1];
+			s2 += 1f / arr[i+2];
+			s3 += 1f / arr[i+3];
+			s4 += 1f / arr[i+4];
+			s5 += 1f / arr[i+5];
+			s6 += 1f / arr[i+6];
+			s7 += 1f / arr[i+7];
+		}
+		for ( ; i < end; i++ )
+			s0 += 1f / arr[i];
+		return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+	}
+
+    /**
+     * Returns the harmonic mean of arr[ start <= i < end ] (0 if some of them is 0).
+     *
+     */
+	static double harmonicMean(float[] arr, int start, int end) {
+		double sumOfReciprocals = sumOfReciprocals(arr, start, end);
+		// a value 0 makes the sum infinite (or NaN), and only then the values are scanned for it.
+		if (!Double.isFinite(sumOfReciprocals))
+			for ( int i = start; i < end; i++ )
+				if (arr[i] == 0)
+					return 0;
+		return (end - start) / sumOfReciprocals;
+	}
+
+    /**
+     * Returns the harmonic mean of arr[ start <= i < end ] (0 if some of them is 0).
+     *
+     */
+	static double harmonicMean(double[] arr, int start, int end) {
+		double sumOfReciprocals = sumOfReciprocals(arr, start, end);
+		// a value 0 makes the sum infinite (or NaN), and only then the values are scanned for it.
+		if (!Double.isFinite(sumOfReciprocals))
+			for ( int i = start; i < end; i++ )
+				if (arr[i] == 0)
+					return 0;
+		return (end - start) / sumOfReciprocals;
+	}
+
+    /**
+     * Returns the harmonic mean of arr[ start <= i < end ] (0 if some of them is 0).
+     *
+     */
+	static double harmonicMean(int[] arr, int start, int end) {
+		double sumOfReciprocals = sumOfReciprocals(arr, start, end);
+		// a value 0 makes the sum infinite (or NaN), and only then the values are scanned for it.
+		if (!Double.isFinite(sumOfReciprocals))
+			for ( int i = start; i < end; i++ )
+				if (arr[i] == 0)
+					return 0;
+		return (end - start) / sumOfReciprocals;
+	}
+
+    /**
+     * Returns the harmonic mean of arr[ start <= i < end ] (0 if some of them is 0).
+     *
+     */
+	static double harmonicMean(long[] arr, int start, int end) {
+		double sumOfReciprocals = sumOfReciprocals(arr, start, end);
+		// a value 0 makes the sum infinite (or NaN), and only then the values are scanned for it.
+		if (!Double.isFinite(sumOfReciprocals))
+			for ( int i = start; i < end; i++ )
+				if (arr[i] == 0)
+					return 0;
+		return (end - start) / sumOfReciprocals;
+	}
+
+}
@@ -0,0 +1,78 @@
+
+/*******************
+
+A reusable holder of statistical results, filled by the methods of getStatsFromCollection taking a ToDoubleFunction, a ToIntFunction or
+an array of values indexed by ids. It also keeps the auxiliary arrays and the accumulator used to calculate them, so that calculating the
+results of many small collections (e.g. the recipients of each email) with the same StatsResult does not allocate memory once its auxiliary
+arrays are as large as the largest collection. The results not calculated are -1.
+
+The quantiles set by withQuantiles are selected with the median, into quantileValues.
+
+*******************/
+
+public class StatsResult {
+	double median;
+	float mean;
+	float standardDeviation;
+	float harmonicMean;
+	float meanAbsoluteDeviation;
+	double[] quantiles = {};
+	double[] quantileValues = {};
+	
+	StatsAccumulator accumulator = new StatsAccumulator();
+	double[] values = new double[16];
+	int[] intValues = new int[16];
+	// the ranks of the quantiles and of the median among the values.
+	int[] ranks = new int[1];
+	
+    /**
+     * Sets the quantiles calculated with each result, and returns this StatsResult.
+     *
+     * @param quantiles the quantiles, between 0 and 1 (e.g. 0.9 and 0.99 for the 90th and 99th percentiles).
+     *
+     */
+	StatsResult withQuantiles(double... quantiles) {
+		this.quantiles = quantiles.clone();
+		this.quantileValues = new double[quantiles.length];
+		this.ranks = new int[quantiles.length + 1];
+		return this;
+	}
+	
+    /**
+     * Returns a new StatsResult with the same quantiles (e.g. one for each Thread calculating results in parallel).
+     *
+     */
+	StatsResult withSameSettings() {
+		return new StatsResult().withQuantiles(quantiles);
+	}
+	
+    /**
+     * Returns whether the values are needed to select the median or the quantiles.
+     *
+     * @param getMedian whether the median is calculated.
+     *
+     */
+	boolean selects(boolean getMedian) {
+		return (getMedian || quantiles.length > 0);
+	}
+	
+    /**
+     * Returns the auxiliary array of doubles, grown to hold at least size values.
+     *
+     */
+	double[] values(int size) {
+		if (values.length < size)
+			values = new double[Math.max(size, values.length * 2)];
+		return values;
+	}
+	
+    /**
+     * Returns the auxiliary array of ints, grown to hold at least size values.
+     *
+     */
+	int[] intValues(int size) {
+		if (intValues.length < size)
+			intValues = new int[Math.max(size, intValues.length * 2)];
+		return intValues;
+	}
+}
@@ -0,0 +1,256 @@
+
+/*******************
+
+This class provides a Runnable that calculates one of the 6 types of centrality specified at centralityType.java keeping only the
+centrality vectors in memory, and streaming the entries of its linear system from EdgeShards on disk at each iteration.
+The shards are written before (see writeShards), directly from the edges of the CompactGraph, which can then be released (see
+CompactGraph.releaseEdges): the TransitionMatrix is never built in memory.
+
+At each iteration:
+1) a prefetch Thread reads the shards sequentially, in large blocks (of bufferSize bytes) read through a FileChannel into direct
+   ByteBuffers, and hands them to the computing Threads through a queue, reusing a fixed number of buffers,
+2) meanwhile, the computing Threads process the blocks already read: each block is split among them at points where the destination
+   changes (the records are sorted by destination), so no 2 Threads update the same Node.
+So the reading of the next blocks overlaps the processing of the current one.
+
+The iterations stop either: 1) after a specified number of iterations, or
+                            2) when the mean relative improvement on centrality is lower or equal to a specified value for a specified
+                               number of consecutive iterations.
+
+If compareWithInMemory is true, the TransitionMatrix is built in memory after the iterations (so the edges of the graph must not have
+been released), the same number of iterations is timed over it, and both times are printed in the Console.
+
+*******************/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+
+public class StreamingPageRank implements Runnable {
+
+	// the number of buffers being read or processed at the same time.
+	static final int numberOfBuffers = 3;
+	// the buffer put in the queue after the last block of an iteration.
+	private static final ByteBuffer endOfIteration = ByteBuffer.allocate(0);
+
+	CompactGraph graph;
+	EdgeShards shards;
+	int bufferSize;
+	boolean compareWithInMemory;
+	int numberOfConcurrentThreads;
+	int numberOfIterations;
+	int consecutiveMinimalImprovementsOnCentralityToStop;
+	float minimalImprovementOnCentralityToStop;
+	float DampingFactor;
+	float neighborCentralityDampingFactor;
+	float neighborCentralityBias;
+	String name; //the name of the instance of StreamingPageRank to be printed in the Console.
+	centralityType type;
+
+	StreamingPageRank (centralityType type, CompactGraph graph, EdgeShards shards, int bufferSize, boolean compareWithInMemory, 
+			int numberOfConcurrentThreads, int numberOfIterations, int consecutiveMinimalImprovementsOnCentralityToStop,
+			float minimalImprovementOnCentralityToStop, float DampingFactor, float neighborCentralityDampingFactor, float neighborCentralityBias,
+			String name) {
+		this.type = type;
+		this.graph = graph;
+		this.shards = shards;
+		this.bufferSize = bufferSize - bufferSize % EdgeShards.recordSize;
+		this.compareWithInMemory = compareWithInMemory;
+		this.numberOfConcurrentThreads = numberOfConcurrentThreads;
+		this.numberOfIterations = numberOfIterations;
+		this.consecutiveMinimalImprovementsOnCentralityToStop = consecutiveMinimalImprovementsOnCentralityToStop;
+		this.minimalImprovementOnCentralityToStop = minimalImprovementOnCentralityToStop;
+		this.DampingFactor = DampingFactor;
+		this.neighborCentralityDampingFactor = neighborCentralityDampingFactor;
+		this.neighborCentralityBias = neighborCentralityBias;
+		this.name = name;
+	}
+
+    /**
+     * Writes the entries of the linear system of a type of centrality over graph in EdgeShards, one row at a time from its edges,
+     * and prints their size in the Console. Returns null if they could not be written.
+     *
+     * @param directory the directory in which the shard files are created.
+     *
+     * @param maximalRecordsPerShard the maximal number of records per shard.
+     *
+     * @param bufferSize the size in bytes of the buffer used for writing.
+     *
+     */
+	static EdgeShards writeShards(centralityType type, CompactGraph graph, File directory, int maximalRecordsPerShard, int bufferSize,
+			float DampingFactor, float neighborCentralityDampingFactor, float neighborCentralityBias, String name) {
+		try {
+			EdgeShards shards = new EdgeShards(new TransitionMatrix.Rows(graph, type, DampingFactor, neighborCentralityDampingFactor, 
+					neighborCentralityBias), directory, maximalRecordsPerShard, bufferSize);
+			System.out.println(name+") wrote "+shards.files.length+" shards with "+shards.sizeInBytes()+" bytes.");
+			return shards;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	@Override
+	public void run() {
+		float[] x = graph.getCentrality(type).clone();
+		long startTime = System.currentTimeMillis();
+		int iterations;
+		try {
+			iterations = solve(shards, x);
+		} catch (IOException | InterruptedException e) {
+			e.printStackTrace();
+			return;
+		} finally {
+			shards.delete();
+		}
+		long streamingTime = System.currentTimeMillis() - startTime;
+		System.out.println(name+" Thread) finished "+iterations+" iterations streaming from disk in "+streamingTime+" miliseconds ("+
+				(float)streamingTime / Math.max(iterations, 1)+" per iteration).");
+
+		if (compareWithInMemory) {
+			TransitionMatrix matrix = TransitionMatrix.build(graph, type, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias,
+					numberOfConcurrentThreads);
+			long inMemoryTime = timeInMemory(matrix, graph.getCentrality(type).clone(), iterations);
+			System.out.println(name+" Thread) the same "+iterations+" iterations in memory took "+inMemoryTime+" miliseconds ("+
+					(float)inMemoryTime / Math.max(iterations, 1)+" per iteration). Streaming / in memory: "+(float)streamingTime / Math.max(inMemoryTime, 1));
+		}
+		graph.setCentrality(type, x);
+	}
+
+    /**
+     * Iterates the recursive formula streaming the entries from shards, starting from and writing the results in x.
+     * Returns the number of iterations done.
+     *
+     */
+	int solve(EdgeShards shards, float[] x) throws IOException, InterruptedException {
+		int n = shards.numberOfNodes;
+		int threads = Math.max(1, numberOfConcurrentThreads);
+		float[] next = new float[n];
+		double[] partialImprovement = new double[threads];
+
+		ArrayBlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(numberOfBuffers);
+		ArrayBlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(numberOfBuffers + 1);
+		for ( int b = 0; b < numberOfBuffers; b++ )
+			free.add(ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.nativeOrder()));
+
+		int numberOfConsecutiveMinimalImprovements = 0;
+		int iteration = 0;
+		while ( iteration != numberOfIterations && numberOfConsecutiveMinimalImprovements < consecutiveMinimalImprovementsOnCentralityToStop ) {
+			iteration++;
+			System.arraycopy(shards.base, 0, next, 0, n);
+
+			// the prefetch Thread.
+			IOException[] error = {null};
+			Thread prefetch = new Thread( () -> {
+				try {
+					for ( File file : shards.files ) {
+						try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+							while (true) {
+								ByteBuffer buffer = free.take();
+								buffer.clear();
+								while ( buffer.hasRemaining() && channel.read(buffer) >= 0 );
+								buffer.flip();
+								if (!buffer.hasRemaining()) {
+									free.put(buffer);
+									break;
+								}
+								full.put(buffer);
+							}
+						}
+					}
+				} catch (IOException e) {
+					error[0] = e;
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				} finally {
+					try {
+						full.put(endOfIteration);
+					} catch (InterruptedException e) { e.printStackTrace(); }
+				}
+			});
+			prefetch.start();
+
+			// the computing Threads process each block as soon as it is read.
+			float[] current = x;
+			ByteBuffer buffer;
+			while ( (buffer = full.take()) != endOfIteration ) {
+				ByteBuffer block = buffer;
+				int records = block.limit() / EdgeShards.recordSize;
+				int[] bounds = destinationBounds(block, records, threads);
+				ParallelRange.run(bounds, (part, start, end) -> {
+					for ( int r = start; r < end; r++ ) {
+						int position = r * EdgeShards.recordSize;
+						next[block.getInt(position + 4)] += block.getFloat(position + 8) * current[block.getInt(position)];
+					}
+				});
+				free.put(block);
+			}
+			prefetch.join();
+			if (error[0] != null)
+				throw error[0];
+
+			// measures the improvement and swaps the vectors.
+			ParallelRange.run(threads, n, (part, start, end) -> {
+				double improvement = 0;
+				for ( int p = start; p < end; p++ ) {
+					improvement += (current[p] != 0 ? Math.abs(next[p] / current[p] - 1) : 0);
+					current[p] = next[p];
+				}
+				partialImprovement[part] = improvement;
+			});
+			double lastImprovement = 0;
+			for ( double partial : partialImprovement )
+				lastImprovement += partial;
+			lastImprovement /= n;
+
+			System.out.println(name+")"+iteration+") Mean relative improvement on centrality since last iteration: "+(float)lastImprovement);
+			if (lastImprovement <= minimalImprovementOnCentralityToStop)
+				numberOfConsecutiveMinimalImprovements++;
+			else
+				numberOfConsecutiveMinimalImprovements = 0;
+		}
+		return iteration;
+	}
+
+    /**
+     * Splits the records of a block into parts with nearly the same number of records, moving each split point forward
+     * until the destination changes, so that all the records of a destination are in the same part.
+     *
+     */
+	private static int[] destinationBounds(ByteBuffer block, int records, int parts) {
+		int[] bounds = new int[parts + 1];
+		for ( int i = 1; i < parts; i++ ) {
+			int r = Math.max( (int)((long)records * i / parts), bounds[i-1] );
+			while ( r > 0 && r < records && block.getInt(r * EdgeShards.recordSize + 4) == block.getInt((r - 1) * EdgeShards.recordSize + 4) )
+				r++;
+			bounds[i] = r;
+		}
+		bounds[parts] = records;
+		return bounds;
+	}
+
+    /**
+     * Runs a number of iterations over matrix in memory (with the same synchronous update as the streaming iterations),
+     * and returns the time taken in miliseconds.
+     *
+     */
+	private long timeInMemory(TransitionMatrix matrix, float[] x, int iterations) {
+		int threads = Math.max(1, numberOfConcurrentThreads);
+		float[] next = new float[matrix.size];
+		int[] bounds = ParallelRange.balancedBounds(threads, matrix.pullOffsets);
+		long startTime = System.currentTimeMillis();
+		for ( int iteration = 0; iteration < iterations; iteration++ ) {
+			ParallelRange.run(bounds, (part, start, end) -> {
+				for ( int p = start; p < end; p++ )
+					next[p] = matrix.pull(p, x);
+			});
+			System.arraycopy(next, 0, x, 0, matrix.size);
+		}
+		return System.currentTimeMillis() - startTime;
+	}
+
+}
@@ -0,0 +1,192 @@
+
+/*******************
+
+This class computes the strongly connected components (SCCs) of the dependency graph of a TransitionMatrix,
+in which there is an edge q -> p whenever the centrality of p is calculated from the centrality of q.
+
+It runs in 2 phases:
+1) TRIM (in parallel): repeatedly removes the Nodes that have no remaining predecessors, and then the Nodes that have no remaining
+                       successors. Each removed Node is a SCC by itself. In DAG-like graphs (e.g. newsletters and no-reply senders
+                       in an email graph) this removes most of the Nodes.
+2) TARJAN (iterative, over the Nodes not trimmed): finds the remaining SCCs.
+
+The components are identified by 0 <= component < numberOfComponents, and the members of component c are
+members[ memberOffsets[c] <= i < memberOffsets[c+1] ].
+
+*******************/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class StronglyConnectedComponents {
+
+	// the component of each Node.
+	int[] component;
+	int numberOfComponents;
+	int[] memberOffsets;
+	int[] members;
+	// the number of Nodes removed by the TRIM phase.
+	int numberOfTrimmedNodes;
+
+    /**
+     * Computes the SCCs of the dependency graph of matrix.
+     *
+     * @param matrix the linear system whose dependency graph is analyzed. Its push rows are built if they were not built yet.
+     *
+     * @param numberOfConcurrentThreads the number of Threads running the TRIM phase.
+     *
+     */
+	StronglyConnectedComponents(TransitionMatrix matrix, int numberOfConcurrentThreads) {
+		int n = matrix.size;
+		matrix.buildPushRows();
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, n));
+		component = new int[n];
+		Arrays.fill(component, -1);
+		boolean[] removed = new boolean[n];
+
+		// TRIM: predecessors are read from the pull rows and successors from the push rows, and vice-versa for the second pass.
+		numberOfTrimmedNodes = trim(matrix.pullOffsets, matrix.pullIds, matrix.pushOffsets, matrix.pushIds, removed, threads);
+		numberOfTrimmedNodes += trim(matrix.pushOffsets, matrix.pushIds, matrix.pullOffsets, matrix.pullIds, removed, threads);
+		for ( int p = 0; p < n; p++ )
+			if (removed[p])
+				component[p] = numberOfComponents++;
+
+		tarjan(matrix, removed);
+
+		// lists the members of each component.
+		memberOffsets = new int[numberOfComponents + 1];
+		for ( int p = 0; p < n; p++ )
+			memberOffsets[component[p] + 1]++;
+		for ( int c = 0; c < numberOfComponents; c++ )
+			memberOffsets[c+1] += memberOffsets[c];
+		int[] next = Arrays.copyOf(memberOffsets, numberOfComponents);
+		members = new int[n];
+		for ( int p = 0; p < n; p++ )
+			members[next[component[p]]++] = p;
+	}
+
+    /**
+     * Returns the number of Nodes in component c.
+     *
+     */
+	int size(int c) {
+		return memberOffsets[c+1] - memberOffsets[c];
+	}
+
+    /**
+     * Removes, in parallel and level by level, the Nodes without remaining predecessors (ignoring self-loops), marking them in removed.
+     * The predecessors of p are ids[ offsets[p] <= i < offsets[p+1] ], and its successors are
+     * reverseIds[ reverseOffsets[p] <= i < reverseOffsets[p+1] ].
+     * Returns the number of Nodes removed.
+     *
+     */
+	private static int trim(int[] offsets, int[] ids, int[] reverseOffsets, int[] reverseIds, boolean[] removed, int threads) {
+		int n = removed.length;
+		AtomicIntegerArray remaining = new AtomicIntegerArray(n);
+		IntList[] frontiers = new IntList[threads];
+		for ( int part = 0; part < threads; part++ )
+			frontiers[part] = new IntList();
+
+		ParallelRange.run(threads, n, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				if (removed[p])
+					continue;
+				int count = 0;
+				for ( int i = offsets[p]; i < offsets[p+1]; i++ )
+					if (ids[i] != p && !removed[ids[i]])
+						count++;
+				remaining.set(p, count);
+				if (count == 0)
+					frontiers[part].add(p);
+			}
+		});
+
+		int total = 0;
+		IntList frontier = IntList.concatenate(frontiers);
+		while (frontier.size > 0) {
+			total += frontier.size;
+			for ( int a = 0; a < frontier.size; a++ )
+				removed[frontier.data[a]] = true;
+			IntList current = frontier;
+			IntList[] nextFrontiers = new IntList[threads];
+			ParallelRange.run(threads, current.size, (part, start, end) -> {
+				IntList next = new IntList();
+				for ( int a = start; a < end; a++ ) {
+					int q = current.data[a];
+					for ( int i = reverseOffsets[q]; i < reverseOffsets[q+1]; i++ ) {
+						int p = reverseIds[i];
+						if (p != q && !removed[p] && remaining.decrementAndGet(p) == 0)
+							next.add(p);
+					}
+				}
+				nextFrontiers[part] = next;
+			});
+			frontier = IntList.concatenate(nextFrontiers);
+		}
+		return total;
+	}
+
+    /**
+     * Finds the SCCs among the Nodes not removed with an iterative version of Tarjan's algorithm.
+     *
+     */
+	private void tarjan(TransitionMatrix matrix, boolean[] removed) {
+		int n = matrix.size;
+		int[] index = new int[n];
+		int[] lowlink = new int[n];
+		Arrays.fill(index, -1);
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int stackSize = 0;
+		// the call stack of the depth-first search: the Node and the next entry of its push row to visit.
+		int[] callNode = new int[n];
+		int[] callEntry = new int[n];
+		int callSize = 0;
+		int counter = 0;
+
+		for ( int root = 0; root < n; root++ ) {
+			if (removed[root] || index[root] != -1)
+				continue;
+			callNode[0] = root;
+			callEntry[0] = matrix.pushOffsets[root];
+			callSize = 1;
+			index[root] = lowlink[root] = counter++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+
+			while (callSize > 0) {
+				int q = callNode[callSize - 1];
+				if (callEntry[callSize - 1] < matrix.pushOffsets[q+1]) {
+					int p = matrix.pushIds[callEntry[callSize - 1]++];
+					if (removed[p])
+						continue;
+					if (index[p] == -1) {
+						index[p] = lowlink[p] = counter++;
+						stack[stackSize++] = p;
+						onStack[p] = true;
+						callNode[callSize] = p;
+						callEntry[callSize++] = matrix.pushOffsets[p];
+					}
+					else if (onStack[p])
+						lowlink[q] = Math.min(lowlink[q], index[p]);
+				}
+				else {
+					callSize--;
+					if (callSize > 0)
+						lowlink[callNode[callSize - 1]] = Math.min(lowlink[callNode[callSize - 1]], lowlink[q]);
+					if (lowlink[q] == index[q]) {
+						// q is the root of a SCC: pops all its members.
+						int member;
+						do {
+							member = stack[--stackSize];
+							onStack[member] = false;
+							component[member] = numberOfComponents;
+						} while (member != q);
+						numberOfComponents++;
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+
+/*******************
+
+This class extracts a part of a CompactGraph into its own CompactGraph, so that the centralities of a department or of the neighborhood
+of a few addresses can be calculated in a fraction of the time needed for the whole graph:
+ - the induced subgraph of a set of Nodes: those Nodes and all the edges between them,
+ - the k-hop ego network of a set of seeds: the Nodes at most k edges away from a seed (following the edges in either or both
+   directions), and all the edges between them.
+
+The Nodes of the subgraph keep the order of their ids in the graph, so the rows of the graph (sorted by id) are filtered into rows of the
+subgraph that are still sorted: both directions are copied in parallel, in 2 passes (counting, then copying), without sorting.
+The k-hop neighborhood is found by a parallel breadth-first search, each level expanded by several Threads claiming the Nodes they reach
+with compare-and-set operations.
+
+The id in the graph of Node p of the subgraph is globalId[p]. The Nodes of the graph are not referenced by the subgraph, so calculating its
+centralities does not change the centralities of the Nodes of the whole graph.
+
+*******************/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class Subgraph {
+
+	CompactGraph graph;
+	// the id in the whole graph of each Node of the subgraph, in increasing order.
+	int[] globalId;
+
+	private Subgraph(CompactGraph graph, int[] globalId) {
+		this.graph = graph;
+		this.globalId = globalId;
+	}
+
+    /**
+     * Extracts the subgraph induced by a set of Nodes, in parallel.
+     *
+     * @param whole the graph.
+     *
+     * @param ids the ids of the Nodes (e.g. found by an AddressIndex), in any order and possibly repeated.
+     *
+     * @param numberOfConcurrentThreads the number of Threads copying the rows.
+     *
+     */
+	static Subgraph induced(CompactGraph whole, int[] ids, int numberOfConcurrentThreads) {
+		int[] globalId = ids.clone();
+		Arrays.sort(globalId);
+		int size = 0;
+		for ( int i = 0; i < globalId.length; i++ )
+			if (i == 0 || globalId[i] != globalId[i-1])
+				globalId[size++] = globalId[i];
+		globalId = Arrays.copyOf(globalId, size);
+
+		int[] localId = new int[whole.numberOfNodes];
+		Arrays.fill(localId, -1);
+		for ( int p = 0; p < size; p++ )
+			localId[globalId[p]] = p;
+
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, Math.max(size, 1)));
+		int[][] in = filterRows(whole.inOffsets, whole.inIds, whole.inWeights, globalId, localId, threads);
+		int[][] out = filterRows(whole.outOffsets, whole.outIds, whole.outWeights, globalId, localId, threads);
+		CompactGraph graph = new CompactGraph(size, in[0], in[1], in[2], out[0], out[1], out[2], 0);
+		// each Node starts from its centrality in the whole graph (or in its Node).
+		for ( centralityType type : centralityType.values() ) {
+			float[] values = whole.centrality[type.ordinal()];
+			if (values != null || whole.nodes != null) {
+				float[] local = new float[size];
+				for ( int p = 0; p < size; p++ )
+					local[p] = (values != null ? values[globalId[p]] : whole.nodes[globalId[p]].getCentrality(type));
+				graph.centrality[type.ordinal()] = local;
+			}
+		}
+		graph.initialCentrality = whole.initialCentrality;
+		return new Subgraph(graph, globalId);
+	}
+
+    /**
+     * Extracts the k-hop ego network of a set of seeds: the subgraph induced by the Nodes at most k edges away from a seed.
+     *
+     * @param whole the graph.
+     *
+     * @param seeds the ids of the seeds.
+     *
+     * @param k the maximal number of edges between a Node and the nearest seed.
+     *
+     * @param followOutgoing whether to follow the edges from a Node to the addresses it sent emails to.
+     *
+     * @param followIncoming whether to follow the edges from a Node to the addresses it received emails from.
+     *
+     * @param numberOfConcurrentThreads the number of Threads expanding each level and copying the rows.
+     *
+     */
+	static Subgraph kHop(CompactGraph whole, int[] seeds, int k, boolean followOutgoing, boolean followIncoming, int numberOfConcurrentThreads) {
+		AtomicIntegerArray visited = new AtomicIntegerArray(whole.numberOfNodes);
+		IntList reached = new IntList();
+		IntList level = new IntList();
+		for ( int seed : seeds ) {
+			if (visited.compareAndSet(seed, 0, 1)) {
+				level.add(seed);
+				reached.add(seed);
+			}
+		}
+
+		for ( int hop = 0; hop < k && level.size > 0; hop++ ) {
+			IntList current = level;
+			int[] offsets = new int[current.size + 1];
+			for ( int i = 0; i < current.size; i++ ) {
+				int p = current.data[i];
+				offsets[i+1] = offsets[i] + (followOutgoing ? whole.unweightedOutDegree(p) : 0) + (followIncoming ? whole.unweightedInDegree(p) : 0);
+			}
+			int threads = Math.max(1, Math.min(numberOfConcurrentThreads, current.size));
+			IntList[] next = new IntList[threads];
+			ParallelRange.runBalanced(threads, offsets, (part, start, end) -> {
+				IntList found = new IntList();
+				for ( int i = start; i < end; i++ ) {
+					int p = current.data[i];
+					if (followOutgoing)
+						for ( int j = whole.outOffsets[p]; j < whole.outOffsets[p+1]; j++ )
+							if (visited.get(whole.outIds[j]) == 0 && visited.compareAndSet(whole.outIds[j], 0, 1))
+								found.add(whole.outIds[j]);
+					if (followIncoming)
+						for ( int j = whole.inOffsets[p]; j < whole.inOffsets[p+1]; j++ )
+							if (visited.get(whole.inIds[j]) == 0 && visited.compareAndSet(whole.inIds[j], 0, 1))
+								found.add(whole.inIds[j]);
+				}
+				next[part] = found;
+			});
+			level = IntList.concatenate(next);
+			for ( int i = 0; i < level.size; i++ )
+				reached.add(level.data[i]);
+		}
+		return induced(whole, Arrays.copyOf(reached.data, reached.size), numberOfConcurrentThreads);
+	}
+
+	// returns the offsets, ids and weights of the rows of the Nodes globalId[p], keeping only the entries whose id is in the subgraph.
+	private static int[][] filterRows(int[] offsets, int[] ids, int[] weights, int[] globalId, int[] localId, int threads) {
+		int size = globalId.length;
+		int[] rowOffsets = new int[size + 1];
+		int[] sizesInGraph = new int[size + 1];
+		for ( int p = 0; p < size; p++ )
+			sizesInGraph[p+1] = sizesInGraph[p] + offsets[globalId[p]+1] - offsets[globalId[p]];
+
+		ParallelRange.runBalanced(threads, sizesInGraph, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				int count = 0;
+				for ( int i = offsets[globalId[p]]; i < offsets[globalId[p]+1]; i++ )
+					if (localId[ids[i]] >= 0)
+						count++;
+				rowOffsets[p+1] = count;
+			}
+		});
+		for ( int p = 0; p < size; p++ )
+			rowOffsets[p+1] += rowOffsets[p];
+
+		int[] rowIds = new int[rowOffsets[size]];
+		int[] rowWeights = new int[rowOffsets[size]];
+		ParallelRange.runBalanced(threads, sizesInGraph, (part, start, end) -> {
+			for ( int p = start; p < end; p++ ) {
+				int j = rowOffsets[p];
+				for ( int i = offsets[globalId[p]]; i < offsets[globalId[p]+1]; i++ ) {
+					if (localId[ids[i]] >= 0) {
+						rowIds[j] = localId[ids[i]];
+						rowWeights[j++] = weights[i];
+					}
+				}
+			}
+		});
+		int[][] rows = {rowOffsets, rowIds, rowWeights};
+		return rows;
+	}
+
+}
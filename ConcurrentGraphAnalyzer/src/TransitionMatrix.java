@@ -0,0 +1,283 @@
+
+/*******************
+
+This class represents the recursive formula of one of the 6 types of centrality specified at centralityType.java as a sparse linear system:
+                                             centrality(p) = base[p] + sum[for each entry (q, c) in row p]( c * centrality(q) ),
+where the coefficient c already contains the damping factor, the weight of the edge and the degree of q.
+
+The rows are stored in CSR form in the "pull" direction (row p lists the Nodes q whose centrality is read to calculate p).
+The transposed rows, in the "push" direction (row q lists the Nodes p whose centrality depends on q), are built on demand.
+
+e.g.: for the standard centrality, row p has one entry (q, d * weight of edge(q->p) / weighted out-degree of q) for each q pointing to p,
+      and base[p] = (1-d)/number of edges.
+
+*******************/
+
+import java.util.Arrays;
+
+public class TransitionMatrix {
+
+	// the number of rows (Nodes).
+	int size;
+	// the constant term of each row.
+	float[] base;
+
+	// row p is (pullIds[i], pullCoefficients[i]) for pullOffsets[p] <= i < pullOffsets[p+1].
+	int[] pullOffsets;
+	int[] pullIds;
+	float[] pullCoefficients;
+
+	// row q is (pushIds[i], pushCoefficients[i]) for pushOffsets[q] <= i < pushOffsets[q+1]. Null until buildPushRows is called.
+	int[] pushOffsets;
+	int[] pushIds;
+	float[] pushCoefficients;
+
+	TransitionMatrix(int size, float[] base, int[] pullOffsets, int[] pullIds, float[] pullCoefficients) {
+		this.size = size;
+		this.base = base;
+		this.pullOffsets = pullOffsets;
+		this.pullIds = pullIds;
+		this.pullCoefficients = pullCoefficients;
+	}
+
+    /**
+     * Builds the linear system of a type of centrality over a CompactGraph.
+     *
+     * @param graph the graph whose centrality will be calculated.
+     *
+     * @param type the type of centrality.
+     *
+     * @param DampingFactor the damping factor d of the Standard and Reversed types.
+     *
+     * @param neighborCentralityDampingFactor the damping factor d of the Neighbor types.
+     *
+     * @param neighborCentralityBias the bias factor B of the Neighbor types.
+     *
+     * @param numberOfConcurrentThreads the number of Threads filling the rows.
+     *
+     */
+	static TransitionMatrix build(CompactGraph graph, centralityType type, float DampingFactor, float neighborCentralityDampingFactor,
+			float neighborCentralityBias, int numberOfConcurrentThreads) {
+
+		Rows rows = new Rows(graph, type, DampingFactor, neighborCentralityDampingFactor, neighborCentralityBias);
+		int n = graph.numberOfNodes;
+		float[] base = new float[n];
+		Arrays.fill(base, rows.base);
+
+		int[] offsets = new int[n + 1];
+		for ( int p = 0; p < n; p++ )
+			offsets[p+1] = offsets[p] + rows.length(p);
+		int[] ids = new int[offsets[n]];
+		float[] coefficients = new float[offsets[n]];
+
+		ParallelRange.runBalanced(numberOfConcurrentThreads, offsets, (part, start, end) -> {
+			for ( int p = start; p < end; p++ )
+				rows.fill(p, ids, coefficients, offsets[p]);
+		});
+
+		return new TransitionMatrix(n, base, offsets, ids, coefficients);
+	}
+
+	// the rows of the linear system of a type of centrality over a CompactGraph, calculated one at a time from the edges of the graph
+	// (e.g. to be written to disk by EdgeShards without building the whole matrix in memory).
+	static class Rows {
+		final CompactGraph graph;
+		// the base of every row.
+		final float base;
+		private final boolean weighted;
+		// whether the rows read the Nodes pointing to p (fromNodes) and/or the Nodes pointed by p (toNodes).
+		private final boolean readIn;
+		private final boolean readOut;
+		private final float inFactor;
+		private final float outFactor;
+		// the time-decayed weights, if any, used instead of the weights of the graph.
+		private final DecayedWeights decayed;
+
+		Rows(CompactGraph graph, centralityType type, float DampingFactor, float neighborCentralityDampingFactor, float neighborCentralityBias) {
+			this.graph = graph;
+			weighted = (type == centralityType.standard || type == centralityType.reversed || type == centralityType.neighborCentrality);
+			boolean neighbor = (type == centralityType.neighborCentrality || type == centralityType.neighborCentralityUnweightedEdges);
+			readIn = (type != centralityType.reversed && type != centralityType.reversedUnweightedEdges);
+			readOut = (type != centralityType.standard && type != centralityType.standardUnweightedEdges);
+			float d = (neighbor ? neighborCentralityDampingFactor : DampingFactor);
+			inFactor = (neighbor ? d * neighborCentralityBias : d);
+			outFactor = (neighbor ? d * (1 - neighborCentralityBias) : d);
+			base = (1 - d) / (weighted ? graph.totalNumberOfEdges : graph.numberOfNodes);
+			decayed = (weighted ? graph.decayedWeights : null);
+		}
+
+		// returns the number of entries of row p.
+		int length(int p) {
+			return (readIn ? graph.unweightedInDegree(p) : 0) + (readOut ? graph.unweightedOutDegree(p) : 0);
+		}
+
+		// writes the entries of row p in ids and coefficients from position j on, and returns the position following them.
+		int fill(int p, int[] ids, float[] coefficients, int j) {
+			if (readIn) {
+				// for each q pointing to p: weight of edge(q->p) / weighted out-degree of q.
+				for ( int i = graph.inOffsets[p]; i < graph.inOffsets[p+1]; i++ ) {
+					int q = graph.inIds[i];
+					ids[j] = q;
+					if (decayed != null)
+						coefficients[j++] = (decayed.outDegree[q] > 0 ? inFactor * decayed.inWeights[i] / decayed.outDegree[q] : 0);
+					else
+						coefficients[j++] = inFactor * (weighted ? (float)graph.inWeights[i] / graph.outDegree[q] : 1f / graph.unweightedOutDegree(q));
+				}
+			}
+			if (readOut) {
+				// for each q pointed by p: weight of edge(p->q) / weighted in-degree of q.
+				for ( int i = graph.outOffsets[p]; i < graph.outOffsets[p+1]; i++ ) {
+					int q = graph.outIds[i];
+					ids[j] = q;
+					if (decayed != null)
+						coefficients[j++] = (decayed.inDegree[q] > 0 ? outFactor * decayed.outWeights[i] / decayed.inDegree[q] : 0);
+					else
+						coefficients[j++] = outFactor * (weighted ? (float)graph.outWeights[i] / graph.inDegree[q] : 1f / graph.unweightedInDegree(q));
+				}
+			}
+			return j;
+		}
+	}
+
+    /**
+     * Returns the number of entries (non-zero coefficients) of the matrix.
+     *
+     */
+	int numberOfEntries() {
+		return pullOffsets[size];
+	}
+
+    /**
+     * Calculates the right-hand side of row p: base[p] + sum[for each entry (q, c) in row p]( c * x[q] ).
+     *
+     * @param p the row.
+     *
+     * @param x the current centralities, indexed by id.
+     *
+     */
+	float pull(int p, float[] x) {
+		float sum = 0;
+		for ( int i = pullOffsets[p]; i < pullOffsets[p+1]; i++ )
+			sum += pullCoefficients[i] * x[pullIds[i]];
+		return base[p] + sum;
+	}
+
+    /**
+     * Solves the rows ids[start <= i < end] with one Thread, reading the other rows from x as constants, and writes the results in x.
+     * A single row is solved in closed form. Otherwise the rows are swept in order (each one already reading the new values of the
+     * previous ones) until either: 1) numberOfIterations sweeps are done, or
+     *                              2) the mean relative improvement over the rows is lower or equal to minimalImprovementOnCentralityToStop
+     *                                 for consecutiveMinimalImprovementsOnCentralityToStop consecutive sweeps.
+     * Returns the number of sweeps done.
+     *
+     */
+	int solveRows(int[] ids, int start, int end, float[] x, int numberOfIterations, int consecutiveMinimalImprovementsOnCentralityToStop,
+			float minimalImprovementOnCentralityToStop) {
+		if (end - start == 1) {
+			int p = ids[start];
+			// separates the dependency of p on itself: x[p] = rest + self * x[p]  =>  x[p] = rest / (1 - self).
+			float self = 0;
+			float rest = base[p];
+			for ( int i = pullOffsets[p]; i < pullOffsets[p+1]; i++ ) {
+				if (pullIds[i] == p)
+					self += pullCoefficients[i];
+				else
+					rest += pullCoefficients[i] * x[pullIds[i]];
+			}
+			x[p] = rest / (1 - self);
+			return 1;
+		}
+
+		int sweeps = 0;
+		int numberOfConsecutiveMinimalImprovements = 0;
+		while ( sweeps != numberOfIterations && numberOfConsecutiveMinimalImprovements < consecutiveMinimalImprovementsOnCentralityToStop ) {
+			sweeps++;
+			float improvement = 0;
+			for ( int m = start; m < end; m++ ) {
+				int p = ids[m];
+				float value = pull(p, x);
+				improvement += (x[p] != 0 ? Math.abs(value / x[p] - 1) : 0);
+				x[p] = value;
+			}
+			if (improvement / (end - start) <= minimalImprovementOnCentralityToStop)
+				numberOfConsecutiveMinimalImprovements++;
+			else
+				numberOfConsecutiveMinimalImprovements = 0;
+		}
+		return sweeps;
+	}
+
+    /**
+     * Returns the linear system restricted to the rows ids[start <= i < end], in which row i - start corresponds to row ids[i].
+     * The entries reading rows outside of the restriction are added to the base of the row, using their current value in x.
+     *
+     * @param ids the rows to keep.
+     *
+     * @param x the current centralities of all rows, indexed by id.
+     *
+     * @implNote allocates an array with one int per row of this matrix, so it is meant for a few large restrictions.
+     *
+     */
+	TransitionMatrix restrict(int[] ids, int start, int end, float[] x) {
+		int n = end - start;
+		int[] local = new int[size];
+		Arrays.fill(local, -1);
+		for ( int i = start; i < end; i++ )
+			local[ids[i]] = i - start;
+
+		float[] restrictedBase = new float[n];
+		int[] offsets = new int[n + 1];
+		for ( int r = 0; r < n; r++ ) {
+			int p = ids[start + r];
+			restrictedBase[r] = base[p];
+			offsets[r+1] = offsets[r];
+			for ( int i = pullOffsets[p]; i < pullOffsets[p+1]; i++ ) {
+				if (local[pullIds[i]] >= 0)
+					offsets[r+1]++;
+				else
+					restrictedBase[r] += pullCoefficients[i] * x[pullIds[i]];
+			}
+		}
+		int[] restrictedIds = new int[offsets[n]];
+		float[] restrictedCoefficients = new float[offsets[n]];
+		for ( int r = 0; r < n; r++ ) {
+			int p = ids[start + r];
+			int j = offsets[r];
+			for ( int i = pullOffsets[p]; i < pullOffsets[p+1]; i++ ) {
+				if (local[pullIds[i]] >= 0) {
+					restrictedIds[j] = local[pullIds[i]];
+					restrictedCoefficients[j++] = pullCoefficients[i];
+				}
+			}
+		}
+		return new TransitionMatrix(n, restrictedBase, offsets, restrictedIds, restrictedCoefficients);
+	}
+
+    /**
+     * Builds the transposed rows (push direction) if they were not built yet.
+     *
+     */
+	synchronized void buildPushRows() {
+		if (pushOffsets != null)
+			return;
+		int[] offsets = new int[size + 1];
+		for ( int i = 0; i < pullIds.length; i++ )
+			offsets[pullIds[i] + 1]++;
+		for ( int q = 0; q < size; q++ )
+			offsets[q+1] += offsets[q];
+		int[] next = Arrays.copyOf(offsets, size);
+		int[] ids = new int[pullIds.length];
+		float[] coefficients = new float[pullIds.length];
+		for ( int p = 0; p < size; p++ ) {
+			for ( int i = pullOffsets[p]; i < pullOffsets[p+1]; i++ ) {
+				int j = next[pullIds[i]]++;
+				ids[j] = p;
+				coefficients[j] = pullCoefficients[i];
+			}
+		}
+		pushIds = ids;
+		pushCoefficients = coefficients;
+		pushOffsets = offsets;
+	}
+
+}
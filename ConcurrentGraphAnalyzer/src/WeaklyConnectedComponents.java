@@ -0,0 +1,130 @@
+
+/*******************
+
+This class computes the weakly connected components (WCCs) of a CompactGraph, i.e. the groups of addresses connected by emails
+regardless of their direction.
+
+It uses a concurrent union-find: the Threads process disjoint subsets of the edges, joining the sets of their 2 Nodes with
+compare-and-set operations on the parent of each set (the root with the greatest id always points to the root with the smallest id,
+so no cycles are created), and compressing the paths they walk on (path halving).
+
+The components are numbered by decreasing size (component 0 is the largest one), and the members of component c are
+members[ memberOffsets[c] <= i < memberOffsets[c+1] ].
+
+*******************/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class WeaklyConnectedComponents {
+
+	// the component of each Node.
+	int[] component;
+	int numberOfComponents;
+	int[] memberOffsets;
+	int[] members;
+
+    /**
+     * Computes the WCCs of graph.
+     *
+     * @param graph the graph to be analyzed.
+     *
+     * @param numberOfConcurrentThreads the number of Threads joining the sets.
+     *
+     */
+	WeaklyConnectedComponents(CompactGraph graph, int numberOfConcurrentThreads) {
+		int n = graph.numberOfNodes;
+		int threads = Math.max(1, Math.min(numberOfConcurrentThreads, n));
+		AtomicIntegerArray parent = new AtomicIntegerArray(n);
+		for ( int p = 0; p < n; p++ )
+			parent.set(p, p);
+
+		// every edge appears in the out-edges of its sender, so it is enough to join the out-edges.
+		ParallelRange.runBalanced(threads, graph.outOffsets, (part, start, end) -> {
+			for ( int p = start; p < end; p++ )
+				for ( int i = graph.outOffsets[p]; i < graph.outOffsets[p+1]; i++ )
+					union(parent, p, graph.outIds[i]);
+		});
+
+		// the root of each Node, and the size of each set.
+		int[] root = new int[n];
+		int[] setSize = new int[n];
+		ParallelRange.run(threads, n, (part, start, end) -> {
+			for ( int p = start; p < end; p++ )
+				root[p] = find(parent, p);
+		});
+		for ( int p = 0; p < n; p++ )
+			setSize[root[p]]++;
+
+		// numbers the components by decreasing size.
+		IntList roots = new IntList();
+		for ( int p = 0; p < n; p++ )
+			if (root[p] == p)
+				roots.add(p);
+		numberOfComponents = roots.size;
+		long[] bySize = new long[numberOfComponents];
+		for ( int c = 0; c < numberOfComponents; c++ )
+			bySize[c] = ((long)(n - setSize[roots.data[c]]) << 32) | roots.data[c];
+		Arrays.sort(bySize);
+		int[] componentOfRoot = new int[n];
+		memberOffsets = new int[numberOfComponents + 1];
+		for ( int c = 0; c < numberOfComponents; c++ ) {
+			int r = (int)bySize[c];
+			componentOfRoot[r] = c;
+			memberOffsets[c+1] = memberOffsets[c] + setSize[r];
+		}
+
+		component = new int[n];
+		members = new int[n];
+		int[] next = Arrays.copyOf(memberOffsets, numberOfComponents);
+		for ( int p = 0; p < n; p++ ) {
+			component[p] = componentOfRoot[root[p]];
+			members[next[component[p]]++] = p;
+		}
+	}
+
+    /**
+     * Returns the number of Nodes in component c.
+     *
+     */
+	int size(int c) {
+		return memberOffsets[c+1] - memberOffsets[c];
+	}
+
+    /**
+     * Returns the root of the set of p, halving the path from p to it.
+     *
+     */
+	private static int find(AtomicIntegerArray parent, int p) {
+		while (true) {
+			int q = parent.get(p);
+			if (q == p)
+				return p;
+			int r = parent.get(q);
+			if (r == q)
+				return q;
+			// points p to its grandparent. If it fails, another Thread already changed it, which is also fine.
+			parent.compareAndSet(p, q, r);
+			p = r;
+		}
+	}
+
+    /**
+     * Joins the sets of p and q.
+     *
+     */
+	private static void union(AtomicIntegerArray parent, int p, int q) {
+		while (true) {
+			int rootP = find(parent, p);
+			int rootQ = find(parent, q);
+			if (rootP == rootQ)
+				return;
+			// the greatest root points to the smallest root. If it fails, the greatest root was joined meanwhile: tries again.
+			int greater = Math.max(rootP, rootQ);
+			int smaller = Math.min(rootP, rootQ);
+			if (parent.compareAndSet(greater, greater, smaller))
+				return;
+		}
+	}
+
+}
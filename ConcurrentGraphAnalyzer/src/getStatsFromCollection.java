@@ -38,12 +38,24 @@ values shall be calculated, and also having all methods available for {int, floa
 but without unnecessary computation and memory usage.
 The median and the k-th smallest element have always the same type of the array. All other results are given in floats for {int, float, long} or double for {double}.
 
-The k-th smallest element is calculated with the Quick Select algorithm using an auxiliary array.
+The k-th smallest element is calculated with the Quick Select algorithm using an auxiliary array, in O(n) even in the worst case:
+it partitions around medians of 3 elements, falling back to medians of medians when those pivots partition too unevenly, and
+splits the values equal to the pivot evenly between both parts, so that many repeated values do not unbalance the partitions.
+The mean, the standard deviation and the harmonic mean are accumulated in a single pass over the values (see StatsAccumulator.java),
+and without the median the values of a Collection are not copied to an auxiliary array.
+The sums over arrays are calculated by the kernels of StatsKernels.java, with several accumulators and pairwise summation.
+The methods taking a ToDoubleFunction or a ToIntFunction (or an array of values indexed by ids) do not box the values, and write their
+results into a StatsResult given by the caller, that can be reused to calculate the results of many collections without allocating memory.
+A StatsResult can also be given quantiles (e.g. the 90th and 99th percentiles), selected together with the median in a single pass of
+partitions over the auxiliary array (see selectRanks), which is cheaper than sorting it.
 
 *******************/
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 
 // classes used to return multiple statistical results of different types at once.
 // For example, having as parameter a Collection of Nodes (each one with an long method),
@@ -122,11 +134,18 @@ public class getStatsFromCollection {
      * Collection<E> collection to a newly created array and of calculating 
      * the mean multiple times. 
      * 
-     * @implNote Only statistical values specified in the parameters are calculated.
+     * @implNote Only statistical values specified in the parameters are calculated. Without the median, the collection is not copied:
+     * the results of the function are accumulated in a single pass (and a second one for the mean absolute deviation).
      *
      */
 	static public <E> float[] getConditionalFloat(Collection<E> collection, Function<E,Float> function, boolean getMedian, boolean getMean,
 			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		if (!getMedian) {
+			double[] stats = getConditionalWithoutMedian(collection, n -> function.apply(n), getMean, getStandardDeviation, getHarmonicMean, 
+					getMeanAbsoluteDeviation);
+			float[] tmp = { -1, (float)stats[1], (float)stats[2], (float)stats[3], (float)stats[4] };
+			return tmp;
+		}
 		float[] arr = new float[collection.size()];
 		int i = 0;
 		for (E n : collection) {
@@ -149,11 +168,17 @@ public class getStatsFromCollection {
      * Collection<E> collection to a newly created array and of calculating 
      * the mean multiple times. 
      * 
-     * @implNote Only statistical values specified in the parameters are calculated.
+     * @implNote Only statistical values specified in the parameters are calculated. Without the median, the collection is not copied:
+     * the results of the function are accumulated in a single pass (and a second one for the mean absolute deviation).
      *
      */
 	static public <E> Int4Floats getConditionalInt(Collection<E> collection, Function<E,Integer> function, boolean getMedian, boolean getMean,
 			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		if (!getMedian) {
+			double[] stats = getConditionalWithoutMedian(collection, n -> function.apply(n), getMean, getStandardDeviation, getHarmonicMean, 
+					getMeanAbsoluteDeviation);
+			return new Int4Floats( -1, (float)stats[1], (float)stats[2], (float)stats[3], (float)stats[4] );
+		}
 		int[] arr = new int[collection.size()];
 		int i = 0;
 		for (E n : collection) {
@@ -176,11 +201,17 @@ public class getStatsFromCollection {
      * Collection<E> collection to a newly created array and of calculating 
      * the mean multiple times. 
      * 
-     * @implNote Only statistical values specified in the parameters are calculated.
+     * @implNote Only statistical values specified in the parameters are calculated. Without the median, the collection is not copied:
+     * the results of the function are accumulated in a single pass (and a second one for the mean absolute deviation).
      *
      */
 	static public <E> double[] getConditionalDouble(Collection<E> collection, Function<E,Double> function, boolean getMedian, boolean getMean,
 			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		if (!getMedian) {
+			double[] stats = getConditionalWithoutMedian(collection, n -> function.apply(n), getMean, getStandardDeviation, getHarmonicMean, 
+					getMeanAbsoluteDeviation);
+			return stats;
+		}
 		double[] arr = new double[collection.size()];
 		int i = 0;
 		for (E n : collection) {
@@ -203,11 +234,17 @@ public class getStatsFromCollection {
      * Collection<E> collection to a newly created array and of calculating 
      * the mean multiple times. 
      * 
-     * @implNote Only statistical values specified in the parameters are calculated.
+     * @implNote Only statistical values specified in the parameters are calculated. Without the median, the collection is not copied:
+     * the results of the function are accumulated in a single pass (and a second one for the mean absolute deviation).
      *
      */
 	static public <E> Long4Floats getConditionalLong(Collection<E> collection, Function<E,Integer> function, boolean getMedian, boolean getMean,
 			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		if (!getMedian) {
+			double[] stats = getConditionalWithoutMedian(collection, n -> function.apply(n), getMean, getStandardDeviation, getHarmonicMean, 
+					getMeanAbsoluteDeviation);
+			return new Long4Floats( -1, (float)stats[1], (float)stats[2], (float)stats[3], (float)stats[4] );
+		}
 		long[] arr = new long[collection.size()];
 		int i = 0;
 		for (E n : collection) {
@@ -216,6 +253,274 @@ public class getStatsFromCollection {
 		return getConditional(arr, getMedian, getMean, getStandardDeviation, getHarmonicMean, getMeanAbsoluteDeviation);
 	}
 	
+    /**
+     * Gets the statistical results specified by the boolean parameters but the median, as { -1, mean, standard deviation, harmonic mean,
+     * mean absolute deviation } (with -1 for those not calculated), without copying the collection.
+     *
+     * @implNote the mean, the standard deviation and the harmonic mean are accumulated in a single pass by a StatsAccumulator.
+     * The mean absolute deviation needs the mean, so it is calculated by a second pass over the collection.
+     *
+     */
+	static private <E> double[] getConditionalWithoutMedian(Collection<E> collection, ToDoubleFunction<E> function, boolean getMean,
+			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		StatsAccumulator accumulator = new StatsAccumulator();
+		if (getMean || getStandardDeviation || getHarmonicMean || getMeanAbsoluteDeviation)
+			for (E n : collection)
+				accumulator.add(function.applyAsDouble(n));
+		double mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? accumulator.getMean() : -1 );
+		double meanAbsoluteDeviation = -1;
+		if (getMeanAbsoluteDeviation) {
+			double tmp = 0;
+			for (E n : collection)
+				tmp += Math.abs(function.applyAsDouble(n) - mean);
+			meanAbsoluteDeviation = tmp / collection.size();
+		}
+		double[] tmp = { -1, mean, (getStandardDeviation ? accumulator.getStandardDeviation() : -1), 
+				(getHarmonicMean ? accumulator.getHarmonicMean() : -1), meanAbsoluteDeviation };
+		return tmp;
+	}
+	
+    /**
+     * Gets the statistical results specified by the boolean parameters, of the values of the elements whose indices are in
+     * ids[ start <= i < end ] (e.g. the recipients of an email in an EmailTable).
+     *
+     * @param ids an array of indices of values.
+     *
+     * @param values the value of each element, indexed by its index. It is not modified.
+     *
+     * @implNote only for the median, the values are copied to a new array of end - start elements, since it is found by reordering it.
+     * Otherwise they are read in place: in a single pass by a StatsAccumulator (and a second one for the mean absolute deviation).
+     *
+     */
+	static public float[] getConditional(int[] ids, int start, int end, float[] values, boolean getMedian, boolean getMean,
+			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		if (!getMedian) {
+			StatsAccumulator accumulator = new StatsAccumulator();
+			if (getMean || getStandardDeviation || getHarmonicMean || getMeanAbsoluteDeviation)
+				for ( int i = start; i < end; i++ )
+					accumulator.add(values[ids[i]]);
+			float mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? (float)accumulator.getMean() : -1 );
+			float harmonicMean = (getHarmonicMean ? (float)accumulator.getHarmonicMean() : -1);
+			float standardDeviation = (getStandardDeviation ? (float)accumulator.getStandardDeviation() : -1);
+			float meanAbsoluteDeviation = -1;
+			if (getMeanAbsoluteDeviation) {
+				float tmp = 0;
+				for ( int i = start; i < end; i++ )
+					tmp += Math.abs(values[ids[i]] - mean);
+				meanAbsoluteDeviation = tmp/(end - start);
+			}
+			float[] tmp = { -1, mean, standardDeviation, harmonicMean, meanAbsoluteDeviation };
+			return tmp;
+		}
+		float[] arr = new float[end - start];
+		for ( int i = start; i < end; i++ )
+			arr[i - start] = values[ids[i]];
+		return getConditional(arr, getMedian, getMean, getStandardDeviation, getHarmonicMean, getMeanAbsoluteDeviation);
+	}
+	
+    /**
+     * Gets the statistical results specified by the boolean parameters, of the values of the elements whose indices are in
+     * ids[ start <= i < end ] (e.g. the recipients of an email in an EmailTable).
+     *
+     * @param ids an array of indices of values.
+     *
+     * @param values the value of each element, indexed by its index. It is not modified.
+     *
+     * @implNote only for the median, the values are copied to a new array of end - start elements, since it is found by reordering it.
+     * Otherwise they are read in place: in a single pass by a StatsAccumulator (and a second one for the mean absolute deviation).
+     *
+     */
+	static public Int4Floats getConditional(int[] ids, int start, int end, int[] values, boolean getMedian, boolean getMean,
+			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		if (!getMedian) {
+			StatsAccumulator accumulator = new StatsAccumulator();
+			if (getMean || getStandardDeviation || getHarmonicMean || getMeanAbsoluteDeviation)
+				for ( int i = start; i < end; i++ )
+					accumulator.add(values[ids[i]]);
+			float mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? (float)accumulator.getMean() : -1 );
+			float harmonicMean = (getHarmonicMean ? (float)accumulator.getHarmonicMean() : -1);
+			float standardDeviation = (getStandardDeviation ? (float)accumulator.getStandardDeviation() : -1);
+			float meanAbsoluteDeviation = -1;
+			if (getMeanAbsoluteDeviation) {
+				float tmp = 0;
+				for ( int i = start; i < end; i++ )
+					tmp += Math.abs(values[ids[i]] - mean);
+				meanAbsoluteDeviation = tmp/(end - start);
+			}
+			return new Int4Floats( -1, mean, standardDeviation, harmonicMean, meanAbsoluteDeviation );
+		}
+		int[] arr = new int[end - start];
+		for ( int i = start; i < end; i++ )
+			arr[i - start] = values[ids[i]];
+		return getConditional(arr, getMedian, getMean, getStandardDeviation, getHarmonicMean, getMeanAbsoluteDeviation);
+	}
+	
+    /**
+     * Gets the statistical results specified by the boolean parameters into a reusable StatsResult.
+     * Use with a function that returns a double (or a float), without boxing its results.
+     *
+     * @param collection a Collection of E
+     *
+     * @param function a function that takes E as parameter and whose results will be subject to statistical analysis.
+     *
+     * @param result the StatsResult in which the results are written (and whose auxiliary arrays are reused).
+     *
+     * @implNote the values are copied to the auxiliary array of result only for the median, the quantiles and the mean absolute deviation.
+     *
+     */
+	static public <E> StatsResult getConditionalAsDouble(Collection<E> collection, ToDoubleFunction<E> function, boolean getMedian, 
+			boolean getMean, boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation, StatsResult result) {
+		int size = collection.size();
+		boolean copy = ( result.selects(getMedian) || getMeanAbsoluteDeviation );
+		double[] values = (copy ? result.values(size) : null);
+		StatsAccumulator accumulator = result.accumulator;
+		accumulator.clear();
+		int i = 0;
+		for (E n : collection) {
+			double value = function.applyAsDouble(n);
+			accumulator.add(value);
+			if (copy)
+				values[i++] = value;
+		}
+		return fillResult(result, values, size, getMedian, getMean, getStandardDeviation, getHarmonicMean, 
+				getMeanAbsoluteDeviation);
+	}
+	
+    /**
+     * Gets the statistical results specified by the boolean parameters into a reusable StatsResult.
+     * Use with a function that returns an int, without boxing its results.
+     *
+     * @param collection a Collection of E
+     *
+     * @param function a function that takes E as parameter and whose results will be subject to statistical analysis.
+     *
+     * @param result the StatsResult in which the results are written (and whose auxiliary arrays are reused).
+     *
+     * @implNote the values are copied to the auxiliary array of result only for the median, the quantiles and the mean absolute deviation.
+     *
+     */
+	static public <E> StatsResult getConditionalAsInt(Collection<E> collection, ToIntFunction<E> function, boolean getMedian, 
+			boolean getMean, boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation, StatsResult result) {
+		int size = collection.size();
+		boolean copy = ( result.selects(getMedian) || getMeanAbsoluteDeviation );
+		int[] values = (copy ? result.intValues(size) : null);
+		StatsAccumulator accumulator = result.accumulator;
+		accumulator.clear();
+		int i = 0;
+		for (E n : collection) {
+			int value = function.applyAsInt(n);
+			accumulator.add(value);
+			if (copy)
+				values[i++] = value;
+		}
+		return fillResult(result, values, size, getMedian, getMean, getStandardDeviation, getHarmonicMean, 
+				getMeanAbsoluteDeviation);
+	}
+	
+    /**
+     * Gets the statistical results specified by the boolean parameters into a reusable StatsResult, of the values of the elements
+     * whose indices are in ids[ start <= i < end ] (e.g. the recipients of an email in an EmailTable).
+     *
+     * @param values the value of each element, indexed by its index. It is not modified.
+     *
+     * @param result the StatsResult in which the results are written (and whose auxiliary arrays are reused).
+     *
+     */
+	static public StatsResult getConditional(int[] ids, int start, int end, float[] values, boolean getMedian, boolean getMean,
+			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation, StatsResult result) {
+		boolean copy = ( result.selects(getMedian) || getMeanAbsoluteDeviation );
+		double[] copied = (copy ? result.values(end - start) : null);
+		StatsAccumulator accumulator = result.accumulator;
+		accumulator.clear();
+		for ( int i = start; i < end; i++ ) {
+			accumulator.add(values[ids[i]]);
+			if (copy)
+				copied[i - start] = values[ids[i]];
+		}
+		return fillResult(result, copied, end - start, getMedian, getMean, getStandardDeviation, getHarmonicMean, 
+				getMeanAbsoluteDeviation);
+	}
+	
+    /**
+     * Gets the statistical results specified by the boolean parameters into a reusable StatsResult, of the values of the elements
+     * whose indices are in ids[ start <= i < end ] (e.g. the recipients of an email in an EmailTable).
+     *
+     * @param values the value of each element, indexed by its index. It is not modified.
+     *
+     * @param result the StatsResult in which the results are written (and whose auxiliary arrays are reused).
+     *
+     */
+	static public StatsResult getConditional(int[] ids, int start, int end, int[] values, boolean getMedian, boolean getMean,
+			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation, StatsResult result) {
+		boolean copy = ( result.selects(getMedian) || getMeanAbsoluteDeviation );
+		int[] copied = (copy ? result.intValues(end - start) : null);
+		StatsAccumulator accumulator = result.accumulator;
+		accumulator.clear();
+		for ( int i = start; i < end; i++ ) {
+			accumulator.add(values[ids[i]]);
+			if (copy)
+				copied[i - start] = values[ids[i]];
+		}
+		return fillResult(result, copied, end - start, getMedian, getMean, getStandardDeviation, getHarmonicMean, 
+				getMeanAbsoluteDeviation);
+	}
+	
+	// fills result from its accumulator and, for the median, the quantiles and the mean absolute deviation, from the first size values.
+	private static StatsResult fillResult(StatsResult result, double[] values, int size, boolean getMedian, boolean getMean, 
+			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		StatsAccumulator accumulator = result.accumulator;
+		result.mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? (float)accumulator.getMean() : -1 );
+		result.standardDeviation = (getStandardDeviation ? (float)accumulator.getStandardDeviation() : -1);
+		result.harmonicMean = (getHarmonicMean ? (float)accumulator.getHarmonicMean() : -1);
+		result.meanAbsoluteDeviation = -1;
+		if (getMeanAbsoluteDeviation)
+			result.meanAbsoluteDeviation = (float)(StatsKernels.sumOfAbsoluteDeviations(values, 0, size, accumulator.getMean()) / size);
+		if (result.quantiles.length > 0) {
+			// the median and the quantiles are selected together.
+			int[] ranks = result.ranks;
+			int numberOfRanks = 0;
+			for ( double quantile : result.quantiles )
+				ranks[numberOfRanks++] = rankOfQuantile(quantile, size);
+			if (getMedian)
+				ranks[numberOfRanks++] = size >>> 1;
+			selectRanks(values, size, ranks, numberOfRanks);
+			for ( int j = 0; j < result.quantiles.length; j++ )
+				result.quantileValues[j] = (size > 0 ? values[rankOfQuantile(result.quantiles[j], size)] : -1);
+			result.median = (getMedian && size > 0 ? values[size >>> 1] : -1);
+		}
+		else
+			result.median = (getMedian && size > 0 ? QuickSelect(values, 0, size - 1, size >>> 1) : -1);
+		return result;
+	}
+	
+	// fills result from its accumulator and, for the median, the quantiles and the mean absolute deviation, from the first size values.
+	private static StatsResult fillResult(StatsResult result, int[] values, int size, boolean getMedian, boolean getMean, 
+			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
+		StatsAccumulator accumulator = result.accumulator;
+		result.mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? (float)accumulator.getMean() : -1 );
+		result.standardDeviation = (getStandardDeviation ? (float)accumulator.getStandardDeviation() : -1);
+		result.harmonicMean = (getHarmonicMean ? (float)accumulator.getHarmonicMean() : -1);
+		result.meanAbsoluteDeviation = -1;
+		if (getMeanAbsoluteDeviation)
+			result.meanAbsoluteDeviation = (float)(StatsKernels.sumOfAbsoluteDeviations(values, 0, size, accumulator.getMean()) / size);
+		if (result.quantiles.length > 0) {
+			// the median and the quantiles are selected together.
+			int[] ranks = result.ranks;
+			int numberOfRanks = 0;
+			for ( double quantile : result.quantiles )
+				ranks[numberOfRanks++] = rankOfQuantile(quantile, size);
+			if (getMedian)
+				ranks[numberOfRanks++] = size >>> 1;
+			selectRanks(values, size, ranks, numberOfRanks);
+			for ( int j = 0; j < result.quantiles.length; j++ )
+				result.quantileValues[j] = (size > 0 ? values[rankOfQuantile(result.quantiles[j], size)] : -1);
+			result.median = (getMedian && size > 0 ? values[size >>> 1] : -1);
+		}
+		else
+			result.median = (getMedian && size > 0 ? QuickSelect(values, 0, size - 1, size >>> 1) : -1);
+		return result;
+	}
+	
     /**
      * Gets the statistical results specified by the boolean parameters.
      * For a less verbose method, use getAll or getMedianMeanStandardDeviation. 
@@ -230,10 +535,12 @@ public class getStatsFromCollection {
      */
 	static public float[] getConditional( float[] arr, boolean getMedian, boolean getMean,
 			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
-		float mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? getMean(arr) : -1 );
+		StatsAccumulator accumulator = ( (getMean || getStandardDeviation || getHarmonicMean || getMeanAbsoluteDeviation) ? 
+				StatsAccumulator.of(arr, 0, arr.length) : null );
+		float mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? (float)accumulator.getMean() : -1 );
 		float median = (getMedian ? getMedian(arr) : -1);
-		float harmonicMean = (getHarmonicMean ? getHarmonicMean(arr) : -1);
-		float standardDeviation = (getStandardDeviation ? getStandardDeviation(arr,mean) : -1);
+		float harmonicMean = (getHarmonicMean ? (float)accumulator.getHarmonicMean() : -1);
+		float standardDeviation = (getStandardDeviation ? (float)accumulator.getStandardDeviation() : -1);
 		float meanAbsoluteDeviation = (getMeanAbsoluteDeviation ? getMeanAbsoluteDeviation(arr,mean) : -1);
 		
 		float[] tmp = { median, mean, standardDeviation, harmonicMean, meanAbsoluteDeviation };
@@ -254,10 +561,12 @@ public class getStatsFromCollection {
      */
 	static public Int4Floats getConditional( int[] arr, boolean getMedian, boolean getMean,
 			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
-		float mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? getMean(arr) : -1 );
+		StatsAccumulator accumulator = ( (getMean || getStandardDeviation || getHarmonicMean || getMeanAbsoluteDeviation) ? 
+				StatsAccumulator.of(arr, 0, arr.length) : null );
+		float mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? (float)accumulator.getMean() : -1 );
 		int median = (getMedian ? getMedian(arr) : -1);
-		float harmonicMean = (getHarmonicMean ? getHarmonicMean(arr) : -1);
-		float standardDeviation = (getStandardDeviation ? getStandardDeviation(arr,mean) : -1);
+		float harmonicMean = (getHarmonicMean ? (float)accumulator.getHarmonicMean() : -1);
+		float standardDeviation = (getStandardDeviation ? (float)accumulator.getStandardDeviation() : -1);
 		float meanAbsoluteDeviation = (getMeanAbsoluteDeviation ? getMeanAbsoluteDeviation(arr,mean) : -1);
 		
 		return new Int4Floats( median, mean, standardDeviation, harmonicMean, meanAbsoluteDeviation );
@@ -277,10 +586,12 @@ public class getStatsFromCollection {
      */
 	static public double[] getConditional( double[] arr, boolean getMedian, boolean getMean,
 			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
-		double mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? getMean(arr) : -1 );
+		StatsAccumulator accumulator = ( (getMean || getStandardDeviation || getHarmonicMean || getMeanAbsoluteDeviation) ? 
+				StatsAccumulator.of(arr, 0, arr.length) : null );
+		double mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? accumulator.getMean() : -1 );
 		double median = (getMedian ? getMedian(arr) : -1);
-		double harmonicMean = (getHarmonicMean ? getHarmonicMean(arr) : -1);
-		double standardDeviation = (getStandardDeviation ? getStandardDeviation(arr,mean) : -1);
+		double harmonicMean = (getHarmonicMean ? accumulator.getHarmonicMean() : -1);
+		double standardDeviation = (getStandardDeviation ? accumulator.getStandardDeviation() : -1);
 		double meanAbsoluteDeviation = (getMeanAbsoluteDeviation ? getMeanAbsoluteDeviation(arr,mean) : -1);
 		
 		double[] tmp = { median, mean, standardDeviation, harmonicMean, meanAbsoluteDeviation };
@@ -301,10 +612,12 @@ public class getStatsFromCollection {
      */
 	static public Long4Floats getConditional( long[] arr, boolean getMedian, boolean getMean,
 			boolean getStandardDeviation, boolean getHarmonicMean, boolean getMeanAbsoluteDeviation) {
-		float mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? getMean(arr) : -1 );
+		StatsAccumulator accumulator = ( (getMean || getStandardDeviation || getHarmonicMean || getMeanAbsoluteDeviation) ? 
+				StatsAccumulator.of(arr, 0, arr.length) : null );
+		float mean = ( (getMean || getStandardDeviation || getMeanAbsoluteDeviation) ? (float)accumulator.getMean() : -1 );
 		long median = (getMedian ? getMedian(arr) : -1);
-		float harmonicMean = (getHarmonicMean ? getHarmonicMean(arr) : -1);
-		float standardDeviation = (getStandardDeviation ? getStandardDeviation(arr,mean) : -1);
+		float harmonicMean = (getHarmonicMean ? (float)accumulator.getHarmonicMean() : -1);
+		float standardDeviation = (getStandardDeviation ? (float)accumulator.getStandardDeviation() : -1);
 		float meanAbsoluteDeviation = (getMeanAbsoluteDeviation ? getMeanAbsoluteDeviation(arr,mean) : -1);
 		
 		return new Long4Floats( median, mean, standardDeviation, harmonicMean, meanAbsoluteDeviation );
@@ -407,11 +720,13 @@ public class getStatsFromCollection {
      * and Mean Absolute Deviation at once is to save the work of copying 
      * Collection<E> collection to a newly created array and of calculating 
      * the mean multiple times. 
+     * The mean, the standard deviation and the harmonic mean are accumulated in a single pass (see StatsAccumulator).
      *
      */
 	static public float[] getAll(float[] arr) {
-		float mean = getMean(arr);
-		float[] tmp = { getMedian(arr), mean, getStandardDeviation(arr,mean), getHarmonicMean(arr), getMeanAbsoluteDeviation(arr,mean) };
+		StatsAccumulator accumulator = StatsAccumulator.of(arr, 0, arr.length);
+		float mean = (float)accumulator.getMean();
+		float[] tmp = { getMedian(arr), mean, (float)accumulator.getStandardDeviation(), (float)accumulator.getHarmonicMean(), getMeanAbsoluteDeviation(arr,mean) };
 		return tmp;
 	}
 	
@@ -427,8 +742,10 @@ public class getStatsFromCollection {
      *
      */
 	static public Long4Floats getAll(int[] arr) {
-		float mean = getMean(arr);
-		return new Long4Floats(getMedian(arr), mean, getStandardDeviation(arr,mean), getHarmonicMean(arr), getMeanAbsoluteDeviation(arr,mean));
+		StatsAccumulator accumulator = StatsAccumulator.of(arr, 0, arr.length);
+		float mean = (float)accumulator.getMean();
+		return new Long4Floats(getMedian(arr), mean, (float)accumulator.getStandardDeviation(), (float)accumulator.getHarmonicMean(), 
+				getMeanAbsoluteDeviation(arr,mean));
 	}
 	
     /**
@@ -443,8 +760,9 @@ public class getStatsFromCollection {
      *
      */
 	static public double[] getAll(double[] arr) {
-		double mean = getMean(arr);
-		double[] tmp = { getMedian(arr), mean, getStandardDeviation(arr,mean), getHarmonicMean(arr), getMeanAbsoluteDeviation(arr,mean) };
+		StatsAccumulator accumulator = StatsAccumulator.of(arr, 0, arr.length);
+		double mean = accumulator.getMean();
+		double[] tmp = { getMedian(arr), mean, accumulator.getStandardDeviation(), accumulator.getHarmonicMean(), getMeanAbsoluteDeviation(arr,mean) };
 		return tmp;
 	}
 	
@@ -460,8 +778,10 @@ public class getStatsFromCollection {
      *
      */
 	static public Long4Floats getAll(long[] arr) {
-		float mean = getMean(arr);
-		return new Long4Floats(getMedian(arr), mean, getStandardDeviation(arr,mean), getHarmonicMean(arr), getMeanAbsoluteDeviation(arr,mean));
+		StatsAccumulator accumulator = StatsAccumulator.of(arr, 0, arr.length);
+		float mean = (float)accumulator.getMean();
+		return new Long4Floats(getMedian(arr), mean, (float)accumulator.getStandardDeviation(), (float)accumulator.getHarmonicMean(), 
+				getMeanAbsoluteDeviation(arr,mean));
 	}
 	
     /**
@@ -610,12 +930,8 @@ public class getStatsFromCollection {
      *
      */
 	static public float getStandardDeviation(float[] arr) {
-		float mean = getMean(arr);
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += (f - mean) * (f - mean);
-		}
-		return (float)Math.sqrt(tmp/arr.length);
+		double mean = StatsKernels.sum(arr, 0, arr.length) / arr.length;
+		return (float)Math.sqrt(StatsKernels.sumOfSquaredDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -626,12 +942,8 @@ public class getStatsFromCollection {
      *
      */
 	static public float getStandardDeviation(int[] arr) {
-		float mean = getMean(arr);
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += (f - mean) * (f - mean);
-		}
-		return (float)Math.sqrt(tmp/arr.length);
+		double mean = (double)StatsKernels.sum(arr, 0, arr.length) / arr.length;
+		return (float)Math.sqrt(StatsKernels.sumOfSquaredDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -642,12 +954,8 @@ public class getStatsFromCollection {
      *
      */
 	static public float getStandardDeviation(long[] arr) {
-		float mean = getMean(arr);
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += (f - mean) * (f - mean);
-		}
-		return (float)Math.sqrt(tmp/arr.length);
+		double mean = StatsKernels.sum(arr, 0, arr.length) / arr.length;
+		return (float)Math.sqrt(StatsKernels.sumOfSquaredDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -658,12 +966,8 @@ public class getStatsFromCollection {
      *
      */
 	static public double getStandardDeviation(double[] arr) {
-		double mean = getMean(arr);
-		double tmp = 0;
-		for ( double f : arr ) {
-			tmp += (f - mean) * (f - mean);
-		}
-		return Math.sqrt(tmp/arr.length);
+		double mean = StatsKernels.sum(arr, 0, arr.length) / arr.length;
+		return Math.sqrt(StatsKernels.sumOfSquaredDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     // receives the already-calculated mean of the array as parameter to save the operations of calculating it,
@@ -681,11 +985,7 @@ public class getStatsFromCollection {
      *
      */
 	static public float getStandardDeviation(float[] arr, float mean) {
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += (f - mean) * (f - mean);
-		}
-		return (float)Math.sqrt(tmp/arr.length);
+		return (float)Math.sqrt(StatsKernels.sumOfSquaredDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -699,11 +999,7 @@ public class getStatsFromCollection {
      *
      */
 	static public float getStandardDeviation(int[] arr, float mean) {
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += (f - mean) * (f - mean);
-		}
-		return (float)Math.sqrt(tmp/arr.length);
+		return (float)Math.sqrt(StatsKernels.sumOfSquaredDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -717,11 +1013,7 @@ public class getStatsFromCollection {
      *
      */
 	static public float getStandardDeviation(long[] arr, float mean) {
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += (f - mean) * (f - mean);
-		}
-		return (float)Math.sqrt(tmp/arr.length);
+		return (float)Math.sqrt(StatsKernels.sumOfSquaredDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -735,11 +1027,7 @@ public class getStatsFromCollection {
      *
      */
 	static public double getStandardDeviation(double[] arr, double mean) {
-		double tmp = 0;
-		for ( double f : arr ) {
-			tmp += (f - mean) * (f - mean);
-		}
-		return Math.sqrt(tmp/arr.length);
+		return Math.sqrt(StatsKernels.sumOfSquaredDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -750,12 +1038,8 @@ public class getStatsFromCollection {
      *
      */
 	static public float getMeanAbsoluteDeviation(float[] arr) {
-		float mean = getMean(arr);
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += Math.abs(f - mean);
-		}
-		return tmp/arr.length;
+		double mean = StatsKernels.sum(arr, 0, arr.length) / arr.length;
+		return (float)(StatsKernels.sumOfAbsoluteDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -766,12 +1050,8 @@ public class getStatsFromCollection {
      *
      */
 	static public float getMeanAbsoluteDeviation(int[] arr) {
-		float mean = getMean(arr);
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += Math.abs(f - mean);
-		}
-		return tmp/arr.length;
+		double mean = (double)StatsKernels.sum(arr, 0, arr.length) / arr.length;
+		return (float)(StatsKernels.sumOfAbsoluteDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -782,12 +1062,8 @@ public class getStatsFromCollection {
      *
      */
 	static public float getMeanAbsoluteDeviation(long[] arr) {
-		float mean = getMean(arr);
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += Math.abs(f - mean);
-		}
-		return tmp/arr.length;
+		double mean = StatsKernels.sum(arr, 0, arr.length) / arr.length;
+		return (float)(StatsKernels.sumOfAbsoluteDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -798,12 +1074,8 @@ public class getStatsFromCollection {
      *
      */
 	static public double getMeanAbsoluteDeviation(double[] arr) {
-		double mean = getMean(arr);
-		double tmp = 0;
-		for ( double f : arr ) {
-			tmp += Math.abs(f - mean);
-		}
-		return tmp/arr.length;
+		double mean = StatsKernels.sum(arr, 0, arr.length) / arr.length;
+		return (StatsKernels.sumOfAbsoluteDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -818,11 +1090,7 @@ public class getStatsFromCollection {
      *
      */
 	static public float getMeanAbsoluteDeviation(float[] arr, float mean) {
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += Math.abs(f - mean);
-		}
-		return tmp/arr.length;
+		return (float)(StatsKernels.sumOfAbsoluteDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -837,11 +1105,7 @@ public class getStatsFromCollection {
      *
      */
 	static public float getMeanAbsoluteDeviation(int[] arr, float mean) {
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += Math.abs(f - mean);
-		}
-		return tmp/arr.length;
+		return (float)(StatsKernels.sumOfAbsoluteDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -856,11 +1120,7 @@ public class getStatsFromCollection {
      *
      */
 	static public float getMeanAbsoluteDeviation(long[] arr, float mean) {
-		float tmp = 0;
-		for ( float f : arr ) {
-			tmp += Math.abs(f - mean);
-		}
-		return tmp/arr.length;
+		return (float)(StatsKernels.sumOfAbsoluteDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -875,11 +1135,7 @@ public class getStatsFromCollection {
      *
      */
 	static public double getMeanAbsoluteDeviation(double[] arr, double mean) {
-		double tmp = 0;
-		for ( double f : arr ) {
-			tmp += Math.abs(f - mean);
-		}
-		return tmp/arr.length;
+		return (StatsKernels.sumOfAbsoluteDeviations(arr, 0, arr.length, mean) / arr.length);
 	}
 	
     /**
@@ -1194,26 +1450,23 @@ public class getStatsFromCollection {
      *
      * @param arr the array from where to select the element.
      * 
-     * @implNote runs with O(n) complexity, where n is the length of the array arr. 
+     * @implNote runs with O(n) complexity in the worst case, where n is the length of the subarray: it partitions around the median 
+     * of 3 elements (of 3 medians of 3 for long ranges), and after 2 log2(n) partitions (on inputs adversarial to those pivots) around
+     * the median of the medians of groups of 5 elements. The values equal to the pivot are split evenly between both parts, so that
+     * repeated values do not unbalance the partitions. It does not recurse (except to find a median of medians) nor allocate memory.
      * 
      */
 	public static int QuickSelect(int[] arr, int left, int right, int k) {
-		// returns the element if it's the only one remaining.
-		if (left == right) {
-			return arr[left];
-		}
-		
-		// select a pivotIndex between left and right
-		int pivotIndex = randomPivot(left, right); 
-		pivotIndex = partition(arr, left, right, pivotIndex);
-		// The pivot is in its final sorted position
-		if (k == pivotIndex) {
-			return arr[k];
-		} else if (k < pivotIndex) {
-			return QuickSelect(arr, left, pivotIndex - 1, k);
-		} else {
-			return QuickSelect(arr, pivotIndex + 1, right, k);
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+		while ( right - left >= sortedRangeLength ) {
+			int middle = partition(arr, left, right, (depth-- > 0 ? pivot(arr, left, right) : medianOfMedians(arr, left, right)));
+			if (k <= middle)
+				right = middle;
+			else
+				left = middle + 1;
 		}
+		Arrays.sort(arr, left, right + 1);
+		return arr[k];
 	}
 	
     /**
@@ -1221,26 +1474,23 @@ public class getStatsFromCollection {
      *
      * @param arr the array from where to select the element.
      * 
-     * @implNote runs with O(n) complexity, where n is the length of the array arr. 
+     * @implNote runs with O(n) complexity in the worst case, where n is the length of the subarray: it partitions around the median 
+     * of 3 elements (of 3 medians of 3 for long ranges), and after 2 log2(n) partitions (on inputs adversarial to those pivots) around
+     * the median of the medians of groups of 5 elements. The values equal to the pivot are split evenly between both parts, so that
+     * repeated values do not unbalance the partitions. It does not recurse (except to find a median of medians) nor allocate memory.
      * 
      */
 	public static float QuickSelect(float[] arr, int left, int right, int k) {
-		// returns the element if it's the only one remaining.
-		if (left == right) {
-			return arr[left];
-		}
-		
-		// select a pivotIndex between left and right
-		int pivotIndex = randomPivot(left, right);
-		pivotIndex = partition(arr, left, right, pivotIndex);
-		// The pivot is in its final sorted position
-		if (k == pivotIndex) {
-			return arr[k];
-		} else if (k < pivotIndex) {
-			return QuickSelect(arr, left, pivotIndex - 1, k);
-		} else {
-			return QuickSelect(arr, pivotIndex + 1, right, k);
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+		while ( right - left >= sortedRangeLength ) {
+			int middle = partition(arr, left, right, (depth-- > 0 ? pivot(arr, left, right) : medianOfMedians(arr, left, right)));
+			if (k <= middle)
+				right = middle;
+			else
+				left = middle + 1;
 		}
+		Arrays.sort(arr, left, right + 1);
+		return arr[k];
 	}
 	
     /**
@@ -1248,26 +1498,23 @@ public class getStatsFromCollection {
      *
      * @param arr the array from where to select the element.
      * 
-     * @implNote runs with O(n) complexity, where n is the length of the array arr. 
+     * @implNote runs with O(n) complexity in the worst case, where n is the length of the subarray: it partitions around the median 
+     * of 3 elements (of 3 medians of 3 for long ranges), and after 2 log2(n) partitions (on inputs adversarial to those pivots) around
+     * the median of the medians of groups of 5 elements. The values equal to the pivot are split evenly between both parts, so that
+     * repeated values do not unbalance the partitions. It does not recurse (except to find a median of medians) nor allocate memory.
      * 
      */
 	public static double QuickSelect(double[] arr, int left, int right, int k) {
-		// returns the element if it's the only one remaining.
-		if (left == right) {
-			return arr[left];
-		}
-		
-		// select a pivotIndex between left and right
-		int pivotIndex = randomPivot(left, right); 
-		pivotIndex = partition(arr, left, right, pivotIndex);
-		// The pivot is in its final sorted position
-		if (k == pivotIndex) {
-			return arr[k];
-		} else if (k < pivotIndex) {
-			return QuickSelect(arr, left, pivotIndex - 1, k);
-		} else {
-			return QuickSelect(arr, pivotIndex + 1, right, k);
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+		while ( right - left >= sortedRangeLength ) {
+			int middle = partition(arr, left, right, (depth-- > 0 ? pivot(arr, left, right) : medianOfMedians(arr, left, right)));
+			if (k <= middle)
+				right = middle;
+			else
+				left = middle + 1;
 		}
+		Arrays.sort(arr, left, right + 1);
+		return arr[k];
 	}
 	
     /**
@@ -1275,102 +1522,319 @@ public class getStatsFromCollection {
      *
      * @param arr the array from where to select the element.
      * 
-     * @implNote runs with O(n) complexity, where n is the length of the array arr. 
+     * @implNote runs with O(n) complexity in the worst case, where n is the length of the subarray: it partitions around the median 
+     * of 3 elements (of 3 medians of 3 for long ranges), and after 2 log2(n) partitions (on inputs adversarial to those pivots) around
+     * the median of the medians of groups of 5 elements. The values equal to the pivot are split evenly between both parts, so that
+     * repeated values do not unbalance the partitions. It does not recurse (except to find a median of medians) nor allocate memory.
      * 
      */
 	public static long QuickSelect(long[] arr, int left, int right, int k) {
-		// returns the element if it's the only one remaining.
-		if (left == right) {
-			return arr[left];
-		}
-		
-		// select a pivotIndex between left and right
-		int pivotIndex = randomPivot(left, right); 
-		pivotIndex = partition(arr, left, right, pivotIndex);
-		// The pivot is in its final sorted position
-		if (k == pivotIndex) {
-			return arr[k];
-		} else if (k < pivotIndex) {
-			return QuickSelect(arr, left, pivotIndex - 1, k);
-		} else {
-			return QuickSelect(arr, pivotIndex + 1, right, k);
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+		while ( right - left >= sortedRangeLength ) {
+			int middle = partition(arr, left, right, (depth-- > 0 ? pivot(arr, left, right) : medianOfMedians(arr, left, right)));
+			if (k <= middle)
+				right = middle;
+			else
+				left = middle + 1;
 		}
+		Arrays.sort(arr, left, right + 1);
+		return arr[k];
 	}
 	
     /**
-     * Partitions the array arr to be used in the QuickSelect method.
-     * Private use only. Only used in the QuickSelect method.
+     * Gets several quantiles of the values arr[ 0 <= i < size ] in one call: result[j] is the element of rank (int)(quantiles[j] * size)
+     * (counting from 0, at most size - 1), so that the quantile 0.5 is the median as getMedian defines it. The array is reordered.
+     * 
+     * @param quantiles the quantiles, between 0 and 1, in any order.
+     * 
+     * @param ranks an auxiliary array of at least quantiles.length ints (so that it can be reused between calls).
      * 
      */
-	private static int partition(int[] arr, int left, int right, int pivotIndex) {
-		int pivotValue = arr[pivotIndex];
-		swap(arr, pivotIndex, right); // move pivot to end
-		int storeIndex = left;
-		for(int i = left; i < right; i++) {
-			if(arr[i] < pivotValue) {
-				swap(arr, storeIndex, i);
-				storeIndex++;
+	public static void getQuantiles(double[] arr, int size, double[] quantiles, double[] result, int[] ranks) {
+		for ( int j = 0; j < quantiles.length; j++ )
+			ranks[j] = rankOfQuantile(quantiles[j], size);
+		selectRanks(arr, size, ranks, quantiles.length);
+		for ( int j = 0; j < quantiles.length; j++ )
+			result[j] = (size > 0 ? arr[rankOfQuantile(quantiles[j], size)] : -1);
+	}
+	
+    /**
+     * Gets several quantiles of the values arr[ 0 <= i < size ] in one call, as getQuantiles over an array of doubles.
+     * The array is reordered.
+     * 
+     */
+	public static void getQuantiles(int[] arr, int size, double[] quantiles, double[] result, int[] ranks) {
+		for ( int j = 0; j < quantiles.length; j++ )
+			ranks[j] = rankOfQuantile(quantiles[j], size);
+		selectRanks(arr, size, ranks, quantiles.length);
+		for ( int j = 0; j < quantiles.length; j++ )
+			result[j] = (size > 0 ? arr[rankOfQuantile(quantiles[j], size)] : -1);
+	}
+	
+	// the length under which a range is sorted instead of partitioned by QuickSelect, and by multiSelect (longer, since sorting a range 
+	// places all the ranks in it at once).
+	private static final int sortedRangeLength = 16;
+	private static final int multiSortedRangeLength = 48;
+	
+	// returns the rank of a quantile among size values.
+	static int rankOfQuantile(double quantile, int size) {
+		return Math.max(0, Math.min(size - 1, (int)(quantile * size)));
+	}
+	
+    /**
+     * Reorders arr[ 0 <= i < size ] so that, for each of the ranks[ 0 <= j < numberOfRanks ], arr[ranks[j]] is the (ranks[j]+1)th 
+     * smallest element. The ranks are sorted.
+     * 
+     * @implNote the elements of all the ranks are selected in a single pass of recursive partitions of arr (as in QuickSelect),
+     * recursing only into the parts holding some of the ranks: about O(n log m) for m distinct ranks, instead of O(n log n) for 
+     * sorting the array. Ranges of less than multiSortedRangeLength values are sorted.
+     * 
+     */
+	public static void selectRanks(double[] arr, int size, int[] ranks, int numberOfRanks) {
+		Arrays.sort(ranks, 0, numberOfRanks);
+		if (size > 0)
+			multiSelect(arr, 0, size - 1, ranks, 0, numberOfRanks, 2 * (32 - Integer.numberOfLeadingZeros(size)));
+	}
+	
+    /**
+     * Reorders arr[ 0 <= i < size ] so that, for each of the ranks[ 0 <= j < numberOfRanks ], arr[ranks[j]] is the (ranks[j]+1)th 
+     * smallest element, as selectRanks over an array of doubles. The ranks are sorted.
+     * 
+     */
+	public static void selectRanks(int[] arr, int size, int[] ranks, int numberOfRanks) {
+		Arrays.sort(ranks, 0, numberOfRanks);
+		if (size > 0)
+			multiSelect(arr, 0, size - 1, ranks, 0, numberOfRanks, 2 * (32 - Integer.numberOfLeadingZeros(size)));
+	}
+	
+	// places the element of each of the sorted ranks[ from <= j < to ], all in arr[ left..right ], in its position.
+	private static void multiSelect(double[] arr, int left, int right, int[] ranks, int from, int to, int depth) {
+		while ( from < to ) {
+			if (right - left < multiSortedRangeLength) {
+				Arrays.sort(arr, left, right + 1);
+				return;
+			}
+			int middle = partition(arr, left, right, (depth-- > 0 ? pivot(arr, left, right) : medianOfMedians(arr, left, right)));
+			// the ranks in the lower part are ranks[ from..firstUpper-1 ].
+			int firstUpper = from;
+			while ( firstUpper < to && ranks[firstUpper] <= middle )
+				firstUpper++;
+			// recurses into the lower part, and loops over the upper part.
+			multiSelect(arr, left, middle, ranks, from, firstUpper, depth);
+			left = middle + 1;
+			from = firstUpper;
+		}
+	}
+	
+	// places the element of each of the sorted ranks[ from <= j < to ], all in arr[ left..right ], in its position.
+	private static void multiSelect(int[] arr, int left, int right, int[] ranks, int from, int to, int depth) {
+		while ( from < to ) {
+			if (right - left < multiSortedRangeLength) {
+				Arrays.sort(arr, left, right + 1);
+				return;
 			}
+			int middle = partition(arr, left, right, (depth-- > 0 ? pivot(arr, left, right) : medianOfMedians(arr, left, right)));
+			// the ranks in the lower part are ranks[ from..firstUpper-1 ].
+			int firstUpper = from;
+			while ( firstUpper < to && ranks[firstUpper] <= middle )
+				firstUpper++;
+			// recurses into the lower part, and loops over the upper part.
+			multiSelect(arr, left, middle, ranks, from, firstUpper, depth);
+			left = middle + 1;
+			from = firstUpper;
 		}
-		swap(arr, right, storeIndex); // Move pivot to its final place
-		return storeIndex;
 	}
 	
     /**
-     * Partitions the array arr to be used in the QuickSelect method.
-     * Private use only. Only used in the QuickSelect method.
+     * Partitions arr[ left <= i <= right ] around the value pivot, which must be one of its elements and neither its unique smallest 
+     * nor its unique largest: returns the position middle such that the elements arr[ left <= i <= middle ] are not larger than pivot, 
+     * and the elements arr[ middle < i <= right ] are not smaller than it, both parts being non-empty.
+     * Private use only. Only used in the QuickSelect and multiSelect methods.
+     * 
+     * @implNote both scans stop at the elements equal to pivot, so that repeated values are split evenly between the two parts.
      * 
      */
-	private static int partition(float[] arr, int left, int right, int pivotIndex) {
-		float pivotValue = arr[pivotIndex];
-		swap(arr, pivotIndex, right); // move pivot to end
-		int storeIndex = left;
-		for(int i = left; i < right; i++) {
-			if(arr[i] < pivotValue) {
-				swap(arr, storeIndex, i);
-				storeIndex++;
-			}
+	private static int partition(int[] arr, int left, int right, int pivot) {
+		int i = left - 1;
+		int j = right + 1;
+		while ( true ) {
+			do i++; while ( arr[i] < pivot );
+			do j--; while ( arr[j] > pivot );
+			if (i >= j)
+				return j;
+			swap(arr, i, j);
+		}
+	}
+	
+	// returns the median of 3 elements of arr[ left <= i <= right ] (of 3 medians of 3 for long ranges, so that sorted parts of the 
+	// range do not unbalance the partitions).
+	private static int pivot(int[] arr, int left, int right) {
+		int middle = (left + right) >>> 1;
+		if (right - left < 512)
+			return medianOf3(arr[left], arr[middle], arr[right]);
+		int step = (right - left) >>> 3;
+		return medianOf3(medianOf3(arr[left], arr[left + step], arr[left + 2*step]), medianOf3(arr[middle - step], arr[middle], arr[middle + step]),
+				medianOf3(arr[right - 2*step], arr[right - step], arr[right]));
+	}
+	
+	// returns the median of a, b and c.
+	private static int medianOf3(int a, int b, int c) {
+		return (a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b)));
+	}
+	
+	// returns the median of the medians of the groups of 5 elements of arr[ left <= i <= right ], which has at least 3/10 of the elements 
+	// on each side. The medians are moved to the start of the range to be selected from.
+	private static int medianOfMedians(int[] arr, int left, int right) {
+		int groups = 0;
+		for ( int i = left; i + 4 <= right; i += 5 ) {
+			Arrays.sort(arr, i, i + 5);
+			swap(arr, left + groups++, i + 2);
 		}
-		swap(arr, right, storeIndex); // Move pivot to its final place
-		return storeIndex;
+		return QuickSelect(arr, left, left + groups - 1, left + ((groups - 1) >>> 1));
 	}
 	
     /**
-     * Partitions the array arr to be used in the QuickSelect method.
-     * Private use only. Only used in the QuickSelect method.
+     * Partitions arr[ left <= i <= right ] around the value pivot, which must be one of its elements and neither its unique smallest 
+     * nor its unique largest: returns the position middle such that the elements arr[ left <= i <= middle ] are not larger than pivot, 
+     * and the elements arr[ middle < i <= right ] are not smaller than it, both parts being non-empty.
+     * Private use only. Only used in the QuickSelect and multiSelect methods.
+     * 
+     * @implNote both scans stop at the elements equal to pivot, so that repeated values are split evenly between the two parts.
      * 
      */
-	private static int partition(double[] arr, int left, int right, int pivotIndex) {
-		double pivotValue = arr[pivotIndex];
-		swap(arr, pivotIndex, right); // move pivot to end
-		int storeIndex = left;
-		for(int i = left; i < right; i++) {
-			if(arr[i] < pivotValue) {
-				swap(arr, storeIndex, i);
-				storeIndex++;
-			}
+	private static int partition(float[] arr, int left, int right, float pivot) {
+		int i = left - 1;
+		int j = right + 1;
+		while ( true ) {
+			do i++; while ( arr[i] < pivot );
+			do j--; while ( arr[j] > pivot );
+			if (i >= j)
+				return j;
+			swap(arr, i, j);
+		}
+	}
+	
+	// returns the median of 3 elements of arr[ left <= i <= right ] (of 3 medians of 3 for long ranges, so that sorted parts of the 
+	// range do not unbalance the partitions).
+	private static float pivot(float[] arr, int left, int right) {
+		int middle = (left + right) >>> 1;
+		if (right - left < 512)
+			return medianOf3(arr[left], arr[middle], arr[right]);
+		int step = (right - left) >>> 3;
+		return medianOf3(medianOf3(arr[left], arr[left + step], arr[left + 2*step]), medianOf3(arr[middle - step], arr[middle], arr[middle + step]),
+				medianOf3(arr[right - 2*step], arr[right - step], arr[right]));
+	}
+	
+	// returns the median of a, b and c.
+	private static float medianOf3(float a, float b, float c) {
+		return (a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b)));
+	}
+	
+	// returns the median of the medians of the groups of 5 elements of arr[ left <= i <= right ], which has at least 3/10 of the elements 
+	// on each side. The medians are moved to the start of the range to be selected from.
+	private static float medianOfMedians(float[] arr, int left, int right) {
+		int groups = 0;
+		for ( int i = left; i + 4 <= right; i += 5 ) {
+			Arrays.sort(arr, i, i + 5);
+			swap(arr, left + groups++, i + 2);
 		}
-		swap(arr, right, storeIndex); // Move pivot to its final place
-		return storeIndex;
+		return QuickSelect(arr, left, left + groups - 1, left + ((groups - 1) >>> 1));
 	}
 	
     /**
-     * Partitions the array arr to be used in the QuickSelect method.
-     * Private use only. Only used in the QuickSelect method.
+     * Partitions arr[ left <= i <= right ] around the value pivot, which must be one of its elements and neither its unique smallest 
+     * nor its unique largest: returns the position middle such that the elements arr[ left <= i <= middle ] are not larger than pivot, 
+     * and the elements arr[ middle < i <= right ] are not smaller than it, both parts being non-empty.
+     * Private use only. Only used in the QuickSelect and multiSelect methods.
+     * 
+     * @implNote both scans stop at the elements equal to pivot, so that repeated values are split evenly between the two parts.
      * 
      */
-	private static int partition(long[] arr, int left, int right, int pivotIndex) {
-		long pivotValue = arr[pivotIndex];
-		swap(arr, pivotIndex, right); // move pivot to end
-		int storeIndex = left;
-		for(int i = left; i < right; i++) {
-			if(arr[i] < pivotValue) {
-				swap(arr, storeIndex, i);
-				storeIndex++;
-			}
+	private static int partition(double[] arr, int left, int right, double pivot) {
+		int i = left - 1;
+		int j = right + 1;
+		while ( true ) {
+			do i++; while ( arr[i] < pivot );
+			do j--; while ( arr[j] > pivot );
+			if (i >= j)
+				return j;
+			swap(arr, i, j);
 		}
-		swap(arr, right, storeIndex); // Move pivot to its final place
-		return storeIndex;
+	}
+	
+	// returns the median of 3 elements of arr[ left <= i <= right ] (of 3 medians of 3 for long ranges, so that sorted parts of the 
+	// range do not unbalance the partitions).
+	private static double pivot(double[] arr, int left, int right) {
+		int middle = (left + right) >>> 1;
+		if (right - left < 512)
+			return medianOf3(arr[left], arr[middle], arr[right]);
+		int step = (right - left) >>> 3;
+		return medianOf3(medianOf3(arr[left], arr[left + step], arr[left + 2*step]), medianOf3(arr[middle - step], arr[middle], arr[middle + step]),
+				medianOf3(arr[right - 2*step], arr[right - step], arr[right]));
+	}
+	
+	// returns the median of a, b and c.
+	private static double medianOf3(double a, double b, double c) {
+		return (a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b)));
+	}
+	
+	// returns the median of the medians of the groups of 5 elements of arr[ left <= i <= right ], which has at least 3/10 of the elements 
+	// on each side. The medians are moved to the start of the range to be selected from.
+	private static double medianOfMedians(double[] arr, int left, int right) {
+		int groups = 0;
+		for ( int i = left; i + 4 <= right; i += 5 ) {
+			Arrays.sort(arr, i, i + 5);
+			swap(arr, left + groups++, i + 2);
+		}
+		return QuickSelect(arr, left, left + groups - 1, left + ((groups - 1) >>> 1));
+	}
+	
+    /**
+     * Partitions arr[ left <= i <= right ] around the value pivot, which must be one of its elements and neither its unique smallest 
+     * nor its unique largest: returns the position middle such that the elements arr[ left <= i <= middle ] are not larger than pivot, 
+     * and the elements arr[ middle < i <= right ] are not smaller than it, both parts being non-empty.
+     * Private use only. Only used in the QuickSelect and multiSelect methods.
+     * 
+     * @implNote both scans stop at the elements equal to pivot, so that repeated values are split evenly between the two parts.
+     * 
+     */
+	private static int partition(long[] arr, int left, int right, long pivot) {
+		int i = left - 1;
+		int j = right + 1;
+		while ( true ) {
+			do i++; while ( arr[i] < pivot );
+			do j--; while ( arr[j] > pivot );
+			if (i >= j)
+				return j;
+			swap(arr, i, j);
+		}
+	}
+	
+	// returns the median of 3 elements of arr[ left <= i <= right ] (of 3 medians of 3 for long ranges, so that sorted parts of the 
+	// range do not unbalance the partitions).
+	private static long pivot(long[] arr, int left, int right) {
+		int middle = (left + right) >>> 1;
+		if (right - left < 512)
+			return medianOf3(arr[left], arr[middle], arr[right]);
+		int step = (right - left) >>> 3;
+		return medianOf3(medianOf3(arr[left], arr[left + step], arr[left + 2*step]), medianOf3(arr[middle - step], arr[middle], arr[middle + step]),
+				medianOf3(arr[right - 2*step], arr[right - step], arr[right]));
+	}
+	
+	// returns the median of a, b and c.
+	private static long medianOf3(long a, long b, long c) {
+		return (a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b)));
+	}
+	
+	// returns the median of the medians of the groups of 5 elements of arr[ left <= i <= right ], which has at least 3/10 of the elements 
+	// on each side. The medians are moved to the start of the range to be selected from.
+	private static long medianOfMedians(long[] arr, int left, int right) {
+		int groups = 0;
+		for ( int i = left; i + 4 <= right; i += 5 ) {
+			Arrays.sort(arr, i, i + 5);
+			swap(arr, left + groups++, i + 2);
+		}
+		return QuickSelect(arr, left, left + groups - 1, left + ((groups - 1) >>> 1));
 	}
 	
     /**
@@ -1413,14 +1877,6 @@ public class getStatsFromCollection {
 		arr[b] = tmp;
 	}
 
-    /**
-     * Returns a random index between left and right, included.
-     * 
-     */
-	public static int randomPivot(int left, int right) {
-		return left + (int) Math.floor(Math.random() * (right - left + 1));
-	}
-	
     /**
      * Returns the median of the array arr.
      * 
@@ -1470,10 +1926,7 @@ public class getStatsFromCollection {
      * 
      */
 	static public float getMean (float[] arr) {
-		float tmp = 0;
-		for (float f : arr)
-			tmp += f;
-		return tmp/arr.length;
+		return (float)(StatsKernels.sum(arr, 0, arr.length) / arr.length);
 	}
 	
     /**
@@ -1481,10 +1934,7 @@ public class getStatsFromCollection {
      * 
      */
 	static public float getMean (int[] arr) {
-		float tmp = 0;
-		for (int f : arr)
-			tmp += f;
-		return tmp/arr.length;
+		return (float)((double)StatsKernels.sum(arr, 0, arr.length) / arr.length);
 	}
 	
     /**
@@ -1492,10 +1942,7 @@ public class getStatsFromCollection {
      * 
      */
 	static public double getMean (double[] arr) {
-		double tmp = 0;
-		for (double f : arr)
-			tmp += f;
-		return tmp/arr.length;
+		return (StatsKernels.sum(arr, 0, arr.length) / arr.length);
 	}
 	
     /**
@@ -1503,10 +1950,7 @@ public class getStatsFromCollection {
      * 
      */
 	static public float getMean (long[] arr) {
-		float tmp = 0;
-		for (long f : arr)
-			tmp += f;
-		return tmp/arr.length;
+		return (float)(StatsKernels.sum(arr, 0, arr.length) / arr.length);
 	}
 	
     /**
@@ -1514,13 +1958,7 @@ public class getStatsFromCollection {
      * 
      */
 	static public float getHarmonicMean (float[] arr) {
-		float tmp = 0;
-		for (float f : arr) {
-			if (f == 0)
-				return 0;
-			tmp += 1/f;
-		}
-		return arr.length/tmp;
+		return (float)StatsKernels.harmonicMean(arr, 0, arr.length);
 	}
 	
     /**
@@ -1528,12 +1966,7 @@ public class getStatsFromCollection {
      * 
      */
 	static public float getHarmonicMean (int[] arr) {
-		float tmp = 0;
-		for (float f : arr) {
-			if (f == 0)
-				return 0;
-			tmp += 1/f;
-		}return arr.length/tmp;
+		return (float)StatsKernels.harmonicMean(arr, 0, arr.length);
 	}
 	
     /**
@@ -1541,12 +1974,7 @@ public class getStatsFromCollection {
      * 
      */
 	static public double getHarmonicMean (double[] arr) {
-		double tmp = 0;
-		for (double f : arr) {
-			if (f == 0)
-				return 0;
-			tmp += 1/f;
-		}return arr.length/tmp;
+		return StatsKernels.harmonicMean(arr, 0, arr.length);
 	}
 	
     /**
@@ -1554,12 +1982,7 @@ public class getStatsFromCollection {
      * 
      */
 	static public float getHarmonicMean (long[] arr) {
-		float tmp = 0;
-		for (float f : arr) {
-			if (f == 0)
-				return 0;
-			tmp += 1/f;
-		}return arr.length/tmp;
+		return (float)StatsKernels.harmonicMean(arr, 0, arr.length);
 	}
 	
     /**
@@ -0,0 +1,39 @@
+
+/*******************
+
+Enumerates the engines that can be used by the main function to calculate the centralities.
+
+*******************/
+
+/**
+ * Enumerates the engines calculating the centralities.
+ *
+ * All of them calculate the same 6 types of centrality specified at centralityType.java.
+ * 
+ */
+public enum rankingEngine { 
+	
+	// PageRank.java: Threads iterate asynchronously over the Nodes, and the convergence is assessed periodically.
+	asynchronous, 
+	
+	// PageRank.java over a CompressedGraph: the same asynchronous iterations, decoding the compressed rows of each Node.
+	// The graph is built without Nodes, and only its compressed rows stay in memory while iterating.
+	compressed,
+	
+	// PushPullPageRank.java: synchronous iterations over a CompactGraph, switching between PULL sweeps and PUSH updates from the active Nodes.
+	pushPull,
+	
+	// SCCOrderedPageRank.java: solves the strongly connected components of the graph in topological order, each one until convergence.
+	sccOrdered,
+	
+	// ComponentPageRank.java: solves each weakly connected component of the graph separately, with its own convergence criterion.
+	perComponent,
+	
+	// DistributedPageRank.java: partitions the graph among several worker processes exchanging boundary centralities through sockets.
+	distributed,
+	
+	// StreamingPageRank.java: keeps only the centrality vectors in memory and streams the edges from shards on disk at each iteration.
+	// The graph is built without Nodes, and its edges are released once written in the shards.
+	outOfCore
+	                                           
+}